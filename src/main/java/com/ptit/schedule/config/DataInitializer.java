@@ -5,6 +5,7 @@ import com.ptit.schedule.entity.User;
 import com.ptit.schedule.repository.FacultyRepository;
 import com.ptit.schedule.repository.RoomRepository;
 import com.ptit.schedule.repository.UserRepository;
+import com.ptit.schedule.service.WorkingSetWarmupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
@@ -26,6 +27,7 @@ public class DataInitializer implements CommandLineRunner {
     private final RoomRepository roomRepository;
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final WorkingSetWarmupService workingSetWarmupService;
     
     @Override
     public void run(String... args) {
@@ -60,6 +62,9 @@ public class DataInitializer implements CommandLineRunner {
             log.error("Error during data initialization: {}", e.getMessage(), e);
             // Không throw exception để app vẫn start được
         }
+
+        // Warm-up sau khi dữ liệu đã sẵn sàng (opt-in)
+        workingSetWarmupService.warmUp();
     }
     
     /**
@@ -2,8 +2,10 @@ package com.ptit.schedule.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
@@ -26,4 +28,36 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * Lua script giữ chỗ phòng (check-and-set nguyên tử trên bitmap occupancy)
+     */
+    @Bean
+    public RedisScript<Long> occupancyReserveScript() {
+        return RedisScript.of(new ClassPathResource("scripts/occupancy_reserve.lua"), Long.class);
+    }
+
+    /**
+     * Lua script nạp bitmap occupancy từ MySQL (chỉ chạy một lần cho mỗi học kỳ)
+     */
+    @Bean
+    public RedisScript<Long> occupancySeedScript() {
+        return RedisScript.of(new ClassPathResource("scripts/occupancy_seed.lua"), Long.class);
+    }
+
+    /**
+     * Lua script lấy khóa học kỳ và cấp fencing token
+     */
+    @Bean
+    public RedisScript<Long> semesterLockAcquireScript() {
+        return RedisScript.of(new ClassPathResource("scripts/semester_lock_acquire.lua"), Long.class);
+    }
+
+    /**
+     * Lua script trả khóa học kỳ (chỉ khi token còn khớp)
+     */
+    @Bean
+    public RedisScript<Long> semesterLockReleaseScript() {
+        return RedisScript.of(new ClassPathResource("scripts/semester_lock_release.lua"), Long.class);
+    }
 }
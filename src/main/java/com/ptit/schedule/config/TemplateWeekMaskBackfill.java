@@ -0,0 +1,70 @@
+package com.ptit.schedule.config;
+
+import com.ptit.schedule.repository.TKBTemplateRepository;
+import com.ptit.schedule.utils.WeekMask;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Migration dữ liệu: điền cột tkb_templates.week_mask từ JSON week_schedule.
+ * Cột được Hibernate (ddl-auto update) thêm vào; chỉ các dòng còn NULL được xử lý nên chạy lại không tốn gì.
+ */
+@Slf4j
+@Component
+@Order(1)
+@RequiredArgsConstructor
+public class TemplateWeekMaskBackfill implements CommandLineRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final TKBTemplateRepository tkbTemplateRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(String... args) {
+        try {
+            List<Object[]> pending = tkbTemplateRepository.findWithoutWeekMask();
+            if (pending.isEmpty()) {
+                return;
+            }
+            log.info("Backfilling week_mask for {} templates...", pending.size());
+
+            List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+            int updated = 0;
+            int skipped = 0;
+            for (Object[] row : pending) {
+                int mask = WeekMask.fromJson((String) row[1]);
+                if (mask < 0) {
+                    log.warn("Cannot parse week_schedule of template {}: {}", row[0], row[1]);
+                    skipped++;
+                    continue;
+                }
+                batch.add(new Object[] { mask, row[0] });
+                if (batch.size() == BATCH_SIZE) {
+                    updated += flush(batch);
+                }
+            }
+            updated += flush(batch);
+            log.info("Backfilled week_mask for {} templates (skipped {})", updated, skipped);
+        } catch (Exception e) {
+            log.error("Error backfilling template week_mask: {}", e.getMessage(), e);
+        }
+    }
+
+    private int flush(List<Object[]> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate("UPDATE tkb_templates SET week_mask = ? WHERE id = ?", batch);
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+}
@@ -1,6 +1,7 @@
 package com.ptit.schedule.controller;
 
 import com.ptit.schedule.dto.BulkCreateRoomOccupancyRequest;
+import com.ptit.schedule.dto.OccupancyEventResponse;
 import com.ptit.schedule.dto.PageResponse;
 import com.ptit.schedule.dto.RoomOccupancyResponse;
 import com.ptit.schedule.dto.RoomWithOccupancyStatus;
@@ -17,9 +18,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -152,6 +155,48 @@ public class RoomOccupancyController {
                 "status", "success"));
     }
 
+    @GetMapping("/semester/{semesterId}/history")
+    @Operation(summary = "Get occupancy history of a semester", description = "Audit log of room occupancy changes (who took a room and when), newest first")
+    public ResponseEntity<PageResponse<OccupancyEventResponse>> getOccupancyHistory(
+            @Parameter(description = "Semester ID") @PathVariable Long semesterId,
+            @Parameter(description = "From (ISO date-time)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @Parameter(description = "To (ISO date-time)") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @Parameter(description = "Page number (0-based)") @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "Page size") @RequestParam(defaultValue = "50") int size) {
+        log.info("GET /api/v1/room-occupancies/semester/{}/history?from={}&to={}&page={}&size={}",
+                semesterId, from, to, page, size);
+
+        Page<OccupancyEventResponse> pageData = roomOccupancyService.getOccupancyHistory(semesterId,
+                from != null ? from : LocalDateTime.of(1970, 1, 1, 0, 0),
+                to != null ? to : LocalDateTime.now(),
+                PageRequest.of(page, size));
+
+        PageResponse<OccupancyEventResponse> response = PageResponse.<OccupancyEventResponse>builder()
+                .content(pageData.getContent())
+                .pageNum(pageData.getNumber())
+                .pageSize(pageData.getSize())
+                .total(pageData.getTotalElements())
+                .build();
+
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping("/semester/{semesterId}/rollback")
+    @Operation(summary = "Rollback room occupancies to a point in time", description = "Restore the occupancy state of a semester as it was at the given time (replayed from the occupancy log)")
+    public ResponseEntity<Map<String, Object>> rollbackOccupancies(
+            @Parameter(description = "Semester ID") @PathVariable Long semesterId,
+            @Parameter(description = "Point in time (ISO date-time)") @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        log.info("POST /api/v1/room-occupancies/semester/{}/rollback?at={}", semesterId, at);
+
+        int restored = roomOccupancyService.rollbackOccupancies(semesterId, at);
+
+        return ResponseEntity.ok(Map.of(
+                "message", "Đã khôi phục room occupancies của học kỳ về thời điểm " + at,
+                "semesterId", semesterId,
+                "totalOccupied", restored,
+                "status", "success"));
+    }
+
     @PostMapping("/bulk-create")
     @Operation(summary = "Bulk create room occupancies from TKB", description = "Create multiple room occupancy records for a semester")
     public ResponseEntity<Map<String, Object>> bulkCreateOccupancies(
@@ -2,6 +2,7 @@ package com.ptit.schedule.controller;
 
 import com.ptit.schedule.dto.*;
 import com.ptit.schedule.entity.Schedule;
+import com.ptit.schedule.entity.Semester;
 import com.ptit.schedule.entity.Subject;
 import com.ptit.schedule.entity.TKBTemplate;
 import com.ptit.schedule.entity.User;
@@ -11,21 +12,34 @@ import com.ptit.schedule.exception.ResourceNotFoundException;
 import com.ptit.schedule.repository.SubjectRepository;
 import com.ptit.schedule.repository.TKBTemplateRepository;
 import com.ptit.schedule.repository.RoomRepository;
+import com.ptit.schedule.repository.SemesterRepository;
+import com.ptit.schedule.service.LiveConflictIndexService;
+import com.ptit.schedule.service.ScheduleConflictGateService;
+import com.ptit.schedule.service.ScheduleExportService;
 import com.ptit.schedule.service.ScheduleService;
 import com.ptit.schedule.service.DataLoaderService;
+import com.ptit.schedule.service.UploadLimits;
+import com.ptit.schedule.utils.ConflictIndex;
+import com.ptit.schedule.utils.DelimitedStreamReader;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 @RestController
 @RequestMapping("/api/schedules")
@@ -38,6 +52,11 @@ public class ScheduleController {
     private final SubjectRepository subjectRepository;
     private final DataLoaderService dataLoaderService;
     private final RoomRepository roomRepository;
+    private final SemesterRepository semesterRepository;
+    private final ScheduleExportService scheduleExportService;
+    private final ScheduleConflictGateService scheduleConflictGateService;
+    private final LiveConflictIndexService liveConflictIndexService;
+    private final UploadLimits uploadLimits;
 
     @PostMapping("/save-batch")
     public ResponseEntity<String> saveSchedule(@RequestBody List<SaveScheduleRequest> scheduleRequests) {
@@ -112,7 +131,15 @@ public class ScheduleController {
             schedules.add(schedule);
         }
 
-        scheduleService.saveAll(schedules);
+        // Kiểm tra trùng phòng với các lịch đã lưu của học kỳ trước khi ghi
+        List<ConflictIndex.Conflict> conflicts = scheduleConflictGateService.saveChecked(schedules, scheduleService::saveAll);
+        // Chỉ dựng lại bản lịch đang chỉnh của các học kỳ vừa lưu
+        schedules.stream()
+                .map(Schedule::getSemester)
+                .filter(Objects::nonNull)
+                .map(Semester::getId)
+                .distinct()
+                .forEach(liveConflictIndexService::reset);
 
         // Auto-commit lastSlotIdx to Redis sau khi lưu TKB
         if (!schedules.isEmpty()) {
@@ -126,6 +153,9 @@ public class ScheduleController {
             }
         }
 
+        if (!conflicts.isEmpty()) {
+            return ResponseEntity.ok("Đã lưu TKB vào database! Cảnh báo: " + conflicts.size() + " lớp trùng phòng");
+        }
         return ResponseEntity.ok("Đã lưu TKB vào database!");
     }
 
@@ -167,12 +197,17 @@ public class ScheduleController {
         }
 
         scheduleService.deleteScheduleById(id);
+        scheduleConflictGateService.invalidate();
+        liveConflictIndexService.removeSaved(List.of(id));
         return ResponseEntity.ok("Đã xóa lịch học!");
     }
 
     @DeleteMapping
     public ResponseEntity<String> deleteAllSchedules() {
+        List<Long> scheduleIds = scheduleService.getAllScheduleIds();
         scheduleService.deleteAllSchedules();
+        scheduleConflictGateService.invalidate();
+        liveConflictIndexService.removeSaved(scheduleIds);
         return ResponseEntity.ok("Đã xóa toàn bộ lịch học!");
     }
 
@@ -199,6 +234,40 @@ public class ScheduleController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(summary = "Export saved schedules", description = "Xuất TKB đã lưu của một học kỳ ra file Excel (streaming)")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportSchedules(
+            @RequestParam String semesterName,
+            @RequestParam String academicYear) {
+        // Kiểm tra trước khi bắt đầu stream để trả 404 thay vì file hỏng
+        if (semesterRepository.findBySemesterNameAndAcademicYear(semesterName, academicYear).isEmpty()) {
+            throw new ResourceNotFoundException("học kỳ", "tên", semesterName + " - " + academicYear);
+        }
+
+        StreamingResponseBody body = out -> scheduleExportService.exportSemesterSchedules(semesterName, academicYear, out);
+        return excelResponse("TKB_" + semesterName + "_" + academicYear + ".xlsx", body);
+    }
+
+    @Operation(summary = "Export generated batch", description = "Xuất kết quả generate-batch chưa lưu ra file Excel")
+    @PostMapping("/export-batch")
+    public ResponseEntity<StreamingResponseBody> exportBatch(@RequestBody TKBBatchResponse batch) {
+        if (batch == null || batch.getItems() == null || batch.getItems().isEmpty()) {
+            throw new InvalidDataException("Kết quả xếp lịch không được rỗng");
+        }
+
+        StreamingResponseBody body = out -> scheduleExportService.exportBatch(batch, out);
+        return excelResponse("TKB_generated.xlsx", body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> excelResponse(String fileName, StreamingResponseBody body) {
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName, StandardCharsets.UTF_8).build().toString())
+                .contentType(MediaType.parseMediaType(
+                        "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"))
+                .body(body);
+    }
+
     @Operation(summary = "Health check", description = "Kiểm tra trạng thái Schedule controller")
     @GetMapping("/health")
     public ResponseEntity<String> health() {
@@ -218,6 +287,16 @@ public class ScheduleController {
         return ResponseEntity.ok(response);
     }
 
+    @Operation(summary = "Template cache stats", description = "Hit / miss / thời gian load của cache lịch mẫu")
+    @GetMapping("/template-cache/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> templateCacheStats() {
+        return ResponseEntity.ok(ApiResponse.<Map<String, Object>>builder()
+                .success(true)
+                .message("Template cache stats")
+                .data(dataLoaderService.getTemplateCacheStats())
+                .build());
+    }
+
     @Operation(summary = "Reset TKB state", description = "Reset global scheduling state")
     @PostMapping("/reset")
     public ResponseEntity<Map<String, Object>> resetState() {
@@ -281,9 +360,11 @@ public class ScheduleController {
         }
 
         String filename = file.getOriginalFilename();
-        if (filename == null || (!filename.endsWith(".xlsx") && !filename.endsWith(".xls"))) {
-            throw new InvalidDataException("File phải có định dạng Excel (.xlsx hoặc .xls)");
+        if (filename == null || (!filename.endsWith(".xlsx") && !filename.endsWith(".xls")
+                && DelimitedStreamReader.delimiterFor(filename) == 0)) {
+            throw new InvalidDataException("File phải có định dạng Excel (.xlsx hoặc .xls) hoặc .csv / .tsv");
         }
+        uploadLimits.check(UploadLimits.Upload.TEMPLATE_IMPORT, file);
 
         // Import và lưu với tên file theo học kỳ
         String jsonFilename = dataLoaderService.importDataFromExcel(file, semester);
@@ -1,18 +1,31 @@
 package com.ptit.schedule.controller;
 
 import com.ptit.schedule.dto.ApiResponse;
+import com.ptit.schedule.dto.CohortConflictReport;
 import com.ptit.schedule.dto.ConflictResult;
+import com.ptit.schedule.dto.ConflictSummary;
+import com.ptit.schedule.dto.LiveConflictDelta;
+import com.ptit.schedule.dto.LiveEntryRequest;
+import com.ptit.schedule.dto.PagedResponse;
 import com.ptit.schedule.dto.ScheduleEntry;
 import com.ptit.schedule.dto.ScheduleValidationResult;
+import com.ptit.schedule.exception.InvalidDataException;
+import com.ptit.schedule.service.CohortConflictService;
+import com.ptit.schedule.service.ConflictReportStore;
+import com.ptit.schedule.service.LiveConflictIndexService;
 import com.ptit.schedule.service.ScheduleConflictDetectionService;
 import com.ptit.schedule.service.ScheduleExcelReaderService;
+import com.ptit.schedule.service.UploadLimits;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @Slf4j
 @RestController
@@ -22,12 +35,19 @@ public class ScheduleValidationController {
 
     private final ScheduleExcelReaderService excelReaderService;
     private final ScheduleConflictDetectionService conflictDetectionService;
+    private final LiveConflictIndexService liveConflictIndexService;
+    private final ConflictReportStore conflictReportStore;
+    private final CohortConflictService cohortConflictService;
+    private final UploadLimits uploadLimits;
+
+    private static final int MAX_PAGE_SIZE = 500;
 
     /**
      * API endpoint để validate file Excel format
      */
     @PostMapping(value = "/validate-format", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ApiResponse<Boolean> validateExcelFormat(@RequestParam("file") MultipartFile file) {
+        uploadLimits.check(UploadLimits.Upload.SCHEDULE_ANALYZE, file);
         try {
             if (file.isEmpty()) {
                 return ApiResponse.badRequest("Vui lòng chọn file Excel để upload");
@@ -49,40 +69,55 @@ public class ScheduleValidationController {
 
     /**
      * API endpoint để upload và phân tích xung đột
+     * File được đọc một lượt: kiểm tra header, parse và đưa vào bộ phát hiện xung đột cùng lúc.
+     * includeEntries=false để không trả lại toàn bộ dữ liệu file trong response.
+     * Kết quả được lưu lại theo conflictSummary.analysisId; includeConflicts=false chỉ trả số liệu tổng hợp,
+     * chi tiết lấy theo trang qua GET /conflicts/{type}.
      */
     @PostMapping(value = "/analyze", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ApiResponse<ScheduleValidationResult> analyzeSchedule(@RequestParam("file") MultipartFile file) {
+    public ApiResponse<ScheduleValidationResult> analyzeSchedule(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "includeEntries", defaultValue = "true") boolean includeEntries,
+            @RequestParam(value = "includeConflicts", defaultValue = "true") boolean includeConflicts) {
+        uploadLimits.check(UploadLimits.Upload.SCHEDULE_ANALYZE, file);
         try {
             // Validate file
             if (file.isEmpty()) {
                 return ApiResponse.badRequest("Vui lòng chọn file Excel để upload");
             }
 
-            if (!excelReaderService.validateScheduleExcelFormat(file)) {
-                return ApiResponse.badRequest("File không đúng định dạng thời khóa biểu. Vui lòng kiểm tra lại file Excel.");
-            }
+            ScheduleConflictDetectionService.Collector collector = conflictDetectionService.newCollector();
+            List<ScheduleEntry> scheduleEntries = includeEntries ? new ArrayList<>() : null;
 
-            // Read schedule data
-            List<ScheduleEntry> scheduleEntries = excelReaderService.readScheduleFromExcel(file);
-            
-            if (scheduleEntries.isEmpty()) {
+            int totalEntries = excelReaderService.streamScheduleFromExcel(file, entry -> {
+                collector.add(entry);
+                if (scheduleEntries != null) {
+                    scheduleEntries.add(entry);
+                }
+            });
+
+            if (totalEntries == 0) {
                 return ApiResponse.badRequest("Không tìm thấy dữ liệu thời khóa biểu trong file. Vui lòng kiểm tra lại.");
             }
 
             // Detect conflicts
-            ConflictResult conflictResult = conflictDetectionService.detectConflicts(scheduleEntries);
+            ConflictResult conflictResult = collector.finish();
+            String analysisId = conflictReportStore.put(file.getOriginalFilename(), conflictResult);
 
             // Prepare result
             ScheduleValidationResult result = ScheduleValidationResult.builder()
-                    .conflictResult(conflictResult)
+                    .conflictResult(includeConflicts ? conflictResult : null)
+                    .conflictSummary(ConflictSummary.of(analysisId, conflictResult))
                     .scheduleEntries(scheduleEntries)
                     .fileName(file.getOriginalFilename())
-                    .totalEntries(scheduleEntries.size())
+                    .totalEntries(totalEntries)
                     .fileSize(file.getSize())
                     .build();
 
             return ApiResponse.success(result, "Phân tích thành công");
 
+        } catch (InvalidDataException e) {
+            return ApiResponse.badRequest(e.getMessage());
         } catch (Exception e) {
             log.error("Error processing schedule file", e);
             return ApiResponse.error("Lỗi khi xử lý file: " + e.getMessage(), 400);
@@ -90,19 +125,89 @@ public class ScheduleValidationController {
     }
 
     /**
-     * API endpoint để lấy chi tiết xung đột cụ thể
+     * API endpoint để lấy chi tiết xung đột cụ thể của một lần phân tích, theo trang
+     *
+     * @param type       room | teacher
+     * @param analysisId conflictSummary.analysisId trả về từ /analyze
+     * @param room       Chỉ lấy xung đột của phòng này (type=room)
+     * @param teacherId  Chỉ lấy xung đột của giảng viên này (type=teacher)
      */
     @GetMapping("/conflicts/{type}")
-    public ApiResponse<Object> getConflictDetails(@PathVariable String type,
-                                                  @RequestParam(required = false) String room,
-                                                  @RequestParam(required = false) String teacherId) {
-        try {
-            // This endpoint could be extended to provide detailed analysis
-            // for specific conflicts if needed
-            return ApiResponse.success(null, "Endpoint for future detailed conflict analysis");
-        } catch (Exception e) {
-            log.error("Error getting conflict details", e);
-            return ApiResponse.error("Lỗi khi lấy chi tiết xung đột: " + e.getMessage(), 400);
+    public ApiResponse<PagedResponse<?>> getConflictDetails(@PathVariable String type,
+                                                            @RequestParam String analysisId,
+                                                            @RequestParam(required = false) String room,
+                                                            @RequestParam(required = false) String teacherId,
+                                                            @RequestParam(defaultValue = "0") int page,
+                                                            @RequestParam(defaultValue = "50") int size) {
+        if (page < 0 || size <= 0 || size > MAX_PAGE_SIZE) {
+            return ApiResponse.badRequest("page phải >= 0 và size trong khoảng 1.." + MAX_PAGE_SIZE);
+        }
+
+        Optional<ConflictReportStore.Report> report = conflictReportStore.get(analysisId);
+        if (report.isEmpty()) {
+            return ApiResponse.notFound("Không tìm thấy kết quả phân tích " + analysisId + " (đã hết hạn hoặc chưa phân tích)");
         }
+
+        return switch (type.toLowerCase()) {
+            case "room" -> ApiResponse.success(page(report.get().roomConflicts().stream()
+                    .filter(c -> room == null || room.equals(c.getRoom()))
+                    .toList(), page, size));
+            case "teacher" -> ApiResponse.success(page(report.get().teacherConflicts().stream()
+                    .filter(c -> teacherId == null || teacherId.equals(c.getTeacherId()))
+                    .toList(), page, size));
+            default -> ApiResponse.badRequest("Loại xung đột không hợp lệ: " + type + " (room | teacher)");
+        };
+    }
+
+    private static <T> PagedResponse<T> page(List<T> all, int page, int size) {
+        int from = (int) Math.min((long) page * size, all.size());
+        int to = Math.min(from + size, all.size());
+        int totalPages = (all.size() + size - 1) / size;
+        return PagedResponse.of(all.subList(from, to), page, size, all.size(), totalPages);
+    }
+
+    /**
+     * Kiểm tra trùng lịch nhóm sinh viên (ngành + khóa + nhóm lớp) trên các schedule đã lưu của học kỳ
+     */
+    @GetMapping("/cohorts/{semesterId}")
+    public ApiResponse<CohortConflictReport> getCohortConflicts(@PathVariable Long semesterId) {
+        return ApiResponse.success(cohortConflictService.detect(semesterId));
+    }
+
+    /**
+     * Thêm lớp vào bản lịch đang chỉnh của học kỳ, trả về các xung đột mới
+     */
+    @PostMapping("/live/{semesterId}/entries")
+    public ApiResponse<LiveConflictDelta> addLiveEntry(@PathVariable Long semesterId,
+                                                       @Valid @RequestBody LiveEntryRequest request) {
+        return ApiResponse.success(liveConflictIndexService.addEntry(semesterId, request));
+    }
+
+    /**
+     * Đổi chỗ một lớp (kéo thả), trả về xung đột mới và xung đột được gỡ
+     */
+    @PutMapping("/live/{semesterId}/entries/{entryId}")
+    public ApiResponse<LiveConflictDelta> moveLiveEntry(@PathVariable Long semesterId,
+                                                        @PathVariable String entryId,
+                                                        @Valid @RequestBody LiveEntryRequest request) {
+        return ApiResponse.success(liveConflictIndexService.moveEntry(semesterId, entryId, request));
+    }
+
+    /**
+     * Bỏ một lớp khỏi bản lịch đang chỉnh, trả về các xung đột được gỡ
+     */
+    @DeleteMapping("/live/{semesterId}/entries/{entryId}")
+    public ApiResponse<LiveConflictDelta> removeLiveEntry(@PathVariable Long semesterId,
+                                                          @PathVariable String entryId) {
+        return ApiResponse.success(liveConflictIndexService.removeEntry(semesterId, entryId));
+    }
+
+    /**
+     * Bỏ bản lịch đang chỉnh, lần sau dựng lại từ các schedule đã lưu
+     */
+    @DeleteMapping("/live/{semesterId}")
+    public ApiResponse<Void> resetLiveIndex(@PathVariable Long semesterId) {
+        liveConflictIndexService.reset(semesterId);
+        return ApiResponse.success("Đã làm mới bản lịch đang chỉnh");
     }
-}
\ No newline at end of file
+}
@@ -2,8 +2,11 @@ package com.ptit.schedule.controller;
 
 import com.ptit.schedule.dto.*;
 import com.ptit.schedule.service.ExcelReaderService;
+import com.ptit.schedule.service.SubjectBulkImportService;
 import com.ptit.schedule.service.SubjectService;
+import com.ptit.schedule.service.UploadLimits;
 import com.ptit.schedule.utils.AcademicYearUtils;
+import com.ptit.schedule.utils.DelimitedStreamReader;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.annotation.Nullable;
@@ -30,6 +33,8 @@ public class SubjectController {
     
     private final SubjectService subjectService;
     private final ExcelReaderService excelReaderService;
+    private final SubjectBulkImportService subjectBulkImportService;
+    private final UploadLimits uploadLimits;
 
     @Operation(summary = "Health check", description = "Kiểm tra trạng thái server")
     @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Server hoạt động bình thường")
@@ -213,6 +218,7 @@ public class SubjectController {
     @PostMapping("/upload-excel")
     public ResponseEntity<ApiResponse<ExcelImportResult>> uploadExcelSubjects(@RequestParam("file") MultipartFile file,
                                                                                @RequestParam("semester") String semester) {
+        uploadLimits.check(UploadLimits.Upload.SUBJECT_IMPORT, file);
         try {
             // Validate data
             if (file.isEmpty()) {
@@ -224,8 +230,9 @@ public class SubjectController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            if (!Objects.requireNonNull(file.getOriginalFilename()).toLowerCase().endsWith(".xlsx")) {
-                ApiResponse<ExcelImportResult> response = ApiResponse.badRequest("Chỉ chấp nhận file Excel (.xlsx)");
+            String filename = Objects.requireNonNull(file.getOriginalFilename());
+            if (!filename.toLowerCase().endsWith(".xlsx") && DelimitedStreamReader.delimiterFor(filename) == 0) {
+                ApiResponse<ExcelImportResult> response = ApiResponse.badRequest("Chỉ chấp nhận file Excel (.xlsx) hoặc .csv / .tsv");
                 return ResponseEntity.badRequest().body(response);
             }
 
@@ -234,43 +241,21 @@ public class SubjectController {
             String semesterName = splitData.getLeft();
             String academicYear = splitData.getRight();
             
-            // Đọc và validate dữ liệu từ Excel (sử dụng method mới)
-            ExcelImportResult result = excelReaderService.readAndValidateSubjectsFromExcel(file, semesterName, academicYear);
+            // Đọc streaming, validate và upsert theo lô
+            ExcelImportResult result = subjectBulkImportService.importSubjects(file, semesterName, academicYear);
             
             if (result.getValidSubjects().isEmpty()) {
                 ApiResponse<ExcelImportResult> response = ApiResponse.badRequest("File Excel không có dữ liệu hợp lệ");
                 return ResponseEntity.badRequest().body(response);
             }
-
-            // Import các môn học hợp lệ vào database
-            int importedCount = 0;
-            List<String> importErrors = new ArrayList<>();
-            
-            for (int i = 0; i < result.getValidSubjects().size(); i++) {
-                try {
-                    subjectService.createSubject(result.getValidSubjects().get(i));
-                    importedCount++;
-                } catch (RuntimeException e) {
-                    importErrors.add("Lỗi khi lưu môn '" + 
-                        result.getValidSubjects().get(i).getSubjectCode() + "': " + e.getMessage());
-                }
-            }
-            
-            // Cập nhật result với số lượng thực tế đã import
-            result.setSuccessCount(importedCount);
-            
-            // Thêm các lỗi khi import vào warnings
-            if (!importErrors.isEmpty()) {
-                importErrors.forEach(result::addWarning);
-            }
             
             // Build message
-            String message = String.format("Đã import thành công %d môn học", importedCount);
+            String message = String.format("Đã import thành công %d môn học", result.getSuccessCount());
             if (result.getSkippedCount() > 0) {
                 message += String.format(". Đã bỏ qua %d môn học bị trùng lặp", result.getSkippedCount());
             }
-            if (!importErrors.isEmpty()) {
-                message += String.format(". Có %d lỗi khi lưu vào database", importErrors.size());
+            if (result.getFailedCount() > 0) {
+                message += String.format(". Có %d lỗi khi lưu vào database", result.getFailedCount());
             }
             
             ApiResponse<ExcelImportResult> response = ApiResponse.success(result, message);
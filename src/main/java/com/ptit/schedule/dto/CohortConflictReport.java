@@ -0,0 +1,34 @@
+package com.ptit.schedule.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Kết quả kiểm tra trùng lịch nhóm sinh viên của một học kỳ, chia theo nhóm ngành học chung
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CohortConflictReport {
+    private Long semesterId;
+    private int totalEntries;
+    private int totalCohorts;
+    private int skippedEntries; // Lớp có thứ / tiết / tuần không hợp lệ
+    private int totalConflicts;
+    private List<MajorGroupConflicts> groups; // Chỉ các nhóm ngành có xung đột
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MajorGroupConflicts {
+        private Set<String> majors;
+        private List<LiveConflictResponse> conflicts;
+    }
+}
@@ -0,0 +1,50 @@
+package com.ptit.schedule.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Số liệu tổng hợp của một lần phân tích xung đột, chi tiết lấy theo trang qua analysisId
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConflictSummary {
+    private String analysisId;
+    private int roomConflicts;
+    private int teacherConflicts;
+    private int affectedRooms;
+    private int affectedTeachers;
+
+    public int getTotalConflicts() {
+        return roomConflicts + teacherConflicts;
+    }
+
+    public static ConflictSummary of(String analysisId, ConflictResult result) {
+        Set<String> rooms = new HashSet<>();
+        Set<String> teachers = new HashSet<>();
+        int roomCount = 0;
+        int teacherCount = 0;
+        if (result.getRoomConflicts() != null) {
+            roomCount = result.getRoomConflicts().size();
+            result.getRoomConflicts().forEach(c -> rooms.add(c.getRoom()));
+        }
+        if (result.getTeacherConflicts() != null) {
+            teacherCount = result.getTeacherConflicts().size();
+            result.getTeacherConflicts().forEach(c -> teachers.add(c.getTeacherId()));
+        }
+        return ConflictSummary.builder()
+                .analysisId(analysisId)
+                .roomConflicts(roomCount)
+                .teacherConflicts(teacherCount)
+                .affectedRooms(rooms.size())
+                .affectedTeachers(teachers.size())
+                .build();
+    }
+}
@@ -27,6 +27,11 @@ public class ExcelImportResult {
      */
     private int skippedCount;
     
+    /**
+     * Number of valid subjects that failed to save to database
+     */
+    private int failedCount;
+    
     /**
      * Total number of rows in Excel (excluding header)
      */
@@ -0,0 +1,21 @@
+package com.ptit.schedule.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả một thao tác chỉnh lịch: chỉ các xung đột mới phát sinh / vừa được gỡ
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveConflictDelta {
+    private List<LiveConflictResponse> created;
+    private List<LiveConflictResponse> resolved;
+    private int totalConflicts; // Số cặp xung đột còn lại của học kỳ
+}
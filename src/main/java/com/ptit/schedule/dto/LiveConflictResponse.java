@@ -0,0 +1,49 @@
+package com.ptit.schedule.dto;
+
+import com.ptit.schedule.utils.ConflictIndex;
+import com.ptit.schedule.utils.WeekMask;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveConflictResponse {
+    private ConflictIndex.ResourceType type; // ROOM, TEACHER, STUDENT_GROUP
+    private String resource; // "102-A2", mã GV hoặc "ngành|khóa|nhóm"
+    private String entryId;
+    private String otherEntryId;
+    private int dayOfWeek;
+    private int startPeriod; // Tiết đầu tiên bị trùng
+    private int numberOfPeriods; // Số tiết bị trùng
+    private List<Integer> weeks; // Các tuần bị trùng
+
+    public static LiveConflictResponse fromConflict(ConflictIndex.Conflict conflict) {
+        List<Integer> weeks = new ArrayList<>();
+        for (int week = 1; week <= WeekMask.WEEKS; week++) {
+            if ((conflict.weekMask() & (1 << (week - 1))) != 0) {
+                weeks.add(week);
+            }
+        }
+        return LiveConflictResponse.builder()
+                .type(conflict.type())
+                .resource(conflict.resource())
+                .entryId(conflict.entryId())
+                .otherEntryId(conflict.otherEntryId())
+                .dayOfWeek(conflict.dayOfWeek())
+                .startPeriod(conflict.startPeriod())
+                .numberOfPeriods(conflict.periods())
+                .weeks(weeks)
+                .build();
+    }
+
+    public static List<LiveConflictResponse> fromConflicts(List<ConflictIndex.Conflict> conflicts) {
+        return conflicts.stream().map(LiveConflictResponse::fromConflict).toList();
+    }
+}
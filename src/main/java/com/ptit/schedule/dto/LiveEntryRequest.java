@@ -0,0 +1,48 @@
+package com.ptit.schedule.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Vị trí mới của một lớp khi chỉnh lịch trực tiếp (kéo thả)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LiveEntryRequest {
+
+    @NotBlank(message = "Mã lớp không được để trống")
+    private String entryId; // Id schedule đã lưu, hoặc id tạm do client đặt cho lớp mới
+
+    private String room; // "102-A2"
+    private String teacherId;
+    private String major;
+    private String studentYear;
+    private Integer classNumber;
+
+    @NotNull(message = "Thứ không được để trống")
+    @Min(value = 2, message = "Thứ phải từ 2 đến 8 (CN)")
+    @Max(value = 8, message = "Thứ phải từ 2 đến 8 (CN)")
+    private Integer dayOfWeek;
+
+    @NotNull(message = "Tiết bắt đầu không được để trống")
+    @Min(value = 1, message = "Tiết bắt đầu phải lớn hơn 0")
+    private Integer startPeriod;
+
+    @NotNull(message = "Số tiết không được để trống")
+    @Min(value = 1, message = "Số tiết phải lớn hơn 0")
+    private Integer numberOfPeriods;
+
+    @NotEmpty(message = "Danh sách tuần học không được để trống")
+    private List<Integer> weeks; // Số tuần: 1, 2, ... 18
+}
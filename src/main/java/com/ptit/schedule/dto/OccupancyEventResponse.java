@@ -0,0 +1,36 @@
+package com.ptit.schedule.dto;
+
+import com.ptit.schedule.entity.OccupancyEvent;
+import com.ptit.schedule.entity.OccupancyEventType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyEventResponse {
+    private Long id;
+    private Long semesterId;
+    private OccupancyEventType eventType;
+    private String eventTypeName; // "Chiếm phòng", "Xóa toàn bộ"
+    private String uniqueKey; // "404-A2|5|1", null với CLEAR
+    private String actor; // Email người thao tác hoặc "system"
+    private LocalDateTime createdAt;
+
+    public static OccupancyEventResponse fromEntity(OccupancyEvent event) {
+        return OccupancyEventResponse.builder()
+                .id(event.getId())
+                .semesterId(event.getSemesterId())
+                .eventType(event.getEventType())
+                .eventTypeName(event.getEventType().getDisplayName())
+                .uniqueKey(event.getUniqueKey())
+                .actor(event.getActor())
+                .createdAt(event.getCreatedAt())
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.ptit.schedule.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -35,6 +36,9 @@ public class ScheduleEntry {
         private String shift;          // Kíp: "1", "2", "3", etc.
         private String startPeriod;    // Tiết bắt đầu: "1", "2", "3", etc.
         private String numberOfPeriods; // Số tiết: "1", "2", "3", etc.
+
+        @JsonIgnore
+        private int code;              // TimeSlotCode, 0 nếu chưa mã hóa
         
         public String getSlotKey() {
             // Key để detect conflict: tuần-thứ-kíp-tiết bắt đầu-số tiết
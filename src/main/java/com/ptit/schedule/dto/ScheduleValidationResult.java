@@ -15,7 +15,8 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ScheduleValidationResult {
-    private ConflictResult conflictResult;
+    private ConflictResult conflictResult; // null khi gọi /analyze với includeConflicts=false
+    private ConflictSummary conflictSummary;
     private List<ScheduleEntry> scheduleEntries;
     private String fileName;
     private int totalEntries;
@@ -23,15 +24,17 @@ public class ScheduleValidationResult {
     
     // Computed properties for easier frontend handling
     public boolean hasConflicts() {
-        return conflictResult != null && conflictResult.getTotalConflicts() > 0;
+        return getRoomConflictCount() + getTeacherConflictCount() > 0;
     }
     
     public int getRoomConflictCount() {
+        if (conflictSummary != null) return conflictSummary.getRoomConflicts();
         return conflictResult != null && conflictResult.getRoomConflicts() != null 
             ? conflictResult.getRoomConflicts().size() : 0;
     }
     
     public int getTeacherConflictCount() {
+        if (conflictSummary != null) return conflictSummary.getTeacherConflicts();
         return conflictResult != null && conflictResult.getTeacherConflicts() != null 
             ? conflictResult.getTeacherConflicts().size() : 0;
     }
@@ -0,0 +1,46 @@
+package com.ptit.schedule.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Một sự kiện trong log occupancy (append-only, không bao giờ update / delete).
+ * Trạng thái của học kỳ = snapshot mới nhất + replay các sự kiện có id lớn hơn.
+ */
+@Entity
+@Table(name = "occupancy_events", indexes = {
+        @Index(name = "idx_occupancy_event_semester", columnList = "semester_id, id"),
+        @Index(name = "idx_occupancy_event_created", columnList = "semester_id, created_at")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancyEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Không dùng FK để log vẫn còn (audit) sau khi xóa học kỳ
+    @Column(name = "semester_id", nullable = false)
+    private Long semesterId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "event_type", nullable = false, length = 20)
+    private OccupancyEventType eventType;
+
+    @Column(name = "unique_key", length = 50)
+    private String uniqueKey; // Format: "404-A2|5|1", null với CLEAR
+
+    @Column(name = "actor", length = 100)
+    private String actor;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,16 @@
+package com.ptit.schedule.entity;
+
+public enum OccupancyEventType {
+    ADD("Chiếm phòng"),
+    CLEAR("Xóa toàn bộ");
+
+    private final String displayName;
+
+    OccupancyEventType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,43 @@
+package com.ptit.schedule.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot đã compact của occupancy một học kỳ, bao gồm mọi sự kiện có id <= lastEventId.
+ */
+@Entity
+@Table(name = "occupancy_snapshots", indexes = {
+        @Index(name = "idx_occupancy_snapshot_semester", columnList = "semester_id, last_event_id")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OccupancySnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "semester_id", nullable = false)
+    private Long semesterId;
+
+    @Column(name = "last_event_id", nullable = false)
+    private Long lastEventId;
+
+    @Column(name = "key_count", nullable = false)
+    private Integer keyCount;
+
+    @Lob
+    @Column(name = "unique_keys", columnDefinition = "LONGTEXT")
+    private String uniqueKeys; // Các unique key, mỗi dòng một key
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
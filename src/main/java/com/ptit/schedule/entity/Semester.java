@@ -41,6 +41,10 @@ public class Semester {
     @Column(name = "description")
     private String description;  // Mô tả
 
+    @Column(name = "template_version")
+    @Builder.Default
+    private Long templateVersion = 0L;  // Tăng mỗi lần import lịch mẫu (khóa cache lịch mẫu)
+
     // Quan hệ 1-nhiều với Subject
     @JsonIgnore // Tránh circular reference khi serialize JSON
     @OneToMany(mappedBy = "semester", cascade = CascadeType.ALL, orphanRemoval = true)
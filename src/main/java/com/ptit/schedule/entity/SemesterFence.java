@@ -0,0 +1,30 @@
+package com.ptit.schedule.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Fencing token cao nhất đã được ghi cho mỗi học kỳ.
+ * Không dùng FK để vẫn chặn được các ghi muộn sau khi học kỳ bị xóa.
+ */
+@Entity
+@Table(name = "semester_fences")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SemesterFence {
+
+    @Id
+    @Column(name = "semester_id")
+    private Long semesterId;
+
+    @Column(name = "last_token", nullable = false)
+    private Long lastToken; // Token lớn nhất đã ghi (thêm hoặc thay thế)
+
+    @Column(name = "clear_token", nullable = false)
+    private Long clearToken; // Token của lần thay thế / xóa toàn bộ gần nhất
+}
@@ -46,7 +46,10 @@ public class TKBTemplate {
     private Integer periodLength;
 
     @Column(name = "week_schedule", columnDefinition = "JSON", nullable = false)
-    private String weekSchedule; // JSON string của List<Integer> (18 phần tử)
+    private String weekSchedule; // JSON string của List<Integer> (18 phần tử), giữ để tương thích
+
+    @Column(name = "week_mask")
+    private Integer weekMask; // Bit (tuần - 1) = 1 nếu tuần đó có học, xem WeekMask
 
     @Column(name = "total_used")
     private Integer totalUsed = 0;
@@ -0,0 +1,16 @@
+package com.ptit.schedule.exception;
+
+import com.ptit.schedule.utils.ConflictIndex;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class ScheduleConflictException extends RuntimeException {
+    private final List<ConflictIndex.Conflict> conflicts;
+
+    public ScheduleConflictException(String message, List<ConflictIndex.Conflict> conflicts) {
+        super(message);
+        this.conflicts = conflicts;
+    }
+}
@@ -0,0 +1,7 @@
+package com.ptit.schedule.exception;
+
+public class SemesterLockException extends RuntimeException {
+    public SemesterLockException(String message) {
+        super(message);
+    }
+}
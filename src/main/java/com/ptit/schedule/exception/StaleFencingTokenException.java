@@ -0,0 +1,8 @@
+package com.ptit.schedule.exception;
+
+public class StaleFencingTokenException extends SemesterLockException {
+    public StaleFencingTokenException(Long semesterId, long token, long currentToken) {
+        super(String.format("Thao tác trên học kỳ %d đã bị thay thế bởi thao tác mới hơn (token %d < %d)",
+                semesterId, token, currentToken));
+    }
+}
@@ -0,0 +1,7 @@
+package com.ptit.schedule.exception;
+
+public class UploadTooLargeException extends RuntimeException {
+    public UploadTooLargeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,69 @@
+package com.ptit.schedule.repository;
+
+import com.ptit.schedule.entity.OccupancyEvent;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OccupancyEventRepository extends JpaRepository<OccupancyEvent, Long> {
+
+        /**
+         * Get events of a semester after a given event id (tail to replay on top of a snapshot)
+         *
+         * @param semesterId  Semester ID
+         * @param afterId     Exclusive lower bound of event id
+         * @return Events in append order
+         */
+        @Query("SELECT e FROM OccupancyEvent e WHERE e.semesterId = :semesterId AND e.id > :afterId ORDER BY e.id")
+        List<OccupancyEvent> findTail(@Param("semesterId") Long semesterId, @Param("afterId") Long afterId);
+
+        /**
+         * Get events of a semester in (afterId, untilId]
+         *
+         * @param semesterId Semester ID
+         * @param afterId    Exclusive lower bound of event id
+         * @param untilId    Inclusive upper bound of event id
+         * @return Events in append order
+         */
+        @Query("SELECT e FROM OccupancyEvent e WHERE e.semesterId = :semesterId " +
+                        "AND e.id > :afterId AND e.id <= :untilId ORDER BY e.id")
+        List<OccupancyEvent> findRange(@Param("semesterId") Long semesterId,
+                        @Param("afterId") Long afterId,
+                        @Param("untilId") Long untilId);
+
+        /**
+         * Count events of a semester after a given event id
+         */
+        @Query("SELECT COUNT(e) FROM OccupancyEvent e WHERE e.semesterId = :semesterId AND e.id > :afterId")
+        long countTail(@Param("semesterId") Long semesterId, @Param("afterId") Long afterId);
+
+        /**
+         * Get id of the latest event of a semester (0 if none)
+         */
+        @Query("SELECT COALESCE(MAX(e.id), 0) FROM OccupancyEvent e WHERE e.semesterId = :semesterId")
+        Long findLastEventId(@Param("semesterId") Long semesterId);
+
+        /**
+         * Get id of the latest event of a semester appended at or before a point in time (0 if none)
+         */
+        @Query("SELECT COALESCE(MAX(e.id), 0) FROM OccupancyEvent e " +
+                        "WHERE e.semesterId = :semesterId AND e.createdAt <= :at")
+        Long findLastEventIdAt(@Param("semesterId") Long semesterId, @Param("at") LocalDateTime at);
+
+        /**
+         * Audit: events of a semester within a time range, newest first
+         */
+        @Query("SELECT e FROM OccupancyEvent e WHERE e.semesterId = :semesterId " +
+                        "AND e.createdAt >= :from AND e.createdAt <= :to ORDER BY e.id DESC")
+        Page<OccupancyEvent> findHistory(@Param("semesterId") Long semesterId,
+                        @Param("from") LocalDateTime from,
+                        @Param("to") LocalDateTime to,
+                        Pageable pageable);
+}
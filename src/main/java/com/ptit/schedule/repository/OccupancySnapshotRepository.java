@@ -0,0 +1,22 @@
+package com.ptit.schedule.repository;
+
+import com.ptit.schedule.entity.OccupancySnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface OccupancySnapshotRepository extends JpaRepository<OccupancySnapshot, Long> {
+
+    /**
+     * Latest snapshot of a semester
+     */
+    Optional<OccupancySnapshot> findFirstBySemesterIdOrderByLastEventIdDesc(Long semesterId);
+
+    /**
+     * Latest snapshot of a semester that does not include events after the given id
+     */
+    Optional<OccupancySnapshot> findFirstBySemesterIdAndLastEventIdLessThanEqualOrderByLastEventIdDesc(
+            Long semesterId, Long lastEventId);
+}
@@ -71,6 +71,16 @@ public interface RoomOccupancyRepository extends JpaRepository<RoomOccupancy, Lo
         @Query("SELECT ro.uniqueKey FROM RoomOccupancy ro WHERE ro.semester.id = :semesterId")
         Set<String> findOccupiedKeysBySemesterId(@Param("semesterId") Long semesterId);
 
+        /**
+         * Get occupied slots (roomId, dayOfWeek, period) for a specific semester
+         * Used to seed the shared occupancy store
+         * 
+         * @param semesterId Semester ID
+         * @return List of [roomId, dayOfWeek, period]
+         */
+        @Query("SELECT ro.room.id, ro.dayOfWeek, ro.period FROM RoomOccupancy ro WHERE ro.semester.id = :semesterId")
+        List<Object[]> findSlotsBySemesterId(@Param("semesterId") Long semesterId);
+
         /**
          * Delete all occupancies for a specific semester
          * 
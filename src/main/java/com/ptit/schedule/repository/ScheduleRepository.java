@@ -1,6 +1,7 @@
 package com.ptit.schedule.repository;
 
 import com.ptit.schedule.entity.Schedule;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -14,6 +15,9 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
     List<Schedule> findByMajor(@Param("majorCode") String majorCode);
     
     List<Schedule> findByStudentYear(String studentYear);
+
+    @Query("SELECT s.id FROM Schedule s")
+    List<Long> findAllIds();
     List<Schedule> findByUserId(Long userId);
     List<Schedule> findByUserIdOrderByIdAsc(Long userId);
     
@@ -28,4 +32,26 @@ public interface ScheduleRepository extends JpaRepository<Schedule, Long> {
         @Param("semesterName") String semesterName,
         @Param("academicYear") String academicYear
     );
+
+    /**
+     * Lấy một trang schedule của học kỳ để export (keyset theo id, chỉ các cột cần ghi)
+     * Mỗi phần tử: [id, subjectCode, subjectName, classNumber, major, studentYear, dayOfWeek, kip,
+     * startPeriod, periodLength, roomName, building, siSoMotLop, weekMask, weekSchedule]
+     */
+    @Query("""
+        SELECT s.id, sub.subjectCode, sub.subjectName, s.classNumber, s.major, s.studentYear,
+               t.dayOfWeek, t.kip, t.startPeriod, t.periodLength, r.name, r.building, s.siSoMotLop,
+               t.weekMask, t.weekSchedule
+        FROM Schedule s
+        JOIN s.subject sub
+        JOIN s.tkbTemplate t
+        LEFT JOIN s.room r
+        WHERE sub.semester.id = :semesterId AND s.id > :afterId
+        ORDER BY s.id
+        """)
+    List<Object[]> findExportRowsBySemesterId(
+        @Param("semesterId") Long semesterId,
+        @Param("afterId") Long afterId,
+        Pageable pageable
+    );
 }
\ No newline at end of file
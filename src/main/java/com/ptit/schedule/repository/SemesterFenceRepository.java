@@ -0,0 +1,25 @@
+package com.ptit.schedule.repository;
+
+import com.ptit.schedule.entity.SemesterFence;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SemesterFenceRepository extends JpaRepository<SemesterFence, Long> {
+
+    /**
+     * Find fence row and lock it until the end of the transaction (serializes writers, not readers)
+     *
+     * @param semesterId Semester ID
+     * @return Locked fence row
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM SemesterFence f WHERE f.semesterId = :semesterId")
+    Optional<SemesterFence> findForUpdate(@Param("semesterId") Long semesterId);
+}
@@ -2,8 +2,11 @@ package com.ptit.schedule.repository;
 
 import com.ptit.schedule.entity.Semester;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -47,4 +50,12 @@ public interface SemesterRepository extends JpaRepository<Semester, Long> {
      * Kiểm tra tên học kỳ đã tồn tại chưa
      */
     boolean existsBySemesterName(String semesterName);
+
+    /**
+     * Tăng template version của học kỳ (làm mất hiệu lực cache lịch mẫu trên mọi node)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Semester s SET s.templateVersion = COALESCE(s.templateVersion, 0) + 1 WHERE s.id = :id")
+    int incrementTemplateVersion(@Param("id") Long id);
 }
@@ -12,6 +12,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -222,6 +223,16 @@ public interface SubjectRepository extends JpaRepository<Subject, Long> {
         @Param("academicYear") String academicYear
     );
 
+    /**
+     * Tìm subjects của một semester theo danh sách mã môn (đối chiếu theo lô khi import)
+     */
+    @Query("SELECT s FROM Subject s JOIN FETCH s.major m LEFT JOIN FETCH m.faculty JOIN FETCH s.semester " +
+            "WHERE s.semester.id = :semesterId AND s.subjectCode IN :subjectCodes")
+    List<Subject> findBySemesterIdAndSubjectCodeIn(
+        @Param("semesterId") Long semesterId,
+        @Param("subjectCodes") Collection<String> subjectCodes
+    );
+
     /**
      * Xóa tất cả subjects theo semesterName
      */
@@ -3,8 +3,12 @@ package com.ptit.schedule.repository;
 import com.ptit.schedule.entity.Semester;
 import com.ptit.schedule.entity.TKBTemplate;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -24,4 +28,34 @@ public interface TKBTemplateRepository extends JpaRepository<TKBTemplate, Long>
      * Xóa tất cả templates của một semester
      */
     void deleteBySemester(Semester semester);
+
+    /**
+     * Xóa tất cả templates của một semester bằng một câu DELETE (không nạp entity)
+     */
+    @Modifying
+    @Query("DELETE FROM TKBTemplate t WHERE t.semester.id = :semesterId")
+    int deleteAllBySemesterId(@Param("semesterId") Long semesterId);
+
+    /**
+     * Lấy slot của các template theo id (một query cho cả batch lưu TKB)
+     * Mỗi phần tử: [id, semesterId, dayOfWeek, startPeriod, periodLength, weekMask, weekSchedule]
+     */
+    @Query("SELECT t.id, t.semester.id, t.dayOfWeek, t.startPeriod, t.periodLength, t.weekMask, t.weekSchedule " +
+            "FROM TKBTemplate t WHERE t.id IN :ids")
+    List<Object[]> findSlotsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Lấy các cột cần để sinh TKB (không đọc cột JSON week_schedule), sắp xếp theo rowOrder
+     * Mỗi phần tử: [id, totalPeriods, dayOfWeek, kip, startPeriod, periodLength, templateId, weekMask, totalUsed]
+     */
+    @Query("SELECT t.id, t.totalPeriods, t.dayOfWeek, t.kip, t.startPeriod, t.periodLength, " +
+            "t.templateId, t.weekMask, t.totalUsed FROM TKBTemplate t " +
+            "WHERE t.semester.id = :semesterId ORDER BY t.rowOrder")
+    List<Object[]> findRowsBySemesterId(@Param("semesterId") Long semesterId);
+
+    /**
+     * Lấy [id, weekSchedule JSON] của các template chưa có week_mask (backfill)
+     */
+    @Query("SELECT t.id, t.weekSchedule FROM TKBTemplate t WHERE t.weekMask IS NULL")
+    List<Object[]> findWithoutWeekMask();
 }
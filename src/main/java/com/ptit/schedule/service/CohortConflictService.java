@@ -0,0 +1,12 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.dto.CohortConflictReport;
+
+public interface CohortConflictService {
+
+    /**
+     * Kiểm tra các schedule đã lưu của học kỳ: một nhóm sinh viên (ngành + khóa + nhóm lớp)
+     * không được học hai lớp trùng tiết trong cùng tuần
+     */
+    CohortConflictReport detect(Long semesterId);
+}
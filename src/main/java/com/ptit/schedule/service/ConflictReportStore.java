@@ -0,0 +1,82 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.dto.ConflictResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Giữ kết quả phân tích xung đột của /analyze trong bộ nhớ để client lấy chi tiết theo trang
+ * thay vì nhận toàn bộ danh sách xung đột trong một response.
+ *
+ * - Giới hạn số báo cáo, loại bỏ theo LRU
+ * - Báo cáo hết hạn sau ttl-ms kể từ lúc phân tích
+ * - Chỉ nằm trên node đã phân tích file (không chia sẻ giữa các node)
+ */
+@Slf4j
+@Component
+public class ConflictReportStore {
+
+    @Value("${conflict-report.max-entries:16}")
+    private int maxEntries;
+
+    @Value("${conflict-report.ttl-ms:1800000}")
+    private long ttlMs;
+
+    private final Map<String, Report> reports = new LinkedHashMap<>(16, 0.75f, true); // access order = LRU, guarded by itself
+
+    /**
+     * Kết quả đã lưu. Danh sách xung đột không sửa được, dùng chung giữa các request.
+     */
+    public record Report(String analysisId, String fileName, long createdAt,
+                         List<ConflictResult.RoomConflict> roomConflicts,
+                         List<ConflictResult.TeacherConflict> teacherConflicts) {
+    }
+
+    /**
+     * @return analysisId để lấy lại báo cáo
+     */
+    public String put(String fileName, ConflictResult result) {
+        String analysisId = UUID.randomUUID().toString();
+        Report report = new Report(analysisId, fileName, System.currentTimeMillis(),
+                copy(result.getRoomConflicts()), copy(result.getTeacherConflicts()));
+        synchronized (reports) {
+            reports.put(analysisId, report);
+            evict(report.createdAt());
+        }
+        return analysisId;
+    }
+
+    public Optional<Report> get(String analysisId) {
+        synchronized (reports) {
+            Report report = reports.get(analysisId);
+            if (report != null && System.currentTimeMillis() - report.createdAt() > ttlMs) {
+                reports.remove(analysisId);
+                return Optional.empty();
+            }
+            return Optional.ofNullable(report);
+        }
+    }
+
+    public void remove(String analysisId) {
+        synchronized (reports) {
+            reports.remove(analysisId);
+        }
+    }
+
+    private void evict(long now) {
+        reports.values().removeIf(r -> now - r.createdAt() > ttlMs);
+        Iterator<String> it = reports.keySet().iterator();
+        while (reports.size() > maxEntries && it.hasNext()) {
+            String eldest = it.next();
+            it.remove();
+            log.debug("Evicted conflict report {}", eldest);
+        }
+    }
+
+    private static <T> List<T> copy(List<T> list) {
+        return list != null ? List.copyOf(list) : List.of();
+    }
+}
@@ -7,18 +7,27 @@ import com.ptit.schedule.entity.TKBTemplate;
 import com.ptit.schedule.repository.SemesterRepository;
 import com.ptit.schedule.repository.TKBTemplateRepository;
 import lombok.RequiredArgsConstructor;
-import com.ptit.schedule.entity.Room;
-import com.ptit.schedule.entity.RoomOccupancy;
 import com.ptit.schedule.entity.Semester;
-import com.ptit.schedule.repository.RoomOccupancyRepository;
-import com.ptit.schedule.repository.RoomRepository;
 import com.ptit.schedule.repository.SemesterRepository;
-import com.ptit.schedule.utils.RoomOccupancyUtils;
+import com.ptit.schedule.utils.OccupancyKey;
+import com.ptit.schedule.utils.OccupancySet;
+import com.ptit.schedule.utils.DelimitedStreamReader;
+import com.ptit.schedule.utils.ImportPipeline;
+import com.ptit.schedule.utils.SpooledUpload;
+import com.ptit.schedule.utils.WeekMask;
+import com.ptit.schedule.utils.XlsxStreamReader;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 @Service
@@ -29,10 +38,21 @@ public class DataLoaderService {
     private final TKBTemplateRepository tkbTemplateRepository;
     private final SemesterRepository semesterRepository;
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private final RoomOccupancyRepository roomOccupancyRepository;
-    private final RoomRepository roomRepository;
-
-    private final Map<String, List<TKBTemplateRow>> templateDataCache = new HashMap<>();
+    private final OccupancyLogService occupancyLogService;
+    private final OccupancyWriteBehindService occupancyWriteBehindService;
+    private final SemesterLockService semesterLockService;
+
+    private final TemplateDataCache templateDataCache;
+    private final PlatformTransactionManager transactionManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final ImportPipelineFactory importPipelineFactory;
+    private final ScheduleConflictGateService scheduleConflictGateService;
+    private final LiveConflictIndexService liveConflictIndexService;
+
+    private static final int TEMPLATE_IMPORT_BATCH_SIZE = 500;
+    private static final String INSERT_TEMPLATE_SQL = "INSERT INTO tkb_templates (template_id, total_periods, "
+            + "day_of_week, kip, start_period, period_length, week_schedule, week_mask, total_used, semester_id, "
+            + "row_order) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
     /**
      * Load template data for specific semester from database
@@ -41,60 +61,87 @@ public class DataLoaderService {
      */    private Long currentSemesterId = null; // Current active semester for room operations
 
     public List<TKBTemplateRow> loadTemplateData(String semester) {
-        // Check cache
-        if (templateDataCache.containsKey(semester)) {
-            log.info("📦 Returning cached template data for {}: {} rows", semester, templateDataCache.get(semester).size());
-            return templateDataCache.get(semester);
-        }
-
         try {
             // Parse semester string to extract semesterName and academicYear
             // VD: "HK1 2024-2025" -> semesterName="HK1", academicYear="2024-2025"
             String[] parts = parseSemester(semester);
             String semesterName = parts[0];
             String academicYear = parts[1];
-            
-            log.info("🔍 Loading template data from database for {} {}...", semesterName, academicYear);
-            
+
             // Find or create semester entity
             Semester semesterEntity = findOrCreateSemester(semesterName, academicYear);
-            
-            // Query database
-            List<TKBTemplate> entities = tkbTemplateRepository.findBySemesterOrderByRowOrderAsc(semesterEntity);
-            
-            if (entities.isEmpty()) {
-                log.warn("⚠️ No template data found in database for {} {}", semesterName, academicYear);
-                return new ArrayList<>();
-            }
+            return loadTemplateData(semesterEntity);
 
-            log.info("✅ Found {} templates in database", entities.size());
+        } catch (Exception e) {
+            log.error("❌ Error loading template data from database for {}: {}", semester, e.getMessage());
+            return new ArrayList<>();
+        }
+    }
 
-            // Convert entities to TKBTemplateRow
-            List<TKBTemplateRow> templateData = new ArrayList<>();
-            for (TKBTemplate entity : entities) {
-                TKBTemplateRow row = convertEntityToRow(entity);
-                if (row != null) {
-                    templateData.add(row);
-                }
-            }
+    /**
+     * Load template data for a resolved semester (cache theo semesterId + templateVersion)
+     */
+    public List<TKBTemplateRow> loadTemplateData(Semester semesterEntity) {
+        long version = semesterEntity.getTemplateVersion() != null ? semesterEntity.getTemplateVersion() : 0L;
 
-            // Cache the result
-            templateDataCache.put(semester, templateData);
-            
-            // Debug: Log template distribution by day and kip
-            Map<String, Long> distribution = templateData.stream()
-                .collect(java.util.stream.Collectors.groupingBy(
-                    row -> "T" + row.getDayOfWeek() + "-K" + row.getKip(),
-                    java.util.stream.Collectors.counting()
-                ));
-            log.info("✅ Loaded and cached {} template rows for {}", templateData.size(), semester);
-            log.info("📊 Template distribution: {}", distribution);
-            return templateData;
+        // Cache theo (semesterId, templateVersion), single-flight khi miss
+        return templateDataCache.get(semesterEntity.getId(), version,
+                () -> loadTemplateDataFromDatabase(semesterEntity));
+    }
 
-        } catch (Exception e) {
-            log.error("❌ Error loading template data from database for {}: {}", semester, e.getMessage());
+    private List<TKBTemplateRow> loadTemplateDataFromDatabase(Semester semesterEntity) {
+        String semesterName = semesterEntity.getSemesterName();
+        String academicYear = semesterEntity.getAcademicYear();
+        log.info("🔍 Loading template data from database for {} {} (v{})...",
+                semesterName, academicYear, semesterEntity.getTemplateVersion());
+
+        // Query database: chỉ đọc các cột thường, week_mask thay cho parse JSON
+        List<Object[]> columns = tkbTemplateRepository.findRowsBySemesterId(semesterEntity.getId());
+
+        if (columns.isEmpty()) {
+            log.warn("⚠️ No template data found in database for {} {}", semesterName, academicYear);
             return new ArrayList<>();
         }
+
+        log.info("✅ Found {} templates in database", columns.size());
+
+        List<TKBTemplateRow> templateData = new ArrayList<>(columns.size());
+        for (Object[] c : columns) {
+            if (c[7] == null) {
+                // Chưa backfill week_mask: đọc lại toàn bộ entity và parse JSON
+                templateData = convertEntitiesToRows(
+                        tkbTemplateRepository.findBySemesterOrderByRowOrderAsc(semesterEntity));
+                break;
+            }
+            templateData.add(new TKBTemplateRow(
+                (Long) c[0],
+                (Integer) c[1],
+                (Integer) c[2],
+                (Integer) c[3],
+                (Integer) c[4],
+                (Integer) c[5],
+                (String) c[6],
+                (Integer) c[7],
+                (Integer) c[8]
+            ));
+        }
+
+        // Debug: Log template distribution by day and kip
+        Map<String, Long> distribution = templateData.stream()
+            .collect(java.util.stream.Collectors.groupingBy(
+                row -> "T" + row.getDayOfWeek() + "-K" + row.getKip(),
+                java.util.stream.Collectors.counting()
+            ));
+        log.info("✅ Loaded and cached {} template rows for {} {}", templateData.size(), semesterName, academicYear);
+        log.info("📊 Template distribution: {}", distribution);
+        return templateData;
+    }
+
+    /**
+     * Template cache hit / miss / load-time metrics
+     */
+    public Map<String, Object> getTemplateCacheStats() {
+        return templateDataCache.stats();
     }
     
     /**
@@ -186,11 +233,36 @@ public class DataLoaderService {
                 ". Vui lòng tạo học kỳ trước khi import template."));
     }
 
+    private List<TKBTemplateRow> convertEntitiesToRows(List<TKBTemplate> entities) {
+        List<TKBTemplateRow> rows = new ArrayList<>(entities.size());
+        for (TKBTemplate entity : entities) {
+            TKBTemplateRow row = convertEntityToRow(entity);
+            if (row != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
     /**
      * Convert TKBTemplate entity to TKBTemplateRow
      */
     private TKBTemplateRow convertEntityToRow(TKBTemplate entity) {
         try {
+            if (entity.getWeekMask() != null) {
+                return new TKBTemplateRow(
+                    entity.getId(),
+                    entity.getTotalPeriods(),
+                    entity.getDayOfWeek(),
+                    entity.getKip(),
+                    entity.getStartPeriod(),
+                    entity.getPeriodLength(),
+                    entity.getTemplateId(),
+                    entity.getWeekMask(),
+                    entity.getTotalUsed()
+                );
+            }
+
             // Parse weekSchedule JSON string to List<Integer>
             List<Integer> weekSchedule = objectMapper.readValue(
                 entity.getWeekSchedule(), 
@@ -284,6 +356,7 @@ public class DataLoaderService {
         private final Integer periodLength;
         private final String id;
         private final List<Integer> weekSchedule;
+        private final int weekMask;
         private final Integer totalUsed;
 
         public TKBTemplateRow(Long databaseId, Integer totalPeriods, Integer dayOfWeek, Integer kip,
@@ -297,6 +370,22 @@ public class DataLoaderService {
             this.periodLength = periodLength;
             this.id = id;
             this.weekSchedule = weekSchedule;
+            this.weekMask = WeekMask.fromList(weekSchedule);
+            this.totalUsed = totalUsed;
+        }
+
+        public TKBTemplateRow(Long databaseId, Integer totalPeriods, Integer dayOfWeek, Integer kip,
+                Integer startPeriod, Integer periodLength, String id,
+                int weekMask, Integer totalUsed) {
+            this.databaseId = databaseId;
+            this.totalPeriods = totalPeriods;
+            this.dayOfWeek = dayOfWeek;
+            this.kip = kip;
+            this.startPeriod = startPeriod;
+            this.periodLength = periodLength;
+            this.id = id;
+            this.weekSchedule = WeekMask.toList(weekMask);
+            this.weekMask = weekMask;
             this.totalUsed = totalUsed;
         }
 
@@ -333,6 +422,13 @@ public class DataLoaderService {
             return weekSchedule;
         }
 
+        /**
+         * Bit (tuần - 1) = 1 nếu tuần đó có học
+         */
+        public int getWeekMask() {
+            return weekMask;
+        }
+
         public Integer getTotalUsed() {
             return totalUsed;
         }
@@ -358,22 +454,23 @@ public class DataLoaderService {
     }
 
     /**
-     * Load global occupied rooms from database for current semester
-     * Returns Set<Object> for backward compatibility with existing code
-     * Each entry format: "404-A2|5|1" (roomCode|dayOfWeek|period)
+     * Load global occupied rooms for current semester from the occupancy log
+     * (latest snapshot + tail, see {@link OccupancyLogService}) instead of scanning room_occupancies.
+     * Keys are parsed once into packed {@link OccupancyKey} values
+     * (string format "404-A2|5|1" only exists in the database).
+     * Changes still queued in the write-behind are overlaid (read-your-writes).
      */
-    public Set<Object> loadGlobalOccupiedRooms() {
+    public OccupancySet loadGlobalOccupiedRooms() {
         try {
             if (currentSemesterId == null) {
                 log.warn("Current semester ID not set, attempting to load from JSON as fallback");
                 return loadGlobalOccupiedRoomsFromJson();
             }
 
-            log.info("Loading occupied rooms from database for semester ID: {}", currentSemesterId);
-            Set<String> occupiedKeys = roomOccupancyRepository.findOccupiedKeysBySemesterId(currentSemesterId);
-
-            // Convert Set<String> to Set<Object> for backward compatibility
-            Set<Object> result = new HashSet<>(occupiedKeys);
+            log.info("Loading occupied rooms from occupancy log for semester ID: {}", currentSemesterId);
+            OccupancyWriteBehindService.PendingSnapshot pendingChanges = occupancyWriteBehindService
+                    .snapshot(currentSemesterId);
+            OccupancySet result = pendingChanges.applyTo(occupancyLogService.currentState(currentSemesterId));
             log.info("Loaded {} occupied room entries from database", result.size());
             return result;
         } catch (Exception e) {
@@ -389,27 +486,30 @@ public class DataLoaderService {
      * @deprecated Use database method instead
      */
     @Deprecated
-    private Set<Object> loadGlobalOccupiedRoomsFromJson() {
+    private OccupancySet loadGlobalOccupiedRoomsFromJson() {
         try {
             log.info("Loading global occupied rooms from global_occupied_rooms.json...");
             ClassPathResource resource = new ClassPathResource("global_occupied_rooms.json");
 
             if (!resource.exists()) {
                 log.info("global_occupied_rooms.json not found, returning empty set");
-                return new HashSet<>();
+                return new OccupancySet();
             }
 
             JsonNode root = objectMapper.readTree(resource.getInputStream());
 
             if (!root.isArray()) {
                 log.warn("global_occupied_rooms.json is not an array");
-                return new HashSet<>();
+                return new OccupancySet();
             }
 
-            Set<Object> occupiedRooms = new HashSet<>();
+            OccupancySet occupiedRooms = new OccupancySet(root.size());
             for (JsonNode node : root) {
                 if (node.isTextual()) {
-                    occupiedRooms.add(node.asText());
+                    long key = OccupancyKey.parse(node.asText());
+                    if (key != OccupancyKey.INVALID) {
+                        occupiedRooms.add(key);
+                    }
                 }
             }
 
@@ -417,105 +517,62 @@ public class DataLoaderService {
             return occupiedRooms;
         } catch (Exception e) {
             log.error("Error loading global occupied rooms from JSON", e);
-            return new HashSet<>();
+            return new OccupancySet();
         }
     }
 
     /**
-     * Save global occupied rooms to database for current semester
-     * Clears existing occupancies and saves new ones
-     * 
-     * @param occupiedRooms Set of room occupancy keys (format: "404-A2|5|1")
+     * Add newly occupied rooms for current semester
+     * Accepted immediately, persisted to database by the write-behind
+     *
+     * @param additions Packed room occupancy keys
      */
-    @Transactional
-    public void saveGlobalOccupiedRooms(Set<Object> occupiedRooms) {
-        try {
-            if (currentSemesterId == null) {
-                log.warn("Current semester ID not set, falling back to JSON save");
-                saveGlobalOccupiedRoomsToJson(occupiedRooms);
-                return;
-            }
-
-            log.info("Saving {} occupied room entries to database for semester ID: {}",
-                    occupiedRooms.size(), currentSemesterId);
-
-            // Get semester entity
-            Semester semester = semesterRepository.findById(Objects.requireNonNull(currentSemesterId))
-                    .orElseThrow(() -> new RuntimeException("Semester not found: " + currentSemesterId));
-
-            // Delete existing occupancies for this semester
-            roomOccupancyRepository.deleteBySemesterId(currentSemesterId);
-            log.info("Cleared existing occupancies for semester ID: {}", currentSemesterId);
-
-            // Convert and save new occupancies
-            List<RoomOccupancy> newOccupancies = new ArrayList<>();
-            Map<String, Room> roomCache = new HashMap<>(); // Cache to avoid repeated DB queries
-
-            for (Object obj : occupiedRooms) {
-                if (obj == null)
-                    continue;
-
-                String uniqueKey = obj.toString();
-                if (!RoomOccupancyUtils.isValidUniqueKey(uniqueKey)) {
-                    log.warn("Invalid unique key format: {}", uniqueKey);
-                    continue;
-                }
-
-                // Parse unique key: "404-A2|5|1"
-                String roomCode = RoomOccupancyUtils.extractRoomCode(uniqueKey);
-                Integer dayOfWeek = RoomOccupancyUtils.extractDayOfWeek(uniqueKey);
-                Integer period = RoomOccupancyUtils.extractPeriod(uniqueKey);
-
-                if (roomCode == null || dayOfWeek == null || period == null) {
-                    log.warn("Failed to parse unique key: {}", uniqueKey);
-                    continue;
-                }
-
-                // Parse room code: "404-A2"
-                String roomName = RoomOccupancyUtils.extractRoomName(roomCode);
-                String building = RoomOccupancyUtils.extractBuilding(roomCode);
-
-                if (roomName == null || building == null) {
-                    log.warn("Failed to parse room code: {}", roomCode);
-                    continue;
-                }
-
-                // Get or cache room
-                Room room = roomCache.get(roomCode);
-                if (room == null) {
-                    room = roomRepository.findByNameAndBuilding(roomName, building)
-                            .orElse(null);
-                    if (room == null) {
-                        log.warn("Room not found: {} in building {}", roomName, building);
-                        continue;
-                    }
-                    roomCache.put(roomCode, room);
-                }
-
-                // Create RoomOccupancy entity
-                RoomOccupancy occupancy = RoomOccupancy.builder()
-                        .room(room)
-                        .semester(semester)
-                        .dayOfWeek(dayOfWeek)
-                        .period(period)
-                        .uniqueKey(uniqueKey)
-                        .build();
-
-                newOccupancies.add(occupancy);
-            }
+    public void addGlobalOccupiedRooms(OccupancySet additions) {
+        if (currentSemesterId == null) {
+            log.warn("Current semester ID not set, falling back to JSON save");
+            OccupancySet merged = loadGlobalOccupiedRoomsFromJson();
+            merged.addAll(additions);
+            saveGlobalOccupiedRoomsToJson(merged);
+            return;
+        }
+        Long semesterId = currentSemesterId;
+        semesterLockService.runWithLock(semesterId,
+                token -> occupancyWriteBehindService.submitAdditions(semesterId, additions, token));
+        log.info("Queued {} occupied room entries for semester ID: {}", additions.size(), semesterId);
+    }
 
-            // Batch save
-            if (!newOccupancies.isEmpty()) {
-                roomOccupancyRepository.saveAll(newOccupancies);
-                log.info("Successfully saved {} room occupancies to database", newOccupancies.size());
-            } else {
-                log.warn("No valid occupancies to save");
-            }
+    /**
+     * Clear all occupied rooms for current semester
+     * Written synchronously under the semester lock
+     */
+    public void clearGlobalOccupiedRooms() {
+        if (currentSemesterId == null) {
+            log.warn("Current semester ID not set, falling back to JSON save");
+            saveGlobalOccupiedRoomsToJson(new OccupancySet());
+            return;
+        }
+        Long semesterId = currentSemesterId;
+        semesterLockService.runWithLock(semesterId,
+                token -> occupancyWriteBehindService.replace(semesterId, new OccupancySet(), token));
+        log.info("Cleared occupied rooms for semester ID: {}", semesterId);
+    }
 
-        } catch (Exception e) {
-            log.error("Error saving occupied rooms to database, falling back to JSON", e);
+    /**
+     * Replace global occupied rooms for current semester
+     * Written synchronously under the semester lock
+     * 
+     * @param occupiedRooms Set of packed room occupancy keys
+     */
+    public void saveGlobalOccupiedRooms(OccupancySet occupiedRooms) {
+        if (currentSemesterId == null) {
+            log.warn("Current semester ID not set, falling back to JSON save");
             saveGlobalOccupiedRoomsToJson(occupiedRooms);
+            return;
         }
+        Long semesterId = currentSemesterId;
+        semesterLockService.runWithLock(semesterId,
+                token -> occupancyWriteBehindService.replace(semesterId, occupiedRooms, token));
+        log.info("Replaced occupied rooms of semester ID: {} with {} entries", semesterId, occupiedRooms.size());
     }
 
     /**
@@ -525,17 +582,12 @@ public class DataLoaderService {
      * @deprecated Use database method instead
      */
     @Deprecated
-    private void saveGlobalOccupiedRoomsToJson(Set<Object> occupiedRooms) {
+    private void saveGlobalOccupiedRoomsToJson(OccupancySet occupiedRooms) {
         try {
             log.info("Saving {} occupied room entries to global_occupied_rooms.json", occupiedRooms.size());
 
             // Convert set to list for JSON array
-            List<String> occupiedList = new ArrayList<>();
-            for (Object obj : occupiedRooms) {
-                if (obj != null) {
-                    occupiedList.add(obj.toString());
-                }
-            }
+            List<String> occupiedList = occupiedRooms.toUniqueKeys();
 
             // Try to save to both target/classes and src/main/resources
             try {
@@ -566,6 +618,9 @@ public class DataLoaderService {
 
     /**
      * Import data from Excel file and save to JSON file with semester name
+     * File upload được chép ra file tạm rồi mở read-only bằng File.
+     * .xlsx được đọc streaming (SAX), .csv / .tsv qua tokenizer, ghi theo batch nên heap không tăng
+     * theo kích thước file; .xls cũ vẫn đi qua HSSFWorkbook.
      * @param file Excel file
      * @param semester Học kỳ (VD: "HK1 2024-2025")
      * @return Filename of saved JSON
@@ -574,17 +629,74 @@ public class DataLoaderService {
         try {
             log.info("Importing data from Excel file: {}", file.getOriginalFilename());
 
-            // Parse Excel file using Apache POI
-            org.apache.poi.ss.usermodel.Workbook workbook;
+            // Parse semester to get semesterName and academicYear
+            String[] parts = parseSemester(semester);
+            String semesterName = parts[0];
+            String academicYear = parts[1];
+
+            // Find or create semester entity
+            Semester semesterEntity = findOrCreateSemester(semesterName, academicYear);
+
             String filename = file.getOriginalFilename();
-            if (filename != null && filename.endsWith(".xlsx")) {
-                workbook = new org.apache.poi.xssf.usermodel.XSSFWorkbook(file.getInputStream());
-            } else {
-                workbook = new org.apache.poi.hssf.usermodel.HSSFWorkbook(file.getInputStream());
+            boolean xlsx = filename != null && filename.endsWith(".xlsx");
+            char delimiter = DelimitedStreamReader.delimiterFor(filename);
+            TemplateBatchWriter writer = new TemplateBatchWriter(semesterEntity.getId());
+
+            // File tạm: POI mở bằng File (random access) thay vì giữ cả file zip / OLE2 trong heap.
+            // CSV / TSV cũng đọc từ file tạm để upload đã nhận đủ trước khi xóa lịch mẫu cũ.
+            try (SpooledUpload upload = SpooledUpload.of(file)) {
+                // Thay thế theo tập hợp trong một transaction: DELETE một câu, INSERT theo batch JDBC,
+                // tăng templateVersion cùng commit. Generate chạy song song chỉ thấy bộ cũ hoặc bộ mới.
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    int deleted = tkbTemplateRepository.deleteAllBySemesterId(semesterEntity.getId());
+                    log.info("🗑️ Deleted {} old templates for {} {}", deleted, semesterName, academicYear);
+
+                    log.info("Saving templates to database for {} {}...", semesterName, academicYear);
+                    // reader (SAX / HSSF) → parse song song → INSERT theo batch trên thread giữ transaction
+                    ImportPipeline<List<?>, Object[]> pipeline = importPipelineFactory.create(TEMPLATE_IMPORT_BATCH_SIZE);
+                    try {
+                        pipeline.run(sink -> {
+                            ImportPipeline.RowSink<List<?>> rows = skipHeaderRow(sink);
+                            if (delimiter != 0) {
+                                try (InputStream in = new FileInputStream(upload.file())) {
+                                    DelimitedStreamReader.read(in, delimiter, (rowNum, cells) -> rows.accept(rowNum, new ArrayList<>(cells)));
+                                }
+                            } else if (xlsx) {
+                                XlsxStreamReader.readFirstSheet(upload.file(), (rowNum, cells) -> rows.accept(rowNum, new ArrayList<>(cells)));
+                            } else {
+                                readLegacyWorkbook(upload.file(), rows);
+                            }
+                        }, writer::parse, writer::write, writer::onError);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+
+                    // Cache của version cũ hết hiệu lực trên mọi node khi transaction commit
+                    semesterRepository.incrementTemplateVersion(semesterEntity.getId());
+                });
             }
+            templateDataCache.invalidate(semesterEntity.getId());
+            // Slot (thứ / tiết / tuần) của các schedule đã lưu đi theo template vừa thay
+            scheduleConflictGateService.invalidate();
+            liveConflictIndexService.reset(semesterEntity.getId());
+
+            log.info("✅ Saved {} templates to database ({} rows skipped)", writer.saved, writer.skipped);
+            log.info("✅ Successfully imported {} templates for {} {}", writer.saved, semesterName, academicYear);
+            return semesterName + " " + academicYear;
+
+        } catch (Exception e) {
+            log.error("❌ Error importing data from Excel", e);
+            throw new RuntimeException("Failed to import data from Excel: " + e.getMessage(), e);
+        }
+    }
 
+    /**
+     * Đọc file .xls (HSSF, không có API streaming tương đương) và đẩy từng dòng cho writer
+     */
+    private void readLegacyWorkbook(java.io.File file, ImportPipeline.RowSink<List<?>> rows) throws IOException {
+        try (org.apache.poi.poifs.filesystem.POIFSFileSystem fs = new org.apache.poi.poifs.filesystem.POIFSFileSystem(file, true);
+             org.apache.poi.ss.usermodel.Workbook workbook = new org.apache.poi.hssf.usermodel.HSSFWorkbook(fs.getRoot(), true)) {
             org.apache.poi.ss.usermodel.Sheet sheet = workbook.getSheetAt(0);
-            List<List<Object>> dataArray = new ArrayList<>();
 
             // Create FormulaEvaluator to evaluate formulas
             org.apache.poi.ss.usermodel.FormulaEvaluator formulaEvaluator = workbook.getCreationHelper()
@@ -672,119 +784,110 @@ public class DataLoaderService {
                             rowData.add(null);
                     }
                 }
-                dataArray.add(rowData);
+                rows.accept(row.getRowNum(), rowData);
             }
 
-            workbook.close();
+        }
+    }
 
-            log.info("Parsed {} rows from Excel", dataArray.size());
+    /**
+     * Bỏ dòng đầu tiên (header) của sheet
+     */
+    private static ImportPipeline.RowSink<List<?>> skipHeaderRow(ImportPipeline.RowSink<List<?>> sink) {
+        boolean[] headerSkipped = {false};
+        return (rowNum, row) -> {
+            if (!headerSkipped[0]) {
+                headerSkipped[0] = true;
+                return;
+            }
+            sink.accept(rowNum, row);
+        };
+    }
 
-            // Parse semester to get semesterName and academicYear
-            String[] parts = parseSemester(semester);
-            String semesterName = parts[0];
-            String academicYear = parts[1];
-            
-            log.info("Saving templates to database for {} {}...", semesterName, academicYear);
-            
-            // Find or create semester entity
-            Semester semesterEntity = findOrCreateSemester(semesterName, academicYear);
-            
-            // Convert Excel data to entities and save to database
-            List<TKBTemplate> entities = new ArrayList<>();
-            int rowOrder = 0;
-            
-            // Skip header row (index 0)
-            for (int i = 1; i < dataArray.size(); i++) {
-                List<Object> row = dataArray.get(i);
-                if (row.size() >= 24) {
-                    try {
-                        // Parse row data
-                        int totalPeriods = (Integer) row.get(0);
-                        int dayOfWeek = (Integer) row.get(1);
-                        int kip = (Integer) row.get(2);
-                        int startPeriod = (Integer) row.get(3);
-                        int periodLength = (Integer) row.get(4);
-                        String templateId = row.get(5).toString();
-                        
-                        // Parse week schedule (columns 6-23)
-                        List<Integer> weekSchedule = new ArrayList<>();
-                        for (int j = 6; j < 24; j++) {
-                            Object weekCell = row.get(j);
-                            if (weekCell != null && ("x".equalsIgnoreCase(weekCell.toString()) || "X".equalsIgnoreCase(weekCell.toString()))) {
-                                weekSchedule.add(1);
-                            } else {
-                                weekSchedule.add(0);
-                            }
-                        }
-                        
-                        // Calculate totalUsed
-                        int totalUsed = weekSchedule.stream().mapToInt(Integer::intValue).sum() * periodLength;
-                        
-                        // Convert weekSchedule to JSON string
-                        String weekScheduleJson = objectMapper.writeValueAsString(weekSchedule);
-                        
-                        // Create entity
-                        TKBTemplate entity = TKBTemplate.builder()
-                            .templateId(templateId)
-                            .totalPeriods(totalPeriods)
-                            .dayOfWeek(dayOfWeek)
-                            .kip(kip)
-                            .startPeriod(startPeriod)
-                            .periodLength(periodLength)
-                            .weekSchedule(weekScheduleJson)
-                            .totalUsed(totalUsed)
-                            .semester(semesterEntity)
-                            .rowOrder(rowOrder++)
-                            .build();
-                        
-                        entities.add(entity);
-                    } catch (Exception e) {
-                        log.warn("⚠️ Failed to parse row {}: {}", i, e.getMessage());
-                    }
-                }
+    /**
+     * Chuyển từng dòng Excel thành tham số INSERT tkb_templates và ghi theo batch JDBC
+     * (IDENTITY id khiến Hibernate không batch được insert)
+     */
+    private class TemplateBatchWriter {
+
+        private final Long semesterId;
+        private int rowOrder;
+        private int saved;
+        private int skipped;
+
+        private TemplateBatchWriter(Long semesterId) {
+            this.semesterId = semesterId;
+        }
+
+        /**
+         * Validator stage (chạy song song): không dùng trạng thái chung
+         */
+        Object[] parse(int rowNum, List<?> row) {
+            if (row.isEmpty() || cell(row, 0) == null) {
+                return null;
             }
-            
-            // Delete old templates for this semester before inserting new ones
-            try {
-                log.info("🗑️ Deleting old templates for {} {}...", semesterName, academicYear);
-                List<TKBTemplate> oldTemplates = tkbTemplateRepository.findBySemesterOrderByRowOrderAsc(semesterEntity);
-                if (!oldTemplates.isEmpty()) {
-                    tkbTemplateRepository.deleteAll(oldTemplates);
-                    log.info("✅ Deleted {} old templates", oldTemplates.size());
-                }
-            } catch (Exception e) {
-                log.warn("⚠️ Failed to delete old templates: {}", e.getMessage());
+            // Parse row data
+            int totalPeriods = toInt(cell(row, 0));
+            int dayOfWeek = toInt(cell(row, 1));
+            int kip = toInt(cell(row, 2));
+            int startPeriod = toInt(cell(row, 3));
+            int periodLength = toInt(cell(row, 4));
+            String templateId = cell(row, 5).toString();
+
+            // Parse week schedule (columns 6-23), ô trống cuối dòng không có trong row
+            List<Integer> weekSchedule = new ArrayList<>(WeekMask.WEEKS);
+            for (int j = 6; j < 6 + WeekMask.WEEKS; j++) {
+                Object weekCell = cell(row, j);
+                weekSchedule.add(weekCell != null && "x".equalsIgnoreCase(weekCell.toString().trim()) ? 1 : 0);
             }
-            
-            // Save all entities to database
-            try {
-                List<TKBTemplate> savedEntities = tkbTemplateRepository.saveAll(entities);
-                log.info("✅ Saved {} templates to database", savedEntities.size());
-                
-                // Clear ALL cache entries for this semester (multiple possible keys)
-                String semesterKey = semesterName + " " + academicYear; // VD: "HK2 2024-2025"
-                templateDataCache.remove(semester); // Original key from parameter
-                templateDataCache.remove(semesterKey); // Normalized key
-                
-                // Clear all cache entries to be safe
-                templateDataCache.clear();
-                log.info("🗑️ Cleared all template cache");
-                
-                // Debug: Log new IDs from saved entities
-                List<Long> newIds = savedEntities.stream().map(TKBTemplate::getId).limit(5).toList();
-                log.info("📝 New template IDs (first 5): {}", newIds);
-                
-                log.info("✅ Successfully imported {} templates for {} {}", savedEntities.size(), semesterName, academicYear);
-                return semesterName + " " + academicYear;
-                
-            } catch (Exception e) {
-                log.error("❌ Failed to save to database: {}", e.getMessage());
-                throw new RuntimeException("Failed to save to database: " + e.getMessage(), e);
+            int weekMask = WeekMask.fromList(weekSchedule);
+
+            // Calculate totalUsed
+            int totalUsed = Integer.bitCount(weekMask) * periodLength;
+
+            // weekSchedule JSON (tương thích) + bitmask để đọc không cần parse; rowOrder gán khi ghi
+            return new Object[]{templateId, totalPeriods, dayOfWeek, kip, startPeriod, periodLength,
+                    WeekMask.toJson(weekSchedule), weekMask, totalUsed, semesterId, null};
+        }
+
+        /**
+         * Writer stage: nhận batch theo đúng thứ tự dòng
+         */
+        void write(List<ImportPipeline.Row<Object[]>> batch) {
+            List<Object[]> args = new ArrayList<>(batch.size());
+            for (ImportPipeline.Row<Object[]> row : batch) {
+                Object[] params = row.value();
+                params[10] = rowOrder++;
+                args.add(params);
             }
+            jdbcTemplate.batchUpdate(INSERT_TEMPLATE_SQL, args);
+            saved += args.size();
+        }
 
-        } catch (Exception e) {
-            log.error("❌ Error importing data from Excel", e);
-            throw new RuntimeException("Failed to import data from Excel: " + e.getMessage(), e);
+        void onError(int rowNum, Exception e) {
+            skipped++;
+            log.warn("⚠️ Failed to parse row {}: {}", rowNum, e.getMessage());
+        }
+
+        private Object cell(List<?> row, int index) {
+            return index < row.size() ? row.get(index) : null;
+        }
+
+        private int toInt(Object value) {
+            if (value instanceof Integer i) {
+                return i;
+            }
+            String text = value.toString().trim();
+            try {
+                return Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                // "3.0" từ ô số có format thập phân
+                double d = Double.parseDouble(text);
+                if (d != Math.rint(d)) {
+                    throw new NumberFormatException("Không phải số nguyên: " + text);
+                }
+                return (int) d;
+            }
         }
     }
 }
@@ -5,6 +5,7 @@ import com.ptit.schedule.dto.SubjectRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ExcelReaderService {
     
@@ -24,4 +25,13 @@ public interface ExcelReaderService {
      */
     ExcelImportResult readAndValidateSubjectsFromExcel(MultipartFile file, String semester, String academicYear);
 
+    /**
+     * Đọc file Excel dạng streaming: mỗi môn hợp lệ, không trùng được đẩy ngay cho consumer
+     * theo thứ tự dòng, không giữ toàn bộ file trong bộ nhớ
+     * @param consumer Nhận từng SubjectRequest hợp lệ
+     * @return ExcelImportResult chứa warnings và số liệu (validSubjects để trống)
+     */
+    ExcelImportResult streamSubjectsFromExcel(MultipartFile file, String semester, String academicYear,
+                                              Consumer<SubjectRequest> consumer);
+
 }
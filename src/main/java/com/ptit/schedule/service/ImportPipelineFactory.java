@@ -0,0 +1,58 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.utils.ImportPipeline;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tạo {@link ImportPipeline} dùng chung thread pool cho các luồng import Excel
+ * (template TKB, chương trình đào tạo, thời khóa biểu)
+ */
+@Slf4j
+@Component
+public class ImportPipelineFactory {
+
+    @Value("${import-pipeline.workers:0}")
+    private int workers; // 0 = số CPU
+
+    @Value("${import-pipeline.queue-capacity:1024}")
+    private int queueCapacity;
+
+    private ExecutorService readerExecutor;
+    private ExecutorService validatorExecutor;
+
+    @PostConstruct
+    void init() {
+        int poolSize = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        readerExecutor = Executors.newCachedThreadPool(threadFactory("import-reader-"));
+        validatorExecutor = Executors.newFixedThreadPool(poolSize, threadFactory("import-validator-"));
+        log.info("Import pipeline: {} validator workers, queue capacity {}", poolSize, queueCapacity);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        readerExecutor.shutdownNow();
+        validatorExecutor.shutdownNow();
+    }
+
+    public <R, T> ImportPipeline<R, T> create(int batchSize) {
+        return new ImportPipeline<>(readerExecutor, validatorExecutor, queueCapacity, batchSize);
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
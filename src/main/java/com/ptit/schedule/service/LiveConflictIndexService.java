@@ -0,0 +1,37 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.dto.LiveConflictDelta;
+import com.ptit.schedule.dto.LiveEntryRequest;
+
+import java.util.Collection;
+
+public interface LiveConflictIndexService {
+
+    /**
+     * Thêm lớp mới vào bản lịch đang chỉnh của học kỳ
+     * @return Các xung đột mới phát sinh
+     */
+    LiveConflictDelta addEntry(Long semesterId, LiveEntryRequest request);
+
+    /**
+     * Đổi chỗ / đổi phòng / đổi giảng viên của một lớp đã có
+     * @return Xung đột mới và xung đột được gỡ
+     */
+    LiveConflictDelta moveEntry(Long semesterId, String entryId, LiveEntryRequest request);
+
+    /**
+     * Bỏ một lớp khỏi bản lịch đang chỉnh
+     * @return Các xung đột được gỡ
+     */
+    LiveConflictDelta removeEntry(Long semesterId, String entryId);
+
+    /**
+     * Bỏ bản lịch đang chỉnh, lần gọi sau sẽ dựng lại từ các schedule đã lưu
+     */
+    void reset(Long semesterId);
+
+    /**
+     * Bỏ các schedule đã xóa khỏi bản lịch đang chỉnh của mọi học kỳ, giữ nguyên các thay đổi khác
+     */
+    void removeSaved(Collection<Long> scheduleIds);
+}
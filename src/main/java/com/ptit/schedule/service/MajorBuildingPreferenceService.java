@@ -2,16 +2,21 @@ package com.ptit.schedule.service;
 
 import com.ptit.schedule.entity.MajorBuildingPreference;
 import com.ptit.schedule.repository.MajorBuildingPreferenceRepository;
+import com.ptit.schedule.utils.AfterCommit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Transactional
@@ -21,15 +26,63 @@ public class MajorBuildingPreferenceService {
 
     private final MajorBuildingPreferenceRepository repository;
 
+    @Value("${working-set.ttl-ms:300000}")
+    private long workingSetTtlMs;
+
+    /** Snapshot ngành → tòa nhà ưu tiên (theo priority), tránh một query cho mỗi lần pickRoom */
+    private volatile Map<String, List<String>> preferenceSnapshot;
+    private volatile long snapshotLoadedAt;
+    /** Tăng sau mỗi commit sửa ưu tiên; lần nạp bắt đầu trước đó không được ghi vào snapshot */
+    private final AtomicLong snapshotGeneration = new AtomicLong();
+
+    @Transactional(readOnly = true)
     public List<String> getPreferredBuildingsForMajor(String nganh) {
         if (nganh == null || nganh.trim().isEmpty()) {
             return Collections.emptyList();
         }
 
-        return repository.findByNganhAndIsActiveTrueOrderByPriorityLevelAsc(nganh)
-                .stream()
-                .map(MajorBuildingPreference::getPreferredBuilding)
-                .collect(Collectors.toList());
+        return snapshot().getOrDefault(nganh, Collections.emptyList());
+    }
+
+    /**
+     * Nạp sẵn snapshot ưu tiên tòa nhà
+     *
+     * @return Số ngành có ưu tiên
+     */
+    @Transactional(readOnly = true)
+    public int preloadSnapshot() {
+        return snapshot().size();
+    }
+
+    private Map<String, List<String>> snapshot() {
+        Map<String, List<String>> snapshot = preferenceSnapshot;
+        if (snapshot != null && System.currentTimeMillis() - snapshotLoadedAt < workingSetTtlMs) {
+            return snapshot;
+        }
+        long generation = snapshotGeneration.get();
+        // Đã sắp theo ngành, priority tăng dần
+        Map<String, List<String>> loaded = new HashMap<>();
+        for (MajorBuildingPreference pref : repository.findByIsActiveTrueOrderByNganhAscPriorityLevelAsc()) {
+            loaded.computeIfAbsent(pref.getNganh(), k -> new ArrayList<>()).add(pref.getPreferredBuilding());
+        }
+        loaded.replaceAll((k, v) -> List.copyOf(v));
+        snapshot = Map.copyOf(loaded);
+        if (snapshotGeneration.get() == generation) {
+            preferenceSnapshot = snapshot;
+            snapshotLoadedAt = System.currentTimeMillis();
+        }
+        log.info("Loaded building preference snapshot for {} majors", snapshot.size());
+        return snapshot;
+    }
+
+    /**
+     * Bỏ snapshot sau khi transaction sửa ưu tiên commit
+     */
+    private void invalidateSnapshot() {
+        AfterCommit.run(() -> {
+            snapshotGeneration.incrementAndGet();
+            preferenceSnapshot = null;
+        });
     }
 
     public MajorBuildingPreference createOrUpdatePreference(String nganh, String building,
@@ -44,6 +97,7 @@ public class MajorBuildingPreferenceService {
             pref.setUpdatedAt(LocalDateTime.now());
             log.info("Updated preference for major {} building {} to priority {}",
                     nganh, building, priorityLevel);
+            invalidateSnapshot();
             return repository.save(pref);
         }
 
@@ -59,6 +113,7 @@ public class MajorBuildingPreferenceService {
 
         log.info("Created new preference for major {} building {} with priority {}",
                 nganh, building, priorityLevel);
+        invalidateSnapshot();
         return newPref;
     }
 
@@ -68,6 +123,7 @@ public class MajorBuildingPreferenceService {
                     pref.setIsActive(false);
                     pref.setUpdatedAt(LocalDateTime.now());
                     repository.save(pref);
+                    invalidateSnapshot();
                     log.info("Deactivated preference for major {} building {}", nganh, building);
                 });
     }
@@ -0,0 +1,238 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.entity.OccupancyEvent;
+import com.ptit.schedule.entity.OccupancyEventType;
+import com.ptit.schedule.entity.OccupancySnapshot;
+import com.ptit.schedule.exception.InvalidDataException;
+import com.ptit.schedule.repository.OccupancyEventRepository;
+import com.ptit.schedule.repository.OccupancySnapshotRepository;
+import com.ptit.schedule.repository.RoomOccupancyRepository;
+import com.ptit.schedule.utils.OccupancyKey;
+import com.ptit.schedule.utils.OccupancySet;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Log occupancy append-only theo học kỳ, kèm snapshot compact định kỳ.
+ *
+ * Trạng thái hiện tại = snapshot mới nhất + replay các sự kiện sau snapshot đó, nên chi phí
+ * warm-up không phụ thuộc vào số học kỳ / số dòng room_occupancies. Mỗi node giữ trạng thái đã
+ * replay trong bộ nhớ và chỉ đọc thêm phần đuôi ở các lần sau.
+ * Cùng log này dùng cho audit (ai chiếm phòng, khi nào) và rollback về một thời điểm.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OccupancyLogService {
+
+    private static final String SYSTEM_ACTOR = "system";
+
+    private final OccupancyEventRepository occupancyEventRepository;
+    private final OccupancySnapshotRepository occupancySnapshotRepository;
+    private final RoomOccupancyRepository roomOccupancyRepository;
+
+    @Value("${occupancy.log.snapshot-interval:500}")
+    private int snapshotInterval;
+
+    private final Map<Long, MaterializedState> materialized = new ConcurrentHashMap<>();
+
+    /**
+     * Ghi sự kiện chiếm phòng (tham gia transaction đang có của caller)
+     */
+    @Transactional
+    public void appendAdditions(Long semesterId, Collection<String> uniqueKeys, String actor) {
+        if (uniqueKeys.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<OccupancyEvent> events = new ArrayList<>(uniqueKeys.size());
+        for (String uniqueKey : uniqueKeys) {
+            events.add(OccupancyEvent.builder()
+                    .semesterId(semesterId)
+                    .eventType(OccupancyEventType.ADD)
+                    .uniqueKey(uniqueKey)
+                    .actor(actor)
+                    .createdAt(now)
+                    .build());
+        }
+        occupancyEventRepository.saveAll(events);
+    }
+
+    /**
+     * Ghi sự kiện xóa toàn bộ occupancy của học kỳ (tham gia transaction đang có của caller)
+     */
+    @Transactional
+    public void appendClear(Long semesterId, String actor) {
+        occupancyEventRepository.save(OccupancyEvent.builder()
+                .semesterId(semesterId)
+                .eventType(OccupancyEventType.CLEAR)
+                .actor(actor)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    /**
+     * Trạng thái hiện tại của học kỳ: snapshot + tail, chỉ đọc phần đuôi mới kể từ lần gọi trước
+     *
+     * @return Bản sao, caller được phép sửa
+     */
+    @Transactional
+    public OccupancySet currentState(Long semesterId) {
+        MaterializedState state = materialized.computeIfAbsent(semesterId, id -> new MaterializedState());
+        synchronized (state) {
+            if (state.keys == null) {
+                OccupancySnapshot snapshot = latestOrBootstrap(semesterId);
+                state.keys = OccupancySet.fromUniqueKeys(decode(snapshot));
+                state.lastEventId = snapshot.getLastEventId();
+            }
+
+            List<OccupancyEvent> tail = occupancyEventRepository.findTail(semesterId, state.lastEventId);
+            for (OccupancyEvent event : tail) {
+                if (event.getEventType() == OccupancyEventType.CLEAR) {
+                    state.keys.clear();
+                } else {
+                    long key = OccupancyKey.parse(event.getUniqueKey());
+                    if (key != OccupancyKey.INVALID) {
+                        state.keys.add(key);
+                    }
+                }
+                state.lastEventId = event.getId();
+            }
+            if (!tail.isEmpty()) {
+                log.debug("Replayed {} occupancy events for semester {}", tail.size(), semesterId);
+            }
+            return new OccupancySet(state.keys);
+        }
+    }
+
+    /**
+     * Tạo snapshot mới khi phần đuôi đã dài hơn snapshot-interval sự kiện
+     */
+    @Transactional
+    public void compactIfNeeded(Long semesterId) {
+        OccupancySnapshot latest = latestOrBootstrap(semesterId);
+        if (occupancyEventRepository.countTail(semesterId, latest.getLastEventId()) < snapshotInterval) {
+            return;
+        }
+
+        List<OccupancyEvent> tail = occupancyEventRepository.findTail(semesterId, latest.getLastEventId());
+        Set<String> keys = replay(decode(latest), tail);
+        Long lastEventId = tail.get(tail.size() - 1).getId();
+        occupancySnapshotRepository.save(toSnapshot(semesterId, lastEventId, keys));
+        log.info("Compacted {} occupancy events into snapshot for semester {} ({} keys)",
+                tail.size(), semesterId, keys.size());
+    }
+
+    /**
+     * Trạng thái occupancy của học kỳ tại một thời điểm (point-in-time)
+     *
+     * @return Unique keys ("404-A2|5|1") đang bị chiếm tại thời điểm đó
+     */
+    @Transactional
+    public Set<String> stateAt(Long semesterId, LocalDateTime at) {
+        latestOrBootstrap(semesterId);
+        Long targetEventId = occupancyEventRepository.findLastEventIdAt(semesterId, at);
+        OccupancySnapshot base = occupancySnapshotRepository
+                .findFirstBySemesterIdAndLastEventIdLessThanEqualOrderByLastEventIdDesc(semesterId, targetEventId)
+                .orElseThrow(() -> new InvalidDataException(
+                        "Không có lịch sử occupancy của học kỳ " + semesterId + " tại thời điểm " + at));
+
+        return replay(decode(base),
+                occupancyEventRepository.findRange(semesterId, base.getLastEventId(), targetEventId));
+    }
+
+    /**
+     * Audit: các sự kiện occupancy của học kỳ trong khoảng thời gian, mới nhất trước
+     */
+    @Transactional(readOnly = true)
+    public Page<OccupancyEvent> history(Long semesterId, LocalDateTime from, LocalDateTime to, Pageable pageable) {
+        return occupancyEventRepository.findHistory(semesterId, from, to, pageable);
+    }
+
+    /**
+     * Người dùng hiện tại (email trong JWT), "system" nếu không có request context
+     */
+    public static String currentActor() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return SYSTEM_ACTOR;
+        }
+        return authentication.getName();
+    }
+
+    /**
+     * Snapshot mới nhất; lần đầu của học kỳ (dữ liệu có trước khi có log) thì tạo snapshot
+     * từ room_occupancies. Đọc id sự kiện cuối trước khi đọc bảng, nên các sự kiện ghi xen giữa
+     * bị replay lại — vô hại vì ADD idempotent và CLEAR luôn đi trước các ADD của nó.
+     */
+    private OccupancySnapshot latestOrBootstrap(Long semesterId) {
+        return occupancySnapshotRepository.findFirstBySemesterIdOrderByLastEventIdDesc(semesterId)
+                .orElseGet(() -> {
+                    Long lastEventId = occupancyEventRepository.findLastEventId(semesterId);
+                    Set<String> keys = roomOccupancyRepository.findOccupiedKeysBySemesterId(semesterId);
+                    log.info("Bootstrapping occupancy snapshot for semester {} from {} existing occupancies",
+                            semesterId, keys.size());
+                    return occupancySnapshotRepository.save(toSnapshot(semesterId, lastEventId, keys));
+                });
+    }
+
+    private static Set<String> replay(Set<String> keys, List<OccupancyEvent> events) {
+        for (OccupancyEvent event : events) {
+            if (event.getEventType() == OccupancyEventType.CLEAR) {
+                keys.clear();
+            } else {
+                keys.add(event.getUniqueKey());
+            }
+        }
+        return keys;
+    }
+
+    private static Set<String> decode(OccupancySnapshot snapshot) {
+        Set<String> keys = new LinkedHashSet<>(Math.max(16, snapshot.getKeyCount() * 2));
+        String text = snapshot.getUniqueKeys();
+        if (text == null || text.isEmpty()) {
+            return keys;
+        }
+        int start = 0;
+        while (start < text.length()) {
+            int end = text.indexOf('\n', start);
+            if (end < 0) {
+                end = text.length();
+            }
+            if (end > start) {
+                keys.add(text.substring(start, end));
+            }
+            start = end + 1;
+        }
+        return keys;
+    }
+
+    private static OccupancySnapshot toSnapshot(Long semesterId, Long lastEventId, Collection<String> keys) {
+        return OccupancySnapshot.builder()
+                .semesterId(semesterId)
+                .lastEventId(lastEventId)
+                .keyCount(keys.size())
+                .uniqueKeys(String.join("\n", keys))
+                .createdAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Trạng thái đã replay của một học kỳ trên node này
+     */
+    private static class MaterializedState {
+        private OccupancySet keys;
+        private long lastEventId;
+    }
+}
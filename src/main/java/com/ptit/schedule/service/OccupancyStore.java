@@ -0,0 +1,51 @@
+package com.ptit.schedule.service;
+
+/**
+ * Kho occupancy dùng chung để giữ chỗ phòng giữa các request / các node.
+ * MySQL (room_occupancies) vẫn là bản lưu bền vững; store được nạp từ MySQL ở lần dùng đầu tiên.
+ *
+ * Mỗi slot được đánh số bằng {@link #slotIndex(Long, int, int)}:
+ * roomId * 36 + (dayOfWeek - 2) * 6 + (kip - 1)
+ *
+ * Slot không có chiều tuần: giữ chỗ một (phòng, thứ, kíp) là giữ cho cả học kỳ, cùng độ mịn với
+ * room_occupancies (unique key room / semester / day_of_week / period, không có tuần).
+ * Phòng chỉ dùng tuần 1-8 vẫn chặn tuần 9-18 của cùng thứ / kíp; {@link com.ptit.schedule.utils.OccupancyKey}
+ * có week mask nhưng chỉ dùng để chọn phòng trong một node, bản lưu bền vững không giữ được tuần.
+ */
+public interface OccupancyStore {
+
+    int SLOTS_PER_ROOM = 36; // 6 ngày * 6 kíp
+
+    /**
+     * Giữ chỗ nguyên tử cho các slot: thành công khi và chỉ khi tất cả đều còn trống
+     *
+     * @return true nếu giữ chỗ thành công, false nếu có slot đã bị giữ
+     */
+    boolean reserve(Long semesterId, long... slotIndexes);
+
+    /**
+     * Đánh dấu các slot đã bị chiếm, không kiểm tra xung đột (đồng bộ từ MySQL)
+     */
+    void markAll(Long semesterId, long[] slotIndexes);
+
+    /**
+     * Trả lại các slot
+     */
+    void release(Long semesterId, long... slotIndexes);
+
+    boolean isOccupied(Long semesterId, long slotIndex);
+
+    /**
+     * Xóa toàn bộ occupancy của học kỳ
+     */
+    void clear(Long semesterId);
+
+    /**
+     * Nạp bitmap của học kỳ từ MySQL nếu chưa có (warm-up lúc khởi động)
+     */
+    void preload(Long semesterId);
+
+    static long slotIndex(Long roomId, int dayOfWeek, int kip) {
+        return roomId * SLOTS_PER_ROOM + (dayOfWeek - 2) * 6L + (kip - 1);
+    }
+}
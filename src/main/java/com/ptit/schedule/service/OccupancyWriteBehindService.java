@@ -0,0 +1,481 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.entity.Room;
+import com.ptit.schedule.entity.RoomOccupancy;
+import com.ptit.schedule.entity.Semester;
+import com.ptit.schedule.exception.ResourceNotFoundException;
+import com.ptit.schedule.exception.StaleFencingTokenException;
+import com.ptit.schedule.repository.RoomOccupancyRepository;
+import com.ptit.schedule.repository.RoomRepository;
+import com.ptit.schedule.repository.SemesterRepository;
+import com.ptit.schedule.utils.OccupancyKey;
+import com.ptit.schedule.utils.OccupancySet;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind cho room occupancy.
+ * Các lần thêm phòng được gộp theo học kỳ trong bộ nhớ rồi ghi xuống room_occupancies theo lô
+ * trên một thread nền, nên request lưu TKB trả về ngay khi thay đổi được nhận.
+ * Thay thế / xóa toàn bộ ({@link #replace}) được ghi đồng bộ.
+ *
+ * - Hàng đợi có giới hạn: khi đầy, thread gọi tự flush (back-pressure)
+ * - Lỗi ghi được retry với backoff; sau max-requeues lượt lỗi liên tiếp thì ngừng đưa lại vào hàng đợi
+ *   (thay đổi vẫn giữ, flush lại ở lần thay đổi sau hoặc khi shutdown). Lỗi vĩnh viễn (học kỳ đã bị xóa,
+ *   fencing token cũ) không retry, thay đổi bị bỏ
+ * - Shutdown chờ lần flush đang chạy xong rồi mới flush phần còn lại
+ * - {@link #snapshot(Long)} cho phép đọc được các thay đổi chưa flush (read-your-writes)
+ * - Mỗi lần ghi đồng thời append vào {@link OccupancyLogService} trong cùng transaction
+ * - Fencing token của {@link SemesterLockService} được kiểm tra lúc ghi ({@link SemesterFenceService})
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class OccupancyWriteBehindService {
+
+    private final RoomOccupancyRepository roomOccupancyRepository;
+    private final RoomRepository roomRepository;
+    private final SemesterRepository semesterRepository;
+    private final OccupancyStore occupancyStore;
+    private final OccupancyLogService occupancyLogService;
+    private final SemesterFenceService semesterFenceService;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${occupancy.write-behind.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${occupancy.write-behind.batch-size:500}")
+    private int batchSize;
+
+    @Value("${occupancy.write-behind.linger-ms:200}")
+    private long lingerMs;
+
+    @Value("${occupancy.write-behind.max-retries:5}")
+    private int maxRetries;
+
+    @Value("${occupancy.write-behind.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    @Value("${occupancy.write-behind.max-requeues:10}")
+    private int maxRequeues;
+
+    @Value("${occupancy.write-behind.shutdown-timeout-ms:30000}")
+    private long shutdownTimeoutMs;
+
+    private static final long POLL_INTERVAL_MS = 500;
+
+    private final Map<Long, PendingChange> pending = new HashMap<>(); // guarded by this
+    private final Map<Long, PendingChange> inFlight = new HashMap<>(); // guarded by this
+    private final Map<Long, ReentrantLock> flushLocks = new ConcurrentHashMap<>();
+    private final Map<Long, Integer> failedRounds = new ConcurrentHashMap<>(); // chỉ thread flusher
+
+    private BlockingQueue<Long> queue;
+    private ExecutorService flusher;
+    private TransactionTemplate transactionTemplate;
+    private volatile boolean running;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        flusher = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "occupancy-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.submit(this::runFlusher);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Không interrupt: lần flush đang chạy phải ghi xong (hoặc trả thay đổi về pending) trước khi drain
+        running = false;
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Occupancy flush still running after {} ms, draining pending changes behind it",
+                        shutdownTimeoutMs);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        Set<Long> remaining;
+        synchronized (this) {
+            remaining = new HashSet<>(pending.keySet());
+        }
+        log.info("Flushing {} pending occupancy changes before shutdown", remaining.size());
+        for (Long semesterId : remaining) {
+            flushWithRetry(semesterId);
+        }
+    }
+
+    /**
+     * Nhận các phòng mới bị chiếm của học kỳ, ghi xuống database ở thread nền
+     *
+     * @param fencingToken Token của {@link SemesterLockService} mà caller đang giữ
+     */
+    public void submitAdditions(Long semesterId, OccupancySet additions, long fencingToken) {
+        if (additions.isEmpty()) {
+            return;
+        }
+        boolean enqueue;
+        synchronized (this) {
+            PendingChange change = pending.get(semesterId);
+            enqueue = change == null;
+            if (change == null) {
+                change = new PendingChange();
+                pending.put(semesterId, change);
+            }
+            change.additionsFor(fencingToken).addAll(additions);
+            change.actor = OccupancyLogService.currentActor();
+        }
+        if (enqueue) {
+            enqueue(semesterId);
+        }
+    }
+
+    /**
+     * Thay toàn bộ occupancy của học kỳ bằng tập mới (tập rỗng = xóa toàn bộ).
+     * Ghi đồng bộ trên thread gọi: thay thế không giao hoán với các lần thêm nên phải được ghi
+     * trước khi caller trả khóa học kỳ.
+     *
+     * @param fencingToken Token của {@link SemesterLockService} mà caller đang giữ
+     * @throws com.ptit.schedule.exception.StaleFencingTokenException nếu đã có thao tác mới hơn được ghi
+     */
+    public void replace(Long semesterId, OccupancySet occupied, long fencingToken) {
+        PendingChange change = new PendingChange();
+        change.clearToken = fencingToken;
+        change.additionsFor(fencingToken).addAll(occupied);
+        change.actor = OccupancyLogService.currentActor();
+
+        ReentrantLock lock = flushLocks.computeIfAbsent(semesterId, id -> new ReentrantLock());
+        lock.lock();
+        try {
+            PendingChange superseded;
+            synchronized (this) {
+                // Các lần thêm chưa ghi đều có token nhỏ hơn nên bị thay thế
+                superseded = pending.remove(semesterId);
+                inFlight.put(semesterId, change);
+            }
+
+            try {
+                long[] slotIndexes = transactionTemplate.execute(status -> persist(semesterId, change));
+                occupancyStore.clear(semesterId);
+                if (slotIndexes != null && slotIndexes.length > 0) {
+                    occupancyStore.markAll(semesterId, slotIndexes);
+                }
+                synchronized (this) {
+                    inFlight.remove(semesterId);
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    inFlight.remove(semesterId);
+                    if (superseded != null) {
+                        PendingChange newer = pending.get(semesterId);
+                        pending.put(semesterId, newer == null ? superseded : superseded.then(newer));
+                    }
+                }
+                if (superseded != null) {
+                    enqueue(semesterId);
+                }
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Chụp lại các thay đổi chưa ghi xong của học kỳ.
+     * Gọi trước khi đọc database rồi {@link PendingSnapshot#applyTo(OccupancySet)} lên kết quả đọc được.
+     */
+    public synchronized PendingSnapshot snapshot(Long semesterId) {
+        List<PendingChange> changes = new ArrayList<>(2);
+        PendingChange flushing = inFlight.get(semesterId);
+        if (flushing != null) {
+            changes.add(flushing.copy());
+        }
+        PendingChange queued = pending.get(semesterId);
+        if (queued != null) {
+            changes.add(queued.copy());
+        }
+        return new PendingSnapshot(changes);
+    }
+
+    private void enqueue(Long semesterId) {
+        if (!queue.offer(semesterId)) {
+            log.warn("Occupancy write-behind queue is full, flushing semester {} on caller thread", semesterId);
+            flushWithRetry(semesterId);
+        }
+    }
+
+    private void runFlusher() {
+        while (running) {
+            try {
+                Long semesterId = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (semesterId == null) {
+                    continue;
+                }
+                if (lingerMs > 0 && running) {
+                    Thread.sleep(lingerMs); // gom thêm thay đổi của cùng học kỳ
+                }
+                if (flushWithRetry(semesterId)) {
+                    failedRounds.remove(semesterId);
+                    continue;
+                }
+                int rounds = failedRounds.merge(semesterId, 1, Integer::sum);
+                if (rounds >= maxRequeues) {
+                    failedRounds.remove(semesterId);
+                    log.error("Occupancy flush for semester {} failed {} rounds, will retry on next change or shutdown",
+                            semesterId, rounds);
+                } else if (running) {
+                    Thread.sleep(retryBackoffMs * maxRetries);
+                    if (!queue.offer(semesterId)) {
+                        log.error("Could not re-queue semester {}, will retry on next change or shutdown",
+                                semesterId);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Unexpected error in occupancy write-behind", e);
+            }
+        }
+    }
+
+    /**
+     * @return true nếu flush thành công (hoặc không có gì để flush)
+     */
+    private boolean flushWithRetry(Long semesterId) {
+        for (int attempt = 1; attempt <= maxRetries; attempt++) {
+            try {
+                flush(semesterId);
+                return true;
+            } catch (ResourceNotFoundException | StaleFencingTokenException e) {
+                // Retry không thay đổi được kết quả: bỏ thay đổi thay vì giữ mãi
+                synchronized (this) {
+                    pending.remove(semesterId);
+                }
+                log.error("Discarding pending occupancy for semester {}: {}", semesterId, e.getMessage());
+                return true;
+            } catch (Exception e) {
+                log.warn("Flush occupancy for semester {} failed (attempt {}/{}): {}",
+                        semesterId, attempt, maxRetries, e.getMessage());
+                if (attempt < maxRetries) {
+                    try {
+                        Thread.sleep(retryBackoffMs * attempt);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return false;
+                    }
+                }
+            }
+        }
+        log.error("Giving up flushing occupancy for semester {} after {} attempts, change kept pending",
+                semesterId, maxRetries);
+        return false;
+    }
+
+    private void flush(Long semesterId) {
+        ReentrantLock lock = flushLocks.computeIfAbsent(semesterId, id -> new ReentrantLock());
+        lock.lock();
+        try {
+            PendingChange change;
+            synchronized (this) {
+                change = pending.remove(semesterId);
+                if (change == null) {
+                    return;
+                }
+                inFlight.put(semesterId, change);
+            }
+
+            try {
+                long[] slotIndexes = transactionTemplate.execute(status -> persist(semesterId, change));
+                if (slotIndexes != null && slotIndexes.length > 0) {
+                    occupancyStore.markAll(semesterId, slotIndexes);
+                }
+                synchronized (this) {
+                    inFlight.remove(semesterId);
+                }
+            } catch (RuntimeException e) {
+                // Trả thay đổi lại hàng chờ, giữ đúng thứ tự (cũ trước, mới sau)
+                synchronized (this) {
+                    inFlight.remove(semesterId);
+                    PendingChange newer = pending.get(semesterId);
+                    pending.put(semesterId, newer == null ? change : change.then(newer));
+                }
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            occupancyLogService.compactIfNeeded(semesterId);
+        } catch (RuntimeException e) {
+            log.warn("Compact occupancy log for semester {} failed: {}", semesterId, e.getMessage());
+        }
+    }
+
+    /**
+     * Ghi một thay đổi đã gộp xuống database: chỉ insert các slot chưa có
+     *
+     * @return slot index của các occupancy vừa insert (để đồng bộ OccupancyStore)
+     */
+    private long[] persist(Long semesterId, PendingChange change) {
+        // Fencing: thay thế cũ hơn lần ghi gần nhất bị từ chối, lần thêm cũ hơn lần thay thế gần nhất bị bỏ
+        boolean clear = change.clearToken > 0;
+        if (clear) {
+            semesterFenceService.checkReplace(semesterId, change.clearToken);
+        }
+        OccupancySet additions = new OccupancySet();
+        for (Map.Entry<Long, OccupancySet> entry : change.additionsByToken.entrySet()) {
+            if (entry.getKey() == change.clearToken || semesterFenceService.checkAdditions(semesterId, entry.getKey())) {
+                additions.addAll(entry.getValue());
+            }
+        }
+        if (!clear && additions.isEmpty()) {
+            return new long[0];
+        }
+
+        Semester semester = semesterRepository.findById(semesterId)
+                .orElseThrow(() -> new ResourceNotFoundException("Không tìm thấy học kỳ với ID: " + semesterId));
+
+        Set<Long> existingSlots = new HashSet<>();
+        if (clear) {
+            roomOccupancyRepository.deleteBySemesterId(semesterId);
+            occupancyLogService.appendClear(semesterId, change.actor);
+            log.info("Cleared occupancies for semester ID: {}", semesterId);
+        } else {
+            for (Object[] slot : roomOccupancyRepository.findSlotsBySemesterId(semesterId)) {
+                existingSlots.add(OccupancyStore.slotIndex((Long) slot[0], (Integer) slot[1], (Integer) slot[2]));
+            }
+        }
+
+        if (additions.isEmpty()) {
+            return new long[0];
+        }
+
+        Map<Integer, Room> roomsByOrdinal = new HashMap<>();
+        for (Room room : roomRepository.findAll()) {
+            roomsByOrdinal.put(OccupancyKey.internRoom(room.getName(), room.getBuilding()), room);
+        }
+
+        List<RoomOccupancy> batch = new ArrayList<>(Math.min(batchSize, additions.size()));
+        List<Long> inserted = new ArrayList<>();
+        List<String> insertedKeys = new ArrayList<>();
+        for (long key : additions.toArray()) {
+            Room room = roomsByOrdinal.get(OccupancyKey.roomOrdinal(key));
+            if (room == null) {
+                log.warn("Room not found for occupancy key: {}", OccupancyKey.format(key));
+                continue;
+            }
+            long slotIndex = OccupancyStore.slotIndex(room.getId(), OccupancyKey.dayOfWeek(key),
+                    OccupancyKey.kip(key));
+            if (!existingSlots.add(slotIndex)) {
+                continue;
+            }
+
+            batch.add(RoomOccupancy.builder()
+                    .room(room)
+                    .semester(semester)
+                    .dayOfWeek(OccupancyKey.dayOfWeek(key))
+                    .period(OccupancyKey.kip(key))
+                    .uniqueKey(OccupancyKey.format(key))
+                    .build());
+            inserted.add(slotIndex);
+            insertedKeys.add(OccupancyKey.format(key));
+
+            if (batch.size() >= batchSize) {
+                roomOccupancyRepository.saveAll(batch);
+                roomOccupancyRepository.flush();
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            roomOccupancyRepository.saveAll(batch);
+        }
+        occupancyLogService.appendAdditions(semesterId, insertedKeys, change.actor);
+
+        log.info("Write-behind saved {} new room occupancies for semester ID: {}", inserted.size(), semesterId);
+        return inserted.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Thay đổi đã gộp của một học kỳ: xóa toàn bộ (nếu có) được áp dụng trước các lần thêm.
+     * Các lần thêm được giữ theo fencing token để lúc ghi bỏ được riêng phần đã bị thay thế.
+     */
+    private static class PendingChange {
+        private long clearToken; // > 0: thay thế toàn bộ với token này
+        private final Map<Long, OccupancySet> additionsByToken = new TreeMap<>();
+        private String actor;
+
+        OccupancySet additionsFor(long token) {
+            return additionsByToken.computeIfAbsent(token, t -> new OccupancySet());
+        }
+
+        PendingChange copy() {
+            PendingChange copy = new PendingChange();
+            copy.clearToken = clearToken;
+            copy.actor = actor;
+            additionsByToken.forEach((token, additions) -> copy.additionsFor(token).addAll(additions));
+            return copy;
+        }
+
+        /**
+         * Gộp thay đổi này với một thay đổi mới hơn
+         */
+        PendingChange then(PendingChange newer) {
+            if (newer.clearToken > 0) {
+                return newer;
+            }
+            newer.additionsByToken.forEach((token, additions) -> additionsFor(token).addAll(additions));
+            actor = newer.actor;
+            return this;
+        }
+
+        void applyTo(OccupancySet target) {
+            if (clearToken > 0) {
+                target.clear();
+            }
+            for (OccupancySet additions : additionsByToken.values()) {
+                target.addAll(additions);
+            }
+        }
+    }
+
+    /**
+     * Bản chụp các thay đổi chưa ghi xong, dùng để phủ lên dữ liệu đọc từ database
+     */
+    public static class PendingSnapshot {
+        private final List<PendingChange> changes;
+
+        private PendingSnapshot(List<PendingChange> changes) {
+            this.changes = changes;
+        }
+
+        public OccupancySet applyTo(OccupancySet persisted) {
+            for (PendingChange change : changes) {
+                change.applyTo(persisted);
+            }
+            return persisted;
+        }
+
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+    }
+}
@@ -2,13 +2,25 @@ package com.ptit.schedule.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 /**
  * Service quản lý lastSlotIdx trong Redis
  * Key format: "last_slot_idx:{userId}:{academicYear}:{semester}"
  * Value: Integer (lastSlotIdx)
+ *
+ * Bitmap occupancy dùng chung giữa các node
+ * Key format: "occupancy:{semesterId}" (bit offset xem OccupancyStore.slotIndex)
+ *
+ * Khóa học kỳ kèm fencing token
+ * Key format: "semester_lock:{semesterId}" (giá trị = token), "semester_lock:{semesterId}:token" (bộ đếm)
  */
 @Service
 @Slf4j
@@ -16,8 +28,15 @@ import org.springframework.stereotype.Service;
 public class RedisService {
 
     private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisScript<Long> occupancyReserveScript;
+    private final RedisScript<Long> occupancySeedScript;
+    private final RedisScript<Long> semesterLockAcquireScript;
+    private final RedisScript<Long> semesterLockReleaseScript;
     
     private static final String LAST_SLOT_PREFIX = "last_slot_idx:";
+    private static final String OCCUPANCY_PREFIX = "occupancy:";
+    private static final String SEMESTER_LOCK_PREFIX = "semester_lock:";
 
     /**
      * Tạo Redis key cho lastSlotIdx
@@ -78,5 +97,108 @@ public class RedisService {
         }
     }
 
+    // ==================== ROOM OCCUPANCY BITMAP ====================
+
+    private String buildOccupancyKey(Long semesterId) {
+        return OCCUPANCY_PREFIX + semesterId;
+    }
+
+    private String buildOccupancySeededKey(Long semesterId) {
+        return OCCUPANCY_PREFIX + semesterId + ":seeded";
+    }
+
+    /**
+     * Kiểm tra bitmap occupancy của học kỳ đã được nạp từ MySQL chưa
+     */
+    public boolean isOccupancySeeded(Long semesterId) {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(buildOccupancySeededKey(semesterId)));
+    }
+
+    /**
+     * Nạp bitmap occupancy từ MySQL, bỏ qua nếu node khác đã nạp trước
+     *
+     * @return true nếu lần gọi này thực hiện nạp
+     */
+    public boolean seedOccupancy(Long semesterId, long[] offsets) {
+        Long result = stringRedisTemplate.execute(occupancySeedScript,
+                List.of(buildOccupancyKey(semesterId), buildOccupancySeededKey(semesterId)),
+                (Object[]) toArgs(offsets));
+        boolean seeded = result != null && result == 1L;
+        if (seeded) {
+            log.info("Seeded {} occupancy bits for semester {}", offsets.length, semesterId);
+        }
+        return seeded;
+    }
+
+    /**
+     * Giữ chỗ nguyên tử: chỉ set khi tất cả offset đều còn trống
+     *
+     * @return true nếu giữ chỗ thành công
+     */
+    public boolean reserveOccupancy(Long semesterId, long... offsets) {
+        Long result = stringRedisTemplate.execute(occupancyReserveScript,
+                List.of(buildOccupancyKey(semesterId)), (Object[]) toArgs(offsets));
+        return result != null && result == 0L;
+    }
+
+    /**
+     * Set / clear nhiều bit không kiểm tra (dùng khi đồng bộ từ MySQL)
+     */
+    public void setOccupancyBits(Long semesterId, long[] offsets, boolean value) {
+        if (offsets.length == 0) {
+            return;
+        }
+        String key = buildOccupancyKey(semesterId);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection stringConnection = (StringRedisConnection) connection;
+            for (long offset : offsets) {
+                stringConnection.setBit(key, offset, value);
+            }
+            return null;
+        });
+    }
+
+    public boolean getOccupancyBit(Long semesterId, long offset) {
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().getBit(buildOccupancyKey(semesterId), offset));
+    }
+
+    /**
+     * Xóa toàn bộ occupancy của học kỳ (giữ marker để không nạp lại dữ liệu cũ)
+     */
+    public void clearOccupancy(Long semesterId) {
+        stringRedisTemplate.delete(buildOccupancyKey(semesterId));
+        stringRedisTemplate.opsForValue().set(buildOccupancySeededKey(semesterId), "1");
+        log.info("Cleared occupancy bitmap for semester {}", semesterId);
+    }
+
+    /**
+     * Lấy khóa học kỳ nếu đang trống
+     *
+     * @param leaseMs Thời gian giữ khóa tối đa
+     * @param floor   Token phát ra phải lớn hơn giá trị này
+     * @return Fencing token, 0 nếu khóa đang bị giữ
+     */
+    public long acquireSemesterLock(Long semesterId, long leaseMs, long floor) {
+        String lockKey = SEMESTER_LOCK_PREFIX + semesterId;
+        Long token = stringRedisTemplate.execute(semesterLockAcquireScript,
+                List.of(lockKey, lockKey + ":token"), Long.toString(leaseMs), Long.toString(floor));
+        return token != null ? token : 0L;
+    }
+
+    /**
+     * Trả khóa học kỳ nếu vẫn đang giữ với token này
+     */
+    public boolean releaseSemesterLock(Long semesterId, long token) {
+        Long result = stringRedisTemplate.execute(semesterLockReleaseScript,
+                List.of(SEMESTER_LOCK_PREFIX + semesterId), Long.toString(token));
+        return result != null && result == 1L;
+    }
 
+    private String[] toArgs(long[] offsets) {
+        String[] args = new String[offsets.length];
+        for (int i = 0; i < offsets.length; i++) {
+            args[i] = Long.toString(offsets[i]);
+        }
+        return args;
+    }
 }
@@ -1,6 +1,7 @@
 package com.ptit.schedule.service;
 
 import com.ptit.schedule.dto.BulkCreateRoomOccupancyRequest;
+import com.ptit.schedule.dto.OccupancyEventResponse;
 import com.ptit.schedule.dto.RoomOccupancyResponse;
 import com.ptit.schedule.dto.RoomWithOccupancyStatus;
 import com.ptit.schedule.entity.OccupancyStatus;
@@ -8,6 +9,7 @@ import com.ptit.schedule.entity.RoomType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 
@@ -110,4 +112,17 @@ public interface RoomOccupancyService {
      */
     Page<RoomWithOccupancyStatus> getAvailableRoomsByDayAndPeriod(
             Long semesterId, Integer dayOfWeek, Integer period, Pageable pageable);
+
+    /**
+     * Lịch sử chiếm phòng (audit) của semester trong khoảng thời gian (with pagination)
+     */
+    Page<OccupancyEventResponse> getOccupancyHistory(
+            Long semesterId, LocalDateTime from, LocalDateTime to, Pageable pageable);
+
+    /**
+     * Khôi phục occupancy của semester về trạng thái tại một thời điểm
+     *
+     * @return Số slot bị chiếm sau khi khôi phục
+     */
+    int rollbackOccupancies(Long semesterId, LocalDateTime at);
 }
@@ -9,9 +9,9 @@ import com.ptit.schedule.entity.Room;
 import com.ptit.schedule.entity.RoomStatus;
 import com.ptit.schedule.entity.RoomType;
 import com.ptit.schedule.dto.RoomPickResult;
+import com.ptit.schedule.utils.OccupancySet;
 
 import java.util.List;
-import java.util.Set;
 
 public interface RoomService {
 
@@ -45,10 +45,17 @@ public interface RoomService {
         List<RoomResponse> getRoomsByTypeAndStatus(RoomType type, RoomStatus status);
 
         // Methods for TimetableSchedulingService
-        RoomPickResult pickRoom(List<Room> rooms, Integer sisoPerClass, Set<Object> occupied,
+        RoomPickResult pickRoom(List<Room> rooms, Integer sisoPerClass, OccupancySet occupied,
                         Integer thu, Integer kip, String subjectType, String studentYear,
                         String heDacThu, List<String> weekSchedule, String nganh, String maMon);
 
+        /**
+         * Nạp sẵn danh mục phòng dùng khi xếp phòng
+         *
+         * @return Số phòng trong danh mục
+         */
+        int preloadRoomCatalog();
+
         // Assign rooms to existing TKB
         TKBBatchResponse assignRoomsToSchedule(
                         TKBBatchResponse existingSchedule,
@@ -6,6 +6,20 @@ import com.ptit.schedule.dto.ScheduleEntry;
 import java.util.List;
 
 public interface ScheduleConflictDetectionService {
+
+    /**
+     * Gom entry dần dần (ví dụ khi đang stream file Excel) rồi phát hiện xung đột một lần ở cuối
+     */
+    interface Collector {
+        void add(ScheduleEntry entry);
+
+        ConflictResult finish();
+    }
+
+    /**
+     * Tạo collector mới, không dùng chung giữa các thread
+     */
+    Collector newCollector();
     
     /**
      * Phát hiện xung đột trong danh sách thời khóa biểu
@@ -0,0 +1,25 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.entity.Schedule;
+import com.ptit.schedule.utils.ConflictIndex;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+public interface ScheduleConflictGateService {
+
+    /**
+     * Kiểm tra phòng / thứ / tiết / tuần của batch với các schedule đã lưu của học kỳ (và giữa các dòng
+     * trong batch) rồi mới gọi saver
+     * @param schedules Schedule chưa lưu, đã gắn room và tkbTemplate
+     * @param saver Lưu batch (chỉ được gọi khi qua kiểm tra)
+     * @return Xung đột tìm thấy, chỉ khác rỗng ở chế độ cảnh báo
+     * @throws com.ptit.schedule.exception.ScheduleConflictException nếu có xung đột ở chế độ chặn
+     */
+    List<ConflictIndex.Conflict> saveChecked(List<Schedule> schedules, Consumer<List<Schedule>> saver);
+
+    /**
+     * Bỏ các index đã cache (sau khi xóa schedule)
+     */
+    void invalidate();
+}
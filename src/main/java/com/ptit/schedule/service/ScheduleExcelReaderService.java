@@ -1,9 +1,11 @@
 package com.ptit.schedule.service;
 
 import com.ptit.schedule.dto.ScheduleEntry;
+import com.ptit.schedule.exception.InvalidDataException;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface ScheduleExcelReaderService {
     
@@ -13,6 +15,16 @@ public interface ScheduleExcelReaderService {
      * @return danh sách ScheduleEntry
      */
     List<ScheduleEntry> readScheduleFromExcel(MultipartFile file);
+
+    /**
+     * Đọc file thời khóa biểu trong một lượt: kiểm tra header và đẩy từng entry (đúng thứ tự dòng)
+     * cho consumer ngay khi parse xong, không giữ cả sheet trong bộ nhớ
+     * @param file file Excel
+     * @param consumer nhận từng ScheduleEntry hợp lệ
+     * @return số entry đã đọc
+     * @throws InvalidDataException nếu file không đúng định dạng thời khóa biểu
+     */
+    int streamScheduleFromExcel(MultipartFile file, Consumer<ScheduleEntry> consumer);
     
     /**
      * Validate file Excel có đúng định dạng thời khóa biểu không
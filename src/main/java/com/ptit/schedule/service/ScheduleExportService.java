@@ -0,0 +1,24 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.dto.TKBBatchResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface ScheduleExportService {
+
+    /**
+     * Export các schedule đã lưu của một học kỳ ra .xlsx (cùng layout với file TKB import)
+     * @param semesterName Tên học kỳ
+     * @param academicYear Năm học
+     * @param out Stream nhận file, không bị đóng
+     */
+    void exportSemesterSchedules(String semesterName, String academicYear, OutputStream out) throws IOException;
+
+    /**
+     * Export kết quả generate chưa lưu ra .xlsx
+     * @param batch Kết quả từ /api/schedules/generate-batch
+     * @param out Stream nhận file, không bị đóng
+     */
+    void exportBatch(TKBBatchResponse batch, OutputStream out) throws IOException;
+}
@@ -0,0 +1,86 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.repository.ScheduleRepository;
+import com.ptit.schedule.utils.ConflictIndex;
+import com.ptit.schedule.utils.WeekMask;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Dựng {@link ConflictIndex} từ các schedule đã lưu của một học kỳ (Schedule + TKBTemplate),
+ * đọc theo trang keyset, chỉ lấy các cột cần thiết
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ScheduleIndexLoader {
+
+    private final ScheduleRepository scheduleRepository;
+
+    @Value("${schedule-export.chunk-size:1000}")
+    private int chunkSize;
+
+    public ConflictIndex load(Long semesterId) {
+        long start = System.currentTimeMillis();
+        ConflictIndex index = new ConflictIndex();
+        long afterId = 0L;
+        while (true) {
+            List<Object[]> chunk = scheduleRepository.findExportRowsBySemesterId(
+                    semesterId, afterId, PageRequest.of(0, chunkSize));
+            for (Object[] row : chunk) {
+                index.add(toEntry(row));
+            }
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            afterId = (Long) chunk.get(chunk.size() - 1)[0];
+        }
+        log.info("Loaded conflict index for semester {}: {} schedules, {} conflicts in {}ms",
+                semesterId, index.size(), index.conflictCount(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    /**
+     * Id của schedule đã lưu trong index
+     */
+    public static String entryId(Long scheduleId) {
+        return String.valueOf(scheduleId);
+    }
+
+    /**
+     * Khóa phòng dạng "102-A2" như TKBRowResult.phong
+     */
+    public static String roomKey(String roomName, String building) {
+        if (roomName == null || roomName.isBlank()) {
+            return null;
+        }
+        return building == null || building.isBlank() ? roomName : roomName + "-" + building;
+    }
+
+    /**
+     * Mỗi phần tử của findExportRowsBySemesterId: [id, subjectCode, subjectName, classNumber, major, studentYear,
+     * dayOfWeek, kip, startPeriod, periodLength, roomName, building, siSoMotLop, weekMask, weekSchedule]
+     */
+    private static ConflictIndex.Entry toEntry(Object[] row) {
+        Integer weekMask = (Integer) row[13];
+        int mask = weekMask != null ? weekMask : WeekMask.fromJson((String) row[14]);
+        return new ConflictIndex.Entry(
+                entryId((Long) row[0]),
+                roomKey((String) row[10], (String) row[11]),
+                null, // Schedule chưa có giảng viên
+                ConflictIndex.studentGroupKey((String) row[4], (String) row[5], row[3]),
+                intValue(row[6]),
+                intValue(row[8]),
+                intValue(row[9]),
+                Math.max(mask, 0));
+    }
+
+    private static int intValue(Object value) {
+        return value != null ? (Integer) value : -1;
+    }
+}
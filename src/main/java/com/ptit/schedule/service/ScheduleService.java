@@ -16,6 +16,7 @@ public interface ScheduleService {
     List<Schedule> getSchedulesByUserId(Long userId);
     void deleteScheduleById(Long id);
     void deleteAllSchedules();
+    List<Long> getAllScheduleIds();
     
     // Timetable generation operations
     TKBBatchResponse generateSchedule(TKBBatchRequest request);
@@ -0,0 +1,82 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.entity.SemesterFence;
+import com.ptit.schedule.exception.StaleFencingTokenException;
+import com.ptit.schedule.repository.SemesterFenceRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Kiểm tra fencing token tại thời điểm ghi (phía database).
+ *
+ * - Thay thế / xóa toàn bộ: bị từ chối nếu đã có ghi với token lớn hơn
+ * - Thêm phòng: các lần thêm giao hoán với nhau nên chỉ bị bỏ khi đã có thay thế với token lớn hơn
+ *
+ * Dòng semester_fences bị khóa tới cuối transaction của người ghi, nên thứ tự ghi luôn khớp với
+ * thứ tự cấp token của {@link SemesterLockService}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SemesterFenceService {
+
+    private final SemesterFenceRepository semesterFenceRepository;
+
+    /**
+     * Kiểm tra và ghi nhận token của một thao tác thay thế / xóa toàn bộ
+     *
+     * @throws StaleFencingTokenException nếu đã có thao tác mới hơn được ghi
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void checkReplace(Long semesterId, long token) {
+        SemesterFence fence = lockFence(semesterId);
+        if (token < fence.getLastToken()) {
+            throw new StaleFencingTokenException(semesterId, token, fence.getLastToken());
+        }
+        fence.setLastToken(token);
+        fence.setClearToken(token);
+        semesterFenceRepository.save(fence);
+    }
+
+    /**
+     * Kiểm tra và ghi nhận token của một lần thêm phòng
+     *
+     * @return false nếu lần thêm đã bị một thao tác thay thế mới hơn ghi đè (bỏ qua, không phải lỗi)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean checkAdditions(Long semesterId, long token) {
+        SemesterFence fence = lockFence(semesterId);
+        if (token < fence.getClearToken()) {
+            log.warn("Dropping occupancy additions of semester {} with token {} (superseded by {})",
+                    semesterId, token, fence.getClearToken());
+            return false;
+        }
+        if (token > fence.getLastToken()) {
+            fence.setLastToken(token);
+            semesterFenceRepository.save(fence);
+        }
+        return true;
+    }
+
+    /**
+     * Token lớn nhất đã ghi của học kỳ, dùng làm sàn khi cấp token mới (0 nếu chưa có)
+     */
+    @Transactional(readOnly = true)
+    public long currentToken(Long semesterId) {
+        return semesterFenceRepository.findById(semesterId)
+                .map(SemesterFence::getLastToken)
+                .orElse(0L);
+    }
+
+    private SemesterFence lockFence(Long semesterId) {
+        return semesterFenceRepository.findForUpdate(semesterId)
+                .orElseGet(() -> semesterFenceRepository.saveAndFlush(SemesterFence.builder()
+                        .semesterId(semesterId)
+                        .lastToken(0L)
+                        .clearToken(0L)
+                        .build()));
+    }
+}
@@ -0,0 +1,44 @@
+package com.ptit.schedule.service;
+
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * Khóa theo học kỳ cho các thao tác ghi occupancy (commit, reset, thay thế, xóa học kỳ).
+ * Mỗi lần lấy khóa trả về một fencing token tăng dần theo học kỳ; token được kiểm tra lại
+ * lúc ghi bởi {@link SemesterFenceService}, nên người giữ khóa đã hết hạn không ghi đè được
+ * dữ liệu của người giữ sau. Đọc occupancy không cần khóa.
+ */
+public interface SemesterLockService {
+
+    /**
+     * Lấy khóa của học kỳ, chờ tối đa occupancy.lock.wait-ms
+     *
+     * @return Fencing token
+     * @throws com.ptit.schedule.exception.SemesterLockException nếu hết thời gian chờ
+     */
+    long acquire(Long semesterId);
+
+    /**
+     * Trả khóa (bỏ qua nếu khóa đã hết hạn và thuộc về người khác)
+     */
+    void release(Long semesterId, long token);
+
+    default void runWithLock(Long semesterId, LongConsumer action) {
+        long token = acquire(semesterId);
+        try {
+            action.accept(token);
+        } finally {
+            release(semesterId, token);
+        }
+    }
+
+    default <T> T callWithLock(Long semesterId, LongFunction<T> action) {
+        long token = acquire(semesterId);
+        try {
+            return action.apply(token);
+        } finally {
+            release(semesterId, token);
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.dto.ExcelImportResult;
+import org.springframework.web.multipart.MultipartFile;
+
+public interface SubjectBulkImportService {
+
+    /**
+     * Import danh sách môn học từ Excel theo lô (upsert theo subjectCode + majorCode + classYear trong học kỳ)
+     * @param file File Excel chương trình đào tạo
+     * @param semesterName Tên học kỳ
+     * @param academicYear Năm học
+     * @return ExcelImportResult: successCount là số môn đã lưu, failedCount là số môn lỗi khi lưu
+     */
+    ExcelImportResult importSubjects(MultipartFile file, String semesterName, String academicYear);
+}
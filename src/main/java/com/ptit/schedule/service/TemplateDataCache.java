@@ -0,0 +1,142 @@
+package com.ptit.schedule.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache dữ liệu lịch mẫu theo (semesterId, templateVersion).
+ *
+ * - Thread-safe, giới hạn số entry và loại bỏ theo LRU
+ * - Single-flight: nhiều request cùng miss một key chỉ đọc database một lần, các request còn lại chờ kết quả
+ * - Import lịch mẫu tăng templateVersion của học kỳ nên entry cũ tự hết hiệu lực (kể cả trên node khác)
+ */
+@Slf4j
+@Component
+public class TemplateDataCache {
+
+    @Value("${template-cache.max-entries:32}")
+    private int maxEntries;
+
+    private final Map<Key, CompletableFuture<List<DataLoaderService.TKBTemplateRow>>> entries =
+            new LinkedHashMap<>(16, 0.75f, true); // access order = LRU, guarded by itself
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder totalLoadNanos = new LongAdder();
+
+    /**
+     * Lấy dữ liệu lịch mẫu, đọc bằng loader nếu chưa có trong cache
+     *
+     * @param semesterId Semester ID
+     * @param version    Template version của học kỳ
+     * @param loader     Đọc dữ liệu từ database (chỉ chạy trên một thread cho mỗi key)
+     * @return Danh sách không sửa được, dùng chung giữa các request
+     */
+    public List<DataLoaderService.TKBTemplateRow> get(Long semesterId, long version,
+            Supplier<List<DataLoaderService.TKBTemplateRow>> loader) {
+        Key key = new Key(semesterId, version);
+        CompletableFuture<List<DataLoaderService.TKBTemplateRow>> future;
+        boolean owner = false;
+        synchronized (entries) {
+            future = entries.get(key);
+            if (future == null) {
+                future = new CompletableFuture<>();
+                // Version cũ của cùng học kỳ không bao giờ được đọc lại
+                entries.keySet().removeIf(k -> k.semesterId.equals(semesterId));
+                entries.put(key, future);
+                evictEldest();
+                owner = true;
+            }
+        }
+
+        if (!owner) {
+            hits.increment();
+            return join(future);
+        }
+
+        misses.increment();
+        long start = System.nanoTime();
+        try {
+            List<DataLoaderService.TKBTemplateRow> rows = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+            future.complete(rows);
+            return rows;
+        } catch (RuntimeException e) {
+            loadFailures.increment();
+            future.completeExceptionally(e);
+            synchronized (entries) {
+                entries.remove(key, future);
+            }
+            throw e;
+        } finally {
+            totalLoadNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Bỏ mọi version của một học kỳ trên node này
+     */
+    public void invalidate(Long semesterId) {
+        synchronized (entries) {
+            entries.keySet().removeIf(k -> k.semesterId.equals(semesterId));
+        }
+    }
+
+    /**
+     * Hit / miss / thời gian load của cache
+     */
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long requests = hitCount + missCount;
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("hitRate", requests == 0 ? 0.0 : Math.round(hitCount * 10000.0 / requests) / 100.0);
+        stats.put("loadFailures", loadFailures.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("averageLoadMs", missCount == 0 ? 0.0
+                : Math.round(totalLoadNanos.sum() / 1_000.0 / missCount) / 1_000.0);
+        return stats;
+    }
+
+    private void evictEldest() {
+        Iterator<Key> it = entries.keySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            Key eldest = it.next();
+            it.remove();
+            evictions.increment();
+            log.debug("Evicted template cache entry for semester {} v{}", eldest.semesterId, eldest.version);
+        }
+    }
+
+    private static List<DataLoaderService.TKBTemplateRow> join(
+            CompletableFuture<List<DataLoaderService.TKBTemplateRow>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Key(Long semesterId, long version) {
+    }
+}
@@ -0,0 +1,56 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.exception.UploadTooLargeException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Giới hạn kích thước file upload theo từng endpoint.
+ * spring.servlet.multipart.max-file-size chỉ là trần chung (bằng giới hạn lớn nhất ở đây);
+ * file upload được đọc từ file tạm nên giới hạn không còn gắn với heap.
+ */
+@Component
+public class UploadLimits {
+
+    public enum Upload {
+        SCHEDULE_ANALYZE("thời khóa biểu"),
+        TEMPLATE_IMPORT("lịch mẫu"),
+        SUBJECT_IMPORT("môn học");
+
+        private final String label;
+
+        Upload(String label) {
+            this.label = label;
+        }
+    }
+
+    @Value("${upload.max-size.schedule-analyze:100MB}")
+    private DataSize scheduleAnalyze;
+
+    @Value("${upload.max-size.template-import:50MB}")
+    private DataSize templateImport;
+
+    @Value("${upload.max-size.subject-import:20MB}")
+    private DataSize subjectImport;
+
+    /**
+     * @throws UploadTooLargeException File vượt giới hạn của endpoint
+     */
+    public void check(Upload upload, MultipartFile file) {
+        DataSize limit = limit(upload);
+        if (file.getSize() > limit.toBytes()) {
+            throw new UploadTooLargeException(String.format("File %s vượt quá giới hạn %dMB (%.1fMB)",
+                    upload.label, limit.toMegabytes(), file.getSize() / (1024.0 * 1024.0)));
+        }
+    }
+
+    public DataSize limit(Upload upload) {
+        return switch (upload) {
+            case SCHEDULE_ANALYZE -> scheduleAnalyze;
+            case TEMPLATE_IMPORT -> templateImport;
+            case SUBJECT_IMPORT -> subjectImport;
+        };
+    }
+}
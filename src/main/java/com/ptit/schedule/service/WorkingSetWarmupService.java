@@ -0,0 +1,105 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.entity.Semester;
+import com.ptit.schedule.repository.SemesterRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.IntSupplier;
+
+/**
+ * Warm-up working set của học kỳ đang active lúc khởi động (opt-in: warmup.enabled).
+ * Nạp song song template index, danh mục phòng, snapshot ưu tiên tòa nhà và bitmap occupancy
+ * để request xếp lịch đầu tiên không phải trả chi phí cold start.
+ *
+ * Chạy trong CommandLineRunner nên readiness (/actuator/health/readiness) giữ REFUSING_TRAFFIC
+ * cho đến khi warm-up xong.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WorkingSetWarmupService {
+
+    private final SemesterRepository semesterRepository;
+    private final DataLoaderService dataLoaderService;
+    private final RoomService roomService;
+    private final MajorBuildingPreferenceService majorBuildingPreferenceService;
+    private final OccupancyLogService occupancyLogService;
+    private final OccupancyStore occupancyStore;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${warmup.timeout-ms:60000}")
+    private long timeoutMs;
+
+    /**
+     * Chạy warm-up nếu được bật. Lỗi chỉ được log: app vẫn phục vụ được, chỉ chậm ở request đầu.
+     */
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        long start = System.currentTimeMillis();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Optional<Semester> active = semesterRepository.findByIsActiveTrue();
+            if (active.isEmpty()) {
+                log.info("No active semester, skipping working set warm-up");
+                return;
+            }
+            Semester semester = active.get();
+            Long semesterId = semester.getId();
+            log.info("🔥 Warming up working set for {} {}...", semester.getSemesterName(), semester.getAcademicYear());
+
+            List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            tasks.add(task(executor, "template index",
+                    () -> dataLoaderService.loadTemplateData(semester).size()));
+            tasks.add(task(executor, "room catalog", roomService::preloadRoomCatalog));
+            tasks.add(task(executor, "building preferences", majorBuildingPreferenceService::preloadSnapshot));
+            tasks.add(task(executor, "occupancy", () -> {
+                occupancyStore.preload(semesterId);
+                return occupancyLogService.currentState(semesterId).size();
+            }));
+
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0]))
+                    .get(timeoutMs, TimeUnit.MILLISECONDS);
+            log.info("✅ Working set warm-up completed in {} ms", System.currentTimeMillis() - start);
+        } catch (TimeoutException e) {
+            log.warn("⚠️ Working set warm-up timed out after {} ms", timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("❌ Working set warm-up failed: {}", e.getMessage(), e);
+        } finally {
+            // ACCEPTING_TRAFFIC do Spring Boot publish sau khi mọi CommandLineRunner chạy xong
+            executor.shutdownNow();
+        }
+    }
+
+    private CompletableFuture<Void> task(ExecutorService executor, String name, IntSupplier loader) {
+        return CompletableFuture.runAsync(() -> {
+            long start = System.currentTimeMillis();
+            int count = loader.getAsInt();
+            log.info("🔥 Warmed {} ({} entries) in {} ms", name, count, System.currentTimeMillis() - start);
+        }, executor).exceptionally(e -> {
+            log.warn("⚠️ Warm-up of {} failed: {}", name, e.getMessage());
+            return null;
+        });
+    }
+}
@@ -1,12 +1,14 @@
 package com.ptit.schedule.service.impl;
 
 import com.ptit.schedule.exception.FileProcessingException;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.ptit.schedule.utils.DelimitedStreamReader;
+import com.ptit.schedule.utils.SpooledUpload;
+import com.ptit.schedule.utils.XlsxStreamReader;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 /**
  * Base class for Excel reading services.
@@ -15,7 +17,7 @@ import java.io.InputStream;
 public abstract class BaseExcelReaderService {
 
     /**
-     * Validate Excel file format (.xlsx only)
+     * Validate import file format (.xlsx, or .csv / .tsv exported with the same columns)
      */
     protected void validateExcelFile(MultipartFile file) {
         if (file == null || file.isEmpty()) {
@@ -23,26 +25,50 @@ public abstract class BaseExcelReaderService {
         }
 
         String filename = file.getOriginalFilename();
-        if (filename == null || !filename.toLowerCase().endsWith(".xlsx")) {
-            throw new FileProcessingException("File phải có định dạng .xlsx");
+        if (filename == null || (!filename.toLowerCase().endsWith(".xlsx")
+                && DelimitedStreamReader.delimiterFor(filename) == 0)) {
+            throw new FileProcessingException("File phải có định dạng .xlsx, .csv hoặc .tsv");
         }
     }
 
     /**
-     * Open workbook from MultipartFile
+     * Stream first sheet row by row (SAX) instead of loading the XSSF DOM.
+     * The upload is spooled to disk first, so memory does not grow with the file size.
+     * CSV / TSV are tokenized straight from the upload stream with the same row contract.
+     *
+     * @return Number of rows read
      */
-    protected Workbook openWorkbook(MultipartFile file) throws IOException {
+    protected int streamFirstSheet(MultipartFile file, XlsxStreamReader.RowHandler handler) throws IOException {
         validateExcelFile(file);
-        InputStream is = file.getInputStream();
-        return new XSSFWorkbook(is);
+        char delimiter = DelimitedStreamReader.delimiterFor(file.getOriginalFilename());
+        if (delimiter != 0) {
+            try (InputStream in = file.getInputStream()) {
+                return DelimitedStreamReader.read(in, delimiter, handler);
+            }
+        }
+        try (SpooledUpload upload = SpooledUpload.of(file)) {
+            return XlsxStreamReader.readFirstSheet(upload.file(), handler);
+        }
+    }
+
+    /**
+     * Get streamed cell value as trimmed String, return empty string if missing
+     */
+    protected String getCellValue(List<String> cells, int colIndex) {
+        String value = colIndex < cells.size() ? cells.get(colIndex) : null;
+        return value != null ? value.trim() : "";
     }
 
     /**
-     * Get cell value as String, return empty string if null
+     * Check if streamed row is empty (all cells are blank)
      */
-    protected String getCellValue(Row row, int colIndex, DataFormatter formatter) {
-        Cell cell = row.getCell(colIndex);
-        return cell != null ? formatter.formatCellValue(cell).trim() : "";
+    protected boolean isRowEmpty(List<String> cells) {
+        for (String value : cells) {
+            if (value != null && !value.isBlank()) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -66,33 +92,4 @@ public abstract class BaseExcelReaderService {
             return 0.0;
         }
     }
-
-    /**
-     * Check if row is empty (all cells are blank)
-     */
-    protected boolean isRowEmpty(Row row) {
-        if (row == null) return true;
-
-        for (int i = row.getFirstCellNum(); i < row.getLastCellNum(); i++) {
-            Cell cell = row.getCell(i);
-            if (cell != null && cell.getCellType() != CellType.BLANK) {
-                String value = cell.toString().trim();
-                if (!value.isEmpty()) {
-                    return false;
-                }
-            }
-        }
-        return true;
-    }
-
-    /**
-     * Validate minimum column count
-     */
-    protected void validateColumnCount(Row row, int minColumns, String sheetName) {
-        if (row == null || row.getLastCellNum() < minColumns) {
-            throw new FileProcessingException(
-                    String.format("Sheet '%s' thiếu cột. Cần ít nhất %d cột.", sheetName, minColumns)
-            );
-        }
-    }
-}
\ No newline at end of file
+}
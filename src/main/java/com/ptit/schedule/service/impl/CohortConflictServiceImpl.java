@@ -0,0 +1,173 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.dto.CohortConflictReport;
+import com.ptit.schedule.dto.LiveConflictResponse;
+import com.ptit.schedule.dto.SubjectMajorDTO;
+import com.ptit.schedule.exception.ResourceNotFoundException;
+import com.ptit.schedule.repository.ScheduleRepository;
+import com.ptit.schedule.repository.SemesterRepository;
+import com.ptit.schedule.service.CohortConflictService;
+import com.ptit.schedule.service.ScheduleIndexLoader;
+import com.ptit.schedule.utils.CohortOccupancy;
+import com.ptit.schedule.utils.ConflictIndex;
+import com.ptit.schedule.utils.WeekMask;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Trùng lịch nhóm sinh viên trên các schedule đã lưu.
+ *
+ * Lớp của môn kết hợp (ngành "CNTT-ATTT") thuộc về nhóm lớp cùng số của từng ngành.
+ * Các ngành được chia thành nhóm học chung bằng graph của
+ * {@link SubjectServiceImpl#groupMajorsBySharedSubjects(List)}: hai nhóm ngành khác nhau không có lớp chung,
+ * nên mỗi nhóm ngành dùng một {@link CohortOccupancy} riêng và xung đột được báo theo nhóm ngành.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CohortConflictServiceImpl implements CohortConflictService {
+
+    private final ScheduleRepository scheduleRepository;
+    private final SemesterRepository semesterRepository;
+
+    @Value("${schedule-export.chunk-size:1000}")
+    private int chunkSize;
+
+    private record Row(String id, String subjectCode, List<String> majors, CohortOccupancy.Entry entry) {
+    }
+
+    @Override
+    public CohortConflictReport detect(Long semesterId) {
+        if (!semesterRepository.existsById(semesterId)) {
+            throw new ResourceNotFoundException("học kỳ", "id", semesterId);
+        }
+        long start = System.currentTimeMillis();
+        List<Row> rows = load(semesterId);
+
+        // Graph ngành học chung: mỗi cặp (môn, ngành) là một cạnh môn - ngành
+        Set<String> seen = new HashSet<>();
+        List<SubjectMajorDTO> subjectMajors = new ArrayList<>();
+        for (Row row : rows) {
+            for (String major : row.majors()) {
+                if (seen.add(row.subjectCode() + '|' + major)) {
+                    subjectMajors.add(SubjectMajorDTO.builder()
+                            .subjectCode(row.subjectCode())
+                            .majorCode(major)
+                            .build());
+                }
+            }
+        }
+        List<Set<String>> majorGroups = SubjectServiceImpl.groupMajorsBySharedSubjects(subjectMajors);
+        Map<String, Integer> groupOfMajor = new HashMap<>();
+        for (int i = 0; i < majorGroups.size(); i++) {
+            for (String major : majorGroups.get(i)) {
+                groupOfMajor.put(major, i);
+            }
+        }
+
+        CohortOccupancy[] detectors = new CohortOccupancy[majorGroups.size()];
+        int skipped = 0;
+        for (Row row : rows) {
+            if (row.entry().cohorts().isEmpty()) {
+                skipped++;
+                continue;
+            }
+            int group = groupOfMajor.get(row.majors().get(0));
+            if (detectors[group] == null) {
+                detectors[group] = new CohortOccupancy();
+            }
+            detectors[group].add(row.entry());
+        }
+
+        List<CohortConflictReport.MajorGroupConflicts> groups = new ArrayList<>();
+        int entries = 0;
+        int cohorts = 0;
+        int conflicts = 0;
+        for (int i = 0; i < detectors.length; i++) {
+            CohortOccupancy detector = detectors[i];
+            if (detector == null) continue;
+            entries += detector.entryCount();
+            cohorts += detector.cohortCount();
+            skipped += detector.skippedCount();
+            List<ConflictIndex.Conflict> found = detector.conflicts();
+            if (!found.isEmpty()) {
+                conflicts += found.size();
+                groups.add(CohortConflictReport.MajorGroupConflicts.builder()
+                        .majors(new TreeSet<>(majorGroups.get(i)))
+                        .conflicts(LiveConflictResponse.fromConflicts(found))
+                        .build());
+            }
+        }
+        groups.sort(Comparator.comparing(g -> g.getMajors().iterator().next()));
+
+        log.info("Cohort check for semester {}: {} schedules, {} cohorts, {} major groups, {} conflicts in {}ms",
+                semesterId, entries, cohorts, majorGroups.size(), conflicts, System.currentTimeMillis() - start);
+
+        return CohortConflictReport.builder()
+                .semesterId(semesterId)
+                .totalEntries(entries)
+                .totalCohorts(cohorts)
+                .skippedEntries(skipped)
+                .totalConflicts(conflicts)
+                .groups(groups)
+                .build();
+    }
+
+    /**
+     * Mỗi phần tử của findExportRowsBySemesterId: [id, subjectCode, subjectName, classNumber, major, studentYear,
+     * dayOfWeek, kip, startPeriod, periodLength, roomName, building, siSoMotLop, weekMask, weekSchedule]
+     */
+    private List<Row> load(Long semesterId) {
+        List<Row> rows = new ArrayList<>();
+        long afterId = 0L;
+        while (true) {
+            List<Object[]> chunk = scheduleRepository.findExportRowsBySemesterId(
+                    semesterId, afterId, PageRequest.of(0, chunkSize));
+            for (Object[] c : chunk) {
+                String id = ScheduleIndexLoader.entryId((Long) c[0]);
+                List<String> majors = majors((String) c[4]);
+                List<String> cohorts = new ArrayList<>(majors.size());
+                for (String major : majors) {
+                    String cohort = ConflictIndex.studentGroupKey(major, (String) c[5], c[3]);
+                    if (cohort != null) {
+                        cohorts.add(cohort);
+                    }
+                }
+                Integer weekMask = (Integer) c[13];
+                int mask = weekMask != null ? weekMask : WeekMask.fromJson((String) c[14]);
+                rows.add(new Row(id, c[1] != null ? (String) c[1] : id, majors,
+                        new CohortOccupancy.Entry(id, cohorts, intValue(c[6]), intValue(c[8]), intValue(c[9]), mask)));
+            }
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            afterId = (Long) chunk.get(chunk.size() - 1)[0];
+        }
+        return rows;
+    }
+
+    /**
+     * "CNTT-ATTT" → [CNTT, ATTT] (bỏ trùng, giữ thứ tự)
+     */
+    private static List<String> majors(String major) {
+        if (major == null || major.isBlank()) {
+            return List.of();
+        }
+        Set<String> majors = new LinkedHashSet<>();
+        for (String part : major.split("-")) {
+            if (!part.isBlank()) {
+                majors.add(part.trim());
+            }
+        }
+        return new ArrayList<>(majors);
+    }
+
+    private static int intValue(Object value) {
+        return value != null ? (Integer) value : -1;
+    }
+}
@@ -3,17 +3,22 @@ package com.ptit.schedule.service.impl;
 import com.ptit.schedule.dto.ExcelImportResult;
 import com.ptit.schedule.dto.SubjectRequest;
 import com.ptit.schedule.exception.FileProcessingException;
+import com.ptit.schedule.exception.InvalidDataException;
 import com.ptit.schedule.service.ExcelReaderService;
+import com.ptit.schedule.service.ImportPipelineFactory;
+import com.ptit.schedule.utils.ImportPipeline;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class ExcelReaderServiceImpl extends BaseExcelReaderService implements ExcelReaderService {
 
     // Column indices (0-based) - Documented clearly
@@ -37,6 +42,9 @@ public class ExcelReaderServiceImpl extends BaseExcelReaderService implements Ex
 
     private static final int MIN_COLUMNS = 25;            // Minimum required columns
     private static final int HEADER_ROW = 0;              // First row is header
+    private static final int PIPELINE_BATCH_SIZE = 200;
+
+    private final ImportPipelineFactory importPipelineFactory;
 
     @Override
     @Deprecated
@@ -47,7 +55,15 @@ public class ExcelReaderServiceImpl extends BaseExcelReaderService implements Ex
 
     @Override
     public ExcelImportResult readAndValidateSubjectsFromExcel(MultipartFile file, String semesterName, String academicYear) {
-        List<SubjectRequest> allSubjects = new ArrayList<>();
+        List<SubjectRequest> validSubjects = new ArrayList<>();
+        ExcelImportResult result = streamSubjectsFromExcel(file, semesterName, academicYear, validSubjects::add);
+        result.setValidSubjects(validSubjects);
+        return result;
+    }
+
+    @Override
+    public ExcelImportResult streamSubjectsFromExcel(MultipartFile file, String semesterName, String academicYear,
+                                                     Consumer<SubjectRequest> consumer) {
         ExcelImportResult result = ExcelImportResult.builder()
                 .successCount(0)
                 .skippedCount(0)
@@ -56,90 +72,140 @@ public class ExcelReaderServiceImpl extends BaseExcelReaderService implements Ex
                 .validSubjects(new ArrayList<>())
                 .build();
 
-        try (Workbook workbook = openWorkbook(file)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            DataFormatter formatter = new DataFormatter();
-
-            // Validate header row
-            Row headerRow = sheet.getRow(HEADER_ROW);
-            validateColumnCount(headerRow, MIN_COLUMNS, "Chương trình đào tạo");
-
-            int totalRows = sheet.getLastRowNum();
-            result.setTotalRows(totalRows);
-            
-            log.info("Reading subjects from Excel. Total rows: {}", totalRows);
-
-            // Read data rows (skip header)
-            for (int i = HEADER_ROW + 1; i <= totalRows; i++) {
-                Row row = sheet.getRow(i);
-
-                // Skip empty rows
-                if (isRowEmpty(row)) {
-                    continue;
-                }
-
-                try {
-                    SubjectRequest subject = createSubjectFromRow(row, formatter, semesterName, academicYear, i);
-
-                    // Validate required fields
-                    if (subject != null && isValidSubject(subject)) {
-                        allSubjects.add(subject);
-                    } else {
-                        log.warn("Skipped invalid subject at row {}", i + 1);
-                        result.addWarning(String.format("Dòng %d: Dữ liệu không hợp lệ (thiếu thông tin bắt buộc)", i + 1));
-                    }
-                } catch (Exception e) {
-                    log.error("Error reading row {}: {}", i + 1, e.getMessage());
-                    result.addWarning(String.format("Dòng %d: %s", i + 1, e.getMessage()));
-                }
-            }
-
-            log.info("Successfully parsed {} subjects from Excel", allSubjects.size());
-
-            // Validate and filter duplicates
-            validateAndFilterDuplicates(allSubjects, result);
-
+        // reader (SAX) → validator workers → loại trùng + consumer trên thread hiện tại, theo thứ tự dòng
+        SheetState sheet = new SheetState();
+        SubjectDeduplicator deduplicator = new SubjectDeduplicator(consumer, result);
+        ImportPipeline<List<String>, SubjectRequest> pipeline = importPipelineFactory.create(PIPELINE_BATCH_SIZE);
+        try {
+            pipeline.run(
+                    sink -> streamFirstSheet(file, (rowNum, cells) -> {
+                        if (!sheet.headerValidated) {
+                            // Validate header row
+                            if (rowNum != HEADER_ROW || cells.size() < MIN_COLUMNS) {
+                                throw missingColumns();
+                            }
+                            sheet.headerValidated = true;
+                            return;
+                        }
+                        sheet.lastRow = rowNum;
+                        // Skip empty rows
+                        if (!isRowEmpty(cells)) {
+                            sink.accept(rowNum, new ArrayList<>(cells));
+                        }
+                    }),
+                    (rowNum, cells) -> {
+                        SubjectRequest subject = createSubjectFromRow(cells, semesterName, academicYear);
+                        // Validate required fields
+                        if (subject == null || !isValidSubject(subject)) {
+                            throw new InvalidDataException("Dữ liệu không hợp lệ (thiếu thông tin bắt buộc)");
+                        }
+                        return subject;
+                    },
+                    batch -> batch.forEach(row -> deduplicator.accept(row.rowNum(), row.value())),
+                    (rowNum, e) -> {
+                        log.warn("Skipped invalid subject at row {}: {}", rowNum + 1, e.getMessage());
+                        result.addWarning(String.format("Dòng %d: %s", rowNum + 1, e.getMessage()));
+                    });
         } catch (IOException e) {
             log.error("Error reading Excel file", e);
             throw new FileProcessingException("Lỗi đọc file Excel: " + e.getMessage(), e);
         }
+        if (!sheet.headerValidated) {
+            throw missingColumns();
+        }
 
+        result.setTotalRows(sheet.lastRow);
+        log.info("Validation complete: {} valid subjects, {} duplicates skipped (total rows: {})",
+                result.getSuccessCount(), result.getSkippedCount(), sheet.lastRow);
         return result;
     }
 
-    private SubjectRequest createSubjectFromRow(Row row, DataFormatter formatter,
-                                                String semesterName, String academicYear, int rowIndex) {
+    private static FileProcessingException missingColumns() {
+        return new FileProcessingException(String.format(
+                "Sheet '%s' thiếu cột. Cần ít nhất %d cột.", "Chương trình đào tạo", MIN_COLUMNS));
+    }
 
-        String subjectCode = getCellValue(row, COL_SUBJECT_CODE, formatter);
+    /**
+     * Trạng thái do reader thread ghi, đọc lại sau khi pipeline kết thúc
+     */
+    private static final class SheetState {
+        private volatile boolean headerValidated;
+        private volatile int lastRow;
+    }
+
+    /**
+     * Loại trùng theo subjectCode + majorId + classYear (semesterName + academicYear cố định
+     * trong một file), khớp với ràng buộc unique trong DB. Giữ dòng xuất hiện đầu tiên.
+     */
+    private static final class SubjectDeduplicator {
+
+        private final Consumer<SubjectRequest> consumer;
+        private final ExcelImportResult result;
+        private final Map<String, Integer> firstSeen = new HashMap<>();
+
+        private SubjectDeduplicator(Consumer<SubjectRequest> consumer, ExcelImportResult result) {
+            this.consumer = consumer;
+            this.result = result;
+        }
+
+        void accept(int rowNum, SubjectRequest subject) {
+            String key = subject.getSubjectCode() + '\u0001' + subject.getMajorId() + '\u0001' + subject.getClassYear();
+            Integer firstRow = firstSeen.putIfAbsent(key, rowNum + 1);
+            if (firstRow != null) {
+                // Duplicate found - add warning and skip
+                result.addWarning(
+                    String.format("Môn '%s' (Ngành: %s, Khóa: %s, HK: %s, Năm: %s) bị trùng: dòng %d và dòng %d - Bỏ qua dòng %d",
+                        subject.getSubjectCode(),
+                        subject.getMajorId(),
+                        subject.getClassYear(),
+                        subject.getSemesterName(),
+                        subject.getAcademicYear(),
+                        firstRow,
+                        rowNum + 1,
+                        rowNum + 1)
+                );
+                result.setSkippedCount(result.getSkippedCount() + 1);
+                return;
+            }
+
+            // First occurrence - emit it
+            consumer.accept(subject);
+            result.setSuccessCount(result.getSuccessCount() + 1);
+        }
+    }
+
+    private SubjectRequest createSubjectFromRow(List<String> cells, String semesterName, String academicYear) {
+
+        String subjectCode = getCellValue(cells, COL_SUBJECT_CODE);
 
         // Skip if no subject code
         if (subjectCode.isBlank()) {
             return null;
         }
 
-        String programType = getCellValue(row, COL_PROGRAM_TYPE, formatter);
+        String programType = getCellValue(cells, COL_PROGRAM_TYPE);
         if (programType.isBlank()) {
             programType = "Chính quy"; // Default value
         }
 
         return SubjectRequest.builder()
                 .subjectCode(subjectCode)
-                .subjectName(getCellValue(row, COL_SUBJECT_NAME, formatter))
-                .classYear(getCellValue(row, COL_CLASS_YEAR, formatter))
-                .majorId(getCellValue(row, COL_MAJOR_ID, formatter))
+                .subjectName(getCellValue(cells, COL_SUBJECT_NAME))
+                .classYear(getCellValue(cells, COL_CLASS_YEAR))
+                .majorId(getCellValue(cells, COL_MAJOR_ID))
                 .programType(programType)
-                .numberOfStudents(parseIntSafe(getCellValue(row, COL_NUMBER_OF_STUDENTS, formatter)))
-                .numberOfClasses(parseIntSafe(getCellValue(row, COL_NUMBER_OF_CLASSES, formatter)))
-                .credits(parseIntSafe(getCellValue(row, COL_CREDITS, formatter)))
-                .theoryHours(parseIntSafe(getCellValue(row, COL_THEORY_HOURS, formatter)))
-                .exerciseHours(parseIntSafe(getCellValue(row, COL_EXERCISE_HOURS, formatter)))
-                .projectHours(parseIntSafe(getCellValue(row, COL_PROJECT_HOURS, formatter)))
-                .labHours(parseIntSafe(getCellValue(row, COL_LAB_HOURS, formatter)))
-                .selfStudyHours(parseIntSafe(getCellValue(row, COL_SELF_STUDY_HOURS, formatter)))
-                .facultyId(getCellValue(row, COL_FACULTY_ID, formatter))
-                .department(getCellValue(row, COL_DEPARTMENT, formatter))
-                .examFormat(getCellValue(row, COL_EXAM_FORMAT, formatter))
-                .isCommon(getCellValue(row, COL_IS_COMMON, formatter).equalsIgnoreCase("chung"))
+                .numberOfStudents(parseIntSafe(getCellValue(cells, COL_NUMBER_OF_STUDENTS)))
+                .numberOfClasses(parseIntSafe(getCellValue(cells, COL_NUMBER_OF_CLASSES)))
+                .credits(parseIntSafe(getCellValue(cells, COL_CREDITS)))
+                .theoryHours(parseIntSafe(getCellValue(cells, COL_THEORY_HOURS)))
+                .exerciseHours(parseIntSafe(getCellValue(cells, COL_EXERCISE_HOURS)))
+                .projectHours(parseIntSafe(getCellValue(cells, COL_PROJECT_HOURS)))
+                .labHours(parseIntSafe(getCellValue(cells, COL_LAB_HOURS)))
+                .selfStudyHours(parseIntSafe(getCellValue(cells, COL_SELF_STUDY_HOURS)))
+                .facultyId(getCellValue(cells, COL_FACULTY_ID))
+                .department(getCellValue(cells, COL_DEPARTMENT))
+                .examFormat(getCellValue(cells, COL_EXAM_FORMAT))
+                .isCommon(getCellValue(cells, COL_IS_COMMON).equalsIgnoreCase("chung"))
                 .semesterName(semesterName)
                 .academicYear(academicYear)
                 .build();
@@ -150,52 +216,4 @@ public class ExcelReaderServiceImpl extends BaseExcelReaderService implements Ex
                 subject.getSubjectName() != null && !subject.getSubjectName().isBlank() &&
                 subject.getCredits() != null && subject.getCredits() > 0;
     }
-
-    /**
-     * Validate duplicates and filter them out, adding warnings to result
-     * Keep only the first occurrence of each subject
-     * Unique key: subjectCode + majorId + classYear + semesterName + academicYear
-     */
-    private void validateAndFilterDuplicates(List<SubjectRequest> allSubjects, ExcelImportResult result) {
-        Map<String, Integer> firstSeen = new HashMap<>();
-        List<SubjectRequest> validSubjects = new ArrayList<>();
-        
-        for (int i = 0; i < allSubjects.size(); i++) {
-            SubjectRequest subject = allSubjects.get(i);
-            
-            // Create unique key: subjectCode + majorId + classYear + semesterName + academicYear
-            // This matches the DB uniqueness constraint
-            String key = subject.getSubjectCode() 
-                    + "-" + subject.getMajorId() 
-                    + "-" + subject.getClassYear()
-                    + "-" + subject.getSemesterName()
-                    + "-" + subject.getAcademicYear();
-
-            if (firstSeen.containsKey(key)) {
-                // Duplicate found - add warning and skip
-                result.addWarning(
-                    String.format("Môn '%s' (Ngành: %s, Khóa: %s, HK: %s, Năm: %s) bị trùng: dòng %d và dòng %d - Bỏ qua dòng %d",
-                        subject.getSubjectCode(),
-                        subject.getMajorId(),
-                        subject.getClassYear(),
-                        subject.getSemesterName(),
-                        subject.getAcademicYear(),
-                        firstSeen.get(key) + 2,  // +2 because: +1 for 0-indexed, +1 for header row
-                        i + 2,                    // +2 for same reason
-                        i + 2)                    // Skipped row
-                );
-                result.setSkippedCount(result.getSkippedCount() + 1);
-            } else {
-                // First occurrence - keep it
-                firstSeen.put(key, i);
-                validSubjects.add(subject);
-            }
-        }
-        
-        result.setValidSubjects(validSubjects);
-        result.setSuccessCount(validSubjects.size());
-        
-        log.info("Validation complete: {} valid subjects, {} duplicates skipped", 
-                validSubjects.size(), result.getSkippedCount());
-    }
 }
\ No newline at end of file
@@ -0,0 +1,97 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.repository.RoomOccupancyRepository;
+import com.ptit.schedule.service.OccupancyStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Occupancy store trong JVM (mặc định, một instance).
+ * Cùng ngữ nghĩa với {@link RedisOccupancyStore} nên cũng dùng làm bản thay thế Redis khi chạy local / test.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "occupancy.store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryOccupancyStore implements OccupancyStore {
+
+    private final RoomOccupancyRepository roomOccupancyRepository;
+
+    private final Map<Long, BitSet> bitmaps = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean reserve(Long semesterId, long... slotIndexes) {
+        BitSet bitmap = bitmap(semesterId);
+        synchronized (bitmap) {
+            for (long slot : slotIndexes) {
+                if (bitmap.get(toBit(slot))) {
+                    return false;
+                }
+            }
+            for (long slot : slotIndexes) {
+                bitmap.set(toBit(slot));
+            }
+            return true;
+        }
+    }
+
+    @Override
+    public void markAll(Long semesterId, long[] slotIndexes) {
+        BitSet bitmap = bitmap(semesterId);
+        synchronized (bitmap) {
+            for (long slot : slotIndexes) {
+                bitmap.set(toBit(slot));
+            }
+        }
+    }
+
+    @Override
+    public void release(Long semesterId, long... slotIndexes) {
+        BitSet bitmap = bitmap(semesterId);
+        synchronized (bitmap) {
+            for (long slot : slotIndexes) {
+                bitmap.clear(toBit(slot));
+            }
+        }
+    }
+
+    @Override
+    public boolean isOccupied(Long semesterId, long slotIndex) {
+        BitSet bitmap = bitmap(semesterId);
+        synchronized (bitmap) {
+            return bitmap.get(toBit(slotIndex));
+        }
+    }
+
+    @Override
+    public void clear(Long semesterId) {
+        bitmaps.put(semesterId, new BitSet());
+        log.info("Cleared in-memory occupancy for semester {}", semesterId);
+    }
+
+    @Override
+    public void preload(Long semesterId) {
+        bitmap(semesterId);
+    }
+
+    private BitSet bitmap(Long semesterId) {
+        return bitmaps.computeIfAbsent(semesterId, id -> {
+            BitSet bitmap = new BitSet();
+            for (Object[] slot : roomOccupancyRepository.findSlotsBySemesterId(id)) {
+                bitmap.set(toBit(OccupancyStore.slotIndex((Long) slot[0], (Integer) slot[1], (Integer) slot[2])));
+            }
+            log.info("Loaded {} occupied slots into in-memory store for semester {}", bitmap.cardinality(), id);
+            return bitmap;
+        });
+    }
+
+    private int toBit(long slotIndex) {
+        return Math.toIntExact(slotIndex);
+    }
+}
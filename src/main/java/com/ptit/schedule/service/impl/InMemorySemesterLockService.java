@@ -0,0 +1,79 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.exception.SemesterLockException;
+import com.ptit.schedule.service.SemesterFenceService;
+import com.ptit.schedule.service.SemesterLockService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Khóa học kỳ trong JVM (mặc định, một instance / test).
+ * Token được đánh tiếp từ token lớn nhất đã ghi trong database nên vẫn tăng dần sau khi khởi động lại.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "occupancy.lock.store", havingValue = "memory", matchIfMissing = true)
+public class InMemorySemesterLockService implements SemesterLockService {
+
+    private final SemesterFenceService semesterFenceService;
+
+    @Value("${occupancy.lock.wait-ms:10000}")
+    private long waitMs;
+
+    private final Map<Long, LockState> locks = new ConcurrentHashMap<>();
+
+    @Override
+    public long acquire(Long semesterId) {
+        LockState state = locks.computeIfAbsent(semesterId,
+                id -> new LockState(semesterFenceService.currentToken(id)));
+        try {
+            if (!state.semaphore.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+                throw new SemesterLockException(
+                        "Học kỳ " + semesterId + " đang được cập nhật bởi thao tác khác, vui lòng thử lại");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SemesterLockException("Bị gián đoạn khi chờ khóa học kỳ " + semesterId);
+        }
+        synchronized (state) {
+            state.holder = ++state.lastToken;
+            return state.holder;
+        }
+    }
+
+    @Override
+    public void release(Long semesterId, long token) {
+        LockState state = locks.get(semesterId);
+        if (state == null) {
+            return;
+        }
+        synchronized (state) {
+            if (state.holder != token) {
+                log.warn("Ignoring release of semester {} lock with token {} (holder {})",
+                        semesterId, token, state.holder);
+                return;
+            }
+            state.holder = 0;
+        }
+        state.semaphore.release();
+    }
+
+    private static class LockState {
+        private final Semaphore semaphore = new Semaphore(1);
+        private long lastToken;
+        private long holder;
+
+        LockState(long lastToken) {
+            this.lastToken = lastToken;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.dto.LiveConflictDelta;
+import com.ptit.schedule.dto.LiveConflictResponse;
+import com.ptit.schedule.dto.LiveEntryRequest;
+import com.ptit.schedule.exception.InvalidDataException;
+import com.ptit.schedule.exception.ResourceNotFoundException;
+import com.ptit.schedule.repository.SemesterRepository;
+import com.ptit.schedule.service.LiveConflictIndexService;
+import com.ptit.schedule.service.ScheduleIndexLoader;
+import com.ptit.schedule.utils.ConflictIndex;
+import com.ptit.schedule.utils.WeekMask;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Bản lịch đang chỉnh của từng học kỳ, giữ trong bộ nhớ dưới dạng {@link ConflictIndex}.
+ * Dựng từ các schedule đã lưu ở lần dùng đầu tiên; mỗi thao tác chỉ kiểm tra các lớp cùng
+ * phòng / giảng viên / nhóm sinh viên trong cùng thứ nên không phải phân tích lại cả học kỳ.
+ *
+ * - Giới hạn số học kỳ giữ trong bộ nhớ, loại bỏ theo LRU
+ * - Bản lịch không được dùng quá idle-ttl-ms thì bỏ, lần gọi sau dựng lại
+ * - Lưu TKB / import lịch mẫu / xóa học kỳ thì bỏ bản lịch của học kỳ đó ({@link #reset}); xóa schedule
+ *   chỉ gỡ các lớp đó khỏi bản lịch ({@link #removeSaved}) nên các thay đổi chưa lưu vẫn còn
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LiveConflictIndexServiceImpl implements LiveConflictIndexService {
+
+    private final ScheduleIndexLoader scheduleIndexLoader;
+    private final SemesterRepository semesterRepository;
+
+    @Value("${live-conflict.max-entries:16}")
+    private int maxEntries;
+
+    @Value("${live-conflict.idle-ttl-ms:1800000}")
+    private long idleTtlMs;
+
+    private final Map<Long, CachedIndex> indexes = new LinkedHashMap<>(16, 0.75f, true); // access order = LRU, guarded by itself
+
+    private long generation; // guarded by indexes, tăng mỗi lần reset / removeSaved
+
+    private record CachedIndex(ConflictIndex index, long lastAccess) {
+    }
+
+    @Override
+    public LiveConflictDelta addEntry(Long semesterId, LiveEntryRequest request) {
+        ConflictIndex index = index(semesterId);
+        ConflictIndex.Entry entry = toEntry(request.getEntryId(), request);
+        synchronized (index) {
+            if (index.get(entry.id()) != null) {
+                throw new InvalidDataException("Lớp '" + entry.id() + "' đã có trong lịch, hãy dùng thao tác đổi chỗ");
+            }
+            List<ConflictIndex.Conflict> created = index.add(entry);
+            return delta(created, new ArrayList<>(), index);
+        }
+    }
+
+    @Override
+    public LiveConflictDelta moveEntry(Long semesterId, String entryId, LiveEntryRequest request) {
+        ConflictIndex index = index(semesterId);
+        ConflictIndex.Entry entry = toEntry(entryId, request);
+        synchronized (index) {
+            if (index.get(entryId) == null) {
+                throw new ResourceNotFoundException("lớp", "id", entryId);
+            }
+            ConflictIndex.Delta delta = index.move(entry);
+            return delta(delta.created(), delta.resolved(), index);
+        }
+    }
+
+    @Override
+    public LiveConflictDelta removeEntry(Long semesterId, String entryId) {
+        ConflictIndex index = index(semesterId);
+        synchronized (index) {
+            if (index.get(entryId) == null) {
+                throw new ResourceNotFoundException("lớp", "id", entryId);
+            }
+            List<ConflictIndex.Conflict> resolved = index.remove(entryId);
+            return delta(new ArrayList<>(), resolved, index);
+        }
+    }
+
+    @Override
+    public void reset(Long semesterId) {
+        synchronized (indexes) {
+            indexes.remove(semesterId);
+            generation++;
+        }
+    }
+
+    @Override
+    public void removeSaved(Collection<Long> scheduleIds) {
+        List<ConflictIndex> cached;
+        synchronized (indexes) {
+            // Bản đang dựng có thể đã đọc các schedule này trước khi bị xóa: không cache bản đó
+            generation++;
+            cached = new ArrayList<>(indexes.size());
+            indexes.values().forEach(c -> cached.add(c.index()));
+        }
+        for (ConflictIndex index : cached) {
+            synchronized (index) {
+                for (Long scheduleId : scheduleIds) {
+                    index.remove(ScheduleIndexLoader.entryId(scheduleId));
+                }
+            }
+        }
+    }
+
+    private ConflictIndex index(Long semesterId) {
+        long now = System.currentTimeMillis();
+        long loadGeneration;
+        synchronized (indexes) {
+            loadGeneration = generation;
+            CachedIndex cached = indexes.get(semesterId);
+            if (cached != null && now - cached.lastAccess() <= idleTtlMs) {
+                indexes.put(semesterId, new CachedIndex(cached.index(), now));
+                return cached.index();
+            }
+        }
+        if (!semesterRepository.existsById(semesterId)) {
+            throw new ResourceNotFoundException("học kỳ", "id", semesterId);
+        }
+        // Dựng ngoài lock để không chặn các học kỳ khác trong lúc query
+        ConflictIndex loaded = scheduleIndexLoader.load(semesterId);
+        synchronized (indexes) {
+            CachedIndex existing = indexes.get(semesterId);
+            if (existing != null && now - existing.lastAccess() <= idleTtlMs) {
+                return existing.index(); // Request khác vừa dựng xong
+            }
+            if (generation != loadGeneration) {
+                // Bị invalidate trong lúc dựng: bản này có thể thiếu thay đổi vừa lưu, không cache
+                return loaded;
+            }
+            indexes.put(semesterId, new CachedIndex(loaded, now));
+            evict(now);
+            return loaded;
+        }
+    }
+
+    private void evict(long now) {
+        indexes.values().removeIf(c -> now - c.lastAccess() > idleTtlMs);
+        Iterator<Long> it = indexes.keySet().iterator();
+        while (indexes.size() > maxEntries && it.hasNext()) {
+            Long eldest = it.next();
+            it.remove();
+            log.debug("Evicted live conflict index of semester {}", eldest);
+        }
+    }
+
+    private static ConflictIndex.Entry toEntry(String entryId, LiveEntryRequest request) {
+        int weekMask = 0;
+        for (Integer week : request.getWeeks()) {
+            if (week == null || week < 1 || week > WeekMask.WEEKS) {
+                throw new InvalidDataException("Tuần học phải từ 1 đến " + WeekMask.WEEKS);
+            }
+            weekMask |= 1 << (week - 1);
+        }
+        return new ConflictIndex.Entry(
+                entryId,
+                request.getRoom(),
+                request.getTeacherId(),
+                ConflictIndex.studentGroupKey(request.getMajor(), request.getStudentYear(), request.getClassNumber()),
+                request.getDayOfWeek(),
+                request.getStartPeriod(),
+                request.getNumberOfPeriods(),
+                weekMask);
+    }
+
+    private static LiveConflictDelta delta(List<ConflictIndex.Conflict> created, List<ConflictIndex.Conflict> resolved,
+                                           ConflictIndex index) {
+        return LiveConflictDelta.builder()
+                .created(LiveConflictResponse.fromConflicts(created))
+                .resolved(LiveConflictResponse.fromConflicts(resolved))
+                .totalConflicts(index.conflictCount())
+                .build();
+    }
+}
@@ -0,0 +1,84 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.repository.RoomOccupancyRepository;
+import com.ptit.schedule.service.OccupancyStore;
+import com.ptit.schedule.service.RedisService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Occupancy store dùng chung trên Redis bitmap cho triển khai nhiều node.
+ * Giữ chỗ là một Lua script check-and-set nên hai node không thể cấp cùng một phòng / slot.
+ * Bật bằng {@code occupancy.store=redis}.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "occupancy.store", havingValue = "redis")
+public class RedisOccupancyStore implements OccupancyStore {
+
+    private final RedisService redisService;
+    private final RoomOccupancyRepository roomOccupancyRepository;
+
+    private final Set<Long> seededSemesters = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public boolean reserve(Long semesterId, long... slotIndexes) {
+        ensureSeeded(semesterId);
+        return redisService.reserveOccupancy(semesterId, slotIndexes);
+    }
+
+    @Override
+    public void markAll(Long semesterId, long[] slotIndexes) {
+        ensureSeeded(semesterId);
+        redisService.setOccupancyBits(semesterId, slotIndexes, true);
+    }
+
+    @Override
+    public void release(Long semesterId, long... slotIndexes) {
+        ensureSeeded(semesterId);
+        redisService.setOccupancyBits(semesterId, slotIndexes, false);
+    }
+
+    @Override
+    public boolean isOccupied(Long semesterId, long slotIndex) {
+        ensureSeeded(semesterId);
+        return redisService.getOccupancyBit(semesterId, slotIndex);
+    }
+
+    @Override
+    public void clear(Long semesterId) {
+        redisService.clearOccupancy(semesterId);
+        seededSemesters.add(semesterId);
+    }
+
+    @Override
+    public void preload(Long semesterId) {
+        ensureSeeded(semesterId);
+    }
+
+    /**
+     * Nạp bitmap từ MySQL nếu chưa node nào nạp (script seed tự bỏ qua nếu đã có marker)
+     */
+    private void ensureSeeded(Long semesterId) {
+        if (seededSemesters.contains(semesterId)) {
+            return;
+        }
+        if (!redisService.isOccupancySeeded(semesterId)) {
+            List<Object[]> slots = roomOccupancyRepository.findSlotsBySemesterId(semesterId);
+            long[] offsets = new long[slots.size()];
+            for (int i = 0; i < slots.size(); i++) {
+                Object[] slot = slots.get(i);
+                offsets[i] = OccupancyStore.slotIndex((Long) slot[0], (Integer) slot[1], (Integer) slot[2]);
+            }
+            redisService.seedOccupancy(semesterId, offsets);
+        }
+        seededSemesters.add(semesterId);
+    }
+}
@@ -0,0 +1,68 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.exception.SemesterLockException;
+import com.ptit.schedule.service.RedisService;
+import com.ptit.schedule.service.SemesterFenceService;
+import com.ptit.schedule.service.SemesterLockService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Khóa học kỳ dùng chung giữa các instance, lưu trên Redis với lease (tự hết hạn khi node chết).
+ * Người giữ khóa quá lease vẫn bị chặn ở thời điểm ghi nhờ fencing token.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "occupancy.lock.store", havingValue = "redis")
+public class RedisSemesterLockService implements SemesterLockService {
+
+    private static final long RETRY_INTERVAL_MS = 50;
+
+    private final RedisService redisService;
+    private final SemesterFenceService semesterFenceService;
+
+    @Value("${occupancy.lock.wait-ms:10000}")
+    private long waitMs;
+
+    @Value("${occupancy.lock.lease-ms:30000}")
+    private long leaseMs;
+
+    // Sàn token lấy từ database, phòng khi Redis mất dữ liệu
+    private final Map<Long, Long> tokenFloors = new ConcurrentHashMap<>();
+
+    @Override
+    public long acquire(Long semesterId) {
+        long floor = tokenFloors.computeIfAbsent(semesterId, semesterFenceService::currentToken);
+        long deadline = System.currentTimeMillis() + waitMs;
+        while (true) {
+            long token = redisService.acquireSemesterLock(semesterId, leaseMs, floor);
+            if (token > 0) {
+                return token;
+            }
+            if (System.currentTimeMillis() >= deadline) {
+                throw new SemesterLockException(
+                        "Học kỳ " + semesterId + " đang được cập nhật bởi thao tác khác, vui lòng thử lại");
+            }
+            try {
+                Thread.sleep(RETRY_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SemesterLockException("Bị gián đoạn khi chờ khóa học kỳ " + semesterId);
+            }
+        }
+    }
+
+    @Override
+    public void release(Long semesterId, long token) {
+        if (!redisService.releaseSemesterLock(semesterId, token)) {
+            log.warn("Semester {} lock with token {} had already expired", semesterId, token);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.ptit.schedule.service.impl;
 
 import com.ptit.schedule.dto.BulkCreateRoomOccupancyRequest;
+import com.ptit.schedule.dto.OccupancyEventResponse;
 import com.ptit.schedule.dto.RoomOccupancyResponse;
 import com.ptit.schedule.dto.RoomWithOccupancyStatus;
 import com.ptit.schedule.entity.OccupancyStatus;
@@ -11,15 +12,23 @@ import com.ptit.schedule.exception.ResourceNotFoundException;
 import com.ptit.schedule.repository.RoomOccupancyRepository;
 import com.ptit.schedule.repository.RoomRepository;
 import com.ptit.schedule.repository.SemesterRepository;
+import com.ptit.schedule.service.OccupancyLogService;
+import com.ptit.schedule.service.OccupancyStore;
+import com.ptit.schedule.service.OccupancyWriteBehindService;
 import com.ptit.schedule.service.RoomOccupancyService;
+import com.ptit.schedule.service.SemesterFenceService;
+import com.ptit.schedule.service.SemesterLockService;
+import com.ptit.schedule.utils.OccupancySet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -32,6 +41,11 @@ public class RoomOccupancyServiceImpl implements RoomOccupancyService {
         private final RoomOccupancyRepository roomOccupancyRepository;
         private final RoomRepository roomRepository;
         private final SemesterRepository semesterRepository;
+        private final OccupancyStore occupancyStore;
+        private final OccupancyLogService occupancyLogService;
+        private final OccupancyWriteBehindService occupancyWriteBehindService;
+        private final SemesterLockService semesterLockService;
+        private final SemesterFenceService semesterFenceService;
 
         // Map để chuyển đổi dayOfWeek (2-7) thành tên
         private static final Map<Integer, String> DAY_NAMES = Map.of(
@@ -270,7 +284,7 @@ public class RoomOccupancyServiceImpl implements RoomOccupancyService {
         }
 
         @Override
-        @Transactional
+        @Transactional(propagation = Propagation.NOT_SUPPORTED) // replace tự mở và commit transaction của nó
         public void deleteOccupanciesBySemester(Long semesterId) {
                 log.info("Deleting all room occupancies for semesterId={}", semesterId);
 
@@ -280,8 +294,10 @@ public class RoomOccupancyServiceImpl implements RoomOccupancyService {
                         throw new RuntimeException("Không tìm thấy học kỳ với ID: " + semesterId);
                 }
 
-                // Xóa tất cả occupancies của semester
-                roomOccupancyRepository.deleteBySemesterId(semesterId);
+                // Xóa toàn bộ = thay thế bằng tập rỗng: checkReplace nâng fence, các lần thêm đang chờ
+                // write-behind bị bỏ, OccupancyStore chỉ được xóa sau khi transaction đã commit
+                semesterLockService.runWithLock(semesterId, token ->
+                                occupancyWriteBehindService.replace(semesterId, new OccupancySet(), token));
 
                 log.info("Successfully deleted all room occupancies for semesterId={}", semesterId);
         }
@@ -297,6 +313,21 @@ public class RoomOccupancyServiceImpl implements RoomOccupancyService {
                                 .orElseThrow(() -> new ResourceNotFoundException(
                                                 "Không tìm thấy học kỳ với ID: " + request.getSemesterId()));
 
+                // Kiểm tra trùng và ghi trong khóa học kỳ; dòng fence bị khóa tới commit nên các sự kiện
+                // ADD không thể commit lệch thứ tự id với người ghi khác
+                return semesterLockService.callWithLock(request.getSemesterId(), token -> {
+                        if (!semesterFenceService.checkAdditions(request.getSemesterId(), token)) {
+                                return List.<RoomOccupancyResponse>of();
+                        }
+                        return insertOccupancies(request, semester);
+                });
+        }
+
+        /**
+         * Tạo các occupancy chưa có của request (caller giữ khóa học kỳ)
+         */
+        private List<RoomOccupancyResponse> insertOccupancies(BulkCreateRoomOccupancyRequest request,
+                        Semester semester) {
                 List<RoomOccupancy> occupancies = new ArrayList<>();
                 int skipCount = 0;
 
@@ -363,6 +394,13 @@ public class RoomOccupancyServiceImpl implements RoomOccupancyService {
                 // Save all occupancies
                 if (!occupancies.isEmpty()) {
                         occupancies = roomOccupancyRepository.saveAll(occupancies);
+                        occupancyStore.markAll(request.getSemesterId(), occupancies.stream()
+                                        .mapToLong(occ -> OccupancyStore.slotIndex(occ.getRoom().getId(),
+                                                        occ.getDayOfWeek(), occ.getPeriod()))
+                                        .toArray());
+                        occupancyLogService.appendAdditions(request.getSemesterId(), occupancies.stream()
+                                        .map(RoomOccupancy::getUniqueKey)
+                                        .collect(Collectors.toList()), OccupancyLogService.currentActor());
                         log.info("Successfully created {} room occupancies (skipped: {})",
                                         occupancies.size(), skipCount);
                 }
@@ -620,6 +658,33 @@ public class RoomOccupancyServiceImpl implements RoomOccupancyService {
                                 .build();
         }
 
+        @Override
+        public Page<OccupancyEventResponse> getOccupancyHistory(
+                        Long semesterId, LocalDateTime from, LocalDateTime to, Pageable pageable) {
+                return occupancyLogService.history(semesterId, from, to, pageable)
+                                .map(OccupancyEventResponse::fromEntity);
+        }
+
+        @Override
+        @Transactional
+        public int rollbackOccupancies(Long semesterId, LocalDateTime at) {
+                log.info("Rolling back room occupancies of semesterId={} to {}", semesterId, at);
+
+                if (!semesterRepository.existsById(semesterId)) {
+                        throw new ResourceNotFoundException("Không tìm thấy học kỳ với ID: " + semesterId);
+                }
+
+                // Khôi phục bằng một thay đổi mới (CLEAR + ADD) nên bản thân rollback cũng nằm trong log
+                Set<String> keys = semesterLockService.callWithLock(semesterId, token -> {
+                        Set<String> restored = occupancyLogService.stateAt(semesterId, at);
+                        occupancyWriteBehindService.replace(semesterId, OccupancySet.fromUniqueKeys(restored), token);
+                        return restored;
+                });
+
+                log.info("Rolled back of semesterId={} with {} occupied slots", semesterId, keys.size());
+                return keys.size();
+        }
+
         /**
          * Chuyển đổi entity sang response DTO
          */
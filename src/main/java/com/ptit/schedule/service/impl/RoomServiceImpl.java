@@ -21,13 +21,19 @@ import com.ptit.schedule.service.RoomService;
 import com.ptit.schedule.service.SubjectRoomMappingService;
 import com.ptit.schedule.service.MajorBuildingPreferenceService;
 import com.ptit.schedule.service.DataLoaderService;
+import com.ptit.schedule.service.OccupancyStore;
+import com.ptit.schedule.utils.AfterCommit;
+import com.ptit.schedule.utils.OccupancyKey;
+import com.ptit.schedule.utils.OccupancySet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.text.Normalizer;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,6 +47,18 @@ public class RoomServiceImpl implements RoomService {
     private final MajorBuildingPreferenceService majorBuildingPreferenceService;
     private final SemesterRepository semesterRepository;
     private final DataLoaderService dataLoaderService;
+    private final OccupancyStore occupancyStore;
+
+    private static final int MAX_RESERVE_ATTEMPTS = 5;
+
+    @Value("${working-set.ttl-ms:300000}")
+    private long workingSetTtlMs;
+
+    /** Danh mục phòng dùng khi xếp phòng, nạp lại khi CRUD phòng hoặc hết TTL (node khác sửa) */
+    private volatile List<Room> roomCatalog;
+    private volatile long roomCatalogLoadedAt;
+    /** Tăng sau mỗi commit sửa phòng; lần nạp bắt đầu trước đó không được ghi vào cache */
+    private final AtomicLong roomCatalogGeneration = new AtomicLong();
 
     @Override
     @Transactional(readOnly = true)
@@ -78,6 +96,7 @@ public class RoomServiceImpl implements RoomService {
                 .build();
 
         Room savedRoom = roomRepository.save(room);
+        invalidateRoomCatalog();
         return convertToResponse(savedRoom);
     }
 
@@ -101,6 +120,7 @@ public class RoomServiceImpl implements RoomService {
         room.setNote(roomRequest.getNote());
 
         Room updatedRoom = roomRepository.save(room);
+        invalidateRoomCatalog();
         return convertToResponse(updatedRoom);
     }
 
@@ -110,6 +130,7 @@ public class RoomServiceImpl implements RoomService {
             throw new RuntimeException("Không tìm thấy phòng với ID: " + id);
         }
         roomRepository.deleteById(id);
+        invalidateRoomCatalog();
     }
 
     @Override
@@ -119,6 +140,7 @@ public class RoomServiceImpl implements RoomService {
 
         room.setStatus(statusRequest.getStatus());
         Room updatedRoom = roomRepository.save(room);
+        invalidateRoomCatalog();
         return convertToResponse(updatedRoom);
     }
 
@@ -138,6 +160,7 @@ public class RoomServiceImpl implements RoomService {
                 notFoundRoomIds.add(roomId);
             }
         }
+        invalidateRoomCatalog();
 
         if (!notFoundRoomIds.isEmpty()) {
             throw new ResourceNotFoundException(
@@ -197,7 +220,7 @@ public class RoomServiceImpl implements RoomService {
                 .collect(Collectors.toList());
     }
 
-    public RoomPickResult pickRoom(List<Room> rooms, Integer sisoPerClass, Set<Object> occupied,
+    public RoomPickResult pickRoom(List<Room> rooms, Integer sisoPerClass, OccupancySet occupied,
             Integer thu, Integer kip, String subjectType, String studentYear,
             String heDacThu, List<String> weekSchedule, String nganh, String maMon) {
 
@@ -248,6 +271,7 @@ public class RoomServiceImpl implements RoomService {
 
         // 3. Filter rooms by constraints
         List<Room> suitableRooms = new ArrayList<>();
+        int requestedWeeks = toWeekMask(weekSchedule);
 
         for (Room r : rooms) {
             String code = r.getName();
@@ -256,42 +280,8 @@ public class RoomServiceImpl implements RoomService {
             }
 
             // Check if room is occupied
-            if (thu != null && kip != null) {
-                String roomUniqueCode = buildRoomUniqueCode(r);
-                String occupationKey = buildOccupationKey(roomUniqueCode, thu, kip);
-                String legacyOccupationKey = buildLegacyOccupationKey(code, thu, kip);
-
-                boolean traditionalConflict = occupied.contains(occupationKey)
-                        || occupied.contains(legacyOccupationKey);
-
-                // Check week schedule conflict if provided
-                boolean weekConflict = false;
-                if (weekSchedule != null && !weekSchedule.isEmpty()) {
-                    for (Object occupiedKey : occupied) {
-                        if (occupiedKey instanceof String) {
-                            String[] parts = ((String) occupiedKey).split("\\|");
-                            if (parts.length >= 4) {
-                                String occCode = parts[0];
-                                String occThu = parts[1];
-                                String occKip = parts[2];
-                                String occWeeks = parts[3];
-
-                                if (occCode.equals(code) && occThu.equals(String.valueOf(thu)) &&
-                                        occKip.equals(String.valueOf(kip))) {
-                                    List<String> occWeekList = Arrays.asList(occWeeks.split(","));
-                                    weekConflict = weekSchedule.stream().anyMatch(occWeekList::contains);
-                                    if (weekConflict) {
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-
-                if (traditionalConflict || weekConflict) {
-                    continue;
-                }
+            if (isSlotOccupied(r, thu, kip, occupied, requestedWeeks)) {
+                continue;
             }
 
             // Check capacity
@@ -323,15 +313,8 @@ public class RoomServiceImpl implements RoomService {
                 }
 
                 // Check if room is occupied
-                if (thu != null && kip != null) {
-                    String roomUniqueCode = buildRoomUniqueCode(r);
-                    String occupationKey = buildOccupationKey(roomUniqueCode, thu, kip);
-                    String legacyOccupationKey = buildLegacyOccupationKey(code, thu, kip);
-                    boolean traditionalConflict = occupied.contains(occupationKey)
-                            || occupied.contains(legacyOccupationKey);
-                    if (traditionalConflict) {
-                        continue;
-                    }
+                if (isSlotOccupied(r, thu, kip, occupied, 0)) {
+                    continue;
                 }
 
                 // Check capacity
@@ -428,13 +411,10 @@ public class RoomServiceImpl implements RoomService {
     }
 
     private boolean isRoomAvailable(Room room, Integer thu, Integer kip,
-            Set<Object> occupied, List<String> weekSchedule,
+            OccupancySet occupied, List<String> weekSchedule,
             Integer sisoPerClass) {
         // Check occupation
-        String roomUniqueCode = buildRoomUniqueCode(room);
-        String key = buildOccupationKey(roomUniqueCode, thu, kip);
-        String legacyKey = buildLegacyOccupationKey(room.getName(), thu, kip);
-        if (occupied.contains(key) || occupied.contains(legacyKey))
+        if (isSlotOccupied(room, thu, kip, occupied, toWeekMask(weekSchedule)))
             return false;
 
         // Check capacity
@@ -566,12 +546,51 @@ public class RoomServiceImpl implements RoomService {
         return room.getName() + "-" + room.getBuilding();
     }
 
-    private String buildOccupationKey(String roomUniqueCode, Integer thu, Integer kip) {
-        return roomUniqueCode + "|" + thu + "|" + kip;
+    /**
+     * Check room slot against packed occupancy keys
+     * Matches both "name-building" keys and legacy "name" keys; week-masked keys
+     * only conflict when they share at least one requested week
+     */
+    private boolean isSlotOccupied(Room room, Integer thu, Integer kip, OccupancySet occupied, int requestedWeeks) {
+        if (thu == null || kip == null || !OccupancyKey.isValidSlot(thu, kip)) {
+            return false;
+        }
+
+        long key = OccupancyKey.of(OccupancyKey.internRoom(room.getName(), room.getBuilding()), thu, kip);
+        long legacyKey = OccupancyKey.of(OccupancyKey.internRoom(room.getName(), ""), thu, kip);
+        if (occupied.contains(key) || occupied.contains(legacyKey)) {
+            return true;
+        }
+
+        if (requestedWeeks == 0) {
+            return false;
+        }
+        return occupied.anyMatch(occupiedKey -> {
+            long slot = OccupancyKey.slot(occupiedKey);
+            return (slot == key || slot == legacyKey)
+                    && (OccupancyKey.weekMask(occupiedKey) & requestedWeeks) != 0;
+        });
     }
 
-    private String buildLegacyOccupationKey(String roomCode, Integer thu, Integer kip) {
-        return roomCode + "|" + thu + "|" + kip;
+    /**
+     * Convert week numbers ("1", "2", ...) to a week bitmask, 0 if none
+     */
+    private int toWeekMask(List<String> weekSchedule) {
+        if (weekSchedule == null || weekSchedule.isEmpty()) {
+            return 0;
+        }
+        int mask = 0;
+        for (String week : weekSchedule) {
+            try {
+                int w = Integer.parseInt(week.trim());
+                if (w >= 1 && w <= 24) {
+                    mask |= 1 << (w - 1);
+                }
+            } catch (Exception e) {
+                // Bỏ qua giá trị tuần không hợp lệ
+            }
+        }
+        return mask;
     }
 
     /**
@@ -638,6 +657,42 @@ public class RoomServiceImpl implements RoomService {
                 buildingDistance.getOrDefault(building2, 0));
     }
 
+    /**
+     * Reserve room slot of a row in the shared occupancy store
+     *
+     * @param reserved Collects the reserved slot index so it can be released if the batch is not committed
+     * @return true if reserved (or slot cannot be represented), false if already taken
+     */
+    private boolean reserveSlot(Long semesterId, Long roomId, TKBRowResult row, List<Long> reserved) {
+        if (roomId == null || row.getThu() == null || row.getKip() == null
+                || !OccupancyKey.isValidSlot(row.getThu(), row.getKip())) {
+            return true;
+        }
+        long slotIndex = OccupancyStore.slotIndex(roomId, row.getThu(), row.getKip());
+        if (!occupancyStore.reserve(semesterId, slotIndex)) {
+            return false;
+        }
+        reserved.add(slotIndex);
+        return true;
+    }
+
+    /**
+     * Release slots reserved from index {@code from} on (row or batch that was not committed)
+     */
+    private void releaseSlots(Long semesterId, List<Long> reserved, int from) {
+        if (reserved.size() <= from) {
+            return;
+        }
+        List<Long> slots = reserved.subList(from, reserved.size());
+        try {
+            occupancyStore.release(semesterId, slots.stream().mapToLong(Long::longValue).toArray());
+        } catch (Exception e) {
+            log.error("❌ Could not release {} reserved slots for semester {}: {}",
+                    slots.size(), semesterId, e.getMessage());
+        }
+        slots.clear();
+    }
+
     private RoomResponse convertToResponse(Room room) {
         return RoomResponse.builder()
                 .id(room.getId())
@@ -652,6 +707,44 @@ public class RoomServiceImpl implements RoomService {
                 .build();
     }
 
+    // ==================== ROOM CATALOG ====================
+
+    @Override
+    @Transactional(readOnly = true)
+    public int preloadRoomCatalog() {
+        return roomCatalog().size();
+    }
+
+    private List<Room> roomCatalog() {
+        List<Room> catalog = roomCatalog;
+        if (catalog != null && System.currentTimeMillis() - roomCatalogLoadedAt < workingSetTtlMs) {
+            return catalog;
+        }
+        long generation = roomCatalogGeneration.get();
+        catalog = List.copyOf(roomRepository.findAll());
+        for (Room room : catalog) {
+            // Cấp phát sẵn ordinal để pickRoom không phải vào nhánh synchronized
+            OccupancyKey.internRoom(room.getName(), room.getBuilding());
+            OccupancyKey.internRoom(room.getName(), "");
+        }
+        if (roomCatalogGeneration.get() == generation) {
+            roomCatalog = catalog;
+            roomCatalogLoadedAt = System.currentTimeMillis();
+        }
+        log.info("📦 Loaded room catalog: {} rooms", catalog.size());
+        return catalog;
+    }
+
+    /**
+     * Bỏ danh mục phòng sau khi transaction sửa phòng commit
+     */
+    private void invalidateRoomCatalog() {
+        AfterCommit.run(() -> {
+            roomCatalogGeneration.incrementAndGet();
+            roomCatalog = null;
+        });
+    }
+
     // ==================== ROOM ASSIGNMENT FOR TKB ====================
 
     @Override
@@ -668,90 +761,143 @@ public class RoomServiceImpl implements RoomService {
                         "Không tìm thấy học kỳ: " + semester + " - " + academicYear));
         dataLoaderService.setCurrentSemesterId(semesterEntity.getId());
 
-        // Load rooms from database
-        List<Room> rooms = roomRepository.findAll();
+        // Load rooms (danh mục đã nạp sẵn, chỉ đọc)
+        List<Room> rooms = roomCatalog();
         log.info("📦 Loaded {} rooms", rooms.size());
 
         // Load global occupied rooms
-        Set<Object> occupiedRooms = dataLoaderService.loadGlobalOccupiedRooms();
+        OccupancySet occupiedRooms = dataLoaderService.loadGlobalOccupiedRooms();
         log.info("🔒 Loaded {} globally occupied rooms", occupiedRooms.size());
+        OccupancySet newlyOccupied = new OccupancySet();
+        Long semesterId = semesterEntity.getId();
+
+        // Slot đã giữ trong occupancy store dùng chung, trả lại nếu batch không được ghi nhận
+        List<Long> reservedSlots = new ArrayList<>();
+        boolean committed = false;
 
         int totalRoomsAssigned = 0;
 
-        // Iterate through each subject's schedule
-        for (TKBBatchItemResponse item : existingSchedule.getItems()) {
-            TKBRequest input = item.getInput();
-            log.info("🔄 Processing subject: {} ({})", input.getTen_mon(), input.getMa_mon());
+        try {
+            // Iterate through each subject's schedule
+            for (TKBBatchItemResponse item : existingSchedule.getItems()) {
+                TKBRequest input = item.getInput();
+                log.info("🔄 Processing subject: {} ({})", input.getTen_mon(), input.getMa_mon());
 
-            // Group rows by class number to assign same room for same class
-            Map<Integer, String> classRoomCache = new HashMap<>();
-            Map<Integer, Long> classRoomIdCache = new HashMap<>();
+                // Group rows by class number to assign same room for same class
+                Map<Integer, String> classRoomCache = new HashMap<>();
+                Map<Integer, Long> classRoomIdCache = new HashMap<>();
 
-            for (TKBRowResult row : item.getRows()) {
-                Integer tietBd = row.getTietBd();
-                Integer lop = row.getLop();
+                for (TKBRowResult row : item.getRows()) {
+                    Integer tietBd = row.getTietBd();
+                    Integer lop = row.getLop();
 
-                // Skip if tiet 12 (no room needed) or already has room
-                if (tietBd == null || tietBd == 12 || row.getPhong() != null) {
-                    continue;
-                }
+                    // Skip if tiet 12 (no room needed) or already has room
+                    if (tietBd == null || tietBd == 12 || row.getPhong() != null) {
+                        continue;
+                    }
 
-                // Check if we already assigned room for this class
-                if (classRoomCache.containsKey(lop)) {
-                    row.setPhong(classRoomCache.get(lop));
-                    row.setRoomId(classRoomIdCache.get(lop));
-                    continue;
-                }
+                    int rowReservedFrom = reservedSlots.size();
+                    try {
+                        RoomPickResult roomResult = null;
+                        String maPhong;
+                        Long databaseRoomId;
+
+                        // Same class keeps its room, but each (thu, kip) of the class is reserved on its own;
+                        // if another node already holds this slot, pick a different room for this row
+                        if (classRoomCache.containsKey(lop)
+                                && reserveSlot(semesterId, classRoomIdCache.get(lop), row, reservedSlots)) {
+                            maPhong = classRoomCache.get(lop);
+                            databaseRoomId = classRoomIdCache.get(lop);
+                        } else {
+                            if (classRoomCache.containsKey(lop)) {
+                                log.info("🔁 Room {} was reserved concurrently for {}/{}, picking another",
+                                        classRoomCache.get(lop), row.getThu(), row.getKip());
+                                occupiedRooms.add(OccupancyKey.of(classRoomCache.get(lop), row.getThu(), row.getKip()));
+                            }
+                            roomResult = pickAndReserve(rooms, occupiedRooms, input.getSubject_type(), row,
+                                    semesterId, reservedSlots);
+                            if (roomResult == null || !roomResult.hasRoom()) {
+                                log.warn("⚠️ No suitable room found for class {}, {}/{}/{}",
+                                        lop, row.getThu(), row.getKip(), row.getTietBd());
+                                continue;
+                            }
+                            maPhong = roomResult.getMaPhong();
+                            databaseRoomId = roomResult.getDatabaseRoomId();
+                        }
 
-                // Pick room for this row
-                try {
-                    String subjectType = input.getSubject_type();
-
-                    RoomPickResult roomResult = pickRoom(
-                            rooms,
-                            row.getSiSoMotLop(),
-                            occupiedRooms,
-                            row.getThu(),
-                            row.getKip(),
-                            subjectType,
-                            row.getStudentYear(),
-                            row.getHeDacThu(),
-                            null,
-                            row.getNganh(),
-                            row.getMaMon());
-
-                    if (roomResult.hasRoom()) {
-                        String maPhong = roomResult.getMaPhong();
-                        Long databaseRoomId = roomResult.getDatabaseRoomId();
+                        // Mark room as occupied
+                        if (OccupancyKey.isValidSlot(row.getThu(), row.getKip())) {
+                            long occupationKey = OccupancyKey.of(maPhong, row.getThu(), row.getKip());
+                            occupiedRooms.add(occupationKey);
+                            newlyOccupied.add(occupationKey);
+                        }
 
                         // Update row - phong should be full format (e.g., "102-A2")
                         row.setPhong(maPhong); // Use maPhong instead of roomCode
                         row.setRoomId(databaseRoomId);
 
-                        // Cache for this class
-                        classRoomCache.put(lop, maPhong); // Cache maPhong
-                        classRoomIdCache.put(lop, databaseRoomId);
-
-                        // Mark room as occupied
-                        String occupationKey = maPhong + "|" + row.getThu() + "|" + row.getKip();
-                        occupiedRooms.add(occupationKey);
+                        // Cache for this class (first room picked for the class)
+                        if (roomResult != null && !classRoomCache.containsKey(lop)) {
+                            classRoomCache.put(lop, maPhong); // Cache maPhong
+                            classRoomIdCache.put(lop, databaseRoomId);
+                        }
 
                         totalRoomsAssigned++;
-                    } else {
-                        log.warn("⚠️ No suitable room found for class {}, {}/{}/{}",
-                                lop, row.getThu(), row.getKip(), row.getTietBd());
+                    } catch (Exception e) {
+                        log.error("❌ Error assigning room for class {}: {}", lop, e.getMessage());
+                        releaseSlots(semesterId, reservedSlots, rowReservedFrom);
                     }
-                } catch (Exception e) {
-                    log.error("❌ Error assigning room for class {}: {}", lop, e.getMessage());
                 }
             }
-        }
 
-        log.info("✅ Assigned {} rooms total", totalRoomsAssigned);
+            log.info("✅ Assigned {} rooms total", totalRoomsAssigned);
 
-        // Save occupied rooms to database
-        dataLoaderService.saveGlobalOccupiedRooms(occupiedRooms);
+            // Queue newly occupied rooms, persisted by the write-behind
+            dataLoaderService.addGlobalOccupiedRooms(newlyOccupied);
+            committed = true;
+        } finally {
+            if (!committed) {
+                log.warn("⚠️ Room assignment for semester {} was not committed, releasing {} reserved slots",
+                        semesterId, reservedSlots.size());
+                releaseSlots(semesterId, reservedSlots, 0);
+            }
+        }
 
         return existingSchedule;
     }
+
+    /**
+     * Pick a room for the row and reserve it atomically in the shared occupancy store;
+     * if another node already holds the slot, mark that room busy and pick again
+     *
+     * @return Picked room (may have no room), null if every attempt lost the reservation
+     */
+    private RoomPickResult pickAndReserve(List<Room> rooms, OccupancySet occupiedRooms, String subjectType,
+                                          TKBRowResult row, Long semesterId, List<Long> reservedSlots) {
+        for (int attempt = 0; attempt < MAX_RESERVE_ATTEMPTS; attempt++) {
+            RoomPickResult candidate = pickRoom(
+                    rooms,
+                    row.getSiSoMotLop(),
+                    occupiedRooms,
+                    row.getThu(),
+                    row.getKip(),
+                    subjectType,
+                    row.getStudentYear(),
+                    row.getHeDacThu(),
+                    null,
+                    row.getNganh(),
+                    row.getMaMon());
+
+            if (!candidate.hasRoom()
+                    || reserveSlot(semesterId, candidate.getDatabaseRoomId(), row, reservedSlots)) {
+                return candidate;
+            }
+
+            log.info("🔁 Room {} was reserved concurrently for {}/{}, picking another",
+                    candidate.getMaPhong(), row.getThu(), row.getKip());
+            occupiedRooms.add(OccupancyKey.of(candidate.getMaPhong(), row.getThu(), row.getKip()));
+            subjectRoomMappingService.clearSubject(row.getMaMon());
+        }
+        return null;
+    }
 }
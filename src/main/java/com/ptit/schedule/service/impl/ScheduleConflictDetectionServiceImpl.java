@@ -2,193 +2,409 @@ package com.ptit.schedule.service.impl;
 
 import com.ptit.schedule.dto.ConflictResult;
 import com.ptit.schedule.dto.ScheduleEntry;
+import com.ptit.schedule.exception.InvalidDataException;
 import com.ptit.schedule.service.ScheduleConflictDetectionService;
+import com.ptit.schedule.utils.TimeSlotCode;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.UnaryOperator;
 
 @Slf4j
 @Service
 public class ScheduleConflictDetectionServiceImpl implements ScheduleConflictDetectionService {
 
-    // Helper class to pair ScheduleEntry with its specific TimeSlot
-    private static class ScheduleEntryWithTimeSlot {
-        final ScheduleEntry entry;
-        final ScheduleEntry.TimeSlot timeSlot;
-        
-        ScheduleEntryWithTimeSlot(ScheduleEntry entry, ScheduleEntry.TimeSlot timeSlot) {
-            this.entry = entry;
-            this.timeSlot = timeSlot;
-        }
-    }
+    @Value("${conflict-detection.parallelism:0}")
+    private int parallelism; // 0 = số CPU
 
-    @Override
-    public ConflictResult detectConflicts(List<ScheduleEntry> scheduleEntries) {
-        List<ConflictResult.RoomConflict> roomConflicts = detectRoomConflicts(scheduleEntries);
-        List<ConflictResult.TeacherConflict> teacherConflicts = detectTeacherConflicts(scheduleEntries);
-
-        // Group conflicts by pattern (same time, same room/teacher but different weeks)
-        List<ConflictResult.RoomConflict> groupedRoomConflicts = groupRoomConflictsByPattern(roomConflicts);
-        List<ConflictResult.TeacherConflict> groupedTeacherConflicts = groupTeacherConflictsByPattern(teacherConflicts);
-
-        return ConflictResult.builder()
-                .roomConflicts(groupedRoomConflicts)
-                .teacherConflicts(groupedTeacherConflicts)
-                .totalConflicts(groupedRoomConflicts.size() + groupedTeacherConflicts.size())
-                .build();
-    }
+    @Value("${conflict-detection.parallel-threshold:8192}")
+    private int parallelThreshold; // Số slot tối thiểu để chia việc song song
 
-    @Override
-    public List<ConflictResult.RoomConflict> detectRoomConflicts(List<ScheduleEntry> scheduleEntries) {
-        List<ConflictResult.RoomConflict> conflicts = new ArrayList<>();
+    private ForkJoinPool pool;
 
-        Map<String, Map<String, List<ScheduleEntryWithTimeSlot>>> roomTimeMap = new HashMap<>();
+    @PostConstruct
+    void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        log.info("Conflict detection: parallelism {}, threshold {} slots", pool.getParallelism(), parallelThreshold);
+    }
 
-        for (ScheduleEntry entry : scheduleEntries) {
-            if (entry.getTimeSlots() == null) continue;
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
 
-            if (isOnlineClass(entry)) {
-                continue;
+    // Mỗi slot được đánh index bằng một long: [resourceId | TimeSlotCode | slotRef]
+    // Sắp xếp mảng long là gom được các slot cùng phòng/giảng viên + cùng tuần + cùng thứ, theo tiết bắt đầu
+    private static final int CODE_BITS = TimeSlotCode.BITS + 1; // +1 bit cho slot không mã hóa được
+    private static final int SLOT_REF_BITS = 22;
+    private static final int RESOURCE_BITS = Long.SIZE - 1 - CODE_BITS - SLOT_REF_BITS;
+    private static final int SLOT_POS_BITS = 5;                 // Vị trí slot trong entry (tối đa 32 tuần)
+
+    /**
+     * Slot của một loại tài nguyên (phòng hoặc giảng viên)
+     */
+    private static final class SlotIndex {
+        private final Map<String, Integer> resourceIds = new HashMap<>();
+        private final List<String> resources = new ArrayList<>();
+        private long[] keys = new long[1024];
+        private int size;
+
+        void add(String resource, int code, int slotRef) {
+            Integer resourceId = resourceIds.get(resource);
+            if (resourceId == null) {
+                if (resources.size() >= 1 << RESOURCE_BITS) {
+                    throw new InvalidDataException("File có quá nhiều phòng / giảng viên để phân tích xung đột");
+                }
+                resourceId = resources.size();
+                resourceIds.put(resource, resourceId);
+                resources.add(resource);
             }
-
-            for (ScheduleEntry.TimeSlot timeSlot : entry.getTimeSlots()) {
-                String room = entry.getRoom();
-                String timeKey = timeSlot.getSlotKey();
-                roomTimeMap
-                        .computeIfAbsent(room, k -> new HashMap<>())
-                        .computeIfAbsent(timeKey, k -> new ArrayList<>())
-                        .add(new ScheduleEntryWithTimeSlot(entry, timeSlot));
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
             }
+            keys[size++] = (long) resourceId << (CODE_BITS + SLOT_REF_BITS)
+                    | (long) code << SLOT_REF_BITS
+                    | slotRef;
         }
+    }
 
-        for (Map.Entry<String, Map<String, List<ScheduleEntryWithTimeSlot>>> roomEntry : roomTimeMap.entrySet()) {
-            String room = roomEntry.getKey();
-            
-            for (Map.Entry<String, List<ScheduleEntryWithTimeSlot>> timeEntry : roomEntry.getValue().entrySet()) {
-                String timeSlotKey = timeEntry.getKey();
-                List<ScheduleEntryWithTimeSlot> entriesAtTime = timeEntry.getValue();
+    /**
+     * Index phòng / giảng viên theo slot, được cập nhật theo từng entry.
+     * Chuỗi hiển thị chỉ được dùng khi tạo kết quả cho các xung đột tìm thấy.
+     */
+    private class ConflictCollector implements Collector {
+        private final SlotIndex rooms;
+        private final SlotIndex teachers;
+        private final List<ScheduleEntry> entries = new ArrayList<>();
+        private final Map<String, Integer> fallbackCodes = new HashMap<>();
+        private int[] slotRefs = new int[1024]; // slotRef → [entry index | vị trí slot trong entry]
+        private int slotCount;
+
+        ConflictCollector(boolean detectRooms, boolean detectTeachers) {
+            this.rooms = detectRooms ? new SlotIndex() : null;
+            this.teachers = detectTeachers ? new SlotIndex() : null;
+        }
 
-                if (entriesAtTime.size() > 1) {
-//                    for (int i = 0; i < entriesAtTime.size(); i++) {
-//                        ScheduleEntryWithTimeSlot entry = entriesAtTime.get(i);
-//                    }
+        @Override
+        public void add(ScheduleEntry entry) {
+            List<ScheduleEntry.TimeSlot> timeSlots = entry.getTimeSlots();
+            if (timeSlots == null || timeSlots.isEmpty()) return;
+            if (timeSlots.size() > 1 << SLOT_POS_BITS) {
+                throw new InvalidDataException("Môn " + entry.getSubjectCode() + " có quá nhiều tuần học");
+            }
 
-                    List<ScheduleEntryWithTimeSlot> uniqueEntries = removeDuplicateEntriesWithTimeSlot(entriesAtTime);
+            int entryIdx = entries.size();
+            entries.add(entry);
+            boolean indexRoom = rooms != null && !isOnlineClass(entry);
 
-                    if (uniqueEntries.size() > 1) {
-                        // Tạo TimeSlot đại diện từ tất cả conflicts thay vì chỉ lấy của entry đầu tiên
-                        ScheduleEntry.TimeSlot representativeTimeSlot = createRepresentativeTimeSlot(timeSlotKey, uniqueEntries);
-                        
-                        List<ScheduleEntry> conflictingSchedules = uniqueEntries.stream()
-                                .map(ewt -> ewt.entry)
-                                .collect(Collectors.toList());
-
-                        ConflictResult.RoomConflict conflict = ConflictResult.RoomConflict.builder()
-                                .room(room)
-                                .timeSlot(representativeTimeSlot)
-                                .conflictingSchedules(conflictingSchedules)
-                                .build();
-                        conflicts.add(conflict);
-                    }
+            for (int pos = 0; pos < timeSlots.size(); pos++) {
+                if (slotCount >= 1 << SLOT_REF_BITS) {
+                    throw new InvalidDataException("File quá lớn để phân tích xung đột");
+                }
+                int code = codeOf(timeSlots.get(pos));
+                int slotRef = slotCount++;
+                slotRefs = ensureCapacity(slotRefs, slotRef);
+                slotRefs[slotRef] = entryIdx << SLOT_POS_BITS | pos;
+
+                if (indexRoom) {
+                    rooms.add(entry.getRoom(), code, slotRef);
+                }
+                if (teachers != null) {
+                    teachers.add(entry.getTeacherId(), code, slotRef);
                 }
             }
         }
 
-        return conflicts;
-    }
+        @Override
+        public ConflictResult finish() {
+            // Phòng và giảng viên độc lập nhau: chạy song song, mỗi bên lại chia theo tài nguyên
+            ForkJoinTask<List<ConflictResult.RoomConflict>> roomTask = pool.submit(() ->
+                    detect(rooms, this::roomConflict, ScheduleConflictDetectionServiceImpl.this::groupRoomConflictsByPattern));
+            List<ConflictResult.TeacherConflict> groupedTeacherConflicts =
+                    detect(teachers, this::teacherConflict, ScheduleConflictDetectionServiceImpl.this::groupTeacherConflictsByPattern);
+            List<ConflictResult.RoomConflict> groupedRoomConflicts = roomTask.join();
+
+            return ConflictResult.builder()
+                    .roomConflicts(groupedRoomConflicts)
+                    .teacherConflicts(groupedTeacherConflicts)
+                    .totalConflicts(groupedRoomConflicts.size() + groupedTeacherConflicts.size())
+                    .build();
+        }
 
-    @Override
-    public List<ConflictResult.TeacherConflict> detectTeacherConflicts(List<ScheduleEntry> scheduleEntries) {
-        List<ConflictResult.TeacherConflict> conflicts = new ArrayList<>();
+        List<ConflictResult.RoomConflict> roomConflicts() {
+            return detect(rooms, this::roomConflict, UnaryOperator.identity());
+        }
 
-        Map<String, Map<String, List<ScheduleEntryWithTimeSlot>>> teacherTimeMap = new HashMap<>();
+        List<ConflictResult.TeacherConflict> teacherConflicts() {
+            return detect(teachers, this::teacherConflict, UnaryOperator.identity());
+        }
 
-        for (ScheduleEntry entry : scheduleEntries) {
-            if (entry.getTimeSlots() == null) continue;
+        private ConflictResult.RoomConflict roomConflict(String room, List<Integer> unique, ScheduleEntry.TimeSlot overlap) {
+            return ConflictResult.RoomConflict.builder()
+                    .room(room)
+                    .timeSlot(overlap)
+                    .conflictingSchedules(schedules(unique))
+                    .build();
+        }
 
-            for (ScheduleEntry.TimeSlot timeSlot : entry.getTimeSlots()) {
-                String teacherId = entry.getTeacherId();
-                String timeKey = timeSlot.getSlotKey();
+        private ConflictResult.TeacherConflict teacherConflict(String teacherId, List<Integer> unique,
+                                                               ScheduleEntry.TimeSlot overlap) {
+            return ConflictResult.TeacherConflict.builder()
+                    .teacherId(teacherId)
+                    .teacherName(entry(unique.get(0)).getTeacherName())
+                    .timeSlot(overlap)
+                    .conflictingSchedules(schedules(unique))
+                    .build();
+        }
 
-                teacherTimeMap
-                        .computeIfAbsent(teacherId, k -> new HashMap<>())
-                        .computeIfAbsent(timeKey, k -> new ArrayList<>())
-                        .add(new ScheduleEntryWithTimeSlot(entry, timeSlot));
+        /**
+         * Sắp xếp index, chia thành các phần không cắt ngang một tài nguyên rồi xử lý song song.
+         * Kết quả ghép theo thứ tự phần nên không phụ thuộc thread nào chạy trước.
+         *
+         * @param grouping Gom xung đột trong một phần (key gom nhóm luôn chứa tài nguyên)
+         */
+        private <C> List<C> detect(SlotIndex index, ConflictFactory<C> factory, UnaryOperator<List<C>> grouping) {
+            if (index == null || index.size < 2) return new ArrayList<>();
+
+            long[] keys = index.keys;
+            int size = index.size;
+            if (size < parallelThreshold) {
+                Arrays.sort(keys, 0, size);
+                return grouping.apply(scan(index, 0, size, factory));
             }
+            Arrays.parallelSort(keys, 0, size);
+
+            int chunk = Math.max(parallelThreshold / 2, size / (pool.getParallelism() * 4));
+            List<ForkJoinTask<List<C>>> tasks = new ArrayList<>();
+            int from = 0;
+            while (from < size) {
+                int to = Math.min(from + chunk, size);
+                while (to < size && resourceId(keys[to]) == resourceId(keys[to - 1])) {
+                    to++;
+                }
+                int partFrom = from;
+                int partTo = to;
+                tasks.add(pool.submit(() -> grouping.apply(scan(index, partFrom, partTo, factory))));
+                from = to;
+            }
+
+            List<C> conflicts = new ArrayList<>();
+            tasks.forEach(task -> conflicts.addAll(task.join()));
+            return conflicts;
         }
 
-        // Find conflicts (same teacher, same time, different subjects/rooms)
-        for (Map.Entry<String, Map<String, List<ScheduleEntryWithTimeSlot>>> teacherEntry : teacherTimeMap.entrySet()) {
-            String teacherId = teacherEntry.getKey();
-            
-            for (Map.Entry<String, List<ScheduleEntryWithTimeSlot>> timeEntry : teacherEntry.getValue().entrySet()) {
-                List<ScheduleEntryWithTimeSlot> entriesAtTime = timeEntry.getValue();
-
-                if (entriesAtTime.size() > 1) {
-                    // Remove duplicates (same subject, same room)
-                    List<ScheduleEntryWithTimeSlot> uniqueEntries = removeDuplicateEntriesWithTimeSlot(entriesAtTime);
-                    
-                    if (uniqueEntries.size() > 1) {
-                        ScheduleEntryWithTimeSlot firstEntryWithTime = uniqueEntries.get(0);
-                        ScheduleEntry firstEntry = firstEntryWithTime.entry;
-                        ScheduleEntry.TimeSlot conflictTimeSlot = firstEntryWithTime.timeSlot;
-                        
-                        List<ScheduleEntry> conflictingSchedules = uniqueEntries.stream()
-                                .map(ewt -> ewt.entry)
-                                .collect(Collectors.toList());
-                        
-                        ConflictResult.TeacherConflict conflict = ConflictResult.TeacherConflict.builder()
-                                .teacherId(teacherId)
-                                .teacherName(firstEntry.getTeacherName())
-                                .timeSlot(conflictTimeSlot)
-                                .conflictingSchedules(conflictingSchedules)
-                                .build();
-                        conflicts.add(conflict);
+        private <C> List<C> scan(SlotIndex index, int from, int to, ConflictFactory<C> factory) {
+            List<C> conflicts = new ArrayList<>();
+            forEachConflict(index, from, to,
+                    (resource, unique, overlap) -> conflicts.add(factory.create(resource, unique, overlap)));
+            return conflicts;
+        }
+
+        /**
+         * Duyệt từng nhóm slot cùng tài nguyên + cùng tuần + cùng thứ trong đoạn [from, to) đã sắp xếp
+         */
+        private void forEachConflict(SlotIndex index, int from, int to, ConflictSink sink) {
+            long[] keys = index.keys;
+            int groupStart = from;
+            for (int i = from + 1; i <= to; i++) {
+                if (i < to && groupKey(keys[i]) == groupKey(keys[groupStart])) {
+                    continue;
+                }
+                if (i - groupStart > 1) {
+                    String resource = index.resources.get(resourceId(keys[groupStart]));
+                    if (isFallback(code(keys[groupStart]))) {
+                        exactMatch(keys, groupStart, i, resource, sink);
+                    } else {
+                        sweep(keys, groupStart, i, resource, sink);
                     }
                 }
+                groupStart = i;
             }
         }
 
-        return conflicts;
-    }
+        /**
+         * Sweep-line trên các khoảng tiết [tiết bắt đầu, tiết bắt đầu + số tiết) của một nhóm
+         * (đã sắp theo tiết bắt đầu). Mỗi đoạn liên tiếp có từ 2 lớp khác nhau trở lên là một xung đột,
+         * time slot báo cáo là đúng các tiết bị chồng.
+         */
+        private void sweep(long[] keys, int from, int to, String resource, ConflictSink sink) {
+            int[] points = new int[(to - from) * 2];
+            for (int i = from; i < to; i++) {
+                int code = code(keys[i]);
+                points[(i - from) * 2] = TimeSlotCode.startPeriod(code);
+                points[(i - from) * 2 + 1] = TimeSlotCode.endPeriod(code);
+            }
+            Arrays.sort(points);
+
+            List<Integer> active = new ArrayList<>();
+            int next = from;
+            List<Integer> segment = null;
+            int segmentStart = 0;
+            int segmentEnd = 0;
+            for (int p = 0; p < points.length - 1; p++) {
+                int at = points[p];
+                int until = points[p + 1];
+                if (at == until) continue;
+
+                while (next < to && TimeSlotCode.startPeriod(code(keys[next])) <= at) {
+                    active.add(next++);
+                }
+                active.removeIf(i -> TimeSlotCode.endPeriod(code(keys[i])) <= at);
 
-    private List<ScheduleEntryWithTimeSlot> removeDuplicateEntriesWithTimeSlot(List<ScheduleEntryWithTimeSlot> entries) {
-        Map<String, ScheduleEntryWithTimeSlot> uniqueMap = new LinkedHashMap<>();
-        
-        for (ScheduleEntryWithTimeSlot entryWithTime : entries) {
-            ScheduleEntry entry = entryWithTime.entry;
-            String key = entry.getSubjectCode() + "-" + entry.getRoom() + "-" + entry.getTeacherId();
-            uniqueMap.put(key, entryWithTime);
+                List<Integer> unique = active.size() > 1 ? removeDuplicateSlots(keys, active) : List.of();
+                if (unique.size() > 1 && unique.equals(segment) && segmentEnd == at) {
+                    segmentEnd = until;
+                    continue;
+                }
+                if (segment != null) {
+                    sink.accept(resource, segment, overlapSlot(segment.get(0), segmentStart, segmentEnd));
+                    segment = null;
+                }
+                if (unique.size() > 1) {
+                    segment = unique;
+                    segmentStart = at;
+                    segmentEnd = until;
+                }
+            }
+            if (segment != null) {
+                sink.accept(resource, segment, overlapSlot(segment.get(0), segmentStart, segmentEnd));
+            }
         }
-        
-        return new ArrayList<>(uniqueMap.values());
-    }
 
-    private ScheduleEntry.TimeSlot createRepresentativeTimeSlot(String slotKey, List<ScheduleEntryWithTimeSlot> entries) {
-        // Parse SlotKey: "Tuần 1-Thứ 5-1-1-2"
-        // parts[0]="Tuần", parts[1]="1", parts[2]="Thứ", parts[3]="5", parts[4]="1", parts[5]="1", parts[6]="2"
-        String[] parts = slotKey.split("-");
-        
-        if (parts.length >= 7) {
-            String date = parts[0] + " " + parts[1]; // "Tuần 1"
-            String dayOfWeek = parts[2] + " " + parts[3]; // "Thứ 5"
-            String shift = parts[4];
-            String startPeriod = parts[5]; 
-            String numberOfPeriods = parts[6];
-            
+        /**
+         * Slot không mã hóa được: chỉ so khớp đúng chuỗi slot như trước
+         */
+        private void exactMatch(long[] keys, int from, int to, String resource, ConflictSink sink) {
+            List<Integer> positions = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                positions.add(i);
+            }
+            List<Integer> unique = removeDuplicateSlots(keys, positions);
+            if (unique.size() > 1) {
+                sink.accept(resource, unique, timeSlot(unique.get(0)));
+            }
+        }
+
+        /**
+         * Bỏ các slot trùng môn + phòng + giảng viên (giữ vị trí lần gặp đầu, slot của lần gặp cuối)
+         */
+        private List<Integer> removeDuplicateSlots(long[] keys, List<Integer> positions) {
+            Map<String, Integer> uniqueMap = new LinkedHashMap<>();
+            for (int i : positions) {
+                int slotRef = (int) (keys[i] & ((1L << SLOT_REF_BITS) - 1));
+                ScheduleEntry entry = entry(slotRef);
+                String key = entry.getSubjectCode() + "-" + entry.getRoom() + "-" + entry.getTeacherId();
+                uniqueMap.put(key, slotRef);
+            }
+            return new ArrayList<>(uniqueMap.values());
+        }
+
+        /**
+         * Time slot của đoạn bị chồng, lấy tuần / thứ / kíp từ slot của lớp đầu tiên
+         */
+        private ScheduleEntry.TimeSlot overlapSlot(int slotRef, int startPeriod, int endPeriod) {
+            ScheduleEntry.TimeSlot source = timeSlot(slotRef);
+            int code = TimeSlotCode.of(source);
             return ScheduleEntry.TimeSlot.builder()
-                    .date(date)
-                    .dayOfWeek(dayOfWeek)
-                    .shift(shift)
-                    .startPeriod(startPeriod)
-                    .numberOfPeriods(numberOfPeriods)
+                    .date(source.getDate())
+                    .dayOfWeek(source.getDayOfWeek())
+                    .shift(source.getShift())
+                    .startPeriod(String.valueOf(startPeriod))
+                    .numberOfPeriods(String.valueOf(endPeriod - startPeriod))
+                    .code(TimeSlotCode.encode(TimeSlotCode.week(code), TimeSlotCode.dayOfWeek(code),
+                            TimeSlotCode.shift(code), startPeriod, endPeriod - startPeriod))
                     .build();
         }
-        
-        // Fallback: lấy từ entry đầu tiên
-        return entries.get(0).timeSlot;
+
+        private int codeOf(ScheduleEntry.TimeSlot timeSlot) {
+            int code = TimeSlotCode.of(timeSlot);
+            if (code != TimeSlotCode.NONE) {
+                return code;
+            }
+            // Slot không parse được: so khớp theo chuỗi như trước, dùng vùng code phía trên TimeSlotCode
+            return fallbackCodes.computeIfAbsent(timeSlot.getSlotKey(),
+                    k -> (1 << TimeSlotCode.BITS) + fallbackCodes.size());
+        }
+
+        private ScheduleEntry entry(int slotRef) {
+            return entries.get(slotRefs[slotRef] >>> SLOT_POS_BITS);
+        }
+
+        private ScheduleEntry.TimeSlot timeSlot(int slotRef) {
+            return entry(slotRef).getTimeSlots().get(slotRefs[slotRef] & ((1 << SLOT_POS_BITS) - 1));
+        }
+
+        private List<ScheduleEntry> schedules(List<Integer> slotRefs) {
+            List<ScheduleEntry> schedules = new ArrayList<>(slotRefs.size());
+            slotRefs.forEach(slotRef -> schedules.add(entry(slotRef)));
+            return schedules;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConflictSink {
+        void accept(String resource, List<Integer> uniqueSlotRefs, ScheduleEntry.TimeSlot overlap);
+    }
+
+    @FunctionalInterface
+    private interface ConflictFactory<C> {
+        C create(String resource, List<Integer> uniqueSlotRefs, ScheduleEntry.TimeSlot overlap);
+    }
+
+    private static int resourceId(long key) {
+        return (int) (key >>> (CODE_BITS + SLOT_REF_BITS));
+    }
+
+    private static int code(long key) {
+        return (int) (key >>> SLOT_REF_BITS) & ((1 << CODE_BITS) - 1);
+    }
+
+    private static boolean isFallback(int code) {
+        return code >= 1 << TimeSlotCode.BITS;
+    }
+
+    /**
+     * Tài nguyên + tuần + thứ; slot không mã hóa được thì nhóm theo nguyên code
+     */
+    private static long groupKey(long key) {
+        long resourceAndCode = key >>> SLOT_REF_BITS;
+        return isFallback(code(key)) ? resourceAndCode : resourceAndCode & ~(long) TimeSlotCode.WITHIN_DAY_MASK;
+    }
+
+    private static int[] ensureCapacity(int[] array, int index) {
+        return index < array.length ? array : Arrays.copyOf(array, array.length * 2);
+    }
+
+    @Override
+    public Collector newCollector() {
+        return new ConflictCollector(true, true);
+    }
+
+    @Override
+    public ConflictResult detectConflicts(List<ScheduleEntry> scheduleEntries) {
+        Collector collector = newCollector();
+        scheduleEntries.forEach(collector::add);
+        return collector.finish();
+    }
+
+    @Override
+    public List<ConflictResult.RoomConflict> detectRoomConflicts(List<ScheduleEntry> scheduleEntries) {
+        ConflictCollector collector = new ConflictCollector(true, false);
+        scheduleEntries.forEach(collector::add);
+        return collector.roomConflicts();
+    }
+
+    @Override
+    public List<ConflictResult.TeacherConflict> detectTeacherConflicts(List<ScheduleEntry> scheduleEntries) {
+        ConflictCollector collector = new ConflictCollector(false, true);
+        scheduleEntries.forEach(collector::add);
+        return collector.teacherConflicts();
     }
 
     private boolean isOnlineClass(ScheduleEntry entry) {
@@ -202,7 +418,7 @@ public class ScheduleConflictDetectionServiceImpl implements ScheduleConflictDet
     }
 
     private List<ConflictResult.RoomConflict> groupRoomConflictsByPattern(List<ConflictResult.RoomConflict> conflicts) {
-        Map<String, List<ConflictResult.RoomConflict>> groupedMap = new HashMap<>();
+        Map<String, List<ConflictResult.RoomConflict>> groupedMap = new LinkedHashMap<>();
         
         for (ConflictResult.RoomConflict conflict : conflicts) {
             String key = conflict.getConflictKey();
@@ -244,7 +460,7 @@ public class ScheduleConflictDetectionServiceImpl implements ScheduleConflictDet
     }
 
     private List<ConflictResult.TeacherConflict> groupTeacherConflictsByPattern(List<ConflictResult.TeacherConflict> conflicts) {
-        Map<String, List<ConflictResult.TeacherConflict>> groupedMap = new HashMap<>();
+        Map<String, List<ConflictResult.TeacherConflict>> groupedMap = new LinkedHashMap<>();
         
         for (ConflictResult.TeacherConflict conflict : conflicts) {
             String key = conflict.getConflictKey();
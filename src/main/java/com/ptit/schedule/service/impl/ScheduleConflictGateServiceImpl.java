@@ -0,0 +1,203 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.entity.Room;
+import com.ptit.schedule.entity.Schedule;
+import com.ptit.schedule.exception.InvalidDataException;
+import com.ptit.schedule.exception.ScheduleConflictException;
+import com.ptit.schedule.repository.TKBTemplateRepository;
+import com.ptit.schedule.service.ScheduleConflictGateService;
+import com.ptit.schedule.service.ScheduleIndexLoader;
+import com.ptit.schedule.utils.ConflictIndex;
+import com.ptit.schedule.utils.WeekMask;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Chặn lưu TKB trùng phòng: mỗi học kỳ có một {@link ConflictIndex} dựng từ các schedule đã lưu
+ * (cache theo working-set.ttl-ms). Batch mới được kiểm tra trên index trong bộ nhớ, chỉ tốn
+ * một query lấy slot của các template trong batch.
+ *
+ * Các dòng đang lưu được giữ chỗ trong index bằng id tạm, nên hai request lưu đồng thời
+ * trên cùng instance cũng thấy nhau; sau khi lưu xong id tạm được thay bằng id thật.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScheduleConflictGateServiceImpl implements ScheduleConflictGateService {
+
+    private static final int MAX_CONFLICTS_IN_MESSAGE = 5;
+
+    private final ScheduleIndexLoader scheduleIndexLoader;
+    private final TKBTemplateRepository tkbTemplateRepository;
+
+    @Value("${schedule-save.conflict-check:reject}")
+    private String conflictCheck; // reject | warn | off
+
+    @Value("${working-set.ttl-ms:300000}")
+    private long workingSetTtlMs;
+
+    private final Map<Long, CachedIndex> indexes = new ConcurrentHashMap<>();
+    private final AtomicLong pendingSequence = new AtomicLong();
+
+    private record CachedIndex(ConflictIndex index, long loadedAt) {
+    }
+
+    /**
+     * Dòng trong batch: schedule + id tạm trong index
+     */
+    private record Pending(Schedule schedule, ConflictIndex.Entry entry) {
+    }
+
+    @Override
+    public List<ConflictIndex.Conflict> saveChecked(List<Schedule> schedules, Consumer<List<Schedule>> saver) {
+        if ("off".equalsIgnoreCase(conflictCheck)) {
+            saver.accept(schedules);
+            return new ArrayList<>();
+        }
+
+        long start = System.nanoTime();
+        Map<Long, List<Pending>> bySemester = toPending(schedules);
+
+        // Giữ chỗ: kiểm tra từng dòng với index (đã lưu + các dòng trước trong batch)
+        List<ConflictIndex.Conflict> conflicts = new ArrayList<>();
+        for (Map.Entry<Long, List<Pending>> group : bySemester.entrySet()) {
+            ConflictIndex index = index(group.getKey());
+            synchronized (index) {
+                for (Pending pending : group.getValue()) {
+                    conflicts.addAll(index.add(pending.entry()));
+                }
+            }
+        }
+        log.debug("Conflict gate checked {} schedules in {}µs, {} conflicts",
+                schedules.size(), (System.nanoTime() - start) / 1000, conflicts.size());
+
+        boolean reject = !conflicts.isEmpty() && !"warn".equalsIgnoreCase(conflictCheck);
+        if (reject) {
+            release(bySemester, false);
+            throw new ScheduleConflictException(describe(conflicts), conflicts);
+        }
+
+        try {
+            saver.accept(schedules);
+        } catch (RuntimeException e) {
+            release(bySemester, false);
+            throw e;
+        }
+        release(bySemester, true);
+        return conflicts;
+    }
+
+    @Override
+    public void invalidate() {
+        indexes.clear();
+    }
+
+    private Map<Long, List<Pending>> toPending(List<Schedule> schedules) {
+        Set<Long> templateIds = new HashSet<>();
+        for (Schedule schedule : schedules) {
+            if (schedule.getTkbTemplate() != null) {
+                templateIds.add(schedule.getTkbTemplate().getId());
+            }
+        }
+
+        // [id, semesterId, dayOfWeek, startPeriod, periodLength, weekMask, weekSchedule]
+        Map<Long, Object[]> slots = new HashMap<>();
+        if (!templateIds.isEmpty()) {
+            for (Object[] row : tkbTemplateRepository.findSlotsByIdIn(templateIds)) {
+                slots.put((Long) row[0], row);
+            }
+        }
+
+        Map<Long, List<Pending>> bySemester = new LinkedHashMap<>();
+        for (Schedule schedule : schedules) {
+            Room room = schedule.getRoom();
+            if (room == null || schedule.getTkbTemplate() == null) {
+                continue; // Không có phòng thì không có gì để kiểm tra
+            }
+            Object[] slot = slots.get(schedule.getTkbTemplate().getId());
+            if (slot == null) {
+                throw new InvalidDataException("Không tìm thấy template với ID: " + schedule.getTkbTemplate().getId());
+            }
+            Integer weekMask = (Integer) slot[5];
+            ConflictIndex.Entry entry = new ConflictIndex.Entry(
+                    "pending-" + pendingSequence.incrementAndGet(),
+                    ScheduleIndexLoader.roomKey(room.getName(), room.getBuilding()),
+                    null,
+                    null, // Chỉ chặn trùng phòng
+                    slot[2] != null ? (Integer) slot[2] : -1,
+                    slot[3] != null ? (Integer) slot[3] : -1,
+                    slot[4] != null ? (Integer) slot[4] : -1,
+                    Math.max(weekMask != null ? weekMask : WeekMask.fromJson((String) slot[6]), 0));
+            bySemester.computeIfAbsent((Long) slot[1], k -> new ArrayList<>()).add(new Pending(schedule, entry));
+        }
+        return bySemester;
+    }
+
+    /**
+     * Bỏ các id tạm; nếu đã lưu thành công thì thêm lại bằng id thật của schedule.
+     * Index được nạp lại (hết TTL) trong lúc lưu có thể đã có id thật, nên dùng move thay vì add
+     * để không chèn trùng.
+     */
+    private void release(Map<Long, List<Pending>> bySemester, boolean saved) {
+        for (Map.Entry<Long, List<Pending>> group : bySemester.entrySet()) {
+            CachedIndex cached = indexes.get(group.getKey());
+            if (cached == null) continue; // Đã bị invalidate trong lúc lưu
+            ConflictIndex index = cached.index();
+            synchronized (index) {
+                for (Pending pending : group.getValue()) {
+                    index.remove(pending.entry().id());
+                    if (saved && pending.schedule().getId() != null) {
+                        ConflictIndex.Entry entry = pending.entry();
+                        index.move(new ConflictIndex.Entry(
+                                ScheduleIndexLoader.entryId(pending.schedule().getId()),
+                                entry.room(), null,
+                                ConflictIndex.studentGroupKey(pending.schedule().getMajor(),
+                                        pending.schedule().getStudentYear(), pending.schedule().getClassNumber()),
+                                entry.dayOfWeek(), entry.startPeriod(), entry.periods(), entry.weekMask()));
+                    }
+                }
+            }
+        }
+    }
+
+    private ConflictIndex index(Long semesterId) {
+        CachedIndex cached = indexes.get(semesterId);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < workingSetTtlMs) {
+            return cached.index();
+        }
+        // Dựng ngoài map; request khác dựng trùng lúc thì giữ bản đã có
+        CachedIndex loaded = new CachedIndex(scheduleIndexLoader.load(semesterId), System.currentTimeMillis());
+        CachedIndex current = indexes.compute(semesterId, (id, existing) ->
+                existing != null && existing != cached ? existing : loaded);
+        return current.index();
+    }
+
+    private static String describe(List<ConflictIndex.Conflict> conflicts) {
+        StringBuilder message = new StringBuilder("Có ").append(conflicts.size()).append(" lớp trùng phòng: ");
+        for (int i = 0; i < conflicts.size() && i < MAX_CONFLICTS_IN_MESSAGE; i++) {
+            ConflictIndex.Conflict conflict = conflicts.get(i);
+            if (i > 0) {
+                message.append("; ");
+            }
+            message.append("phòng ").append(conflict.resource())
+                    .append(" thứ ").append(conflict.dayOfWeek())
+                    .append(" tiết ").append(conflict.startPeriod())
+                    .append("-").append(conflict.startPeriod() + conflict.periods() - 1)
+                    .append(" tuần ").append(Integer.numberOfTrailingZeros(conflict.weekMask()) + 1);
+            if (WeekMask.count(conflict.weekMask()) > 1) {
+                message.append(" (+").append(WeekMask.count(conflict.weekMask()) - 1).append(" tuần)");
+            }
+        }
+        if (conflicts.size() > MAX_CONFLICTS_IN_MESSAGE) {
+            message.append("; ...");
+        }
+        return message.toString();
+    }
+}
@@ -3,17 +3,23 @@ package com.ptit.schedule.service.impl;
 import com.ptit.schedule.dto.ScheduleEntry;
 import com.ptit.schedule.exception.FileProcessingException;
 import com.ptit.schedule.exception.InvalidDataException;
+import com.ptit.schedule.service.ImportPipelineFactory;
 import com.ptit.schedule.service.ScheduleExcelReaderService;
+import com.ptit.schedule.utils.ImportPipeline;
+import com.ptit.schedule.utils.TimeSlotCode;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.ss.usermodel.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class ScheduleExcelReaderServiceImpl extends BaseExcelReaderService implements ScheduleExcelReaderService {
 
     // Basic info columns
@@ -37,65 +43,96 @@ public class ScheduleExcelReaderServiceImpl extends BaseExcelReaderService imple
 
     private static final int MIN_COLUMNS = 44;
     private static final int HEADER_ROWS = 3;         // Skip 3 header rows
+    private static final int PIPELINE_BATCH_SIZE = 200;
+    private static final String INVALID_FORMAT_MESSAGE =
+            "File không đúng định dạng thời khóa biểu. Vui lòng kiểm tra lại file Excel.";
+
+    private final ImportPipelineFactory importPipelineFactory;
 
     @Override
     public List<ScheduleEntry> readScheduleFromExcel(MultipartFile file) {
         List<ScheduleEntry> scheduleEntries = new ArrayList<>();
+        streamScheduleFromExcel(file, scheduleEntries::add);
+        return scheduleEntries;
+    }
 
-        try (Workbook workbook = openWorkbook(file)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            DataFormatter formatter = new DataFormatter();
-
-            log.info("Reading schedule from Excel. Total rows: {}", sheet.getLastRowNum());
-
-            // Read data rows (skip header rows)
-            for (int i = HEADER_ROWS; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-
-                if (isRowEmpty(row)) {
-                    continue;
-                }
-
-                try {
-                    ScheduleEntry entry = createScheduleEntryFromRow(row, formatter, i);
-
-                    if (entry != null && isValidEntry(entry)) {
-                        scheduleEntries.add(entry);
-                    }
-                } catch (Exception e) {
-                    log.warn("Error parsing row {}: {}", i + 1, e.getMessage());
-                }
+    @Override
+    public int streamScheduleFromExcel(MultipartFile file, Consumer<ScheduleEntry> consumer) {
+        AtomicBoolean headerChecked = new AtomicBoolean();
+
+        // reader (SAX) → validator workers → consumer theo thứ tự dòng
+        ImportPipeline<List<String>, ScheduleEntry> pipeline = importPipelineFactory.create(PIPELINE_BATCH_SIZE);
+        try {
+            int written = pipeline.run(
+                    sink -> streamFirstSheet(file, (rowNum, cells) -> {
+                        // Header được kiểm tra ngay trên dòng đầu tiên, không cần đọc file thêm lần nữa
+                        if (!headerChecked.getAndSet(true)) {
+                            checkHeaderRow(rowNum, cells);
+                        }
+                        // Skip header rows and empty rows
+                        if (rowNum >= HEADER_ROWS && !isRowEmpty(cells)) {
+                            sink.accept(rowNum, new ArrayList<>(cells));
+                        }
+                    }),
+                    (rowNum, cells) -> {
+                        ScheduleEntry entry = createScheduleEntryFromRow(cells, rowNum);
+                        return entry != null && isValidEntry(entry) ? entry : null;
+                    },
+                    batch -> batch.forEach(row -> consumer.accept(row.value())),
+                    (rowNum, e) -> log.warn("Error parsing row {}: {}", rowNum + 1, e.getMessage()));
+
+            if (!headerChecked.get()) {
+                throw new InvalidDataException(INVALID_FORMAT_MESSAGE);
             }
-
-            log.info("Successfully parsed {} schedule entries", scheduleEntries.size());
+            log.info("Successfully parsed {} schedule entries", written);
+            return written;
 
         } catch (IOException e) {
             log.error("Error reading schedule Excel file", e);
             throw new FileProcessingException("Lỗi đọc file thời khóa biểu: " + e.getMessage(), e);
         }
-
-        return scheduleEntries;
     }
 
     @Override
     public boolean validateScheduleExcelFormat(MultipartFile file) {
-        try (Workbook workbook = openWorkbook(file)) {
-            Sheet sheet = workbook.getSheetAt(0);
-            Row headerRow = sheet.getRow(0);
+        try {
+            // Chỉ cần dòng header: dừng SAX ngay sau dòng đầu tiên
+            streamFirstSheet(file, (rowNum, cells) -> {
+                checkHeaderRow(rowNum, cells);
+                throw HeaderValid.INSTANCE;
+            });
+            // Sheet rỗng
+            return false;
 
-            validateColumnCount(headerRow, MIN_COLUMNS, "Thời khóa biểu");
+        } catch (HeaderValid valid) {
             return true;
-
         } catch (Exception e) {
             log.error("Invalid schedule Excel format", e);
             return false;
         }
     }
 
-    private ScheduleEntry createScheduleEntryFromRow(Row row, DataFormatter formatter, int rowIndex) {
-        String subjectCode = getCellValue(row, COL_SUBJECT_CODE, formatter);
-        String building = getCellValue(row, COL_BUILDING, formatter);
-        String room = getCellValue(row, COL_ROOM, formatter);
+    private void checkHeaderRow(int rowNum, List<String> cells) {
+        if (rowNum != 0 || cells.size() < MIN_COLUMNS) {
+            throw new InvalidDataException(INVALID_FORMAT_MESSAGE);
+        }
+    }
+
+    /**
+     * Dùng để dừng việc đọc sheet sau khi header hợp lệ
+     */
+    private static final class HeaderValid extends RuntimeException {
+        private static final HeaderValid INSTANCE = new HeaderValid();
+
+        private HeaderValid() {
+            super(null, null, false, false);
+        }
+    }
+
+    private ScheduleEntry createScheduleEntryFromRow(List<String> row, int rowIndex) {
+        String subjectCode = getCellValue(row, COL_SUBJECT_CODE);
+        String building = getCellValue(row, COL_BUILDING);
+        String room = getCellValue(row, COL_ROOM);
 
         // Skip online/LMS entries
         if (isOnlineEntry(building, room)) {
@@ -106,7 +143,7 @@ public class ScheduleExcelReaderServiceImpl extends BaseExcelReaderService imple
         String fullRoom = building.isEmpty() ? room : room + " - " + building;
 
         // Parse time slots from week columns
-        List<ScheduleEntry.TimeSlot> timeSlots = parseTimeSlots(row, formatter);
+        List<ScheduleEntry.TimeSlot> timeSlots = parseTimeSlots(row);
 
         if (timeSlots.isEmpty()) {
             log.debug("No time slots found for subject {} at row {}", subjectCode, rowIndex + 1);
@@ -115,30 +152,31 @@ public class ScheduleExcelReaderServiceImpl extends BaseExcelReaderService imple
 
         return ScheduleEntry.builder()
                 .subjectCode(subjectCode)
-                .subjectName(getCellValue(row, COL_SUBJECT_NAME, formatter))
-                .classGroup(getCellValue(row, COL_CLASS_GROUP, formatter))
+                .subjectName(getCellValue(row, COL_SUBJECT_NAME))
+                .classGroup(getCellValue(row, COL_CLASS_GROUP))
                 .room(fullRoom)
                 .building(building)
-                .teacherId(getCellValue(row, COL_TEACHER_ID, formatter))
-                .teacherName(getCellValue(row, COL_TEACHER_NAME, formatter))
-                .studentCount(parseIntSafe(getCellValue(row, COL_STUDENT_COUNT, formatter)))
+                .teacherId(getCellValue(row, COL_TEACHER_ID))
+                .teacherName(getCellValue(row, COL_TEACHER_NAME))
+                .studentCount(parseIntSafe(getCellValue(row, COL_STUDENT_COUNT)))
                 .timeSlots(timeSlots)
                 .build();
     }
 
-    private List<ScheduleEntry.TimeSlot> parseTimeSlots(Row row, DataFormatter formatter) {
+    private List<ScheduleEntry.TimeSlot> parseTimeSlots(List<String> row) {
         List<ScheduleEntry.TimeSlot> timeSlots = new ArrayList<>();
 
         // Get common time info (same for all weeks)
-        String dayOfWeek = convertDayOfWeek(getCellValue(row, COL_DAY_OF_WEEK, formatter));
-        String shift = getCellValue(row, COL_SHIFT, formatter);
-        String startPeriod = getCellValue(row, COL_START_PERIOD, formatter);
-        String numberOfPeriods = getCellValue(row, COL_NUMBER_OF_PERIODS, formatter);
+        String rawDayOfWeek = getCellValue(row, COL_DAY_OF_WEEK);
+        String dayOfWeek = convertDayOfWeek(rawDayOfWeek);
+        String shift = getCellValue(row, COL_SHIFT);
+        String startPeriod = getCellValue(row, COL_START_PERIOD);
+        String numberOfPeriods = getCellValue(row, COL_NUMBER_OF_PERIODS);
 
         // Check each week column for 'x' marker
         for (int weekNum = 1; weekNum <= TOTAL_WEEKS; weekNum++) {
             int colIndex = COL_WEEK_START + (weekNum - 1);
-            String cellValue = getCellValue(row, colIndex, formatter).toLowerCase();
+            String cellValue = getCellValue(row, colIndex).toLowerCase();
 
             if (cellValue.contains("x")) {
                 ScheduleEntry.TimeSlot timeSlot = ScheduleEntry.TimeSlot.builder()
@@ -147,6 +185,7 @@ public class ScheduleExcelReaderServiceImpl extends BaseExcelReaderService imple
                         .shift(shift)
                         .startPeriod(startPeriod)
                         .numberOfPeriods(numberOfPeriods)
+                        .code(TimeSlotCode.encode(weekNum, rawDayOfWeek, shift, startPeriod, numberOfPeriods))
                         .build();
                 timeSlots.add(timeSlot);
             }
@@ -0,0 +1,236 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.dto.TKBBatchItemResponse;
+import com.ptit.schedule.dto.TKBBatchResponse;
+import com.ptit.schedule.dto.TKBRowResult;
+import com.ptit.schedule.entity.Semester;
+import com.ptit.schedule.exception.ResourceNotFoundException;
+import com.ptit.schedule.repository.ScheduleRepository;
+import com.ptit.schedule.repository.SemesterRepository;
+import com.ptit.schedule.service.ScheduleExportService;
+import com.ptit.schedule.utils.WeekMask;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Export thời khóa biểu bằng SXSSF: chỉ một cửa sổ dòng nằm trong bộ nhớ, phần còn lại được flush
+ * xuống file tạm; schedule đã lưu được đọc từ DB theo từng trang (keyset theo id).
+ *
+ * Layout giống file mà {@link ScheduleExcelReaderServiceImpl} đọc: 3 dòng header,
+ * B mã môn, C tên môn, D nhóm, G thứ, H kíp, I tiết BĐ, J số tiết, K phòng, L nhà, T sĩ số,
+ * V/W giảng viên, AB-AR tuần 1-17 (tuần 18 ở AS).
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScheduleExportServiceImpl implements ScheduleExportService {
+
+    private static final int COL_INDEX = 0;           // A - STT
+    private static final int COL_SUBJECT_CODE = 1;    // B - Mã môn học
+    private static final int COL_SUBJECT_NAME = 2;    // C - Tên môn học
+    private static final int COL_CLASS_GROUP = 3;     // D - Nhóm/Lớp
+    private static final int COL_MAJOR = 4;           // E - Ngành
+    private static final int COL_STUDENT_YEAR = 5;    // F - Khóa
+    private static final int COL_DAY_OF_WEEK = 6;     // G - Thứ
+    private static final int COL_SHIFT = 7;           // H - Kíp
+    private static final int COL_START_PERIOD = 8;    // I - Tiết bắt đầu
+    private static final int COL_NUMBER_OF_PERIODS = 9; // J - Số tiết
+    private static final int COL_ROOM = 10;           // K - Phòng
+    private static final int COL_BUILDING = 11;       // L - Tòa nhà
+    private static final int COL_STUDENT_COUNT = 19;  // T - Số SV
+    private static final int COL_TEACHER_ID = 21;     // V - Mã GV
+    private static final int COL_TEACHER_NAME = 22;   // W - Tên GV
+    private static final int COL_WEEK_START = 27;     // AB - Tuần 1
+
+    private static final int HEADER_ROWS = 3;
+    private static final int ROW_WINDOW = 200;        // Số dòng SXSSF giữ trong bộ nhớ
+
+    private final ScheduleRepository scheduleRepository;
+    private final SemesterRepository semesterRepository;
+
+    @Value("${schedule-export.chunk-size:1000}")
+    private int chunkSize;
+
+    @Override
+    public void exportSemesterSchedules(String semesterName, String academicYear, OutputStream out) throws IOException {
+        Semester semester = semesterRepository.findBySemesterNameAndAcademicYear(semesterName, academicYear)
+                .orElseThrow(() -> new ResourceNotFoundException("học kỳ", "tên", semesterName + " - " + academicYear));
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            SheetWriter writer = new SheetWriter(workbook, semesterName + " - " + academicYear);
+            long afterId = 0L;
+            while (true) {
+                List<Object[]> chunk = scheduleRepository.findExportRowsBySemesterId(
+                        semester.getId(), afterId, PageRequest.of(0, chunkSize));
+                for (Object[] c : chunk) {
+                    Integer weekMask = (Integer) c[13];
+                    writer.writeRow(
+                            (String) c[1], (String) c[2], (Integer) c[3], (String) c[4], (String) c[5],
+                            (Integer) c[6], (Integer) c[7], (Integer) c[8], (Integer) c[9],
+                            (String) c[10], (String) c[11], (Integer) c[12],
+                            weekMask != null ? weekMask : WeekMask.fromJson((String) c[14]));
+                }
+                if (chunk.size() < chunkSize) {
+                    break;
+                }
+                afterId = (Long) chunk.get(chunk.size() - 1)[0];
+            }
+            workbook.write(out);
+            log.info("📤 Exported {} schedules for {} {}", writer.count, semesterName, academicYear);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    @Override
+    public void exportBatch(TKBBatchResponse batch, OutputStream out) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            SheetWriter writer = new SheetWriter(workbook, "Kết quả xếp lịch");
+            if (batch.getItems() != null) {
+                for (TKBBatchItemResponse item : batch.getItems()) {
+                    if (item.getRows() == null) {
+                        continue;
+                    }
+                    for (TKBRowResult row : item.getRows()) {
+                        // phong dạng "102-A2"
+                        String room = row.getPhong();
+                        String building = null;
+                        int dash = room != null ? room.lastIndexOf('-') : -1;
+                        if (dash > 0) {
+                            building = room.substring(dash + 1);
+                            room = room.substring(0, dash);
+                        }
+                        writer.writeRow(row.getMaMon(), row.getTenMon(), row.getLop(), row.getNganh(),
+                                row.getStudentYear(), row.getThu(), row.getKip(), row.getTietBd(), row.getL(),
+                                room, building, row.getSiSoMotLop(), weekMask(row.getO_to_AG()));
+                    }
+                }
+            }
+            workbook.write(out);
+            log.info("📤 Exported {} generated rows", writer.count);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private static int weekMask(List<String> weeks) {
+        int mask = 0;
+        if (weeks != null) {
+            for (int i = 0; i < weeks.size() && i < WeekMask.WEEKS; i++) {
+                String week = weeks.get(i);
+                if (week != null && !week.isBlank()) {
+                    mask |= 1 << i;
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Ghi header + từng dòng lịch vào sheet SXSSF
+     */
+    private static final class SheetWriter {
+
+        private final Sheet sheet;
+        private int nextRow = HEADER_ROWS;
+        private int count;
+
+        private SheetWriter(SXSSFWorkbook workbook, String title) {
+            this.sheet = workbook.createSheet("TKB");
+
+            Font bold = workbook.createFont();
+            bold.setBold(true);
+            CellStyle headerStyle = workbook.createCellStyle();
+            headerStyle.setFont(bold);
+
+            // Dòng 1: tên cột (đủ tới cột tuần cuối để qua validateScheduleExcelFormat)
+            Row header = sheet.createRow(0);
+            header(header, COL_INDEX, "STT", headerStyle);
+            header(header, COL_SUBJECT_CODE, "Mã môn", headerStyle);
+            header(header, COL_SUBJECT_NAME, "Tên môn", headerStyle);
+            header(header, COL_CLASS_GROUP, "Nhóm", headerStyle);
+            header(header, COL_MAJOR, "Ngành", headerStyle);
+            header(header, COL_STUDENT_YEAR, "Khóa", headerStyle);
+            header(header, COL_DAY_OF_WEEK, "Thứ", headerStyle);
+            header(header, COL_SHIFT, "Kíp", headerStyle);
+            header(header, COL_START_PERIOD, "Tiết BĐ", headerStyle);
+            header(header, COL_NUMBER_OF_PERIODS, "Số tiết", headerStyle);
+            header(header, COL_ROOM, "Phòng", headerStyle);
+            header(header, COL_BUILDING, "Nhà", headerStyle);
+            header(header, COL_STUDENT_COUNT, "Sĩ số", headerStyle);
+            header(header, COL_TEACHER_ID, "Mã GV", headerStyle);
+            header(header, COL_TEACHER_NAME, "Tên GV", headerStyle);
+            for (int week = 1; week <= WeekMask.WEEKS; week++) {
+                header(header, COL_WEEK_START + week - 1, "Tuần " + week, headerStyle);
+            }
+
+            // Dòng 2: học kỳ, dòng 3 để trống (reader bỏ qua 3 dòng đầu)
+            header(sheet.createRow(1), COL_INDEX, title, headerStyle);
+            sheet.createRow(2);
+        }
+
+        void writeRow(String subjectCode, String subjectName, Integer classGroup, String major, String studentYear,
+                      Integer dayOfWeek, Integer kip, Integer startPeriod, Integer periods,
+                      String room, String building, Integer studentCount, int weekMask) {
+            Row row = sheet.createRow(nextRow++);
+            count++;
+            row.createCell(COL_INDEX).setCellValue(count);
+            text(row, COL_SUBJECT_CODE, subjectCode);
+            text(row, COL_SUBJECT_NAME, subjectName);
+            number(row, COL_CLASS_GROUP, classGroup);
+            text(row, COL_MAJOR, major);
+            text(row, COL_STUDENT_YEAR, studentYear);
+            number(row, COL_DAY_OF_WEEK, dayOfWeek);
+            number(row, COL_SHIFT, kip);
+            number(row, COL_START_PERIOD, startPeriod);
+            number(row, COL_NUMBER_OF_PERIODS, periods);
+            text(row, COL_ROOM, room);
+            text(row, COL_BUILDING, building);
+            number(row, COL_STUDENT_COUNT, studentCount);
+            if (weekMask > 0) {
+                for (int week = 0; week < WeekMask.WEEKS; week++) {
+                    if ((weekMask & (1 << week)) != 0) {
+                        row.createCell(COL_WEEK_START + week).setCellValue("x");
+                    }
+                }
+            }
+        }
+
+        private static void header(Row row, int col, String value, CellStyle style) {
+            Cell cell = row.createCell(col);
+            cell.setCellValue(value);
+            cell.setCellStyle(style);
+        }
+
+        private static void text(Row row, int col, String value) {
+            if (value != null && !value.isEmpty()) {
+                row.createCell(col).setCellValue(value);
+            }
+        }
+
+        private static void number(Row row, int col, Integer value) {
+            if (value != null) {
+                row.createCell(col).setCellValue(value);
+            }
+        }
+    }
+}
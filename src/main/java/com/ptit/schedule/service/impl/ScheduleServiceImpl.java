@@ -9,6 +9,7 @@ import com.ptit.schedule.repository.ScheduleRepository;
 import com.ptit.schedule.repository.SemesterRepository;
 import com.ptit.schedule.repository.SubjectRepository;
 import com.ptit.schedule.service.*;
+import com.ptit.schedule.utils.OccupancySet;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -28,7 +29,7 @@ public class ScheduleServiceImpl implements ScheduleService {
     private final SemesterRepository semesterRepository;
     private final SubjectRepository subjectRepository;
 
-    private Set<String> sessionOccupiedRooms = new HashSet<>();
+    private final OccupancySet sessionOccupiedRooms = new OccupancySet();
 
     private static final List<TimetableSlot> ROTATING_SLOTS = Arrays.asList(
             new TimetableSlot(2, "sang"), new TimetableSlot(3, "chieu"),
@@ -95,6 +96,11 @@ public class ScheduleServiceImpl implements ScheduleService {
         scheduleRepository.deleteAll();
     }
 
+    @Override
+    public List<Long> getAllScheduleIds() {
+        return scheduleRepository.findAllIds();
+    }
+
     // ==================== TIMETABLE GENERATION OPERATIONS ====================
 
     /**
@@ -158,7 +164,7 @@ public class ScheduleServiceImpl implements ScheduleService {
 
         System.out.println("✅ [ScheduleService] Loaded " + dataRows.size() + " templates for " + semesterKey);
 
-        Set<Object> occupiedRooms = initializeOccupiedRooms(userId, academicYear, semester);
+        OccupancySet occupiedRooms = initializeOccupiedRooms(userId, academicYear, semester);
 
         List<TKBBatchItemResponse> itemsOut = new ArrayList<>();
         int totalRows = 0;
@@ -198,11 +204,9 @@ public class ScheduleServiceImpl implements ScheduleService {
      */
     @Override
     public void commitSessionToRedis(Long userId, String academicYear, String semester) {
-        // Save occupied rooms to file
+        // Queue occupied rooms for write-behind persistence
         if (!sessionOccupiedRooms.isEmpty()) {
-            Set<Object> globalOccupied = dataLoaderService.loadGlobalOccupiedRooms();
-            globalOccupied.addAll(sessionOccupiedRooms);
-            dataLoaderService.saveGlobalOccupiedRooms(globalOccupied);
+            dataLoaderService.addGlobalOccupiedRooms(sessionOccupiedRooms);
             sessionOccupiedRooms.clear();
         }
 
@@ -223,8 +227,7 @@ public class ScheduleServiceImpl implements ScheduleService {
     public void resetOccupiedRooms() {
         sessionOccupiedRooms.clear();
 
-        Set<Object> emptySet = new HashSet<>();
-        dataLoaderService.saveGlobalOccupiedRooms(emptySet);
+        dataLoaderService.clearGlobalOccupiedRooms();
 
         lastSlotIdx = -1;
         sessionLastSlotIdx = -1;
@@ -241,7 +244,7 @@ public class ScheduleServiceImpl implements ScheduleService {
 
     @Override
     public Map<String, Integer> getOccupiedRoomsInfo() {
-        Set<Object> globalRooms = dataLoaderService.loadGlobalOccupiedRooms();
+        OccupancySet globalRooms = dataLoaderService.loadGlobalOccupiedRooms();
 
         Map<String, Integer> info = new HashMap<>();
         info.put("session", sessionOccupiedRooms.size());
@@ -253,12 +256,11 @@ public class ScheduleServiceImpl implements ScheduleService {
 
     // ==================== PRIVATE HELPER METHODS ====================
 
-    private Set<Object> initializeOccupiedRooms(Long userId, String academicYear, String semester) {
+    private OccupancySet initializeOccupiedRooms(Long userId, String academicYear, String semester) {
         sessionOccupiedRooms.clear();
         subjectRoomMappingService.clearMappings();
 
-        Set<Object> globalOccupiedRooms = dataLoaderService.loadGlobalOccupiedRooms();
-        return new HashSet<>(globalOccupiedRooms);
+        return dataLoaderService.loadGlobalOccupiedRooms();
     }
 
     private List<TKBRequest> sortSubjectsByPeriods(List<TKBRequest> items) {
@@ -422,7 +424,7 @@ public class ScheduleServiceImpl implements ScheduleService {
 
     private TKBBatchItemResponse processSubject(TKBRequest tkbRequest,
             List<DataLoaderService.TKBTemplateRow> dataRows,
-            Set<Object> occupiedRooms) {
+            OccupancySet occupiedRooms) {
 
         int targetTotal = tkbRequest.getSotiet();
 
@@ -461,14 +463,7 @@ public class ScheduleServiceImpl implements ScheduleService {
 
     private int calculateAH(DataLoaderService.TKBTemplateRow row) {
         int L = row.getPeriodLength();
-        List<Integer> weekSchedule = row.getWeekSchedule();
-        int xCount = 0;
-        for (Integer week : weekSchedule) {
-            if (week != null && week == 1) {
-                xCount++;
-            }
-        }
-        return L * xCount;
+        return L * Integer.bitCount(row.getWeekMask());
     }
 
     private List<String> normalizeSlots(DataLoaderService.TKBTemplateRow row) {
@@ -591,7 +586,7 @@ public class ScheduleServiceImpl implements ScheduleService {
     private List<TKBRowResult> processRegularSubject(
             TKBRequest tkbRequest,
             List<DataLoaderService.TKBTemplateRow> pool,
-            Set<Object> occupiedRooms,
+            OccupancySet occupiedRooms,
             int startingSlotIdx,
             int classes,
             int targetTotal) {
@@ -663,7 +658,7 @@ public class ScheduleServiceImpl implements ScheduleService {
     private List<TKBRowResult> process60PeriodSubject(
             TKBRequest tkbRequest,
             List<DataLoaderService.TKBTemplateRow> pool,
-            Set<Object> occupiedRooms,
+            OccupancySet occupiedRooms,
             int startingSlotIdx) {
 
         List<TKBRowResult> resultRows = new ArrayList<>();
@@ -6,7 +6,14 @@ import com.ptit.schedule.entity.Semester;
 import com.ptit.schedule.repository.RoomOccupancyRepository;
 import com.ptit.schedule.repository.SemesterRepository;
 import com.ptit.schedule.repository.TKBTemplateRepository;
+import com.ptit.schedule.service.LiveConflictIndexService;
+import com.ptit.schedule.service.OccupancyLogService;
+import com.ptit.schedule.service.ScheduleConflictGateService;
+import com.ptit.schedule.service.SemesterFenceService;
+import com.ptit.schedule.service.SemesterLockService;
+import com.ptit.schedule.service.OccupancyStore;
 import com.ptit.schedule.service.SemesterService;
+import com.ptit.schedule.utils.AfterCommit;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,6 +29,12 @@ public class SemesterServiceImpl implements SemesterService {
     private final SemesterRepository semesterRepository;
     private final RoomOccupancyRepository roomOccupancyRepository;
     private final TKBTemplateRepository tkbTemplateRepository;
+    private final OccupancyStore occupancyStore;
+    private final OccupancyLogService occupancyLogService;
+    private final SemesterLockService semesterLockService;
+    private final SemesterFenceService semesterFenceService;
+    private final LiveConflictIndexService liveConflictIndexService;
+    private final ScheduleConflictGateService scheduleConflictGateService;
     
     @Override
     @Transactional(readOnly = true)
@@ -126,15 +139,26 @@ public class SemesterServiceImpl implements SemesterService {
         Semester semester = semesterRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Không tìm thấy học kỳ với ID: " + id));
         
-        // Xóa tkb_templates trước
-        tkbTemplateRepository.deleteBySemester(semester);
-        
-        // Xóa room_occupancies
-        roomOccupancyRepository.deleteBySemesterId(id);
-        roomOccupancyRepository.flush();
-        
-        // Xóa semester
-        semesterRepository.deleteById(id);
+        semesterLockService.runWithLock(id, token -> {
+            // Fencing: các ghi occupancy cũ hơn (kể cả write-behind chưa flush) sẽ bị bỏ
+            semesterFenceService.checkReplace(id, token);
+
+            // Xóa tkb_templates trước
+            tkbTemplateRepository.deleteBySemester(semester);
+
+            // Xóa room_occupancies
+            roomOccupancyRepository.deleteBySemesterId(id);
+            roomOccupancyRepository.flush();
+            occupancyLogService.appendClear(id, OccupancyLogService.currentActor());
+            occupancyStore.clear(id);
+
+            // Xóa semester
+            semesterRepository.deleteById(id);
+        });
+        AfterCommit.run(() -> {
+            scheduleConflictGateService.invalidate();
+            liveConflictIndexService.reset(id);
+        });
     }
     
     @Override
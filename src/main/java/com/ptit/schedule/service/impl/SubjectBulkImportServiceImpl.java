@@ -0,0 +1,264 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.dto.ExcelImportResult;
+import com.ptit.schedule.dto.SubjectRequest;
+import com.ptit.schedule.entity.Faculty;
+import com.ptit.schedule.entity.Major;
+import com.ptit.schedule.entity.Semester;
+import com.ptit.schedule.entity.Subject;
+import com.ptit.schedule.exception.InvalidDataException;
+import com.ptit.schedule.exception.ResourceNotFoundException;
+import com.ptit.schedule.repository.FacultyRepository;
+import com.ptit.schedule.repository.MajorRepository;
+import com.ptit.schedule.repository.SemesterRepository;
+import com.ptit.schedule.repository.SubjectRepository;
+import com.ptit.schedule.service.ExcelReaderService;
+import com.ptit.schedule.service.SubjectBulkImportService;
+import com.ptit.schedule.service.SubjectService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.*;
+
+/**
+ * Import môn học theo lô: nạp sẵn semester / majors / faculties một lần, đối chiếu môn đã tồn tại
+ * bằng một query cho mỗi lô, rồi UPDATE (Hibernate batch) + INSERT (JDBC batch) trong transaction của lô.
+ * Thay cho 4-6 query mỗi dòng của createSubject.
+ *
+ * Lô bị lỗi khi ghi được rollback và lưu lại từng môn qua createSubject để báo lỗi đúng môn như trước.
+ */
+@Service
+@RequiredArgsConstructor
+@Log4j2
+public class SubjectBulkImportServiceImpl implements SubjectBulkImportService {
+
+    private static final String INSERT_SUBJECT_SQL = "INSERT INTO subjects (subject_code, subject_name, "
+            + "students_per_class, number_of_classes, credits, theory_hours, exercise_hours, project_hours, "
+            + "lab_hours, self_study_hours, department, exam_format, program_type, major_id, semester_id, is_common) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final ExcelReaderService excelReaderService;
+    private final SubjectService subjectService;
+    private final SubjectRepository subjectRepository;
+    private final MajorRepository majorRepository;
+    private final FacultyRepository facultyRepository;
+    private final SemesterRepository semesterRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${subject-import.chunk-size:500}")
+    private int chunkSize;
+
+    @Override
+    public ExcelImportResult importSubjects(MultipartFile file, String semesterName, String academicYear) {
+        ImportContext ctx = new ImportContext(
+                semesterRepository.findBySemesterNameAndAcademicYear(semesterName, academicYear).orElse(null));
+        for (Major major : majorRepository.findAll()) {
+            ctx.majors.put(majorKey(major.getMajorCode(), major.getClassYear()), major);
+        }
+        for (Faculty faculty : facultyRepository.findAll()) {
+            ctx.faculties.put(faculty.getId(), faculty);
+        }
+
+        List<SubjectRequest> validSubjects = new ArrayList<>();
+        List<SubjectRequest> chunk = new ArrayList<>(chunkSize);
+        ExcelImportResult result = excelReaderService.streamSubjectsFromExcel(file, semesterName, academicYear,
+                subject -> {
+                    validSubjects.add(subject);
+                    chunk.add(subject);
+                    if (chunk.size() >= chunkSize) {
+                        processChunk(chunk, ctx);
+                        chunk.clear();
+                    }
+                });
+        if (!chunk.isEmpty()) {
+            processChunk(chunk, ctx);
+        }
+
+        result.setValidSubjects(validSubjects);
+        result.setSuccessCount(ctx.imported);
+        result.setFailedCount(ctx.errors.size());
+        ctx.errors.forEach(result::addWarning);
+        log.info("Bulk imported {} subjects for {} {} ({} failed)",
+                ctx.imported, semesterName, academicYear, ctx.errors.size());
+        return result;
+    }
+
+    private void processChunk(List<SubjectRequest> chunk, ImportContext ctx) {
+        List<String> chunkErrors = new ArrayList<>();
+        List<Major> createdMajors = new ArrayList<>();
+        try {
+            Integer saved = new TransactionTemplate(transactionManager)
+                    .execute(status -> upsertChunk(chunk, ctx, chunkErrors, createdMajors));
+            ctx.imported += saved != null ? saved : 0;
+            ctx.errors.addAll(chunkErrors);
+        } catch (RuntimeException e) {
+            // Major tạo trong lô đã bị rollback
+            createdMajors.forEach(m -> ctx.majors.remove(majorKey(m.getMajorCode(), m.getClassYear())));
+            log.warn("Chunk of {} subjects failed ({}), retrying row by row", chunk.size(), e.getMessage());
+            for (SubjectRequest request : chunk) {
+                try {
+                    subjectService.createSubject(request);
+                    ctx.imported++;
+                } catch (RuntimeException ex) {
+                    ctx.errors.add(saveError(request, ex));
+                }
+            }
+            reloadMajors(chunk, ctx);
+        }
+    }
+
+    /**
+     * createSubject tự tạo major còn thiếu: nạp lại các major của lô vào cache để lô sau
+     * không tạo trùng (majors không có unique key)
+     */
+    private void reloadMajors(List<SubjectRequest> chunk, ImportContext ctx) {
+        for (SubjectRequest request : chunk) {
+            String key = majorKey(request.getMajorId(), request.getClassYear());
+            if (!ctx.majors.containsKey(key)) {
+                majorRepository.findByMajorCodeAndClassYear(request.getMajorId(), request.getClassYear())
+                        .ifPresent(major -> ctx.majors.put(key, major));
+            }
+        }
+    }
+
+    private int upsertChunk(List<SubjectRequest> chunk, ImportContext ctx,
+                            List<String> chunkErrors, List<Major> createdMajors) {
+        if (ctx.semester == null) {
+            chunk.forEach(r -> chunkErrors.add(saveError(r,
+                    new RuntimeException("Không tìm thấy học kỳ với tên: " + r.getSemesterName()))));
+            return 0;
+        }
+
+        // Một query đối chiếu môn đã tồn tại cho cả lô
+        Set<String> codes = new HashSet<>();
+        chunk.forEach(r -> codes.add(r.getSubjectCode()));
+        Map<String, Subject> existing = new HashMap<>();
+        for (Subject s : subjectRepository.findBySemesterIdAndSubjectCodeIn(ctx.semester.getId(), codes)) {
+            existing.put(subjectKey(s.getSubjectCode(), s.getMajor().getMajorCode(), s.getMajor().getClassYear()), s);
+        }
+
+        List<Subject> updates = new ArrayList<>();
+        List<Object[]> inserts = new ArrayList<>();
+        for (SubjectRequest request : chunk) {
+            Major major;
+            try {
+                major = resolveMajor(request, ctx, createdMajors);
+            } catch (RuntimeException e) {
+                chunkErrors.add(saveError(request, e));
+                continue;
+            }
+
+            Subject subject = existing.get(subjectKey(request.getSubjectCode(), major.getMajorCode(), request.getClassYear()));
+            if (subject != null) {
+                applyRequest(subject, request, major);
+                updates.add(subject);
+            } else {
+                inserts.add(new Object[]{
+                        request.getSubjectCode().trim(),
+                        request.getSubjectName().trim(),
+                        request.getStudentsPerClass(),
+                        request.getNumberOfClasses(),
+                        request.getCredits(),
+                        request.getTheoryHours(),
+                        request.getExerciseHours(),
+                        request.getProjectHours(),
+                        request.getLabHours(),
+                        request.getSelfStudyHours(),
+                        request.getDepartment().trim(),
+                        request.getExamFormat().trim(),
+                        request.getProgramType().trim(),
+                        major.getId(),
+                        ctx.semester.getId(),
+                        request.getIsCommon()
+                });
+            }
+        }
+
+        subjectRepository.saveAll(updates);
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SUBJECT_SQL, inserts);
+        }
+        return updates.size() + inserts.size();
+    }
+
+    /**
+     * Giống getOrCreateMajor của SubjectServiceImpl nhưng tra cứu trên dữ liệu đã nạp sẵn
+     */
+    private Major resolveMajor(SubjectRequest request, ImportContext ctx, List<Major> createdMajors) {
+        Major major = ctx.majors.get(majorKey(request.getMajorId(), request.getClassYear()));
+        if (major != null) {
+            return major;
+        }
+
+        if (request.getMajorId() == null || request.getMajorId().trim().isEmpty()) {
+            throw new InvalidDataException("Mã ngành không được để trống");
+        }
+        if (request.getFacultyId() == null || request.getFacultyId().trim().isEmpty()) {
+            throw new InvalidDataException("Mã khoa không được để trống");
+        }
+        Faculty faculty = ctx.faculties.get(request.getFacultyId());
+        if (faculty == null) {
+            throw new ResourceNotFoundException("Không tìm thấy mã khoa: " + request.getFacultyId());
+        }
+
+        major = majorRepository.save(Major.builder()
+                .majorCode(request.getMajorId())
+                .majorName(request.getMajorName())
+                .numberOfStudents(request.getNumberOfStudents() != null ? request.getNumberOfStudents() : 50)
+                .classYear(request.getClassYear())
+                .faculty(faculty)
+                .build());
+        ctx.majors.put(majorKey(major.getMajorCode(), major.getClassYear()), major);
+        createdMajors.add(major);
+        return major;
+    }
+
+    private void applyRequest(Subject subject, SubjectRequest request, Major major) {
+        subject.setSubjectCode(request.getSubjectCode().trim());
+        subject.setSubjectName(request.getSubjectName().trim());
+        subject.setStudentsPerClass(request.getStudentsPerClass());
+        subject.setNumberOfClasses(request.getNumberOfClasses());
+        subject.setCredits(request.getCredits());
+        subject.setTheoryHours(request.getTheoryHours());
+        subject.setExerciseHours(request.getExerciseHours());
+        subject.setProjectHours(request.getProjectHours());
+        subject.setLabHours(request.getLabHours());
+        subject.setSelfStudyHours(request.getSelfStudyHours());
+        subject.setDepartment(request.getDepartment().trim());
+        subject.setExamFormat(request.getExamFormat().trim());
+        subject.setMajor(major);
+        subject.setProgramType(request.getProgramType().trim());
+        subject.setIsCommon(request.getIsCommon());
+    }
+
+    private static String saveError(SubjectRequest request, RuntimeException e) {
+        return "Lỗi khi lưu môn '" + request.getSubjectCode() + "': " + e.getMessage();
+    }
+
+    private static String majorKey(String majorCode, String classYear) {
+        return majorCode + '\u0001' + classYear;
+    }
+
+    private static String subjectKey(String subjectCode, String majorCode, String classYear) {
+        return subjectCode + '\u0001' + majorCode + '\u0001' + classYear;
+    }
+
+    private static final class ImportContext {
+        private final Semester semester;
+        private final Map<String, Major> majors = new HashMap<>();
+        private final Map<String, Faculty> faculties = new HashMap<>();
+        private final List<String> errors = new ArrayList<>();
+        private int imported;
+
+        private ImportContext(Semester semester) {
+            this.semester = semester;
+        }
+    }
+}
@@ -6,9 +6,12 @@ import com.ptit.schedule.entity.*;
 import com.ptit.schedule.exception.InvalidDataException;
 import com.ptit.schedule.exception.ResourceNotFoundException;
 import com.ptit.schedule.repository.*;
+import com.ptit.schedule.service.LiveConflictIndexService;
+import com.ptit.schedule.service.ScheduleConflictGateService;
 import com.ptit.schedule.service.ScheduleService;
 import com.ptit.schedule.service.SubjectService;
 import com.ptit.schedule.specification.SubjectSpecification;
+import com.ptit.schedule.utils.AfterCommit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.data.domain.Page;
@@ -34,6 +37,8 @@ public class SubjectServiceImpl implements SubjectService {
     private final SemesterRepository semesterRepository;
     private final ScheduleRepository scheduleRepository;
     private final ScheduleService scheduleService;
+    private final ScheduleConflictGateService scheduleConflictGateService;
+    private final LiveConflictIndexService liveConflictIndexService;
     
     /**
      * Lấy tất cả subjects
@@ -474,6 +479,11 @@ public class SubjectServiceImpl implements SubjectService {
             // Step 2: Reset Redis last_slot_index cho học kỳ này (pass null cho userId để reset toàn bộ)
             scheduleService.resetLastSlotIndexRedis(null, academicYear, semesterName);
             log.info("Đã reset Redis last_slot_index cho học kỳ {} năm {}", semesterName, academicYear);
+
+            AfterCommit.run(() -> {
+                scheduleConflictGateService.invalidate();
+                liveConflictIndexService.removeSaved(schedules.stream().map(Schedule::getId).toList());
+            });
         }
         
         // Step 3: Xóa subjects
@@ -0,0 +1,28 @@
+package com.ptit.schedule.utils;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Chạy một hành động sau khi transaction hiện tại commit (bỏ qua nếu rollback).
+ * Dùng để xóa cache: xóa trước commit thì request đồng thời có thể nạp lại dữ liệu cũ và giữ nó tới hết TTL.
+ * Không có transaction thì chạy ngay.
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,112 @@
+package com.ptit.schedule.utils;
+
+import java.util.*;
+
+/**
+ * Phát hiện trùng lịch của nhóm sinh viên (ngành + khóa + nhóm lớp) bằng bitset.
+ *
+ * Mỗi nhóm có một bitset chiếm chỗ tuần × thứ × tiết: 18 tuần × 7 thứ × 16 tiết = 2016 bit (32 long).
+ * Một thứ trong tuần là 16 bit liên tiếp nằm gọn trong một long, nên một lớp ở một tuần chỉ cần
+ * một phép AND (kiểm tra) và một phép OR (đánh dấu). Chỉ các nhóm có bit bị trùng mới được
+ * so từng cặp lớp để ra chi tiết xung đột.
+ *
+ * Không thread-safe, dùng một lần cho một lượt kiểm tra.
+ */
+public final class CohortOccupancy {
+
+    public static final int PERIODS_PER_DAY = 16;
+
+    private static final int DAYS = 7; // thứ 2 .. chủ nhật (8)
+    private static final int SLOTS_PER_WORD = Long.SIZE / PERIODS_PER_DAY;
+    private static final int WORDS = (WeekMask.WEEKS * DAYS + SLOTS_PER_WORD - 1) / SLOTS_PER_WORD;
+
+    /**
+     * Một lớp đã xếp và các nhóm sinh viên học lớp đó
+     */
+    public record Entry(String id, List<String> cohorts, int dayOfWeek, int startPeriod, int periods, int weekMask) {
+    }
+
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, long[]> occupancy = new HashMap<>();
+    private final Map<String, List<Entry>> members = new HashMap<>();
+    private final Set<String> clashed = new LinkedHashSet<>();
+    private int skipped;
+
+    /**
+     * Đánh dấu lớp vào bitset của từng nhóm. Lớp có thứ / tiết ngoài phạm vi bị bỏ qua.
+     */
+    public void add(Entry entry) {
+        int day = entry.dayOfWeek() - 2;
+        int start = entry.startPeriod() - 1;
+        if (day < 0 || day >= DAYS || start < 0 || entry.periods() <= 0
+                || start + entry.periods() > PERIODS_PER_DAY || entry.weekMask() <= 0) {
+            skipped++;
+            return;
+        }
+        entries.add(entry);
+        long run = ((1L << entry.periods()) - 1) << start;
+
+        for (String cohort : entry.cohorts()) {
+            long[] occupied = occupancy.computeIfAbsent(cohort, k -> new long[WORDS]);
+            List<Entry> cohortEntries = members.computeIfAbsent(cohort, k -> new ArrayList<>());
+            if (!cohortEntries.isEmpty() && cohortEntries.get(cohortEntries.size() - 1) == entry) {
+                continue; // cùng nhóm xuất hiện hai lần trong entry.cohorts()
+            }
+            cohortEntries.add(entry);
+
+            boolean hit = false;
+            for (int weeks = entry.weekMask(); weeks != 0; weeks &= weeks - 1) {
+                int week = Integer.numberOfTrailingZeros(weeks);
+                if (week >= WeekMask.WEEKS) break;
+                int slot = week * DAYS + day;
+                long bits = run << (slot % SLOTS_PER_WORD * PERIODS_PER_DAY);
+                int word = slot / SLOTS_PER_WORD;
+                hit |= (occupied[word] & bits) != 0;
+                occupied[word] |= bits;
+            }
+            if (hit) {
+                clashed.add(cohort);
+            }
+        }
+    }
+
+    /**
+     * Chi tiết xung đột của các nhóm bị trùng, theo thứ tự nhóm / lớp được thêm vào
+     */
+    public List<ConflictIndex.Conflict> conflicts() {
+        List<ConflictIndex.Conflict> conflicts = new ArrayList<>();
+        for (String cohort : clashed) {
+            List<Entry> cohortEntries = members.get(cohort);
+            for (int i = 0; i < cohortEntries.size(); i++) {
+                Entry a = cohortEntries.get(i);
+                for (int j = i + 1; j < cohortEntries.size(); j++) {
+                    Entry b = cohortEntries.get(j);
+                    if (a.dayOfWeek() != b.dayOfWeek()) continue;
+                    int weeks = a.weekMask() & b.weekMask() & ((1 << WeekMask.WEEKS) - 1);
+                    int start = Math.max(a.startPeriod(), b.startPeriod());
+                    int end = Math.min(a.startPeriod() + a.periods(), b.startPeriod() + b.periods());
+                    if (weeks != 0 && start < end) {
+                        conflicts.add(new ConflictIndex.Conflict(ConflictIndex.ResourceType.STUDENT_GROUP,
+                                cohort, b.id(), a.id(), a.dayOfWeek(), start, end - start, weeks));
+                    }
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    public int entryCount() {
+        return entries.size();
+    }
+
+    public int cohortCount() {
+        return occupancy.size();
+    }
+
+    /**
+     * Số lớp bị bỏ qua vì thứ / tiết / tuần không hợp lệ
+     */
+    public int skippedCount() {
+        return skipped;
+    }
+}
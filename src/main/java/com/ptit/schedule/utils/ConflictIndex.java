@@ -0,0 +1,201 @@
+package com.ptit.schedule.utils;
+
+import java.util.*;
+
+/**
+ * Index xung đột theo phòng / giảng viên / nhóm sinh viên cho các lớp đã xếp của một học kỳ,
+ * cập nhật từng lớp một (thêm, xóa, đổi chỗ) thay vì tính lại cả học kỳ.
+ *
+ * Mỗi lớp là một khoảng tiết [startPeriod, startPeriod + periods) trong một thứ, lặp lại theo weekMask.
+ * Hai lớp xung đột trên cùng một tài nguyên khi cùng thứ, khoảng tiết giao nhau và có chung ít nhất một tuần.
+ *
+ * Không thread-safe: bên gọi tự đồng bộ.
+ */
+public final class ConflictIndex {
+
+    public enum ResourceType {
+        ROOM, TEACHER, STUDENT_GROUP
+    }
+
+    /**
+     * Một lớp đã xếp. room / teacherId / studentGroup null hoặc rỗng = không xét tài nguyên đó.
+     */
+    public record Entry(String id, String room, String teacherId, String studentGroup,
+                        int dayOfWeek, int startPeriod, int periods, int weekMask) {
+
+        public int endPeriod() {
+            return startPeriod + periods;
+        }
+
+        String resource(ResourceType type) {
+            String key = switch (type) {
+                case ROOM -> room;
+                case TEACHER -> teacherId;
+                case STUDENT_GROUP -> studentGroup;
+            };
+            return key == null || key.isBlank() ? null : key;
+        }
+    }
+
+    /**
+     * Xung đột giữa entryId và otherEntryId: đúng các tiết / tuần bị chồng
+     */
+    public record Conflict(ResourceType type, String resource, String entryId, String otherEntryId,
+                           int dayOfWeek, int startPeriod, int periods, int weekMask) {
+    }
+
+    private static final int DAYS = TimeSlotCode.SUNDAY + 1;
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private final Map<ResourceType, Map<String, List<Entry>[]>> byResource = new EnumMap<>(ResourceType.class);
+    private int conflictCount;
+
+    public ConflictIndex() {
+        for (ResourceType type : ResourceType.values()) {
+            byResource.put(type, new HashMap<>());
+        }
+    }
+
+    /**
+     * Khóa nhóm sinh viên: ngành + khóa + nhóm lớp
+     */
+    public static String studentGroupKey(String major, String studentYear, Object classGroup) {
+        if (major == null || major.isBlank() || studentYear == null || studentYear.isBlank()) {
+            return null;
+        }
+        return major.trim() + '|' + studentYear.trim() + '|' + (classGroup != null ? classGroup : "");
+    }
+
+    /**
+     * Thêm lớp mới (id chưa có trong index, lớp đã có thì dùng {@link #move})
+     *
+     * @return Các xung đột mới phát sinh
+     */
+    public List<Conflict> add(Entry entry) {
+        List<Conflict> created = probe(entry);
+        insert(entry);
+        conflictCount += created.size();
+        return created;
+    }
+
+    /**
+     * @return Các xung đột được gỡ bỏ, rỗng nếu không có lớp này
+     */
+    public List<Conflict> remove(String entryId) {
+        Entry existing = entries.get(entryId);
+        if (existing == null) {
+            return new ArrayList<>();
+        }
+        delete(existing);
+        List<Conflict> resolved = probe(existing);
+        conflictCount -= resolved.size();
+        return resolved;
+    }
+
+    public record Delta(List<Conflict> created, List<Conflict> resolved) {
+    }
+
+    /**
+     * Đổi chỗ / đổi tài nguyên của một lớp
+     *
+     * @return Xung đột mới và xung đột được gỡ bỏ (phần giống nhau trước / sau không được trả về)
+     */
+    public Delta move(Entry entry) {
+        Entry existing = entries.get(entry.id());
+        List<Conflict> before = new ArrayList<>();
+        if (existing != null) {
+            delete(existing);
+            before = probe(existing);
+        }
+        List<Conflict> after = probe(entry);
+        insert(entry);
+        conflictCount += after.size() - before.size();
+
+        Set<Conflict> beforeSet = new HashSet<>(before);
+        Set<Conflict> afterSet = new HashSet<>(after);
+        List<Conflict> created = new ArrayList<>();
+        List<Conflict> resolved = new ArrayList<>();
+        for (Conflict conflict : after) {
+            if (!beforeSet.contains(conflict)) {
+                created.add(conflict);
+            }
+        }
+        for (Conflict conflict : before) {
+            if (!afterSet.contains(conflict)) {
+                resolved.add(conflict);
+            }
+        }
+        return new Delta(created, resolved);
+    }
+
+    /**
+     * Các xung đột nếu đặt lớp này vào index (không thay đổi index, bỏ qua lớp cùng id)
+     */
+    public List<Conflict> probe(Entry entry) {
+        List<Conflict> conflicts = new ArrayList<>();
+        if (entry.dayOfWeek() < 0 || entry.dayOfWeek() >= DAYS || entry.periods() <= 0 || entry.weekMask() == 0) {
+            return conflicts;
+        }
+        for (ResourceType type : ResourceType.values()) {
+            String resource = entry.resource(type);
+            if (resource == null) continue;
+            List<Entry>[] days = byResource.get(type).get(resource);
+            if (days == null || days[entry.dayOfWeek()] == null) continue;
+
+            for (Entry other : days[entry.dayOfWeek()]) {
+                if (other.id().equals(entry.id())) continue;
+                int weeks = entry.weekMask() & other.weekMask();
+                int start = Math.max(entry.startPeriod(), other.startPeriod());
+                int end = Math.min(entry.endPeriod(), other.endPeriod());
+                if (weeks != 0 && start < end) {
+                    conflicts.add(new Conflict(type, resource, entry.id(), other.id(),
+                            entry.dayOfWeek(), start, end - start, weeks));
+                }
+            }
+        }
+        return conflicts;
+    }
+
+    public Entry get(String entryId) {
+        return entries.get(entryId);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Tổng số cặp xung đột hiện có trong index
+     */
+    public int conflictCount() {
+        return conflictCount;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void insert(Entry entry) {
+        entries.put(entry.id(), entry);
+        if (entry.dayOfWeek() < 0 || entry.dayOfWeek() >= DAYS) return;
+        for (ResourceType type : ResourceType.values()) {
+            String resource = entry.resource(type);
+            if (resource == null) continue;
+            List<Entry>[] days = byResource.get(type).computeIfAbsent(resource, k -> new List[DAYS]);
+            if (days[entry.dayOfWeek()] == null) {
+                days[entry.dayOfWeek()] = new ArrayList<>(4);
+            }
+            days[entry.dayOfWeek()].add(entry);
+        }
+    }
+
+    private void delete(Entry entry) {
+        entries.remove(entry.id());
+        if (entry.dayOfWeek() < 0 || entry.dayOfWeek() >= DAYS) return;
+        for (ResourceType type : ResourceType.values()) {
+            String resource = entry.resource(type);
+            if (resource == null) continue;
+            List<Entry>[] days = byResource.get(type).get(resource);
+            if (days != null && days[entry.dayOfWeek()] != null) {
+                days[entry.dayOfWeek()].removeIf(e -> e.id().equals(entry.id()));
+            }
+        }
+    }
+}
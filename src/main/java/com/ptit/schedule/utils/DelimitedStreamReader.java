@@ -0,0 +1,182 @@
+package com.ptit.schedule.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Đọc file CSV / TSV (UTF-8, RFC 4180) theo kiểu streaming, cùng hợp đồng với {@link XlsxStreamReader}
+ * nên các importer dùng chung mapping cột và validate.
+ *
+ * Tokenizer quét thẳng trên một buffer char dùng lại: mỗi ô chỉ tạo đúng một String từ vùng buffer
+ * (không qua StringBuilder, không tách dòng thành String trước), trừ ô trong ngoặc kép có "" escape.
+ * Dòng trống không được đẩy cho handler nhưng vẫn được đếm rowNum (như dòng trống trong sheet).
+ */
+public final class DelimitedStreamReader {
+
+    public static final char COMMA = ',';
+    public static final char TAB = '\t';
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char BOM = '\uFEFF';
+
+    private DelimitedStreamReader() {
+    }
+
+    /**
+     * @return ',' cho .csv, '\t' cho .tsv, 0 nếu không phải file text
+     */
+    public static char delimiterFor(String filename) {
+        if (filename == null) {
+            return 0;
+        }
+        String name = filename.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return COMMA;
+        }
+        if (name.endsWith(".tsv")) {
+            return TAB;
+        }
+        return 0;
+    }
+
+    /**
+     * @return Số dòng đã đẩy cho handler
+     */
+    public static int read(InputStream in, char delimiter, XlsxStreamReader.RowHandler handler) throws IOException {
+        return read(new InputStreamReader(in, StandardCharsets.UTF_8), delimiter, handler);
+    }
+
+    /**
+     * @return Số dòng đã đẩy cho handler
+     */
+    public static int read(Reader in, char delimiter, XlsxStreamReader.RowHandler handler) throws IOException {
+        char[] buf = new char[BUFFER_SIZE];
+        int len = 0;
+        int start = 0;      // đầu bản ghi hiện tại
+        int scan = 0;       // vị trí đang quét tìm cuối bản ghi
+        boolean inQuotes = false;
+        boolean eof = false;
+        boolean firstRead = true;
+        List<String> cells = new ArrayList<>();
+        int rowNum = 0;
+        int rows = 0;
+
+        while (true) {
+            if (scan == len) {
+                if (eof) {
+                    int end = len > start && buf[len - 1] == '\r' ? len - 1 : len;
+                    if (start < end && tokenize(buf, start, end, delimiter, cells)) {
+                        handler.row(rowNum, cells);
+                        rows++;
+                    }
+                    return rows;
+                }
+                // Giữ lại phần bản ghi chưa hết, nới buffer nếu một bản ghi dài hơn buffer
+                if (start > 0) {
+                    System.arraycopy(buf, start, buf, 0, len - start);
+                    len -= start;
+                    scan -= start;
+                    start = 0;
+                }
+                if (len == buf.length) {
+                    buf = Arrays.copyOf(buf, buf.length * 2);
+                }
+                int n = in.read(buf, len, buf.length - len);
+                if (n < 0) {
+                    eof = true;
+                    continue;
+                }
+                len += n;
+                if (firstRead && len > 0) {
+                    firstRead = false;
+                    if (buf[0] == BOM) {
+                        start = scan = 1;
+                    }
+                }
+                continue;
+            }
+
+            char c = buf[scan++];
+            if (c == '"') {
+                inQuotes = !inQuotes;
+            } else if (c == '\n' && !inQuotes) {
+                int end = scan - 1;
+                if (end > start && buf[end - 1] == '\r') {
+                    end--;
+                }
+                if (tokenize(buf, start, end, delimiter, cells)) {
+                    handler.row(rowNum, cells);
+                    rows++;
+                }
+                rowNum++;
+                start = scan;
+            }
+        }
+    }
+
+    /**
+     * Tách bản ghi buf[from, to) thành các ô, ô rỗng là null
+     *
+     * @return false nếu là dòng trống
+     */
+    private static boolean tokenize(char[] buf, int from, int to, char delimiter, List<String> cells) {
+        cells.clear();
+        if (from == to) {
+            return false;
+        }
+        int i = from;
+        while (true) {
+            if (i < to && buf[i] == '"') {
+                int segment = i + 1;
+                int j = segment;
+                StringBuilder unescaped = null;
+                while (j < to) {
+                    if (buf[j] == '"') {
+                        if (j + 1 < to && buf[j + 1] == '"') {
+                            if (unescaped == null) {
+                                unescaped = new StringBuilder();
+                            }
+                            unescaped.append(buf, segment, j + 1 - segment);
+                            j += 2;
+                            segment = j;
+                            continue;
+                        }
+                        break;
+                    }
+                    j++;
+                }
+                String value = unescaped == null
+                        ? new String(buf, segment, j - segment)
+                        : unescaped.append(buf, segment, j - segment).toString();
+                cells.add(value.isEmpty() ? null : value);
+                // Bỏ qua ký tự lạc sau dấu đóng ngoặc đến delimiter
+                i = j + 1;
+                while (i < to && buf[i] != delimiter) {
+                    i++;
+                }
+            } else {
+                int j = i;
+                while (j < to && buf[j] != delimiter) {
+                    j++;
+                }
+                cells.add(j > i ? new String(buf, i, j - i) : null);
+                i = j;
+            }
+            if (i >= to) {
+                return true;
+            }
+            i++; // delimiter
+            if (i == to) {
+                cells.add(null); // delimiter cuối dòng: ô cuối rỗng
+                return true;
+            }
+        }
+    }
+}
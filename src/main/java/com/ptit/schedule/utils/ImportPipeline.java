@@ -0,0 +1,217 @@
+package com.ptit.schedule.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pipeline nhiều giai đoạn cho import file lớn: reader → N validator → writer theo batch.
+ *
+ * - Reader chạy trên thread riêng, đẩy từng dòng sang validator pool.
+ * - Queue giữa các giai đoạn có giới hạn: reader bị chặn khi writer chưa theo kịp (back-pressure).
+ * - Writer chạy trên thread gọi {@link #run} (giữ transaction / security context của request),
+ *   nhận kết quả đúng thứ tự dòng nên lỗi và dữ liệu được báo theo thứ tự file: batch đang gom được
+ *   ghi trước khi báo lỗi của dòng sau nó (batch có thể ngắn hơn batchSize khi có dòng lỗi).
+ *
+ * @param <R> Dòng thô do reader đọc
+ * @param <T> Dòng đã validate
+ */
+public final class ImportPipeline<R, T> {
+
+    @FunctionalInterface
+    public interface Source<R> {
+        void read(RowSink<R> sink) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface RowSink<R> {
+        /**
+         * @param row Dòng thô, không được dùng lại sau khi gọi (validator xử lý bất đồng bộ)
+         */
+        void accept(int rowNum, R row);
+    }
+
+    @FunctionalInterface
+    public interface Validator<R, T> {
+        /**
+         * @return Dòng đã validate, null để bỏ qua dòng
+         * @throws Exception Dòng không hợp lệ, được báo qua {@link ErrorHandler}
+         */
+        T validate(int rowNum, R row) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Writer<T> {
+        void write(List<Row<T>> batch);
+    }
+
+    @FunctionalInterface
+    public interface ErrorHandler {
+        void onError(int rowNum, Exception e);
+    }
+
+    public record Row<T>(int rowNum, T value) {
+    }
+
+    private record Slot<T>(int rowNum, CompletableFuture<T> result) {
+    }
+
+    private static final Slot<?> END = new Slot<>(-1, null);
+
+    private final Executor readerExecutor;
+    private final Executor validatorExecutor;
+    private final int queueCapacity;
+    private final int batchSize;
+
+    public ImportPipeline(Executor readerExecutor, Executor validatorExecutor, int queueCapacity, int batchSize) {
+        this.readerExecutor = readerExecutor;
+        this.validatorExecutor = validatorExecutor;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Chạy pipeline đến hết nguồn
+     *
+     * @return Số dòng đã ghi
+     * @throws IOException Reader lỗi (file hỏng...). Các batch trước đó có thể đã được ghi.
+     */
+    @SuppressWarnings("unchecked")
+    public int run(Source<R> source, Validator<R, T> validator, Writer<T> writer, ErrorHandler onError)
+            throws IOException {
+        BlockingQueue<Slot<T>> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicBoolean cancelled = new AtomicBoolean();
+
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+            try {
+                source.read((rowNum, row) -> {
+                    if (cancelled.get()) {
+                        throw new CancellationException("Import đã bị hủy");
+                    }
+                    CompletableFuture<T> result = CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return validator.validate(rowNum, row);
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    }, validatorExecutor);
+                    put(queue, new Slot<>(rowNum, result));
+                });
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new CompletionException(e);
+            } finally {
+                put(queue, (Slot<T>) END);
+            }
+        }, readerExecutor);
+
+        int written = 0;
+        List<Row<T>> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                Slot<T> slot = queue.take();
+                if (slot == END) {
+                    break;
+                }
+                T value;
+                try {
+                    value = slot.result().join();
+                } catch (CompletionException e) {
+                    // Các dòng hợp lệ phía trước phải tới writer trước lỗi của dòng này
+                    if (!batch.isEmpty()) {
+                        writer.write(batch);
+                        written += batch.size();
+                        batch = new ArrayList<>(batchSize);
+                    }
+                    onError.onError(slot.rowNum(), unwrap(e));
+                    continue;
+                }
+                if (value == null) {
+                    continue;
+                }
+                batch.add(new Row<>(slot.rowNum(), value));
+                if (batch.size() >= batchSize) {
+                    writer.write(batch);
+                    written += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            // Reader lỗi: không ghi phần còn lại
+            awaitReader(reader);
+            if (!batch.isEmpty()) {
+                writer.write(batch);
+                written += batch.size();
+            }
+            return written;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(reader, queue, cancelled);
+            throw new IOException("Import bị gián đoạn", e);
+        } catch (RuntimeException | IOException e) {
+            cancel(reader, queue, cancelled);
+            throw e;
+        }
+    }
+
+    private static void awaitReader(CompletableFuture<Void> reader) throws IOException, InterruptedException {
+        try {
+            reader.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+                    ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * Dừng reader: bỏ các dòng đang chờ để reader không bị chặn ở queue đầy
+     */
+    private static <T> void cancel(CompletableFuture<Void> reader, BlockingQueue<Slot<T>> queue, AtomicBoolean cancelled) {
+        cancelled.set(true);
+        boolean interrupted = false;
+        while (!reader.isDone()) {
+            try {
+                queue.poll(10, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        queue.clear();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static <T> void put(BlockingQueue<Slot<T>> queue, Slot<T> slot) {
+        try {
+            queue.put(slot);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Import bị gián đoạn");
+        }
+    }
+
+    private static Exception unwrap(CompletionException e) {
+        Throwable cause = e;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception ex ? ex : new RuntimeException(cause);
+    }
+}
@@ -0,0 +1,267 @@
+package com.ptit.schedule.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Packed representation of a room occupancy key.
+ * Thay thế chuỗi "404-A2|5|1" bằng một giá trị long duy nhất để tránh cấp phát
+ * và hash chuỗi trong mỗi lần kiểm tra phòng trống.
+ *
+ * Layout (bit thấp → bit cao):
+ * kip (3 bits) | dayOfWeek (3 bits) | room ordinal (24 bits) | week mask (24 bits)
+ *
+ * Room ordinal được cấp phát khi gặp mã phòng lần đầu và ổn định trong suốt vòng đời JVM.
+ * Dạng chuỗi chỉ dùng ở biên API / database thông qua {@link #parse(String)} và {@link #format(long)}.
+ */
+public final class OccupancyKey {
+
+    /** Giá trị trả về khi không parse được unique key */
+    public static final long INVALID = -1L;
+
+    private static final int KIP_BITS = 3;
+    private static final int DAY_BITS = 3;
+    private static final int ROOM_BITS = 24;
+    private static final int WEEK_BITS = 24;
+
+    private static final int DAY_SHIFT = KIP_BITS;
+    private static final int ROOM_SHIFT = DAY_SHIFT + DAY_BITS;
+    private static final int WEEK_SHIFT = ROOM_SHIFT + ROOM_BITS;
+
+    private static final long KIP_MASK = (1L << KIP_BITS) - 1;
+    private static final long DAY_MASK = (1L << DAY_BITS) - 1;
+    private static final long ROOM_MASK = (1L << ROOM_BITS) - 1;
+    private static final long WEEK_MASK = (1L << WEEK_BITS) - 1;
+    private static final long SLOT_MASK = (1L << WEEK_SHIFT) - 1;
+
+    /** building → name → ordinal (không cần nối chuỗi khi tra cứu) */
+    private static final Map<String, Map<String, Integer>> ROOM_ORDINALS = new ConcurrentHashMap<>();
+    private static final List<String> ROOM_CODES = new ArrayList<>();
+
+    private OccupancyKey() {
+    }
+
+    /**
+     * Build packed key for a room/day/kip slot (all weeks)
+     *
+     * @param roomOrdinal Ordinal from {@link #internRoom(String, String)}
+     * @param dayOfWeek   Day of week (2-7)
+     * @param kip         Kip (1-6)
+     * @return Packed key
+     */
+    public static long of(int roomOrdinal, int dayOfWeek, int kip) {
+        return of(roomOrdinal, dayOfWeek, kip, 0);
+    }
+
+    /**
+     * Build packed key for a room/day/kip slot restricted to some weeks
+     *
+     * @param roomOrdinal Ordinal from {@link #internRoom(String, String)}
+     * @param dayOfWeek   Day of week (2-7)
+     * @param kip         Kip (1-6)
+     * @param weekMask    Bit (week - 1) set for each occupied week, 0 = all weeks
+     * @return Packed key
+     */
+    public static long of(int roomOrdinal, int dayOfWeek, int kip, int weekMask) {
+        if (!isValidSlot(dayOfWeek, kip)) {
+            throw new IllegalArgumentException(
+                    "Thứ phải từ 2 đến 7 và kíp từ 1 đến 6, nhận được: " + dayOfWeek + "/" + kip);
+        }
+        if (roomOrdinal < 0 || roomOrdinal > ROOM_MASK) {
+            throw new IllegalArgumentException("Room ordinal không hợp lệ: " + roomOrdinal);
+        }
+        return ((weekMask & WEEK_MASK) << WEEK_SHIFT)
+                | ((long) roomOrdinal << ROOM_SHIFT)
+                | ((long) dayOfWeek << DAY_SHIFT)
+                | kip;
+    }
+
+    /**
+     * Build packed key from room code in "name-building" format
+     */
+    public static long of(String roomCode, int dayOfWeek, int kip) {
+        return of(internRoom(roomCode), dayOfWeek, kip);
+    }
+
+    /**
+     * Check whether day/kip can be packed into a key
+     */
+    public static boolean isValidSlot(int dayOfWeek, int kip) {
+        return dayOfWeek >= 2 && dayOfWeek <= 7 && kip >= 1 && kip <= 6;
+    }
+
+    public static int roomOrdinal(long key) {
+        return (int) ((key >>> ROOM_SHIFT) & ROOM_MASK);
+    }
+
+    public static int dayOfWeek(long key) {
+        return (int) ((key >>> DAY_SHIFT) & DAY_MASK);
+    }
+
+    public static int kip(long key) {
+        return (int) (key & KIP_MASK);
+    }
+
+    public static int weekMask(long key) {
+        return (int) ((key >>> WEEK_SHIFT) & WEEK_MASK);
+    }
+
+    /**
+     * Strip week mask, leaving only the room/day/kip slot
+     */
+    public static long slot(long key) {
+        return key & SLOT_MASK;
+    }
+
+    /**
+     * Get room code ("name-building") for a packed key
+     */
+    public static String roomCode(long key) {
+        return roomCodeOf(roomOrdinal(key));
+    }
+
+    /**
+     * Get room code ("name-building") for an ordinal
+     */
+    public static String roomCodeOf(int ordinal) {
+        synchronized (ROOM_CODES) {
+            return ordinal < ROOM_CODES.size() ? ROOM_CODES.get(ordinal) : null;
+        }
+    }
+
+    /**
+     * Get (or allocate) ordinal for a room
+     *
+     * @param name     Room name (e.g., "404")
+     * @param building Building code (e.g., "A2"), empty for legacy keys without building
+     * @return Stable ordinal
+     */
+    public static int internRoom(String name, String building) {
+        String b = building != null ? building : "";
+        Map<String, Integer> byName = ROOM_ORDINALS.computeIfAbsent(b, k -> new ConcurrentHashMap<>());
+        Integer ordinal = byName.get(name);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (ROOM_CODES) {
+            return byName.computeIfAbsent(name, k -> {
+                ROOM_CODES.add(b.isEmpty() ? name : name + "-" + b);
+                return ROOM_CODES.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * Get (or allocate) ordinal for a room code in "name-building" format.
+     * Legacy codes without building (e.g., "404") are interned as-is.
+     */
+    public static int internRoom(String roomCode) {
+        int dash = roomCode.lastIndexOf('-');
+        if (dash <= 0) {
+            return internRoom(roomCode, "");
+        }
+        return internRoom(roomCode.substring(0, dash), roomCode.substring(dash + 1));
+    }
+
+    /**
+     * Parse unique key without regex / split
+     * Format: "404-A2|5|1" or "404-A2|5|1|1,2,3" (weeks)
+     *
+     * @param uniqueKey Unique key string
+     * @return Packed key or {@link #INVALID}
+     */
+    public static long parse(String uniqueKey) {
+        if (uniqueKey == null || uniqueKey.isEmpty()) {
+            return INVALID;
+        }
+        int p1 = uniqueKey.indexOf('|');
+        if (p1 <= 0) {
+            return INVALID;
+        }
+        int p2 = uniqueKey.indexOf('|', p1 + 1);
+        if (p2 < 0) {
+            return INVALID;
+        }
+        int p3 = uniqueKey.indexOf('|', p2 + 1);
+        int end = p3 < 0 ? uniqueKey.length() : p3;
+
+        int day = parseDigits(uniqueKey, p1 + 1, p2);
+        int kip = parseDigits(uniqueKey, p2 + 1, end);
+        if (!isValidSlot(day, kip)) {
+            return INVALID;
+        }
+
+        int weekMask = 0;
+        if (p3 >= 0) {
+            weekMask = parseWeekList(uniqueKey, p3 + 1);
+            if (weekMask < 0) {
+                return INVALID;
+            }
+        }
+        return of(internRoom(uniqueKey.substring(0, p1)), day, kip, weekMask);
+    }
+
+    /**
+     * Format packed key back to unique key string (API / database boundary)
+     */
+    public static String format(long key) {
+        StringBuilder sb = new StringBuilder(24)
+                .append(roomCode(key)).append('|')
+                .append(dayOfWeek(key)).append('|')
+                .append(kip(key));
+        int weeks = weekMask(key);
+        if (weeks != 0) {
+            sb.append('|');
+            boolean first = true;
+            for (int w = 0; w < WEEK_BITS; w++) {
+                if ((weeks & (1 << w)) != 0) {
+                    if (!first) {
+                        sb.append(',');
+                    }
+                    sb.append(w + 1);
+                    first = false;
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int parseDigits(String s, int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+            if (value > 1_000) {
+                return -1;
+            }
+        }
+        return value;
+    }
+
+    private static int parseWeekList(String s, int from) {
+        int mask = 0;
+        int start = from;
+        while (start <= s.length()) {
+            int comma = s.indexOf(',', start);
+            int end = comma < 0 ? s.length() : comma;
+            int week = parseDigits(s, start, end);
+            if (week < 1 || week > WEEK_BITS) {
+                return -1;
+            }
+            mask |= 1 << (week - 1);
+            if (comma < 0) {
+                break;
+            }
+            start = comma + 1;
+        }
+        return mask;
+    }
+}
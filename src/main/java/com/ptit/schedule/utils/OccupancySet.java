@@ -0,0 +1,204 @@
+package com.ptit.schedule.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * Primitive open-addressing set of packed {@link OccupancyKey} values.
+ * Dùng linear probing trên long[] (không boxing, không chuỗi) cho các kiểm tra phòng trống.
+ * Not thread-safe: mỗi phiên xếp lịch giữ một instance riêng.
+ */
+public class OccupancySet {
+
+    private static final long EMPTY = 0L; // OccupancyKey không bao giờ bằng 0 (dayOfWeek >= 2)
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] table;
+    private int size;
+    private int resizeThreshold;
+
+    public OccupancySet() {
+        this(MIN_CAPACITY);
+    }
+
+    public OccupancySet(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public OccupancySet(OccupancySet other) {
+        this.table = other.table.clone();
+        this.size = other.size;
+        this.resizeThreshold = other.resizeThreshold;
+    }
+
+    /**
+     * Build set from unique key strings (database / JSON boundary).
+     * Invalid keys are skipped.
+     */
+    public static OccupancySet fromUniqueKeys(Collection<?> uniqueKeys) {
+        OccupancySet set = new OccupancySet(uniqueKeys.size());
+        for (Object obj : uniqueKeys) {
+            if (obj == null) {
+                continue;
+            }
+            long key = OccupancyKey.parse(obj.toString());
+            if (key != OccupancyKey.INVALID) {
+                set.add(key);
+            }
+        }
+        return set;
+    }
+
+    /**
+     * Convert back to unique key strings (database / JSON boundary)
+     */
+    public List<String> toUniqueKeys() {
+        List<String> keys = new ArrayList<>(size);
+        forEach(key -> keys.add(OccupancyKey.format(key)));
+        return keys;
+    }
+
+    public boolean add(long key) {
+        checkKey(key);
+        int idx = indexOf(key);
+        if (table[idx] == key) {
+            return false;
+        }
+        table[idx] = key;
+        if (++size > resizeThreshold) {
+            rehash(table.length << 1);
+        }
+        return true;
+    }
+
+    public void addAll(OccupancySet other) {
+        other.forEach(this::add);
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return false;
+        }
+        return table[indexOf(key)] == key;
+    }
+
+    public boolean remove(long key) {
+        if (key == EMPTY) {
+            return false;
+        }
+        int mask = table.length - 1;
+        int idx = indexOf(key);
+        if (table[idx] != key) {
+            return false;
+        }
+        // Backward-shift deletion để giữ chuỗi probe liên tục
+        int gap = idx;
+        int next = (gap + 1) & mask;
+        while (table[next] != EMPTY) {
+            int home = hash(table[next]) & mask;
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                table[gap] = table[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        table[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public boolean anyMatch(LongPredicate predicate) {
+        for (long key : table) {
+            if (key != EMPTY && predicate.test(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void forEach(LongConsumer action) {
+        for (long key : table) {
+            if (key != EMPTY) {
+                action.accept(key);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        long[] result = new long[size];
+        int i = 0;
+        for (long key : table) {
+            if (key != EMPTY) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(table, EMPTY);
+        size = 0;
+    }
+
+    private int indexOf(long key) {
+        int mask = table.length - 1;
+        int idx = hash(key) & mask;
+        while (table[idx] != EMPTY && table[idx] != key) {
+            idx = (idx + 1) & mask;
+        }
+        return idx;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] old = table;
+        allocate(newCapacity);
+        size = 0;
+        for (long key : old) {
+            if (key != EMPTY) {
+                table[indexOf(key)] = key;
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        table = new long[capacity];
+        resizeThreshold = capacity >> 1; // load factor 0.5
+    }
+
+    private static int hash(long key) {
+        // MurmurHash3 fmix64
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static void checkKey(long key) {
+        if (key == EMPTY || key == OccupancyKey.INVALID) {
+            throw new IllegalArgumentException("Occupancy key không hợp lệ: " + key);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.ptit.schedule.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * File upload được chép ra file tạm để POI mở bằng {@link java.io.File} (random access qua ZipFile)
+ * thay vì đọc cả file zip vào bộ nhớ từ InputStream. File tạm bị xóa khi close.
+ */
+@Slf4j
+public final class SpooledUpload implements AutoCloseable {
+
+    private final Path path;
+
+    private SpooledUpload(Path path) {
+        this.path = path;
+    }
+
+    public static SpooledUpload of(MultipartFile file) throws IOException {
+        String name = file.getOriginalFilename();
+        String suffix = name != null && name.lastIndexOf('.') >= 0 ? name.substring(name.lastIndexOf('.')) : ".tmp";
+        Path path = Files.createTempFile("upload-", suffix);
+        try (InputStream in = file.getInputStream()) {
+            Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+        return new SpooledUpload(path);
+    }
+
+    public File file() {
+        return path.toFile();
+    }
+
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled upload {}: {}", path, e.getMessage());
+        }
+    }
+}
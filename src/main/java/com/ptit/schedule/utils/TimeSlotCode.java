@@ -0,0 +1,142 @@
+package com.ptit.schedule.utils;
+
+import com.ptit.schedule.dto.ScheduleEntry;
+
+/**
+ * Time slot (tuần, thứ, kíp, tiết bắt đầu, số tiết) đóng gói trong một int, thay cho chuỗi
+ * "Tuần 1-Thứ 5-1-1-2" khi phát hiện xung đột.
+ *
+ * Bố cục bit (cao → thấp): tuần | thứ | tiết bắt đầu | số tiết | kíp, nên so sánh số nguyên
+ * cũng là sắp xếp theo (tuần, thứ, tiết bắt đầu). 0 = chưa mã hóa được.
+ */
+public final class TimeSlotCode {
+
+    public static final int NONE = 0;
+
+    /** Số bit của một code, code hợp lệ luôn nhỏ hơn 1 << BITS */
+    public static final int BITS = 26;
+
+    private static final int SHIFT_BITS = 5;
+    private static final int PERIODS_BITS = 6;
+    private static final int START_BITS = 6;
+    private static final int DAY_BITS = 4;
+    private static final int WEEK_BITS = 5;
+
+    private static final int PERIODS_OFFSET = SHIFT_BITS;
+    private static final int START_OFFSET = PERIODS_OFFSET + PERIODS_BITS;
+    private static final int DAY_OFFSET = START_OFFSET + START_BITS;
+    private static final int WEEK_OFFSET = DAY_OFFSET + DAY_BITS;
+
+    /** Các bit dưới (tuần, thứ): tiết bắt đầu, số tiết, kíp */
+    public static final int WITHIN_DAY_MASK = (1 << DAY_OFFSET) - 1;
+
+    /** Chủ nhật được mã hóa là thứ 8 */
+    public static final int SUNDAY = 8;
+
+    private TimeSlotCode() {
+    }
+
+    /**
+     * @return Code, hoặc {@link #NONE} nếu có giá trị nằm ngoài phạm vi
+     */
+    public static int encode(int week, int dayOfWeek, int shift, int startPeriod, int periods) {
+        if (!fits(week, WEEK_BITS) || week == 0 || !fits(dayOfWeek, DAY_BITS) || !fits(shift, SHIFT_BITS)
+                || !fits(startPeriod, START_BITS) || !fits(periods, PERIODS_BITS)) {
+            return NONE;
+        }
+        return week << WEEK_OFFSET | dayOfWeek << DAY_OFFSET | startPeriod << START_OFFSET
+                | periods << PERIODS_OFFSET | shift;
+    }
+
+    /**
+     * Mã hóa từ giá trị thô trong file Excel (thứ: "2".."7" hoặc "CN")
+     */
+    public static int encode(int week, String dayOfWeek, String shift, String startPeriod, String periods) {
+        return encode(week, parseDay(dayOfWeek), parseInt(shift), parseInt(startPeriod), parseInt(periods));
+    }
+
+    /**
+     * Code của slot: dùng code đã tính lúc đọc file, nếu chưa có thì parse từ các chuỗi hiển thị
+     */
+    public static int of(ScheduleEntry.TimeSlot slot) {
+        if (slot.getCode() != NONE) {
+            return slot.getCode();
+        }
+        String date = slot.getDate();
+        int week = date != null && date.startsWith("Tuần ") ? parseInt(date.substring(5)) : -1;
+        return encode(week, parseDay(slot.getDayOfWeek()), parseInt(slot.getShift()),
+                parseInt(slot.getStartPeriod()), parseInt(slot.getNumberOfPeriods()));
+    }
+
+    public static int week(int code) {
+        return code >>> WEEK_OFFSET & mask(WEEK_BITS);
+    }
+
+    public static int dayOfWeek(int code) {
+        return code >>> DAY_OFFSET & mask(DAY_BITS);
+    }
+
+    public static int startPeriod(int code) {
+        return code >>> START_OFFSET & mask(START_BITS);
+    }
+
+    public static int periods(int code) {
+        return code >>> PERIODS_OFFSET & mask(PERIODS_BITS);
+    }
+
+    /**
+     * Tiết kết thúc (không tính), để so khoảng [startPeriod, endPeriod)
+     */
+    public static int endPeriod(int code) {
+        return startPeriod(code) + periods(code);
+    }
+
+    public static int shift(int code) {
+        return code & mask(SHIFT_BITS);
+    }
+
+    /**
+     * "2".."8", "Thứ 2".."Thứ 7", "CN", "Chủ nhật" → 2..8, còn lại -1
+     */
+    private static int parseDay(String value) {
+        if (value == null) {
+            return -1;
+        }
+        String day = value.trim();
+        if (day.equalsIgnoreCase("CN") || day.equalsIgnoreCase("Chủ nhật")) {
+            return SUNDAY;
+        }
+        if (day.startsWith("Thứ ")) {
+            day = day.substring(4);
+        }
+        int parsed = parseInt(day);
+        return parsed >= 2 && parsed <= SUNDAY ? parsed : -1;
+    }
+
+    private static int parseInt(String value) {
+        if (value == null) {
+            return -1;
+        }
+        String trimmed = value.trim();
+        if (trimmed.isEmpty() || trimmed.length() > 4) {
+            return -1;
+        }
+        int result = 0;
+        for (int i = 0; i < trimmed.length(); i++) {
+            char c = trimmed.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static boolean fits(int value, int bits) {
+        return value >= 0 && value <= mask(bits);
+    }
+
+    private static int mask(int bits) {
+        return (1 << bits) - 1;
+    }
+}
@@ -0,0 +1,93 @@
+package com.ptit.schedule.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lịch tuần của template dạng bitmask: bit (week - 1) được bật nếu tuần đó có học.
+ * Thay cho JSON "[1,0,1,...]" (18 phần tử) để đọc template không cần parse.
+ */
+public final class WeekMask {
+
+    public static final int WEEKS = 18;
+
+    private WeekMask() {
+    }
+
+    public static int fromList(List<Integer> weekSchedule) {
+        int mask = 0;
+        if (weekSchedule == null) {
+            return mask;
+        }
+        for (int i = 0; i < weekSchedule.size() && i < Integer.SIZE - 1; i++) {
+            Integer week = weekSchedule.get(i);
+            if (week != null && week == 1) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Parse JSON array "[1,0,1,...]" without Jackson (backfill / fallback)
+     *
+     * @return Week mask, or -1 if the string is not a flat array of integers
+     */
+    public static int fromJson(String json) {
+        if (json == null) {
+            return -1;
+        }
+        int mask = 0;
+        int index = 0;
+        int value = -1;
+        boolean opened = false;
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '[') {
+                if (opened) {
+                    return -1;
+                }
+                opened = true;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+            } else if (c == ',' || c == ']') {
+                if (value == 1 && index < Integer.SIZE - 1) {
+                    mask |= 1 << index;
+                }
+                if (value >= 0) {
+                    index++;
+                }
+                value = -1;
+                if (c == ']') {
+                    return opened ? mask : -1;
+                }
+            } else if (!Character.isWhitespace(c)) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    public static List<Integer> toList(int mask) {
+        List<Integer> weekSchedule = new ArrayList<>(WEEKS);
+        for (int i = 0; i < WEEKS; i++) {
+            weekSchedule.add((mask >>> i) & 1);
+        }
+        return weekSchedule;
+    }
+
+    public static String toJson(List<Integer> weekSchedule) {
+        StringBuilder sb = new StringBuilder(weekSchedule.size() * 2 + 1).append('[');
+        for (int i = 0; i < weekSchedule.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(weekSchedule.get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    public static int count(int mask) {
+        return Integer.bitCount(mask);
+    }
+}
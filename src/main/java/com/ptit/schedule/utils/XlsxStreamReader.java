@@ -0,0 +1,139 @@
+package com.ptit.schedule.utils;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Đọc sheet .xlsx theo kiểu streaming (XSSFReader + SAX) thay cho XSSFWorkbook DOM.
+ * Mỗi dòng được đẩy ngay cho {@link RowHandler}; bộ nhớ không tăng theo số dòng của file.
+ *
+ * Giá trị ô là chuỗi đã format (DataFormatter), công thức trả về kết quả đã cache trong file.
+ */
+public final class XlsxStreamReader {
+
+    private XlsxStreamReader() {
+    }
+
+    @FunctionalInterface
+    public interface RowHandler {
+        /**
+         * @param rowNum 0-based row index trong sheet
+         * @param cells  Giá trị từng cột (null nếu ô trống). List được dùng lại cho dòng sau,
+         *               không được giữ tham chiếu.
+         */
+        void row(int rowNum, List<String> cells);
+    }
+
+    /**
+     * Stream sheet đầu tiên của workbook
+     *
+     * @return Số dòng đã đọc
+     */
+    public static int readFirstSheet(InputStream in, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(in)) {
+            return readFirstSheet(pkg, handler);
+        } catch (OpenXML4JException e) {
+            throw new IOException("File Excel không hợp lệ: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stream sheet đầu tiên của file trên đĩa: package mở read-only bằng ZipFile,
+     * chỉ part đang đọc được giải nén (không giữ cả file zip trong bộ nhớ như khi mở từ InputStream)
+     *
+     * @return Số dòng đã đọc
+     */
+    public static int readFirstSheet(File file, RowHandler handler) throws IOException {
+        OPCPackage pkg;
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException | RuntimeException e) {
+            throw new IOException("File Excel không hợp lệ: " + e.getMessage(), e);
+        }
+        try {
+            return readFirstSheet(pkg, handler);
+        } finally {
+            pkg.revert(); // package READ: đóng file, không ghi lại
+        }
+    }
+
+    /**
+     * Stream sheet đầu tiên của package đã mở
+     *
+     * @return Số dòng đã đọc
+     */
+    public static int readFirstSheet(OPCPackage pkg, RowHandler handler) throws IOException {
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return 0;
+            }
+            RowCollector collector = new RowCollector(handler);
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(
+                        styles, null, strings, collector, new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+            return collector.rows;
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Không đọc được sheet Excel: " + e.getMessage(), e);
+        }
+    }
+
+    private static final class RowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+        private int rows;
+
+        private RowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            handler.row(rowNum, cells);
+            rows++;
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // Ô trống không có event: bù null cho các cột bị bỏ qua
+            int col = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+            while (cells.size() < col) {
+                cells.add(null);
+            }
+            cells.add(formattedValue);
+        }
+    }
+}
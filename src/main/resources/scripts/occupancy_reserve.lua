@@ -0,0 +1,12 @@
+-- Atomic check-and-set reservation of one or more room slots
+-- KEYS[1] = occupancy bitmap key, ARGV = bit offsets
+-- Returns 0 on success, otherwise the 1-based index of the first occupied offset
+for i = 1, #ARGV do
+    if redis.call('GETBIT', KEYS[1], ARGV[i]) == 1 then
+        return i
+    end
+end
+for i = 1, #ARGV do
+    redis.call('SETBIT', KEYS[1], ARGV[i], 1)
+end
+return 0
@@ -0,0 +1,11 @@
+-- Seed occupancy bitmap from MySQL snapshot, only once per semester
+-- KEYS[1] = occupancy bitmap key, KEYS[2] = seeded marker key, ARGV = bit offsets
+-- Returns 1 if seeded by this call, 0 if already seeded
+if redis.call('EXISTS', KEYS[2]) == 1 then
+    return 0
+end
+for i = 1, #ARGV do
+    redis.call('SETBIT', KEYS[1], ARGV[i], 1)
+end
+redis.call('SET', KEYS[2], '1')
+return 1
@@ -0,0 +1,15 @@
+-- Acquire a semester lock and issue a fencing token
+-- KEYS[1] = lock key, KEYS[2] = token counter key
+-- ARGV[1] = lease in milliseconds, ARGV[2] = token floor (highest token persisted in MySQL)
+-- Returns the fencing token, or 0 if the lock is held by someone else
+if redis.call('EXISTS', KEYS[1]) == 1 then
+    return 0
+end
+local token = redis.call('INCR', KEYS[2])
+local floor = tonumber(ARGV[2])
+if token <= floor then
+    token = floor + 1
+    redis.call('SET', KEYS[2], token)
+end
+redis.call('SET', KEYS[1], token, 'PX', ARGV[1])
+return token
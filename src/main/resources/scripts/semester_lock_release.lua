@@ -0,0 +1,7 @@
+-- Release a semester lock only if it is still held with the given token
+-- KEYS[1] = lock key, ARGV[1] = fencing token
+-- Returns 1 if released, 0 if the lock expired or belongs to another holder
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
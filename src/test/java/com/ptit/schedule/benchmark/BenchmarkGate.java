@@ -0,0 +1,118 @@
+package com.ptit.schedule.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Chạy {@link ScheduleConflictBenchmark} kèm GC profiler và so với benchmark/baseline.properties:
+ * thời gian (ms/op) hoặc allocation (bytes/op) vượt baseline quá tolerance thì thoát với mã 1.
+ *
+ * System properties:
+ * - benchmark.sizes: danh sách size, mặc định tất cả
+ * - benchmark.tolerance: ghi đè tolerance trong baseline
+ * - benchmark.writeBaseline: đường dẫn file, ghi kết quả lần chạy này làm baseline mới thay vì so sánh
+ */
+public final class BenchmarkGate {
+
+    private static final String BASELINE = "/benchmark/baseline.properties";
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    private BenchmarkGate() {
+    }
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(ScheduleConflictBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .shouldFailOnError(true);
+        String sizes = property("benchmark.sizes");
+        if (sizes != null) {
+            options.param("size", sizes.split(","));
+        }
+        Collection<RunResult> results = new Runner(options.build()).run();
+
+        Properties measured = new Properties();
+        for (RunResult result : results) {
+            String name = result.getParams().getBenchmark();
+            name = name.substring(name.lastIndexOf('.') + 1) + "." + result.getParams().getParam("size");
+            measured.setProperty(name + ".ms", format(result.getPrimaryResult().getScore()));
+            for (Map.Entry<String, Result> secondary : result.getSecondaryResults().entrySet()) {
+                if (secondary.getKey().endsWith(ALLOC_METRIC)) {
+                    measured.setProperty(name + ".alloc-bytes", format(secondary.getValue().getScore()));
+                }
+            }
+        }
+
+        String writeTo = property("benchmark.writeBaseline");
+        if (writeTo != null) {
+            try (OutputStream out = Files.newOutputStream(Path.of(writeTo))) {
+                measured.store(out, "ScheduleConflictBenchmark baseline");
+            }
+            System.out.println("Baseline written to " + writeTo);
+            return;
+        }
+
+        Properties baseline = new Properties();
+        try (InputStream in = BenchmarkGate.class.getResourceAsStream(BASELINE)) {
+            if (in != null) {
+                baseline.load(in);
+            }
+        }
+        String toleranceOverride = property("benchmark.tolerance");
+        double tolerance = Double.parseDouble(toleranceOverride != null ? toleranceOverride
+                : baseline.getProperty("tolerance", "0.25"));
+
+        List<String> regressions = new ArrayList<>();
+        for (String key : new TreeSet<>(baseline.stringPropertyNames())) {
+            if (key.endsWith(".ms") && sizes == null && !measured.containsKey(key)) {
+                System.out.printf("%-32s %14s   baseline %14s MISSING%n", key, "-", baseline.getProperty(key));
+                regressions.add(key);
+            }
+        }
+        for (String key : new TreeSet<>(measured.stringPropertyNames())) {
+            double value = Double.parseDouble(measured.getProperty(key));
+            String expected = baseline.getProperty(key);
+            if (expected == null) {
+                System.out.printf("%-32s %14s   (no baseline)%n", key, measured.getProperty(key));
+                continue;
+            }
+            double limit = Double.parseDouble(expected) * (1 + tolerance);
+            boolean regressed = value > limit;
+            System.out.printf("%-32s %14s   baseline %14s %s%n", key, measured.getProperty(key), expected,
+                    regressed ? "REGRESSION" : "ok");
+            if (regressed) {
+                regressions.add(key);
+            }
+        }
+
+        if (!regressions.isEmpty()) {
+            System.err.println("Benchmark regressions (> " + Math.round(tolerance * 100) + "% over baseline): "
+                    + regressions);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * System property, null nếu không có hoặc rỗng (profile Maven luôn truyền -Dname=)
+     */
+    private static String property(String name) {
+        String value = System.getProperty(name);
+        return value != null && !value.isBlank() ? value.trim() : null;
+    }
+
+    private static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
@@ -0,0 +1,109 @@
+package com.ptit.schedule.benchmark;
+
+import com.ptit.schedule.dto.ConflictResult;
+import com.ptit.schedule.dto.ScheduleEntry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Kiểm tra reader + detector trên bộ dữ liệu sinh sẵn: đúng số lớp, đúng các xung đột đã chèn
+ * (không thiếu, không thừa), kết quả chạy song song giống chạy tuần tự.
+ * Tốc độ và allocation được đo bằng {@link ScheduleConflictBenchmark} / {@link BenchmarkGate}.
+ */
+class ConflictDetectionCorpusTest {
+
+    private static ConflictServices sequential;
+    private static ConflictServices parallel;
+
+    @BeforeAll
+    static void setUp() {
+        sequential = new ConflictServices(1, Integer.MAX_VALUE);
+        parallel = new ConflictServices(4, 64);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        sequential.close();
+        parallel.close();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = TimetableWorkbookGenerator.Size.class, names = {"SMALL", "MEDIUM"})
+    void detectsExactlyTheInjectedConflicts(TimetableWorkbookGenerator.Size size) {
+        TimetableWorkbookGenerator.Corpus corpus = TimetableWorkbookGenerator.generate(size);
+
+        List<ScheduleEntry> entries = sequential.reader.readScheduleFromExcel(ConflictServices.file(corpus));
+        assertEquals(corpus.entries(), entries.size(), "parsed entries");
+
+        ConflictResult result = sequential.detector.detectConflicts(entries);
+        assertEquals(corpus.roomConflicts(), result.getRoomConflicts().size(), "room conflicts");
+        assertEquals(corpus.teacherConflicts(), result.getTeacherConflicts().size(), "teacher conflicts");
+
+        for (ConflictResult.RoomConflict conflict : result.getRoomConflicts()) {
+            assertEquals(2, conflict.getConflictingSchedules().size());
+            assertTrue(conflict.getConflictingSchedules().get(1).getSubjectCode().startsWith("INJR"),
+                    conflict.getConflictDescription());
+        }
+        for (ConflictResult.TeacherConflict conflict : result.getTeacherConflicts()) {
+            assertEquals(2, conflict.getConflictingSchedules().size());
+            assertTrue(conflict.getConflictingSchedules().get(1).getSubjectCode().startsWith("INJT"),
+                    conflict.getConflictDescription());
+            // Lớp lệch 1 tiết chỉ chồng 1 tiết
+            int index = Integer.parseInt(conflict.getConflictingSchedules().get(1).getSubjectCode().substring(4));
+            assertEquals(index % 2 == 0 ? "2" : "1", conflict.getTimeSlot().getNumberOfPeriods(),
+                    conflict.getConflictDescription());
+        }
+    }
+
+    @Test
+    void parallelDetectionMatchesSequential() {
+        TimetableWorkbookGenerator.Corpus corpus = TimetableWorkbookGenerator.generate(TimetableWorkbookGenerator.Size.MEDIUM);
+        List<ScheduleEntry> entries = sequential.reader.readScheduleFromExcel(ConflictServices.file(corpus));
+
+        ConflictResult expected = sequential.detector.detectConflicts(entries);
+        ConflictResult actual = parallel.detector.detectConflicts(entries);
+
+        assertEquals(descriptions(expected), descriptions(actual));
+    }
+
+    @Test
+    void streamingReadMatchesListRead() {
+        TimetableWorkbookGenerator.Corpus corpus = TimetableWorkbookGenerator.generate(TimetableWorkbookGenerator.Size.SMALL);
+        List<ScheduleEntry> streamed = new ArrayList<>();
+
+        int count = parallel.reader.streamScheduleFromExcel(ConflictServices.file(corpus), streamed::add);
+
+        assertEquals(corpus.entries(), count);
+        assertEquals(sequential.reader.readScheduleFromExcel(ConflictServices.file(corpus)), streamed);
+    }
+
+    @Test
+    void csvReadMatchesXlsxRead() {
+        TimetableWorkbookGenerator.Corpus corpus = TimetableWorkbookGenerator.generate(TimetableWorkbookGenerator.Size.SMALL);
+
+        List<ScheduleEntry> fromCsv = sequential.reader.readScheduleFromExcel(ConflictServices.csvFile(corpus));
+
+        assertEquals(corpus.entries(), fromCsv.size());
+        assertEquals(sequential.reader.readScheduleFromExcel(ConflictServices.file(corpus)), fromCsv);
+    }
+
+    private static List<String> descriptions(ConflictResult result) {
+        List<String> descriptions = new ArrayList<>();
+        result.getRoomConflicts().forEach(c -> descriptions.add(c.getConflictDescription()));
+        result.getTeacherConflicts().forEach(c -> descriptions.add(c.getConflictDescription()));
+        Set<String> unique = new TreeSet<>(descriptions);
+        assertEquals(descriptions.size(), unique.size(), "duplicate conflicts");
+        return descriptions;
+    }
+}
@@ -0,0 +1,77 @@
+package com.ptit.schedule.benchmark;
+
+import com.ptit.schedule.service.ImportPipelineFactory;
+import com.ptit.schedule.service.impl.ScheduleConflictDetectionServiceImpl;
+import com.ptit.schedule.service.impl.ScheduleExcelReaderServiceImpl;
+import com.ptit.schedule.utils.XlsxStreamReader;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Dựng reader / detector ngoài Spring context (không cần MySQL / Redis) cho test và benchmark
+ */
+final class ConflictServices implements AutoCloseable {
+
+    final ImportPipelineFactory pipelineFactory = new ImportPipelineFactory();
+    final ScheduleExcelReaderServiceImpl reader = new ScheduleExcelReaderServiceImpl(pipelineFactory);
+    final ScheduleConflictDetectionServiceImpl detector = new ScheduleConflictDetectionServiceImpl();
+
+    /**
+     * @param parallelism       conflict-detection.parallelism (0 = số CPU)
+     * @param parallelThreshold conflict-detection.parallel-threshold
+     */
+    ConflictServices(int parallelism, int parallelThreshold) {
+        ReflectionTestUtils.setField(pipelineFactory, "workers", 0);
+        ReflectionTestUtils.setField(pipelineFactory, "queueCapacity", 1024);
+        ReflectionTestUtils.invokeMethod(pipelineFactory, "init");
+
+        ReflectionTestUtils.setField(detector, "parallelism", parallelism);
+        ReflectionTestUtils.setField(detector, "parallelThreshold", parallelThreshold);
+        ReflectionTestUtils.invokeMethod(detector, "init");
+    }
+
+    static MockMultipartFile file(TimetableWorkbookGenerator.Corpus corpus) {
+        return new MockMultipartFile("file", "tkb.xlsx",
+                "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", corpus.bytes());
+    }
+
+    /**
+     * Cùng bộ dữ liệu xuất ra CSV (dòng trống giữ nguyên số dòng như trong sheet)
+     */
+    static MockMultipartFile csvFile(TimetableWorkbookGenerator.Corpus corpus) {
+        StringBuilder csv = new StringBuilder();
+        int[] next = {0};
+        try {
+            XlsxStreamReader.readFirstSheet(new ByteArrayInputStream(corpus.bytes()), (rowNum, cells) -> {
+                for (; next[0] < rowNum; next[0]++) {
+                    csv.append("\r\n");
+                }
+                for (int i = 0; i < cells.size(); i++) {
+                    if (i > 0) {
+                        csv.append(',');
+                    }
+                    String cell = cells.get(i);
+                    if (cell != null) {
+                        csv.append('"').append(cell.replace("\"", "\"\"")).append('"');
+                    }
+                }
+                csv.append("\r\n");
+                next[0]++;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new MockMultipartFile("file", "tkb.csv", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        ReflectionTestUtils.invokeMethod(detector, "shutdown");
+        ReflectionTestUtils.invokeMethod(pipelineFactory, "shutdown");
+    }
+}
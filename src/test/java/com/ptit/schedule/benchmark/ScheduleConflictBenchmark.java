@@ -0,0 +1,68 @@
+package com.ptit.schedule.benchmark;
+
+import com.ptit.schedule.dto.ConflictResult;
+import com.ptit.schedule.dto.ScheduleEntry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thời gian đọc file (SAX + pipeline, cùng dữ liệu dạng CSV) và phát hiện xung đột trên bộ dữ liệu sinh sẵn.
+ * Chạy qua {@link BenchmarkGate} (mvn -Pbenchmark verify) để so với baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx2g"})
+public class ScheduleConflictBenchmark {
+
+    @Param({"SMALL", "MEDIUM", "LARGE"})
+    public TimetableWorkbookGenerator.Size size;
+
+    private ConflictServices services;
+    private MockMultipartFile file;
+    private MockMultipartFile csvFile;
+    private List<ScheduleEntry> entries;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        services = new ConflictServices(0, 8192);
+        TimetableWorkbookGenerator.Corpus corpus = TimetableWorkbookGenerator.generate(size);
+        file = ConflictServices.file(corpus);
+        csvFile = ConflictServices.csvFile(corpus);
+        entries = services.reader.readScheduleFromExcel(file);
+
+        // Benchmark sai kết quả thì số đo vô nghĩa
+        ConflictResult result = services.detector.detectConflicts(entries);
+        if (entries.size() != corpus.entries()
+                || result.getRoomConflicts().size() != corpus.roomConflicts()
+                || result.getTeacherConflicts().size() != corpus.teacherConflicts()) {
+            throw new IllegalStateException("Kết quả không khớp bộ dữ liệu " + size);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        services.close();
+    }
+
+    @Benchmark
+    public int parse(Blackhole blackhole) {
+        return services.reader.streamScheduleFromExcel(file, blackhole::consume);
+    }
+
+    @Benchmark
+    public int parseCsv(Blackhole blackhole) {
+        return services.reader.streamScheduleFromExcel(csvFile, blackhole::consume);
+    }
+
+    @Benchmark
+    public ConflictResult detect() {
+        return services.detector.detectConflicts(entries);
+    }
+}
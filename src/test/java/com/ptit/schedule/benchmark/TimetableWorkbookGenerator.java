@@ -0,0 +1,202 @@
+package com.ptit.schedule.benchmark;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Sinh file thời khóa biểu giả theo layout của phòng đào tạo (44 cột, tuần 1-17 ở AB-AR)
+ * với số xung đột phòng / giảng viên biết trước.
+ *
+ * - Lớp gốc không bao giờ trùng nhau: lớp i dùng phòng i / 36 và giảng viên i / 12, ô thời gian i % 36
+ *   (6 thứ × 6 kíp, mỗi kíp 2 tiết), nên trong một phòng / giảng viên các ô thời gian đều khác nhau.
+ * - Mỗi xung đột phòng là một lớp chép phòng + thời gian + tuần của một lớp gốc, khác môn và giảng viên.
+ * - Mỗi xung đột giảng viên là một lớp chép giảng viên + thời gian của một lớp gốc ở phòng riêng;
+ *   một nửa trong số đó chỉ học tiết thứ 2 của kíp để kiểm tra phần chồng một phần.
+ * - Thêm một dòng LMS sau mỗi 50 lớp gốc (reader phải bỏ qua).
+ *
+ * Sau khi gom theo tuần, mỗi lớp chèn thêm tạo đúng một xung đột.
+ */
+public final class TimetableWorkbookGenerator {
+
+    public enum Size {
+        SMALL(1_000, 20, 20),
+        MEDIUM(10_000, 100, 100),
+        LARGE(100_000, 500, 500); // Sheet XML > 100MB: chỉ đọc được khi POI mở file trên đĩa
+
+        final int baseEntries;
+        final int roomConflicts;
+        final int teacherConflicts;
+
+        Size(int baseEntries, int roomConflicts, int teacherConflicts) {
+            this.baseEntries = baseEntries;
+            this.roomConflicts = roomConflicts;
+            this.teacherConflicts = teacherConflicts;
+        }
+    }
+
+    /**
+     * @param entries Số lớp reader phải đọc được (không tính dòng LMS)
+     */
+    public record Corpus(byte[] bytes, int entries, int roomConflicts, int teacherConflicts) {
+    }
+
+    private static final int COL_INDEX = 0;
+    private static final int COL_SUBJECT_CODE = 1;
+    private static final int COL_SUBJECT_NAME = 2;
+    private static final int COL_CLASS_GROUP = 3;
+    private static final int COL_DAY_OF_WEEK = 6;
+    private static final int COL_SHIFT = 7;
+    private static final int COL_START_PERIOD = 8;
+    private static final int COL_NUMBER_OF_PERIODS = 9;
+    private static final int COL_ROOM = 10;
+    private static final int COL_BUILDING = 11;
+    private static final int COL_STUDENT_COUNT = 19;
+    private static final int COL_TEACHER_ID = 21;
+    private static final int COL_TEACHER_NAME = 22;
+    private static final int COL_WEEK_START = 27;    // AB - Tuần 1
+    private static final int WEEKS = 17;             // AB-AR
+
+    private static final int SLOTS = 36;             // 6 thứ × 6 kíp
+    private static final int ENTRIES_PER_TEACHER = 12;
+    private static final int ONLINE_EVERY = 50;
+
+    private TimetableWorkbookGenerator() {
+    }
+
+    public static Corpus generate(Size size) {
+        return generate(size.baseEntries, size.roomConflicts, size.teacherConflicts);
+    }
+
+    public static Corpus generate(int baseEntries, int roomConflicts, int teacherConflicts) {
+        int injected = roomConflicts + teacherConflicts;
+        if (injected > baseEntries) {
+            throw new IllegalArgumentException("Số xung đột chèn thêm vượt quá số lớp gốc");
+        }
+        int step = injected == 0 ? 1 : baseEntries / injected;
+
+        SXSSFWorkbook workbook = new SXSSFWorkbook(200);
+        workbook.setCompressTempFiles(true);
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("TKB");
+            writeHeader(sheet);
+            int rowNum = 3;
+
+            for (int i = 0; i < baseEntries; i++) {
+                writeBase(sheet.createRow(rowNum++), i);
+                if (i % ONLINE_EVERY == ONLINE_EVERY - 1) {
+                    Row online = sheet.createRow(rowNum++);
+                    writeClass(online, rowNum, "ONL" + i, 1, day(i), shift(i), start(i), 2,
+                            "LMS", "LMS", teacher(i), weeks(i));
+                }
+            }
+            for (int c = 0; c < roomConflicts; c++) {
+                int base = c * step;
+                writeClass(sheet.createRow(rowNum++), rowNum, "INJR" + c, 1, day(base), shift(base), start(base), 2,
+                        room(base), building(base), "GVR" + c, weeks(base));
+            }
+            for (int c = 0; c < teacherConflicts; c++) {
+                int base = (roomConflicts + c) * step;
+                int offset = c % 2; // chỉ học tiết thứ 2 của kíp, không lấn sang kíp sau
+                writeClass(sheet.createRow(rowNum++), rowNum, "INJT" + c, 1, day(base), shift(base),
+                        start(base) + offset, 2 - offset, "9" + c, "X", teacher(base), weeks(base));
+            }
+
+            workbook.write(out);
+            return new Corpus(out.toByteArray(), baseEntries + injected, roomConflicts, teacherConflicts);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            workbook.dispose();
+        }
+    }
+
+    private static void writeHeader(Sheet sheet) {
+        Row header = sheet.createRow(0);
+        header.createCell(COL_INDEX).setCellValue("STT");
+        header.createCell(COL_SUBJECT_CODE).setCellValue("Mã môn");
+        header.createCell(COL_SUBJECT_NAME).setCellValue("Tên môn");
+        header.createCell(COL_CLASS_GROUP).setCellValue("Nhóm");
+        header.createCell(COL_DAY_OF_WEEK).setCellValue("Thứ");
+        header.createCell(COL_SHIFT).setCellValue("Kíp");
+        header.createCell(COL_START_PERIOD).setCellValue("Tiết BĐ");
+        header.createCell(COL_NUMBER_OF_PERIODS).setCellValue("Số tiết");
+        header.createCell(COL_ROOM).setCellValue("Phòng");
+        header.createCell(COL_BUILDING).setCellValue("Nhà");
+        header.createCell(COL_STUDENT_COUNT).setCellValue("Sĩ số");
+        header.createCell(COL_TEACHER_ID).setCellValue("Mã GV");
+        header.createCell(COL_TEACHER_NAME).setCellValue("Tên GV");
+        for (int week = 1; week <= WEEKS; week++) {
+            header.createCell(COL_WEEK_START + week - 1).setCellValue("Tuần " + week);
+        }
+        sheet.createRow(1).createCell(COL_INDEX).setCellValue("Học kỳ 1 - Dữ liệu sinh tự động");
+        sheet.createRow(2);
+    }
+
+    private static void writeBase(Row row, int i) {
+        writeClass(row, row.getRowNum(), "BAS" + (i % 400), i / 400 + 1, day(i), shift(i), start(i), 2,
+                room(i), building(i), teacher(i), weeks(i));
+    }
+
+    private static void writeClass(Row row, int index, String subjectCode, int classGroup, int day, int shift,
+                                   int start, int periods, String room, String building, String teacherId,
+                                   int weekMask) {
+        row.createCell(COL_INDEX).setCellValue(index);
+        row.createCell(COL_SUBJECT_CODE).setCellValue(subjectCode);
+        row.createCell(COL_SUBJECT_NAME).setCellValue("Môn " + subjectCode);
+        row.createCell(COL_CLASS_GROUP).setCellValue(classGroup);
+        row.createCell(COL_DAY_OF_WEEK).setCellValue(day);
+        row.createCell(COL_SHIFT).setCellValue(shift);
+        row.createCell(COL_START_PERIOD).setCellValue(start);
+        row.createCell(COL_NUMBER_OF_PERIODS).setCellValue(periods);
+        row.createCell(COL_ROOM).setCellValue(room);
+        row.createCell(COL_BUILDING).setCellValue(building);
+        row.createCell(COL_STUDENT_COUNT).setCellValue(60);
+        row.createCell(COL_TEACHER_ID).setCellValue(teacherId);
+        row.createCell(COL_TEACHER_NAME).setCellValue("Giảng viên " + teacherId);
+        for (int week = 0; week < WEEKS; week++) {
+            if ((weekMask & (1 << week)) != 0) {
+                row.createCell(COL_WEEK_START + week).setCellValue("x");
+            }
+        }
+    }
+
+    private static int day(int i) {
+        return i % SLOTS / 6 + 2;
+    }
+
+    private static int shift(int i) {
+        return i % 6 + 1;
+    }
+
+    private static int start(int i) {
+        return (shift(i) - 1) * 2 + 1;
+    }
+
+    private static String room(int i) {
+        return String.valueOf(100 + i / SLOTS);
+    }
+
+    private static String building(int i) {
+        return "A" + (i / SLOTS % 5 + 1);
+    }
+
+    private static String teacher(int i) {
+        return "GV" + i / ENTRIES_PER_TEACHER;
+    }
+
+    /**
+     * Tuần 1-15, các tuần lẻ, hoặc tuần 3-17
+     */
+    private static int weeks(int i) {
+        return switch (i % 3) {
+            case 0 -> (1 << 15) - 1;
+            case 1 -> 0b1_0101_0101_0101_0101;
+            default -> ((1 << 15) - 1) << 2;
+        };
+    }
+}
@@ -0,0 +1,214 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.entity.OccupancyEvent;
+import com.ptit.schedule.entity.OccupancyEventType;
+import com.ptit.schedule.entity.OccupancySnapshot;
+import com.ptit.schedule.exception.InvalidDataException;
+import com.ptit.schedule.repository.OccupancyEventRepository;
+import com.ptit.schedule.repository.OccupancySnapshotRepository;
+import com.ptit.schedule.repository.RoomOccupancyRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Snapshot + replay phần đuôi, compact và stateAt của {@link OccupancyLogService}
+ * trên log giả lập trong bộ nhớ (id tăng dần như AUTO_INCREMENT).
+ */
+class OccupancyLogServiceTest {
+
+    private static final Long SEMESTER_ID = 3L;
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 9, 1, 8, 0);
+
+    private final List<OccupancyEvent> events = new ArrayList<>();
+    private final List<OccupancySnapshot> snapshots = new ArrayList<>();
+    private Set<String> roomOccupancies;
+
+    private OccupancyEventRepository eventRepository;
+    private OccupancySnapshotRepository snapshotRepository;
+    private RoomOccupancyRepository roomOccupancyRepository;
+
+    @BeforeEach
+    void setUp() {
+        roomOccupancies = new LinkedHashSet<>();
+        eventRepository = mock(OccupancyEventRepository.class);
+        snapshotRepository = mock(OccupancySnapshotRepository.class);
+        roomOccupancyRepository = mock(RoomOccupancyRepository.class);
+
+        when(roomOccupancyRepository.findOccupiedKeysBySemesterId(SEMESTER_ID))
+                .thenAnswer(inv -> new LinkedHashSet<>(roomOccupancies));
+
+        when(eventRepository.save(any(OccupancyEvent.class))).thenAnswer(inv -> append(inv.getArgument(0)));
+        when(eventRepository.saveAll(anyList())).thenAnswer(inv -> {
+            List<OccupancyEvent> saved = inv.getArgument(0);
+            saved.forEach(this::append);
+            return saved;
+        });
+        when(eventRepository.findTail(eq(SEMESTER_ID), anyLong()))
+                .thenAnswer(inv -> range(inv.getArgument(1), Long.MAX_VALUE));
+        when(eventRepository.findRange(eq(SEMESTER_ID), anyLong(), anyLong()))
+                .thenAnswer(inv -> range(inv.getArgument(1), inv.getArgument(2)));
+        when(eventRepository.countTail(eq(SEMESTER_ID), anyLong()))
+                .thenAnswer(inv -> (long) range(inv.getArgument(1), Long.MAX_VALUE).size());
+        when(eventRepository.findLastEventId(SEMESTER_ID))
+                .thenAnswer(inv -> events.isEmpty() ? 0L : events.get(events.size() - 1).getId());
+        when(eventRepository.findLastEventIdAt(eq(SEMESTER_ID), any(LocalDateTime.class))).thenAnswer(inv -> {
+            LocalDateTime at = inv.getArgument(1);
+            return events.stream().filter(e -> !e.getCreatedAt().isAfter(at))
+                    .mapToLong(OccupancyEvent::getId).max().orElse(0L);
+        });
+
+        when(snapshotRepository.save(any(OccupancySnapshot.class))).thenAnswer(inv -> {
+            OccupancySnapshot snapshot = inv.getArgument(0);
+            snapshot.setId((long) snapshots.size() + 1);
+            snapshots.add(snapshot);
+            return snapshot;
+        });
+        when(snapshotRepository.findFirstBySemesterIdOrderByLastEventIdDesc(SEMESTER_ID))
+                .thenAnswer(inv -> snapshots.stream().max(Comparator.comparing(OccupancySnapshot::getLastEventId)));
+        when(snapshotRepository.findFirstBySemesterIdAndLastEventIdLessThanEqualOrderByLastEventIdDesc(
+                eq(SEMESTER_ID), anyLong())).thenAnswer(inv -> {
+            long until = inv.getArgument(1);
+            return snapshots.stream().filter(s -> s.getLastEventId() <= until)
+                    .max(Comparator.comparing(OccupancySnapshot::getLastEventId));
+        });
+    }
+
+    @Test
+    void currentStateBootstrapsFromRoomOccupanciesAndReplaysTailInOrder() {
+        roomOccupancies.add("101-A1|2|1");
+        OccupancyLogService service = newService(100);
+
+        assertEquals(Set.of("101-A1|2|1"), keys(service));
+        assertEquals(1, snapshots.size(), "bootstrap snapshot");
+        assertEquals(0L, snapshots.get(0).getLastEventId());
+
+        service.appendAdditions(SEMESTER_ID, List.of("102-A1|3|2"), "a@ptit.edu.vn");
+        service.appendClear(SEMESTER_ID, "b@ptit.edu.vn");
+        service.appendAdditions(SEMESTER_ID, List.of("103-A2|4|3", "104-A2|5|4"), "b@ptit.edu.vn");
+
+        // CLEAR xóa cả snapshot lẫn ADD trước nó, các ADD sau vẫn giữ
+        assertEquals(Set.of("103-A2|4|3", "104-A2|5|4"), keys(service));
+    }
+
+    @Test
+    void currentStateOnlyReadsNewTail() {
+        OccupancyLogService service = newService(100);
+        assertEquals(Set.of(), keys(service)); // bootstrap snapshot @0
+        service.appendAdditions(SEMESTER_ID, List.of("101-A1|2|1", "102-A1|2|2"), "system");
+        keys(service);
+
+        service.appendAdditions(SEMESTER_ID, List.of("103-A1|2|3"), "system");
+        assertEquals(Set.of("101-A1|2|1", "102-A1|2|2", "103-A1|2|3"), keys(service));
+
+        verify(eventRepository, times(2)).findTail(SEMESTER_ID, 0L);
+        verify(eventRepository).findTail(SEMESTER_ID, 2L);
+        verify(roomOccupancyRepository, times(1)).findOccupiedKeysBySemesterId(SEMESTER_ID);
+    }
+
+    @Test
+    void compactIfNeededWaitsForSnapshotInterval() {
+        OccupancyLogService service = newService(3);
+        service.compactIfNeeded(SEMESTER_ID); // bootstrap snapshot @0
+        service.appendAdditions(SEMESTER_ID, List.of("101-A1|2|1", "102-A1|2|2"), "system");
+
+        service.compactIfNeeded(SEMESTER_ID);
+        assertEquals(1, snapshots.size(), "only bootstrap snapshot");
+
+        service.appendClear(SEMESTER_ID, "system");
+        service.compactIfNeeded(SEMESTER_ID);
+
+        assertEquals(2, snapshots.size());
+        OccupancySnapshot compacted = snapshots.get(1);
+        assertEquals(3L, compacted.getLastEventId(), "snapshot boundary = last compacted event");
+        assertEquals(0, compacted.getKeyCount(), "CLEAR replayed after ADDs");
+    }
+
+    @Test
+    void newNodeStartsFromSnapshotAndReplaysOnlyEventsAfterBoundary() {
+        OccupancyLogService writer = newService(3);
+        writer.currentState(SEMESTER_ID); // bootstrap snapshot @0
+        writer.appendAdditions(SEMESTER_ID, List.of("101-A1|2|1"), "system");
+        writer.appendClear(SEMESTER_ID, "system");
+        writer.appendAdditions(SEMESTER_ID, List.of("102-A1|2|2"), "system");
+        writer.compactIfNeeded(SEMESTER_ID);
+        writer.appendAdditions(SEMESTER_ID, List.of("103-A1|2|3"), "system");
+
+        OccupancySnapshot latest = snapshots.get(snapshots.size() - 1);
+        assertEquals(3L, latest.getLastEventId());
+        assertEquals("102-A1|2|2", latest.getUniqueKeys());
+
+        OccupancyLogService otherNode = newService(3);
+        assertEquals(Set.of("102-A1|2|2", "103-A1|2|3"), keys(otherNode));
+        verify(eventRepository).findTail(SEMESTER_ID, 3L);
+    }
+
+    @Test
+    void stateAtReplaysFromNearestSnapshotBeforeTarget() {
+        roomOccupancies.add("100-A1|2|1");
+        OccupancyLogService service = newService(2);
+        service.currentState(SEMESTER_ID); // bootstrap snapshot, lastEventId = 0
+
+        addEvent(OccupancyEventType.ADD, "101-A1|2|2", T0.plusMinutes(1));           // id 1
+        addEvent(OccupancyEventType.CLEAR, null, T0.plusMinutes(2));                 // id 2
+        service.compactIfNeeded(SEMESTER_ID);                                        // snapshot @2: {}
+        addEvent(OccupancyEventType.ADD, "102-A1|2|3", T0.plusMinutes(3));           // id 3
+        addEvent(OccupancyEventType.ADD, "103-A1|2|4", T0.plusMinutes(4));           // id 4
+
+        // Trước snapshot compact: đi từ snapshot bootstrap
+        assertEquals(Set.of("100-A1|2|1", "101-A1|2|2"), service.stateAt(SEMESTER_ID, T0.plusMinutes(1)));
+        // Đúng mốc snapshot
+        assertEquals(Set.of(), service.stateAt(SEMESTER_ID, T0.plusMinutes(2)));
+        // Sau snapshot: snapshot + phần đuôi đến thời điểm đó, không lấy sự kiện sau
+        assertEquals(Set.of("102-A1|2|3"), service.stateAt(SEMESTER_ID, T0.plusMinutes(3)));
+        verify(eventRepository).findRange(SEMESTER_ID, 2L, 3L);
+        assertEquals(Set.of("102-A1|2|3", "103-A1|2|4"), service.stateAt(SEMESTER_ID, T0.plusMinutes(10)));
+    }
+
+    @Test
+    void stateAtBeforeAnyHistoryIsRejected() {
+        addEvent(OccupancyEventType.ADD, "101-A1|2|1", T0);
+        OccupancyLogService service = newService(100);
+        service.compactIfNeeded(SEMESTER_ID); // snapshot đầu tiên đã ở sau sự kiện 1
+
+        assertThrows(InvalidDataException.class, () -> service.stateAt(SEMESTER_ID, T0.minusDays(1)));
+    }
+
+    private OccupancyLogService newService(int snapshotInterval) {
+        OccupancyLogService service = new OccupancyLogService(eventRepository, snapshotRepository,
+                roomOccupancyRepository);
+        ReflectionTestUtils.setField(service, "snapshotInterval", snapshotInterval);
+        return service;
+    }
+
+    private Set<String> keys(OccupancyLogService service) {
+        return new HashSet<>(service.currentState(SEMESTER_ID).toUniqueKeys());
+    }
+
+    private void addEvent(OccupancyEventType type, String uniqueKey, LocalDateTime createdAt) {
+        append(OccupancyEvent.builder()
+                .semesterId(SEMESTER_ID)
+                .eventType(type)
+                .uniqueKey(uniqueKey)
+                .actor("system")
+                .createdAt(createdAt)
+                .build());
+    }
+
+    private OccupancyEvent append(OccupancyEvent event) {
+        event.setId((long) events.size() + 1);
+        events.add(event);
+        return event;
+    }
+
+    private List<OccupancyEvent> range(long afterId, long untilId) {
+        return events.stream().filter(e -> e.getId() > afterId && e.getId() <= untilId).toList();
+    }
+}
@@ -0,0 +1,84 @@
+package com.ptit.schedule.service;
+
+import com.ptit.schedule.entity.SemesterFence;
+import com.ptit.schedule.exception.StaleFencingTokenException;
+import com.ptit.schedule.repository.SemesterFenceRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Kiểm tra fencing token lúc ghi của {@link SemesterFenceService} (bảng semester_fences giả lập trong bộ nhớ)
+ */
+class SemesterFenceServiceTest {
+
+    private static final Long SEMESTER_ID = 5L;
+
+    private final Map<Long, SemesterFence> fences = new HashMap<>();
+    private SemesterFenceService fenceService;
+
+    @BeforeEach
+    void setUp() {
+        SemesterFenceRepository repository = mock(SemesterFenceRepository.class);
+        when(repository.findForUpdate(anyLong())).thenAnswer(inv -> Optional.ofNullable(fences.get(inv.<Long>getArgument(0))));
+        when(repository.findById(anyLong())).thenAnswer(inv -> Optional.ofNullable(fences.get(inv.<Long>getArgument(0))));
+        when(repository.save(any(SemesterFence.class))).thenAnswer(inv -> store(inv.getArgument(0)));
+        when(repository.saveAndFlush(any(SemesterFence.class))).thenAnswer(inv -> store(inv.getArgument(0)));
+        fenceService = new SemesterFenceService(repository);
+    }
+
+    @Test
+    void replaceWithStaleTokenIsRejected() {
+        fenceService.checkReplace(SEMESTER_ID, 4);
+
+        StaleFencingTokenException e = assertThrows(StaleFencingTokenException.class,
+                () -> fenceService.checkReplace(SEMESTER_ID, 3));
+        assertNotNull(e.getMessage());
+        assertEquals(4L, fenceService.currentToken(SEMESTER_ID), "rejected write does not move the fence");
+    }
+
+    @Test
+    void replaceIsRejectedAfterNewerAdditions() {
+        assertTrue(fenceService.checkAdditions(SEMESTER_ID, 7));
+
+        assertThrows(StaleFencingTokenException.class, () -> fenceService.checkReplace(SEMESTER_ID, 6));
+        fenceService.checkReplace(SEMESTER_ID, 7); // cùng token: cùng người giữ khóa
+        fenceService.checkReplace(SEMESTER_ID, 8);
+        assertEquals(8L, fenceService.currentToken(SEMESTER_ID));
+    }
+
+    @Test
+    void additionsOlderThanLastReplaceAreDropped() {
+        fenceService.checkReplace(SEMESTER_ID, 10);
+
+        assertFalse(fenceService.checkAdditions(SEMESTER_ID, 9));
+        assertTrue(fenceService.checkAdditions(SEMESTER_ID, 10));
+        assertTrue(fenceService.checkAdditions(SEMESTER_ID, 12));
+    }
+
+    @Test
+    void additionsCommuteWithEachOther() {
+        assertTrue(fenceService.checkAdditions(SEMESTER_ID, 3));
+        assertTrue(fenceService.checkAdditions(SEMESTER_ID, 2), "older additions are not stale");
+        assertEquals(3L, fenceService.currentToken(SEMESTER_ID), "fence keeps the highest token");
+    }
+
+    @Test
+    void currentTokenIsZeroForNewSemester() {
+        assertEquals(0L, fenceService.currentToken(SEMESTER_ID));
+    }
+
+    private SemesterFence store(SemesterFence fence) {
+        fences.put(fence.getSemesterId(), fence);
+        return fence;
+    }
+}
@@ -0,0 +1,86 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.dto.ExcelImportResult;
+import com.ptit.schedule.dto.SubjectRequest;
+import com.ptit.schedule.service.ImportPipelineFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cảnh báo của import chương trình đào tạo (dòng lỗi và dòng trùng) giữ đúng thứ tự dòng trong file
+ */
+class ExcelReaderServiceImplTest {
+
+    private static final int COLUMNS = 25;
+
+    private ImportPipelineFactory importPipelineFactory;
+    private ExcelReaderServiceImpl excelReaderService;
+
+    @BeforeEach
+    void setUp() {
+        importPipelineFactory = new ImportPipelineFactory();
+        ReflectionTestUtils.setField(importPipelineFactory, "workers", 4);
+        ReflectionTestUtils.setField(importPipelineFactory, "queueCapacity", 64);
+        ReflectionTestUtils.invokeMethod(importPipelineFactory, "init");
+        excelReaderService = new ExcelReaderServiceImpl(importPipelineFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(importPipelineFactory, "shutdown");
+    }
+
+    @Test
+    void invalidAndDuplicateRowWarningsKeepRowOrder() {
+        String csv = String.join("\n",
+                row("Mã môn", "Khóa", "Mã ngành", "Tên môn", "Số tín chỉ"), // Dòng 1: header
+                row("INT1154", "2022", "CNTT", "Tin học cơ sở", "3"),       // Dòng 2
+                row("INT1154", "2022", "CNTT", "Tin học cơ sở", "3"),       // Dòng 3: trùng dòng 2
+                row("INT1155", "2022", "CNTT", "Toán rời rạc", "0"),        // Dòng 4: thiếu tín chỉ
+                row("INT1156", "2022", "CNTT", "Cấu trúc dữ liệu", "3"),    // Dòng 5
+                row("INT1156", "2022", "CNTT", "Cấu trúc dữ liệu", "3"),    // Dòng 6: trùng dòng 5
+                row("INT1157", "2022", "CNTT", "", "2"),                    // Dòng 7: thiếu tên môn
+                row("INT1156", "2023", "CNTT", "Cấu trúc dữ liệu", "3"))    // Dòng 8: khác khóa
+                + "\n";
+        MockMultipartFile file = new MockMultipartFile("file", "ctdt.csv", "text/csv",
+                csv.getBytes(StandardCharsets.UTF_8));
+        List<String> emitted = new ArrayList<>();
+
+        ExcelImportResult result = excelReaderService.streamSubjectsFromExcel(file, "HK1", "2025-2026",
+                subject -> emitted.add(subject.getSubjectCode() + "/" + subject.getClassYear()));
+
+        List<String> warnings = result.getWarnings();
+        assertEquals(4, warnings.size(), warnings.toString());
+        assertTrue(warnings.get(0).contains("bị trùng: dòng 2 và dòng 3"), warnings.get(0));
+        assertTrue(warnings.get(1).startsWith("Dòng 4:"), warnings.get(1));
+        assertTrue(warnings.get(2).contains("bị trùng: dòng 5 và dòng 6"), warnings.get(2));
+        assertTrue(warnings.get(3).startsWith("Dòng 7:"), warnings.get(3));
+
+        assertEquals(List.of("INT1154/2022", "INT1156/2022", "INT1156/2023"), emitted);
+        assertEquals(3, result.getSuccessCount());
+        assertEquals(2, result.getSkippedCount());
+    }
+
+    private static String row(String subjectCode, String classYear, String majorId, String subjectName,
+                              String credits) {
+        String[] cells = new String[COLUMNS];
+        Arrays.fill(cells, "");
+        cells[0] = subjectCode;
+        cells[1] = classYear;
+        cells[2] = majorId;
+        cells[9] = subjectName;
+        cells[10] = credits;
+        cells[18] = "CNTT";
+        return String.join(",", cells);
+    }
+}
@@ -0,0 +1,121 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.exception.SemesterLockException;
+import com.ptit.schedule.service.SemesterFenceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Khóa học kỳ trong JVM: token tăng dần (kể cả sau khởi động lại), loại trừ lẫn nhau, hết hạn chờ
+ */
+class InMemorySemesterLockServiceTest {
+
+    private static final Long SEMESTER_ID = 11L;
+
+    private SemesterFenceService fenceService;
+
+    @BeforeEach
+    void setUp() {
+        fenceService = mock(SemesterFenceService.class);
+        when(fenceService.currentToken(SEMESTER_ID)).thenReturn(0L);
+    }
+
+    @Test
+    void tokensAreMonotonicPerSemester() {
+        InMemorySemesterLockService lockService = newLockService(1000);
+
+        long previous = 0;
+        for (int i = 0; i < 5; i++) {
+            long token = lockService.acquire(SEMESTER_ID);
+            assertTrue(token > previous, "token " + token + " after " + previous);
+            lockService.release(SEMESTER_ID, token);
+            previous = token;
+        }
+        assertEquals(1L, lockService.acquire(99L), "other semester has its own sequence");
+    }
+
+    @Test
+    void tokensContinueAfterHighestPersistedToken() {
+        when(fenceService.currentToken(SEMESTER_ID)).thenReturn(41L);
+        InMemorySemesterLockService restarted = newLockService(1000);
+
+        assertEquals(42L, restarted.<Long>callWithLock(SEMESTER_ID, token -> token));
+        assertEquals(43L, restarted.<Long>callWithLock(SEMESTER_ID, token -> token));
+    }
+
+    @Test
+    void lockIsExclusiveAndTimesOut() {
+        InMemorySemesterLockService lockService = newLockService(50);
+        long token = lockService.acquire(SEMESTER_ID);
+
+        assertThrows(SemesterLockException.class, () -> lockService.acquire(SEMESTER_ID));
+
+        lockService.release(SEMESTER_ID, token);
+        assertTrue(lockService.acquire(SEMESTER_ID) > token);
+    }
+
+    @Test
+    void releaseWithOtherTokenIsIgnored() {
+        InMemorySemesterLockService lockService = newLockService(50);
+        long token = lockService.acquire(SEMESTER_ID);
+
+        lockService.release(SEMESTER_ID, token + 1);
+        assertThrows(SemesterLockException.class, () -> lockService.acquire(SEMESTER_ID), "still held");
+
+        lockService.release(SEMESTER_ID, token);
+        lockService.acquire(SEMESTER_ID);
+    }
+
+    @Test
+    void concurrentHoldersGetDistinctIncreasingTokens() throws Exception {
+        InMemorySemesterLockService lockService = newLockService(10_000);
+        int threads = 4;
+        int rounds = 50;
+        List<Long> tokens = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger inside = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < rounds; i++) {
+                        lockService.runWithLock(SEMESTER_ID, token -> {
+                            assertEquals(1, inside.incrementAndGet(), "two holders at once");
+                            tokens.add(token);
+                            inside.decrementAndGet();
+                        });
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Thứ tự giữ khóa = thứ tự token
+        assertEquals(threads * rounds, tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            assertEquals(i + 1L, tokens.get(i));
+        }
+    }
+
+    private InMemorySemesterLockService newLockService(long waitMs) {
+        InMemorySemesterLockService lockService = new InMemorySemesterLockService(fenceService);
+        ReflectionTestUtils.setField(lockService, "waitMs", waitMs);
+        return lockService;
+    }
+}
@@ -0,0 +1,96 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.dto.LiveEntryRequest;
+import com.ptit.schedule.exception.ResourceNotFoundException;
+import com.ptit.schedule.repository.SemesterRepository;
+import com.ptit.schedule.service.ScheduleIndexLoader;
+import com.ptit.schedule.utils.ConflictIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+/**
+ * Bản lịch đang chỉnh theo học kỳ: xóa schedule chỉ gỡ đúng lớp đó, reset chỉ ảnh hưởng một học kỳ
+ */
+class LiveConflictIndexServiceImplTest {
+
+    private static final Long SEMESTER_A = 1L;
+    private static final Long SEMESTER_B = 2L;
+
+    private ScheduleIndexLoader scheduleIndexLoader;
+    private LiveConflictIndexServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        scheduleIndexLoader = mock(ScheduleIndexLoader.class);
+        SemesterRepository semesterRepository = mock(SemesterRepository.class);
+        when(semesterRepository.existsById(anyLong())).thenReturn(true);
+        // Mỗi học kỳ có sẵn schedule 10 (A) / 20 (B) ở phòng 101-A1 thứ 2 tiết 1-2 tuần 1
+        when(scheduleIndexLoader.load(anyLong())).thenAnswer(inv -> {
+            Long semesterId = inv.getArgument(0);
+            ConflictIndex index = new ConflictIndex();
+            index.add(new ConflictIndex.Entry(ScheduleIndexLoader.entryId(semesterId * 10), "101-A1", null, null,
+                    2, 1, 2, 0b1));
+            return index;
+        });
+
+        service = new LiveConflictIndexServiceImpl(scheduleIndexLoader, semesterRepository);
+        ReflectionTestUtils.setField(service, "maxEntries", 16);
+        ReflectionTestUtils.setField(service, "idleTtlMs", 60_000L);
+    }
+
+    @Test
+    void removeSavedKeepsUnsavedEditsOfEverySemester() {
+        assertEquals(1, service.addEntry(SEMESTER_A, entry("new-a", 2)).getCreated().size());
+        service.moveEntry(SEMESTER_B, "20", entry("20", 3));
+
+        service.removeSaved(List.of(10L, 20L));
+
+        // Lớp mới của A vẫn còn, schedule 10 đã gỡ nên hết xung đột
+        assertTrue(service.removeEntry(SEMESTER_A, "new-a").getResolved().isEmpty());
+        assertThrows(ResourceNotFoundException.class, () -> service.removeEntry(SEMESTER_A, "10"));
+        assertThrows(ResourceNotFoundException.class, () -> service.removeEntry(SEMESTER_B, "20"));
+        verify(scheduleIndexLoader, times(1)).load(SEMESTER_A);
+        verify(scheduleIndexLoader, times(1)).load(SEMESTER_B);
+    }
+
+    @Test
+    void resetOnlyReloadsThatSemester() {
+        service.addEntry(SEMESTER_A, entry("new-a", 3));
+        service.addEntry(SEMESTER_B, entry("new-b", 3));
+
+        service.reset(SEMESTER_A);
+
+        assertThrows(ResourceNotFoundException.class, () -> service.removeEntry(SEMESTER_A, "new-a"));
+        assertEquals(0, service.removeEntry(SEMESTER_B, "new-b").getTotalConflicts());
+        verify(scheduleIndexLoader, times(2)).load(SEMESTER_A);
+        verify(scheduleIndexLoader, times(1)).load(SEMESTER_B);
+    }
+
+    @Test
+    void leastRecentlyUsedSemesterIsEvicted() {
+        ReflectionTestUtils.setField(service, "maxEntries", 1);
+        service.addEntry(SEMESTER_A, entry("new-a", 3));
+        service.addEntry(SEMESTER_B, entry("new-b", 3));
+
+        assertThrows(ResourceNotFoundException.class, () -> service.removeEntry(SEMESTER_A, "new-a"));
+        verify(scheduleIndexLoader, times(2)).load(SEMESTER_A);
+    }
+
+    private static LiveEntryRequest entry(String entryId, int dayOfWeek) {
+        return LiveEntryRequest.builder()
+                .entryId(entryId)
+                .room("101-A1")
+                .dayOfWeek(dayOfWeek)
+                .startPeriod(1)
+                .numberOfPeriods(2)
+                .weeks(List.of(1))
+                .build();
+    }
+}
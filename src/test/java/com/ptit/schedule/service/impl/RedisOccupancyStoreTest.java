@@ -0,0 +1,169 @@
+package com.ptit.schedule.service.impl;
+
+import com.ptit.schedule.config.RedisConfig;
+import com.ptit.schedule.repository.RoomOccupancyRepository;
+import com.ptit.schedule.service.OccupancyStore;
+import com.ptit.schedule.service.RedisService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * {@link RedisOccupancyStore} trên Redis thật (binary nhúng): chạy đúng occupancy_reserve.lua,
+ * occupancy_seed.lua và các lệnh bitmap của {@link RedisService}.
+ * Hai store dùng chung một Redis đóng vai hai node.
+ */
+class RedisOccupancyStoreTest {
+
+    private static final Long SEMESTER_ID = 7L;
+
+    private static RedisServer server;
+    private static JedisConnectionFactory connectionFactory;
+    private static RedisService redisService;
+
+    private RoomOccupancyRepository repository;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        server = new RedisServer(port);
+        server.start();
+
+        connectionFactory = new JedisConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        connectionFactory.afterPropertiesSet();
+        connectionFactory.start();
+
+        RedisConfig config = new RedisConfig();
+        StringRedisTemplate stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        redisService = new RedisService(config.redisTemplate(connectionFactory), stringRedisTemplate,
+                config.occupancyReserveScript(), config.occupancySeedScript(),
+                config.semesterLockAcquireScript(), config.semesterLockReleaseScript());
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        server.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        try (var connection = connectionFactory.getConnection()) {
+            connection.serverCommands().flushAll();
+        }
+        repository = mock(RoomOccupancyRepository.class);
+        when(repository.findSlotsBySemesterId(SEMESTER_ID)).thenReturn(List.<Object[]>of(
+                new Object[]{1L, 2, 1},
+                new Object[]{3L, 7, 6}));
+    }
+
+    @Test
+    void seedsFromMySqlOnceAcrossNodes() {
+        RedisOccupancyStore nodeA = new RedisOccupancyStore(redisService, repository);
+        RedisOccupancyStore nodeB = new RedisOccupancyStore(redisService, repository);
+
+        assertTrue(nodeA.isOccupied(SEMESTER_ID, OccupancyStore.slotIndex(1L, 2, 1)));
+        assertTrue(nodeB.isOccupied(SEMESTER_ID, OccupancyStore.slotIndex(3L, 7, 6)));
+        assertFalse(nodeB.isOccupied(SEMESTER_ID, OccupancyStore.slotIndex(1L, 2, 2)));
+
+        verify(repository, times(1)).findSlotsBySemesterId(SEMESTER_ID);
+    }
+
+    @Test
+    void reserveIsCheckAndSetAcrossNodes() {
+        RedisOccupancyStore nodeA = new RedisOccupancyStore(redisService, repository);
+        RedisOccupancyStore nodeB = new RedisOccupancyStore(redisService, repository);
+        long slot = OccupancyStore.slotIndex(2L, 4, 3);
+
+        assertTrue(nodeA.reserve(SEMESTER_ID, slot));
+        assertFalse(nodeB.reserve(SEMESTER_ID, slot));
+        assertFalse(nodeA.reserve(SEMESTER_ID, OccupancyStore.slotIndex(1L, 2, 1)), "seeded from MySQL");
+    }
+
+    @Test
+    void reserveOfSeveralSlotsIsAllOrNothing() {
+        RedisOccupancyStore store = new RedisOccupancyStore(redisService, repository);
+        long free = OccupancyStore.slotIndex(2L, 5, 1);
+        long taken = OccupancyStore.slotIndex(1L, 2, 1);
+
+        assertFalse(store.reserve(SEMESTER_ID, free, taken));
+        assertFalse(store.isOccupied(SEMESTER_ID, free), "no partial reservation");
+        assertTrue(store.reserve(SEMESTER_ID, free, OccupancyStore.slotIndex(2L, 5, 2)));
+    }
+
+    @Test
+    void releasedSlotCanBeReservedAgain() {
+        RedisOccupancyStore nodeA = new RedisOccupancyStore(redisService, repository);
+        RedisOccupancyStore nodeB = new RedisOccupancyStore(redisService, repository);
+        long slot = OccupancyStore.slotIndex(4L, 3, 2);
+
+        assertTrue(nodeA.reserve(SEMESTER_ID, slot));
+        nodeA.release(SEMESTER_ID, slot);
+
+        assertFalse(nodeB.isOccupied(SEMESTER_ID, slot));
+        assertTrue(nodeB.reserve(SEMESTER_ID, slot));
+    }
+
+    @Test
+    void clearIsNotReseededByOtherNode() {
+        RedisOccupancyStore nodeA = new RedisOccupancyStore(redisService, repository);
+        nodeA.clear(SEMESTER_ID);
+
+        RedisOccupancyStore nodeB = new RedisOccupancyStore(redisService, repository);
+        assertFalse(nodeB.isOccupied(SEMESTER_ID, OccupancyStore.slotIndex(1L, 2, 1)));
+        verify(repository, never()).findSlotsBySemesterId(SEMESTER_ID);
+    }
+
+    @Test
+    void concurrentReservationsHaveExactlyOneWinner() throws Exception {
+        int nodes = 8;
+        List<RedisOccupancyStore> stores = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            RedisOccupancyStore store = new RedisOccupancyStore(redisService, repository);
+            store.preload(SEMESTER_ID);
+            stores.add(store);
+        }
+        long slot = OccupancyStore.slotIndex(9L, 6, 4);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(nodes);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (RedisOccupancyStore store : stores) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    if (store.reserve(SEMESTER_ID, slot)) {
+                        winners.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, winners.get());
+    }
+}
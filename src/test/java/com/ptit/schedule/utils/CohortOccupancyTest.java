@@ -0,0 +1,100 @@
+package com.ptit.schedule.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Đóng gói bit tuần × thứ × tiết của {@link CohortOccupancy}: biên tiết 16 / chủ nhật / tuần 18,
+ * các khoảng tiết liền kề, và slot kề nhau trong cùng một long không lấn sang nhau
+ */
+class CohortOccupancyTest {
+
+    private static final String COHORT = "CNTT|2022|1";
+    private static final int SUNDAY = 8;
+    private static final int WEEK_18 = 1 << 17;
+
+    @Test
+    void lastPeriodOnSundayOfLastWeekIsTracked() {
+        CohortOccupancy occupancy = new CohortOccupancy();
+        occupancy.add(entry("a", SUNDAY, 16, 1, WEEK_18));
+        occupancy.add(entry("b", SUNDAY, 14, 3, WEEK_18 | 1));
+
+        List<ConflictIndex.Conflict> conflicts = occupancy.conflicts();
+
+        assertEquals(1, conflicts.size());
+        ConflictIndex.Conflict conflict = conflicts.get(0);
+        assertEquals(ConflictIndex.ResourceType.STUDENT_GROUP, conflict.type());
+        assertEquals(COHORT, conflict.resource());
+        assertEquals("b", conflict.entryId());
+        assertEquals("a", conflict.otherEntryId());
+        assertEquals(SUNDAY, conflict.dayOfWeek());
+        assertEquals(16, conflict.startPeriod());
+        assertEquals(1, conflict.periods());
+        assertEquals(WEEK_18, conflict.weekMask());
+        assertEquals(0, occupancy.skippedCount());
+    }
+
+    @Test
+    void adjacentRunsDoNotOverlap() {
+        CohortOccupancy occupancy = new CohortOccupancy();
+        occupancy.add(entry("a", 2, 1, 3, 0b1));
+        occupancy.add(entry("b", 2, 4, 3, 0b1));      // tiết 4-6 ngay sau tiết 1-3
+        occupancy.add(entry("c", 2, 7, 10, 0b1));     // tiết 7-16, chạm biên 16 tiết
+        occupancy.add(entry("d", 2, 1, 16, 0b10));    // cả ngày nhưng tuần khác
+
+        assertTrue(occupancy.conflicts().isEmpty());
+        assertEquals(4, occupancy.entryCount());
+    }
+
+    @Test
+    void neighbouringSlotsInSameWordStaySeparate() {
+        CohortOccupancy occupancy = new CohortOccupancy();
+        // Thứ 7 và chủ nhật tuần 18 nằm chung một long: tiết 16 thứ 7 kề tiết 1 chủ nhật trong bitset
+        occupancy.add(entry("sat", 7, 16, 1, WEEK_18));
+        occupancy.add(entry("sun", SUNDAY, 1, 1, WEEK_18));
+        // Cùng thứ / tiết, khác tuần (tuần 17 và 18)
+        occupancy.add(entry("week17", SUNDAY, 16, 1, 1 << 16));
+        occupancy.add(entry("week18", SUNDAY, 16, 1, WEEK_18));
+
+        assertTrue(occupancy.conflicts().isEmpty());
+    }
+
+    @Test
+    void outOfRangeEntriesAreSkipped() {
+        CohortOccupancy occupancy = new CohortOccupancy();
+        occupancy.add(entry("period17", 2, 17, 1, 0b1));
+        occupancy.add(entry("overflow", 2, 15, 3, 0b1));
+        occupancy.add(entry("day9", 9, 1, 1, 0b1));
+        occupancy.add(entry("day1", 1, 1, 1, 0b1));
+        occupancy.add(entry("noWeeks", 2, 1, 1, 0));
+        occupancy.add(entry("noPeriods", 2, 1, 0, 0b1));
+
+        assertEquals(6, occupancy.skippedCount());
+        assertEquals(0, occupancy.entryCount());
+        assertEquals(0, occupancy.cohortCount());
+    }
+
+    @Test
+    void onlyClashingCohortsAreReported() {
+        CohortOccupancy occupancy = new CohortOccupancy();
+        occupancy.add(new CohortOccupancy.Entry("a", List.of(COHORT, "CNTT|2022|2"), 3, 1, 2, 0b11));
+        occupancy.add(new CohortOccupancy.Entry("b", List.of("CNTT|2022|2", "CNTT|2022|2"), 3, 2, 2, 0b10));
+        occupancy.add(new CohortOccupancy.Entry("c", List.of(COHORT), 4, 1, 2, 0b11));
+
+        List<ConflictIndex.Conflict> conflicts = occupancy.conflicts();
+
+        assertEquals(1, conflicts.size(), "nhóm lặp trong một lớp chỉ tính một lần");
+        assertEquals("CNTT|2022|2", conflicts.get(0).resource());
+        assertEquals(2, conflicts.get(0).startPeriod());
+        assertEquals(1, conflicts.get(0).periods());
+        assertEquals(0b10, conflicts.get(0).weekMask());
+        assertEquals(2, occupancy.cohortCount());
+    }
+
+    private static CohortOccupancy.Entry entry(String id, int dayOfWeek, int startPeriod, int periods, int weekMask) {
+        return new CohortOccupancy.Entry(id, List.of(COHORT), dayOfWeek, startPeriod, periods, weekMask);
+    }
+}
@@ -0,0 +1,133 @@
+package com.ptit.schedule.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Delta của add / move / remove và conflictCount của {@link ConflictIndex},
+ * kể cả khi chỉ chồng một phần tiết / một phần tuần
+ */
+class ConflictIndexTest {
+
+    private static final int WEEKS_1_TO_4 = 0b1111;
+    private static final int WEEKS_3_TO_6 = 0b111100;
+    private static final int WEEKS_5_TO_8 = 0b11110000;
+
+    @Test
+    void addReportsOnlyOverlappingPeriodsAndWeeks() {
+        ConflictIndex index = new ConflictIndex();
+        assertTrue(index.add(entry("a", "101-A1", null, 2, 1, 4, WEEKS_1_TO_4)).isEmpty());
+
+        // Tiết 3-6 / tuần 3-6 chồng với tiết 1-4 / tuần 1-4 ở tiết 3-4, tuần 3-4
+        List<ConflictIndex.Conflict> created = index.add(entry("b", "101-A1", null, 2, 3, 4, WEEKS_3_TO_6));
+
+        assertEquals(1, created.size());
+        ConflictIndex.Conflict conflict = created.get(0);
+        assertEquals(ConflictIndex.ResourceType.ROOM, conflict.type());
+        assertEquals("101-A1", conflict.resource());
+        assertEquals("b", conflict.entryId());
+        assertEquals("a", conflict.otherEntryId());
+        assertEquals(3, conflict.startPeriod());
+        assertEquals(2, conflict.periods());
+        assertEquals(0b1100, conflict.weekMask());
+        assertEquals(1, index.conflictCount());
+    }
+
+    @Test
+    void noConflictWithoutSharedPeriodWeekDayOrResource() {
+        ConflictIndex index = new ConflictIndex();
+        index.add(entry("a", "101-A1", "GV1", 2, 1, 2, WEEKS_1_TO_4));
+
+        assertTrue(index.add(entry("adjacent", "101-A1", null, 2, 3, 2, WEEKS_1_TO_4)).isEmpty(), "tiết liền kề");
+        assertTrue(index.add(entry("otherWeeks", "101-A1", null, 2, 1, 2, WEEKS_5_TO_8)).isEmpty(), "khác tuần");
+        assertTrue(index.add(entry("otherDay", "101-A1", null, 3, 1, 2, WEEKS_1_TO_4)).isEmpty(), "khác thứ");
+        assertTrue(index.add(entry("otherRoom", "102-A1", null, 2, 1, 2, WEEKS_1_TO_4)).isEmpty(), "khác phòng");
+        assertEquals(0, index.conflictCount());
+    }
+
+    @Test
+    void eachSharedResourceIsAConflict() {
+        ConflictIndex index = new ConflictIndex();
+        index.add(new ConflictIndex.Entry("a", "101-A1", "GV1", "CNTT|2022|1", 4, 1, 2, WEEKS_1_TO_4));
+
+        List<ConflictIndex.Conflict> created = index.add(
+                new ConflictIndex.Entry("b", "101-A1", "GV1", "CNTT|2022|1", 4, 2, 2, 0b10));
+
+        assertEquals(3, created.size());
+        assertEquals(3, index.conflictCount());
+        for (ConflictIndex.Conflict conflict : created) {
+            assertEquals(2, conflict.startPeriod());
+            assertEquals(1, conflict.periods());
+            assertEquals(0b10, conflict.weekMask());
+        }
+    }
+
+    @Test
+    void removeReturnsResolvedConflicts() {
+        ConflictIndex index = new ConflictIndex();
+        index.add(entry("a", "101-A1", null, 2, 1, 4, WEEKS_1_TO_4));
+        index.add(entry("b", "101-A1", null, 2, 2, 2, WEEKS_1_TO_4));
+        index.add(entry("c", "101-A1", null, 2, 4, 2, WEEKS_1_TO_4));
+        assertEquals(2, index.conflictCount()); // a-b, a-c
+
+        List<ConflictIndex.Conflict> resolved = index.remove("a");
+
+        assertEquals(2, resolved.size());
+        assertEquals(0, index.conflictCount());
+        assertNull(index.get("a"));
+        assertEquals(2, index.size());
+        assertTrue(index.remove("a").isEmpty(), "đã xóa");
+    }
+
+    @Test
+    void moveReturnsOnlyChangedConflicts() {
+        ConflictIndex index = new ConflictIndex();
+        index.add(entry("a", "101-A1", null, 2, 1, 2, WEEKS_1_TO_4));
+        index.add(entry("b", "101-A1", null, 2, 5, 2, WEEKS_1_TO_4));
+        index.add(entry("c", "101-A1", null, 2, 1, 6, WEEKS_1_TO_4)); // trùng a và b
+        assertEquals(2, index.conflictCount());
+
+        // c còn trùng b, hết trùng a, thêm trùng d
+        index.add(entry("d", "101-A1", null, 2, 7, 2, WEEKS_1_TO_4));
+        ConflictIndex.Delta delta = index.move(entry("c", "101-A1", null, 2, 5, 4, WEEKS_1_TO_4));
+
+        assertEquals(1, delta.resolved().size());
+        assertEquals("a", delta.resolved().get(0).otherEntryId());
+        assertEquals(1, delta.created().size());
+        assertEquals("d", delta.created().get(0).otherEntryId());
+        assertEquals(2, index.conflictCount()); // c-b, c-d
+        assertEquals(5, index.get("c").startPeriod());
+    }
+
+    @Test
+    void moveOfUnknownEntryActsAsAdd() {
+        ConflictIndex index = new ConflictIndex();
+        index.add(entry("a", "101-A1", null, 2, 1, 2, WEEKS_1_TO_4));
+
+        ConflictIndex.Delta delta = index.move(entry("b", "101-A1", null, 2, 2, 2, WEEKS_3_TO_6));
+
+        assertEquals(1, delta.created().size());
+        assertEquals(0b1100, delta.created().get(0).weekMask());
+        assertTrue(delta.resolved().isEmpty());
+        assertEquals(1, index.conflictCount());
+    }
+
+    @Test
+    void probeDoesNotChangeIndex() {
+        ConflictIndex index = new ConflictIndex();
+        index.add(entry("a", "101-A1", null, 2, 1, 2, WEEKS_1_TO_4));
+
+        assertEquals(1, index.probe(entry("b", "101-A1", null, 2, 1, 2, WEEKS_1_TO_4)).size());
+        assertTrue(index.probe(entry("a", "101-A1", null, 2, 1, 2, WEEKS_1_TO_4)).isEmpty(), "bỏ qua chính nó");
+        assertEquals(1, index.size());
+        assertEquals(0, index.conflictCount());
+    }
+
+    private static ConflictIndex.Entry entry(String id, String room, String teacherId,
+                                             int dayOfWeek, int startPeriod, int periods, int weekMask) {
+        return new ConflictIndex.Entry(id, room, teacherId, null, dayOfWeek, startPeriod, periods, weekMask);
+    }
+}
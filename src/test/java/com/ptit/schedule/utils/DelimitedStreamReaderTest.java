@@ -0,0 +1,111 @@
+package com.ptit.schedule.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tách ô / ngoặc kép / xuống dòng / BOM / TSV / bản ghi dài hơn buffer của {@link DelimitedStreamReader}
+ */
+class DelimitedStreamReaderTest {
+
+    @Test
+    void unquotedCellsAndEmptyCells() throws IOException {
+        List<List<String>> rows = read("INT1154,Tin học cơ sở,3\nINT1155,,2\n", DelimitedStreamReader.COMMA);
+
+        assertEquals(List.of(
+                List.of("INT1154", "Tin học cơ sở", "3"),
+                Arrays.asList("INT1155", null, "2")), rows);
+    }
+
+    @Test
+    void quotedCellsWithEscapesDelimitersAndNewlines() throws IOException {
+        String csv = "\"Lập trình \"\"C++\"\"\",\"A2, tầng 3\",\"dòng 1\ndòng 2\",\"\"\n"
+                + "x,y,z,w\n";
+
+        List<List<String>> rows = read(csv, DelimitedStreamReader.COMMA);
+
+        assertEquals(2, rows.size());
+        assertEquals(Arrays.asList("Lập trình \"C++\"", "A2, tầng 3", "dòng 1\ndòng 2", null), rows.get(0));
+        assertEquals(List.of("x", "y", "z", "w"), rows.get(1));
+    }
+
+    @Test
+    void trailingDelimiterAddsEmptyLastCell() throws IOException {
+        List<List<String>> rows = read("a,b,\n\"c\",\n", DelimitedStreamReader.COMMA);
+
+        assertEquals(List.of(Arrays.asList("a", "b", null), Arrays.asList("c", null)), rows);
+    }
+
+    @Test
+    void crlfAndLfGiveSameRowsAndBlankLinesKeepRowNumbers() throws IOException {
+        List<Integer> lfRowNums = new ArrayList<>();
+        List<Integer> crlfRowNums = new ArrayList<>();
+
+        List<List<String>> lf = read("a,b\n\nc,d", DelimitedStreamReader.COMMA, lfRowNums);
+        List<List<String>> crlf = read("a,b\r\n\r\nc,d\r\n", DelimitedStreamReader.COMMA, crlfRowNums);
+
+        assertEquals(List.of(List.of("a", "b"), List.of("c", "d")), lf);
+        assertEquals(lf, crlf);
+        assertEquals(List.of(0, 2), lfRowNums);
+        assertEquals(lfRowNums, crlfRowNums);
+    }
+
+    @Test
+    void utf8BomIsSkipped() throws IOException {
+        byte[] bytes = "\uFEFFMã môn,Tên môn\nINT1154,Tin học\n".getBytes(StandardCharsets.UTF_8);
+        List<List<String>> rows = new ArrayList<>();
+
+        int count = DelimitedStreamReader.read(new ByteArrayInputStream(bytes), DelimitedStreamReader.COMMA,
+                (rowNum, cells) -> rows.add(new ArrayList<>(cells)));
+
+        assertEquals(2, count);
+        assertEquals(List.of("Mã môn", "Tên môn"), rows.get(0));
+    }
+
+    @Test
+    void tsvSplitsOnTabOnly() throws IOException {
+        List<List<String>> rows = read("A2, tầng 3\t\"có\ttab\"\t5\n", DelimitedStreamReader.TAB);
+
+        assertEquals(List.of(List.of("A2, tầng 3", "có\ttab", "5")), rows);
+        assertEquals(DelimitedStreamReader.TAB, DelimitedStreamReader.delimiterFor("tkb.TSV"));
+        assertEquals(DelimitedStreamReader.COMMA, DelimitedStreamReader.delimiterFor("tkb.csv"));
+        assertEquals(0, DelimitedStreamReader.delimiterFor("tkb.xlsx"));
+    }
+
+    @Test
+    void recordLongerThanBufferIsReadWhole() throws IOException {
+        String longCell = "x".repeat(200_000);
+        String quotedLong = "y\n".repeat(50_000);
+        String csv = "a," + longCell + "\n\"" + quotedLong + "\",b\nc,d\n";
+
+        List<List<String>> rows = read(csv, DelimitedStreamReader.COMMA);
+
+        assertEquals(3, rows.size());
+        assertEquals(List.of("a", longCell), rows.get(0));
+        assertEquals(List.of(quotedLong, "b"), rows.get(1));
+        assertEquals(List.of("c", "d"), rows.get(2));
+    }
+
+    private static List<List<String>> read(String text, char delimiter) throws IOException {
+        return read(text, delimiter, new ArrayList<>());
+    }
+
+    private static List<List<String>> read(String text, char delimiter, List<Integer> rowNums) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        int count = DelimitedStreamReader.read(new StringReader(text), delimiter, (rowNum, cells) -> {
+            rowNums.add(rowNum);
+            rows.add(new ArrayList<>(cells)); // handler nhận list dùng lại
+        });
+        assertEquals(rows.size(), count);
+        return rows;
+    }
+}
@@ -0,0 +1,195 @@
+package com.ptit.schedule.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Hủy / lỗi / thứ tự / back-pressure của {@link ImportPipeline}
+ */
+class ImportPipelineTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    private ExecutorService readerExecutor;
+    private ExecutorService validatorExecutor;
+
+    @BeforeEach
+    void setUp() {
+        readerExecutor = Executors.newCachedThreadPool();
+        validatorExecutor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        readerExecutor.shutdownNow();
+        validatorExecutor.shutdownNow();
+    }
+
+    @Test
+    void writerFailureCancelsReaderWithoutDeadlock() {
+        ImportPipeline<Integer, Integer> pipeline = new ImportPipeline<>(readerExecutor, validatorExecutor, 4, 10);
+        AtomicInteger read = new AtomicInteger();
+        CountDownLatch readerStopped = new CountDownLatch(1);
+        AtomicInteger batches = new AtomicInteger();
+
+        IllegalStateException e = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(IllegalStateException.class,
+                () -> pipeline.run(
+                        sink -> {
+                            try {
+                                for (int i = 0; i < 1_000_000; i++) {
+                                    sink.accept(i, i);
+                                    read.incrementAndGet();
+                                }
+                            } finally {
+                                readerStopped.countDown();
+                            }
+                        },
+                        (rowNum, row) -> row,
+                        batch -> {
+                            if (batches.incrementAndGet() == 3) {
+                                throw new IllegalStateException("DB down");
+                            }
+                        },
+                        (rowNum, ex) -> fail("unexpected row error " + rowNum))));
+
+        assertEquals("DB down", e.getMessage());
+        assertTimeoutPreemptively(TIMEOUT, () -> readerStopped.await());
+        assertTrue(read.get() < 1_000_000, "reader was cancelled, read " + read.get());
+    }
+
+    @Test
+    void readerIOExceptionIsSurfaced() {
+        ImportPipeline<Integer, Integer> pipeline = new ImportPipeline<>(readerExecutor, validatorExecutor, 16, 10);
+        List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+
+        IOException e = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(IOException.class,
+                () -> pipeline.run(
+                        sink -> {
+                            for (int i = 0; i < 25; i++) {
+                                sink.accept(i, i);
+                            }
+                            throw new IOException("File hỏng");
+                        },
+                        (rowNum, row) -> row,
+                        batch -> batch.forEach(row -> written.add(row.value())),
+                        (rowNum, ex) -> fail("unexpected row error " + rowNum))));
+
+        assertEquals("File hỏng", e.getMessage());
+        // Các batch đủ có thể đã ghi, batch dở dang sau lỗi reader thì không
+        assertTrue(written.size() <= 20, "written " + written.size());
+        assertEquals(0, written.size() % 10);
+    }
+
+    @Test
+    void validatorErrorsAreReportedInRowOrder() throws IOException {
+        ImportPipeline<Integer, Integer> pipeline = new ImportPipeline<>(readerExecutor, validatorExecutor, 32, 7);
+        List<Integer> errorRows = new ArrayList<>();
+        List<Integer> writtenRows = new ArrayList<>();
+
+        int written = pipeline.run(
+                sink -> {
+                    for (int i = 0; i < 300; i++) {
+                        sink.accept(i, i);
+                    }
+                },
+                (rowNum, row) -> {
+                    // Dòng sau xong trước dòng trước
+                    Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+                    if (row % 3 == 0) {
+                        throw new IllegalArgumentException("Dòng " + rowNum + " không hợp lệ");
+                    }
+                    return row % 5 == 0 ? null : row;
+                },
+                batch -> batch.forEach(row -> writtenRows.add(row.rowNum())),
+                (rowNum, ex) -> {
+                    assertInstanceOf(IllegalArgumentException.class, ex);
+                    errorRows.add(rowNum);
+                });
+
+        List<Integer> expectedErrors = new ArrayList<>();
+        List<Integer> expectedWritten = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            if (i % 3 == 0) {
+                expectedErrors.add(i);
+            } else if (i % 5 != 0) {
+                expectedWritten.add(i);
+            }
+        }
+        assertEquals(expectedErrors, errorRows);
+        assertEquals(expectedWritten, writtenRows);
+        assertEquals(expectedWritten.size(), written);
+    }
+
+    @Test
+    void pendingBatchIsWrittenBeforeLaterRowError() throws IOException {
+        ImportPipeline<Integer, Integer> pipeline = new ImportPipeline<>(readerExecutor, validatorExecutor, 32, 100);
+        List<String> events = new ArrayList<>();
+
+        int written = pipeline.run(
+                sink -> {
+                    for (int i = 0; i < 10; i++) {
+                        sink.accept(i, i);
+                    }
+                },
+                (rowNum, row) -> {
+                    if (row == 3 || row == 7) {
+                        throw new IllegalArgumentException("Dòng " + rowNum + " không hợp lệ");
+                    }
+                    return row;
+                },
+                batch -> batch.forEach(row -> events.add("write " + row.rowNum())),
+                (rowNum, ex) -> events.add("error " + rowNum));
+
+        assertEquals(List.of("write 0", "write 1", "write 2", "error 3", "write 4", "write 5", "write 6",
+                "error 7", "write 8", "write 9"), events);
+        assertEquals(8, written);
+    }
+
+    @Test
+    void slowWriterBlocksReader() throws Exception {
+        int queueCapacity = 2;
+        ImportPipeline<Integer, Integer> pipeline = new ImportPipeline<>(readerExecutor, validatorExecutor,
+                queueCapacity, 1);
+        AtomicInteger read = new AtomicInteger();
+        CountDownLatch firstWrite = new CountDownLatch(1);
+        CountDownLatch releaseWriter = new CountDownLatch(1);
+
+        Future<Integer> result = readerExecutor.submit(() -> pipeline.run(
+                sink -> {
+                    for (int i = 0; i < 100; i++) {
+                        sink.accept(i, i);
+                        read.incrementAndGet();
+                    }
+                },
+                (rowNum, row) -> row,
+                batch -> {
+                    firstWrite.countDown();
+                    try {
+                        releaseWriter.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                },
+                (rowNum, ex) -> fail("unexpected row error " + rowNum)));
+
+        assertTrue(firstWrite.await(10, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        // Writer giữ 1 dòng, queue đầy, reader chặn ở put của dòng tiếp theo
+        assertTrue(read.get() <= queueCapacity + 1, "reader ran ahead: " + read.get());
+
+        releaseWriter.countDown();
+        assertEquals(100, result.get(10, TimeUnit.SECONDS));
+        assertEquals(100, read.get());
+    }
+}